@@ -52,18 +52,39 @@ public class AuthenticationController {
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<Void> logout(HttpServletResponse response) {
-        authenticationService.logout(response);
+    public ResponseEntity<Void> logout(
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) {
+        authenticationService.logout(extractAccessToken(request), extractRefreshTokenFromCookies(request), response);
         return ResponseEntity.noContent().build();
     }
 
     // ============ PRIVADOS ============
 
     private String extractRefreshTokenFromCookies(HttpServletRequest request) {
+        return extractCookie(request, "refresh_token");
+    }
+
+    /**
+     * Access token desde la cookie o, como en el filtro JWT, desde el header Bearer
+     */
+    private String extractAccessToken(HttpServletRequest request) {
+        String token = extractCookie(request, "access_token");
+        if (token == null) {
+            String authHeader = request.getHeader("Authorization");
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                token = authHeader.substring(7);
+            }
+        }
+        return token;
+    }
+
+    private String extractCookie(HttpServletRequest request, String name) {
         Cookie[] cookies = request.getCookies();
         if (cookies != null) {
             for (Cookie cookie : cookies) {
-                if ("refresh_token".equals(cookie.getName())) {
+                if (name.equals(cookie.getName())) {
                     return cookie.getValue();
                 }
             }
@@ -4,9 +4,12 @@ import cl.sicc.siccapi.auth.dto.AuthenticationResponse;
 import cl.sicc.siccapi.auth.dto.LoginRequest;
 import cl.sicc.siccapi.auth.dto.RegisterRequest;
 import cl.sicc.siccapi.security.service.JwtService;
+import cl.sicc.siccapi.security.service.TokenClaims;
+import cl.sicc.siccapi.security.service.TokenRevocationService;
 import cl.sicc.siccapi.user.domain.Role;
 import cl.sicc.siccapi.user.domain.User;
 import cl.sicc.siccapi.user.repository.UserRepository;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -16,15 +19,21 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.core.env.Environment;
+
+import java.time.Instant;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class AuthenticationService {
 
+    private static final String REFRESH_COOKIE_PATH = "/api/auth";
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final TokenRevocationService revocations;
 
     private final Environment environment;
     /**
@@ -49,9 +58,10 @@ public class AuthenticationService {
         User savedUser = userRepository.save(user);
         log.info("Usuario registrado: {}", savedUser.getEmail());
 
-        // Generar tokens
-        String accessToken = jwtService.generateAccessToken(savedUser);
-        String refreshToken = jwtService.generateRefreshToken(savedUser);
+        // Generar tokens: el jti del refresh token identifica la sesión
+        String sessionId = jwtService.newTokenId();
+        String accessToken = jwtService.generateAccessToken(savedUser, sessionId);
+        String refreshToken = jwtService.generateRefreshToken(savedUser, sessionId);
 
         // Setear cookies HttpOnly
         setAccessTokenCookie(response, accessToken);
@@ -82,9 +92,10 @@ public class AuthenticationService {
 
         log.info("Login exitoso: {}", user.getEmail());
 
-        // Generar tokens
-        String accessToken = jwtService.generateAccessToken(user);
-        String refreshToken = jwtService.generateRefreshToken(user);
+        // Generar tokens: el jti del refresh token identifica la sesión
+        String sessionId = jwtService.newTokenId();
+        String accessToken = jwtService.generateAccessToken(user, sessionId);
+        String refreshToken = jwtService.generateRefreshToken(user, sessionId);
 
         // Setear cookies HttpOnly
         setAccessTokenCookie(response, accessToken);
@@ -103,15 +114,16 @@ public class AuthenticationService {
      * - NO regenera refresh token
      */
     public AuthenticationResponse refresh(String refreshToken, HttpServletResponse response) {
-        String userEmail = jwtService.extractUsername(refreshToken);
+        // Una sola verificación; un token expirado o con firma inválida lanza JwtException
+        TokenClaims claims = jwtService.verify(refreshToken);
+        String userEmail = claims.subject();
 
-        if (jwtService.isTokenValid(refreshToken,
-                new org.springframework.security.core.userdetails.User(userEmail, "", java.util.List.of()))) {
+        if (claims.isRefreshToken() && !revocations.isRevoked(claims.id())) {
 
             User user = userRepository.findByEmail(userEmail)
                     .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
-            String newAccessToken = jwtService.generateAccessToken(user);
+            String newAccessToken = jwtService.generateAccessToken(user, claims.id());
 
             // Setear SOLO nuevo access token
             setAccessTokenCookie(response, newAccessToken);
@@ -130,16 +142,60 @@ public class AuthenticationService {
 
     /**
      * Logout de usuario
+     * - Revoca la sesión del access token (su refresh token y los access tokens obtenidos con él),
+     *   aunque el access token ya haya expirado
+     * - Revoca el refresh token recibido, si lo hay
      * - Limpiar cookies invalidándolas
      */
-    public void logout(HttpServletResponse response) {
+    public void logout(String accessToken, String refreshToken, HttpServletResponse response) {
+        if (accessToken != null) {
+            revokeSession(accessToken);
+        }
+        if (refreshToken != null) {
+            revokeRefreshToken(refreshToken);
+        }
         clearCookie(response, "access_token", "/");
+        clearCookie(response, "refresh_token", REFRESH_COOKIE_PATH);
+        // Cookies emitidas con la ruta anterior, sólo /api/auth/refresh
         clearCookie(response, "refresh_token", "/api/auth/refresh");
         log.info("Logout ejecutado");
     }
 
     // ============ PRIVADOS ============
 
+    /**
+     * La sesión se revoca hasta que venza su refresh token, que a lo más dura la expiración de
+     * refresh desde ahora. Los tokens sin id de sesión (emitidos antes de él) se revocan solos.
+     */
+    private void revokeSession(String accessToken) {
+        TokenClaims claims;
+        try {
+            // Un access token expirado igual identifica su sesión, cuyo refresh token sigue vigente
+            claims = jwtService.verifyIgnoringExpiration(accessToken);
+        } catch (JwtException e) {
+            // Firma inválida: no identifica ninguna sesión
+            return;
+        }
+        if (claims.sessionId() != null) {
+            revocations.revoke(claims.sessionId(),
+                    Instant.now().plusMillis(jwtService.getRefreshTokenExpiration()));
+        } else if (claims.id() != null) {
+            revocations.revoke(claims.id(), claims.expiration().toInstant());
+        }
+    }
+
+    private void revokeRefreshToken(String refreshToken) {
+        try {
+            TokenClaims claims = jwtService.verifyIgnoringExpiration(refreshToken);
+            if (claims.isRefreshToken() && claims.id() != null) {
+                // Uno ya expirado no se guarda (revoke lo descarta)
+                revocations.revoke(claims.id(), claims.expiration().toInstant());
+            }
+        } catch (JwtException e) {
+            // Firma inválida: no hay nada que revocar
+        }
+    }
+
     /**
      * Setea la cookie de access token
      * - HttpOnly: true (no accesible a JavaScript)
@@ -169,14 +225,14 @@ public class AuthenticationService {
      * - Secure: true (HTTPS solo)
      * - SameSite: Lax
      * - MaxAge: 30 días
-     * - Path: /api/auth/refresh (para máxima seguridad)
+     * - Path: /api/auth (refresh y logout; el logout lo revoca)
      */
     private void setRefreshTokenCookie(HttpServletResponse response, String refreshToken) {
         Cookie refreshCookie = new Cookie("refresh_token", refreshToken);
         refreshCookie.setHttpOnly(true);
         // TEMPORAL WORKAROUND: ver comentario en setAccessTokenCookie
         refreshCookie.setSecure(false);
-        refreshCookie.setPath("/api/auth/refresh");
+        refreshCookie.setPath(REFRESH_COOKIE_PATH);
         refreshCookie.setMaxAge((int) (jwtService.getRefreshTokenExpiration() / 1000));
         // SameSite Lax temporalmente para compatibilidad con HTTP
         refreshCookie.setAttribute("SameSite", "Lax");
@@ -0,0 +1,353 @@
+package cl.sicc.siccapi.catalog.service;
+
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import cl.sicc.siccapi.diagnosis.domain.Cie10;
+import cl.sicc.siccapi.diagnosis.repository.Cie10Repository;
+import cl.sicc.siccapi.healthcareprofessional.domain.HealthcareProfessional;
+import cl.sicc.siccapi.healthcareprofessional.repository.HealthcareProfessionalRepository;
+import cl.sicc.siccapi.prescription.domain.Medication;
+import cl.sicc.siccapi.prescription.domain.PharmaceuticalForm;
+import cl.sicc.siccapi.prescription.repository.MedicationRepository;
+import cl.sicc.siccapi.prescription.repository.PharmaceuticalFormRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Catálogos de referencia en memoria (CIE-10, medicamentos, formas farmacéuticas y profesionales)
+ * para validar claves foráneas en las escrituras sin ir a la base.
+ *
+ * Cada catálogo es un {@link Snapshot} inmutable con número de versión. Después del commit de una
+ * escritura del catálogo se relee sólo la fila afectada, se copia el mapa con el cambio aplicado y
+ * se reemplaza la versión vigente de una vez; las lecturas nunca toman locks.
+ *
+ * Una clave que no está en la versión vigente (por ejemplo, una fila creada en otro nodo) se busca
+ * una vez en la base y, si existe, se agrega al catálogo; sólo si tampoco está en la base se
+ * informa como inexistente. Los aciertos no consultan la base.
+ *
+ * Los servicios de escritura validan aquí y asocian la entidad con
+ * {@code getReferenceById}, que no consulta la base. Para armar la respuesta sin inicializar esas
+ * referencias usan {@link #cie10Name}, {@link #medicationName} y {@link #professional}.
+ */
+@Slf4j
+@Service
+public class ReferenceCatalogService {
+
+    public record Cie10Entry(String code, String name, Short chapterId, Short blockId) {
+    }
+
+    public record MedicationEntry(Long id, String name, String dosage, Long pharmaceuticalFormId) {
+    }
+
+    public record PharmaceuticalFormEntry(Long id, String name) {
+    }
+
+    public record ProfessionalEntry(Long id, String rut, String name, String specialty) {
+    }
+
+    /**
+     * Versión inmutable de un catálogo.
+     */
+    public record Snapshot<K, V>(long version, Map<K, V> entries) {
+
+        public Optional<V> find(K key) {
+            return key == null ? Optional.empty() : Optional.ofNullable(entries.get(key));
+        }
+
+        public int size() {
+            return entries.size();
+        }
+    }
+
+    private final Catalog<String, Cie10Entry> cie10;
+    private final Catalog<Long, MedicationEntry> medications;
+    private final Catalog<Long, PharmaceuticalFormEntry> pharmaceuticalForms;
+    private final Catalog<Long, ProfessionalEntry> professionals;
+
+    public ReferenceCatalogService(Cie10Repository cie10Repository,
+                                   MedicationRepository medicationRepository,
+                                   PharmaceuticalFormRepository pharmaceuticalFormRepository,
+                                   HealthcareProfessionalRepository professionalRepository,
+                                   MeterRegistry meterRegistry) {
+        cie10 = new Catalog<>("cie10", String.class, Cie10Entry::code,
+                () -> entries(cie10Repository.findAll(), ReferenceCatalogService::entry),
+                code -> cie10Repository.findById(code).map(ReferenceCatalogService::entry));
+        medications = new Catalog<>("medication", Long.class, MedicationEntry::id,
+                () -> entries(medicationRepository.findAll(), ReferenceCatalogService::entry),
+                id -> medicationRepository.findById(id).map(ReferenceCatalogService::entry));
+        pharmaceuticalForms = new Catalog<>("pharmaceutical_form", Long.class, PharmaceuticalFormEntry::id,
+                () -> entries(pharmaceuticalFormRepository.findAll(), ReferenceCatalogService::entry),
+                id -> pharmaceuticalFormRepository.findById(id).map(ReferenceCatalogService::entry));
+        professionals = new Catalog<>("professional", Long.class, ProfessionalEntry::id,
+                () -> entries(professionalRepository.findAll(), ReferenceCatalogService::entry),
+                id -> professionalRepository.findById(id).map(ReferenceCatalogService::entry));
+
+        for (Catalog<?, ?> catalog : catalogs()) {
+            Gauge.builder("catalog.version", catalog, Catalog::version)
+                    .description("Versión vigente del catálogo de referencia")
+                    .tag("catalog", catalog.name)
+                    .register(meterRegistry);
+            Gauge.builder("catalog.size", catalog, Catalog::size)
+                    .description("Entradas en la versión vigente del catálogo de referencia")
+                    .tag("catalog", catalog.name)
+                    .register(meterRegistry);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        for (Catalog<?, ?> catalog : catalogs()) {
+            try {
+                catalog.reload();
+            } catch (RuntimeException e) {
+                // Se reintenta en el primer acceso
+                log.warn("No se pudo cargar el catálogo {}: {}", catalog.name, e.getMessage());
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDomainWrite(DomainWriteEvent event) {
+        Catalog<?, ?> catalog = switch (event.source()) {
+            case CIE10 -> cie10;
+            case MEDICATION -> medications;
+            case PHARMACEUTICAL_FORM -> pharmaceuticalForms;
+            case PROFESSIONAL -> professionals;
+            default -> null;
+        };
+        if (catalog == null) {
+            return;
+        }
+        try {
+            catalog.refresh(event.entityId());
+        } catch (RuntimeException e) {
+            // Se descarta la versión vigente para no validar contra datos viejos; el próximo acceso
+            // recarga el catálogo completo
+            catalog.invalidate();
+            log.warn("No se pudo actualizar el catálogo {} tras {} {}: {}",
+                    catalog.name, event.action(), event.entityId(), e.getMessage());
+        }
+    }
+
+    public Snapshot<String, Cie10Entry> cie10() {
+        return cie10.current();
+    }
+
+    public Snapshot<Long, MedicationEntry> medications() {
+        return medications.current();
+    }
+
+    public Snapshot<Long, PharmaceuticalFormEntry> pharmaceuticalForms() {
+        return pharmaceuticalForms.current();
+    }
+
+    public Snapshot<Long, ProfessionalEntry> professionals() {
+        return professionals.current();
+    }
+
+    public Optional<Cie10Entry> cie10(String code) {
+        return cie10.find(code);
+    }
+
+    public Optional<MedicationEntry> medication(Long id) {
+        return medications.find(id);
+    }
+
+    public Optional<PharmaceuticalFormEntry> pharmaceuticalForm(Long id) {
+        return pharmaceuticalForms.find(id);
+    }
+
+    public Optional<ProfessionalEntry> professional(Long id) {
+        return professionals.find(id);
+    }
+
+    /**
+     * Nombre del código: de la entidad si ya está cargada, si no del catálogo.
+     */
+    public String cie10Name(Cie10 cie10) {
+        if (cie10 == null) {
+            return null;
+        }
+        if (Hibernate.isInitialized(cie10)) {
+            return cie10.getName();
+        }
+        return cie10(cie10.getCode()).map(Cie10Entry::name).orElse(null);
+    }
+
+    /**
+     * Nombre del medicamento: de la entidad si ya está cargada, si no del catálogo.
+     */
+    public String medicationName(Medication medication) {
+        if (medication == null) {
+            return null;
+        }
+        if (Hibernate.isInitialized(medication)) {
+            return medication.getName();
+        }
+        return medication(medication.getId()).map(MedicationEntry::name).orElse(null);
+    }
+
+    /**
+     * Datos del profesional: de la entidad si ya está cargada, si no del catálogo.
+     */
+    public Optional<ProfessionalEntry> professional(HealthcareProfessional professional) {
+        if (professional == null) {
+            return Optional.empty();
+        }
+        if (Hibernate.isInitialized(professional)) {
+            return Optional.of(entry(professional));
+        }
+        return professional(professional.getId());
+    }
+
+    private List<Catalog<?, ?>> catalogs() {
+        return List.of(cie10, medications, pharmaceuticalForms, professionals);
+    }
+
+    private static <E, V> List<V> entries(List<E> entities, Function<E, V> toEntry) {
+        return entities.stream().map(toEntry).toList();
+    }
+
+    private static Cie10Entry entry(Cie10 c) {
+        return new Cie10Entry(c.getCode(), c.getName(), c.getChapterId(), c.getBlockId());
+    }
+
+    private static MedicationEntry entry(Medication m) {
+        return new MedicationEntry(m.getId(), m.getName(), m.getDosage(),
+                m.getPharmaceuticalForm() != null ? m.getPharmaceuticalForm().getId() : null);
+    }
+
+    private static PharmaceuticalFormEntry entry(PharmaceuticalForm f) {
+        return new PharmaceuticalFormEntry(f.getId(), f.getName());
+    }
+
+    private static ProfessionalEntry entry(HealthcareProfessional hp) {
+        return new ProfessionalEntry(hp.getId(), hp.getRut(), hp.getName(), hp.getSpecialty());
+    }
+
+    /**
+     * Un catálogo con su versión vigente. Las cargas y actualizaciones se serializan; las lecturas
+     * sólo leen el campo volátil.
+     */
+    private static final class Catalog<K, V> {
+
+        private final String name;
+        private final Class<K> keyType;
+        private final Function<V, K> keyOf;
+        private final Supplier<List<V>> loadAll;
+        private final Function<K, Optional<V>> loadOne;
+
+        private volatile Snapshot<K, V> snapshot;
+        private long lastVersion;
+
+        Catalog(String name, Class<K> keyType, Function<V, K> keyOf,
+                Supplier<List<V>> loadAll, Function<K, Optional<V>> loadOne) {
+            this.name = name;
+            this.keyType = keyType;
+            this.keyOf = keyOf;
+            this.loadAll = loadAll;
+            this.loadOne = loadOne;
+        }
+
+        Snapshot<K, V> current() {
+            Snapshot<K, V> current = snapshot;
+            if (current == null) {
+                synchronized (this) {
+                    if (snapshot == null) {
+                        reload();
+                    }
+                    current = snapshot;
+                }
+            }
+            return current;
+        }
+
+        synchronized void reload() {
+            long start = System.currentTimeMillis();
+            Map<K, V> entries = new HashMap<>();
+            for (V entry : loadAll.get()) {
+                entries.put(keyOf.apply(entry), entry);
+            }
+            publish(entries);
+            log.info("Catálogo {} cargado en {} ms: {} entradas (versión {})", name,
+                    System.currentTimeMillis() - start, entries.size(), lastVersion);
+        }
+
+        /**
+         * Entrada de la versión vigente; si falta, se lee la fila de la base y, si existe, se
+         * publica una versión que la incluye.
+         */
+        Optional<V> find(K key) {
+            Optional<V> found = current().find(key);
+            return found.isPresent() || key == null ? found : loadMissing(key);
+        }
+
+        private synchronized Optional<V> loadMissing(K key) {
+            Snapshot<K, V> current = current();
+            V entry = current.entries().get(key);
+            if (entry != null) {
+                // Otro hilo la cargó mientras se esperaba el monitor
+                return Optional.of(entry);
+            }
+            Optional<V> loaded = loadOne.apply(key);
+            if (loaded.isPresent()) {
+                Map<K, V> entries = new HashMap<>(current.entries());
+                entries.put(key, loaded.get());
+                publish(entries);
+                log.debug("Catálogo {}: {} agregado tras no encontrarse en memoria", name, key);
+            }
+            return loaded;
+        }
+
+        /**
+         * Aplica el estado actual de una fila sobre una copia de la versión vigente; sin id o sin
+         * versión cargada recarga completo.
+         */
+        synchronized void refresh(Object entityId) {
+            if (snapshot == null || !keyType.isInstance(entityId)) {
+                reload();
+                return;
+            }
+            K key = keyType.cast(entityId);
+            Map<K, V> entries = new HashMap<>(snapshot.entries());
+            Optional<V> loaded = loadOne.apply(key);
+            if (loaded.isPresent()) {
+                entries.put(key, loaded.get());
+            } else {
+                entries.remove(key);
+            }
+            publish(entries);
+        }
+
+        synchronized void invalidate() {
+            snapshot = null;
+        }
+
+        private void publish(Map<K, V> entries) {
+            snapshot = new Snapshot<>(++lastVersion, Collections.unmodifiableMap(entries));
+        }
+
+        long version() {
+            Snapshot<K, V> current = snapshot;
+            return current == null ? 0 : current.version();
+        }
+
+        int size() {
+            Snapshot<K, V> current = snapshot;
+            return current == null ? 0 : current.size();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package cl.sicc.siccapi.common.dto;
+
+import cl.sicc.siccapi.common.util.KeysetCursor;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página de una paginación por cursor: sin total ni número de página, por lo que no necesita
+ * COUNT ni OFFSET. {@code nextCursor} es null en la última página.
+ */
+public record CursorSlice<T>(List<T> content, int size, boolean hasNext, String nextCursor) {
+
+    public static final int MAX_SIZE = 500;
+
+    /**
+     * Límite de la consulta: una fila más que la página, para saber si hay siguiente sin contar.
+     */
+    public static Limit limit(int size) {
+        return Limit.of(size + 1);
+    }
+
+    /**
+     * Arma la página a partir de hasta {@code size + 1} filas en el orden del cursor.
+     * {@code mapper} recibe las filas de la página juntas, para cargar sus hijos en una sola
+     * sentencia.
+     */
+    public static <R, T> CursorSlice<T> of(List<R> rows, int size, Function<R, KeysetCursor> cursorOf,
+                                           Function<List<R>, List<T>> mapper) {
+        boolean hasNext = rows.size() > size;
+        List<R> page = hasNext ? rows.subList(0, size) : rows;
+        String next = hasNext ? cursorOf.apply(page.get(page.size() - 1)).encode() : null;
+        return new CursorSlice<>(mapper.apply(page), size, hasNext, next);
+    }
+}
@@ -0,0 +1,50 @@
+package cl.sicc.siccapi.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Una línea de la respuesta NDJSON de una carga masiva: error de una fila, avance tras cada lote o
+ * resumen final. {@code inserted} y {@code updated} sólo aparecen en las cargas que actualizan
+ * registros existentes.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImportEventDto(
+    Type type,
+    Long line,
+    String ref,
+    String message,
+    Long rows,
+    Long imported,
+    Long failed,
+    Long inserted,
+    Long updated,
+    Long elapsedMs
+) {
+
+    public enum Type {
+        ERROR,
+        PROGRESS,
+        SUMMARY
+    }
+
+    public static ImportEventDto error(long line, String ref, String message) {
+        return new ImportEventDto(Type.ERROR, line, ref, message, null, null, null, null, null, null);
+    }
+
+    public static ImportEventDto progress(long rows, long imported, long failed) {
+        return new ImportEventDto(Type.PROGRESS, null, null, null, rows, imported, failed, null, null, null);
+    }
+
+    public static ImportEventDto progress(long rows, long imported, long failed, long inserted, long updated) {
+        return new ImportEventDto(Type.PROGRESS, null, null, null, rows, imported, failed, inserted, updated, null);
+    }
+
+    public static ImportEventDto summary(long rows, long imported, long failed, long elapsedMs) {
+        return new ImportEventDto(Type.SUMMARY, null, null, null, rows, imported, failed, null, null, elapsedMs);
+    }
+
+    public static ImportEventDto summary(long rows, long imported, long failed, long inserted, long updated,
+                                         long elapsedMs) {
+        return new ImportEventDto(Type.SUMMARY, null, null, null, rows, imported, failed, inserted, updated, elapsedMs);
+    }
+}
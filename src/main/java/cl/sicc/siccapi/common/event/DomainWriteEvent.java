@@ -0,0 +1,69 @@
+package cl.sicc.siccapi.common.event;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Evento publicado por los servicios de escritura cuando cambia un dato clínico o de referencia.
+ *
+ * Los suscriptores (rollups de estadísticas, cachés, índices en memoria) lo reciben después del
+ * commit mediante {@code @TransactionalEventListener}.
+ *
+ * @param source        entidad que cambió
+ * @param action        tipo de escritura
+ * @param entityId      id de la entidad modificada
+ * @param patientIds    pacientes afectados por el cambio (puede estar vacío)
+ * @param affectedDates fechas clínicas afectadas (fecha de consulta o de receta). Puede contener
+ *                      {@code null} cuando el registro no tiene fecha.
+ */
+public record DomainWriteEvent(
+        Source source,
+        Action action,
+        Object entityId,
+        Set<Long> patientIds,
+        Set<LocalDate> affectedDates) {
+
+    public enum Source {
+        PATIENT,
+        PROFESSIONAL,
+        CONSULTATION,
+        DIAGNOSIS,
+        PRESCRIPTION,
+        /** Catálogo CIE-10 (entityId es el código). */
+        CIE10,
+        MEDICATION,
+        PHARMACEUTICAL_FORM
+    }
+
+    public enum Action {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    public DomainWriteEvent {
+        // Los ids nulos se descartan; las fechas nulas se conservan porque representan
+        // registros sin fecha que también deben recalcularse.
+        Set<Long> ids = patientIds == null ? new HashSet<>() : new HashSet<>(patientIds);
+        ids.removeIf(Objects::isNull);
+        patientIds = Collections.unmodifiableSet(ids);
+        affectedDates = affectedDates == null
+                ? Set.of()
+                : Collections.unmodifiableSet(new HashSet<>(affectedDates));
+    }
+
+    public static DomainWriteEvent of(Source source, Action action, Object entityId) {
+        return new DomainWriteEvent(source, action, entityId, Set.of(), Set.of());
+    }
+
+    public static DomainWriteEvent of(Source source, Action action, Object entityId,
+                                      Collection<Long> patientIds, Collection<LocalDate> affectedDates) {
+        return new DomainWriteEvent(source, action, entityId,
+                patientIds == null ? null : new HashSet<>(patientIds),
+                affectedDates == null ? null : new HashSet<>(affectedDates));
+    }
+}
@@ -0,0 +1,129 @@
+package cl.sicc.siccapi.common.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector CSV (RFC 4180) que entrega un registro a la vez, sin cargar el archivo completo.
+ *
+ * Soporta campos entre comillas con separadores, saltos de línea y comillas dobladas
+ * ({@code ""}) dentro, y finales de línea {@code \n} o {@code \r\n}. Un registro con comillas sin
+ * cerrar se rechaza antes de superar {@link #MAX_RECORD_LENGTH} caracteres.
+ */
+public class CsvReader implements Closeable {
+
+    public static final int MAX_RECORD_LENGTH = 1 << 20;
+
+    private final Reader reader;
+    private final char separator;
+    private long line = 1;
+    private long recordLine;
+    private int pending = -2;
+
+    public CsvReader(Reader reader, char separator) {
+        this.reader = reader;
+        this.separator = separator;
+    }
+
+    public CsvReader(Reader reader) {
+        this(reader, ',');
+    }
+
+    /**
+     * Siguiente registro, o null al final del archivo. Las líneas vacías se omiten.
+     */
+    public List<String> next() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean started = false;
+        int length = 0;
+        recordLine = line;
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                if (quoted) {
+                    throw new IOException("Comillas sin cerrar en el registro de la línea " + recordLine);
+                }
+                if (!started && fields.isEmpty()) {
+                    return null;
+                }
+                fields.add(field.toString());
+                return fields;
+            }
+            if (++length > MAX_RECORD_LENGTH) {
+                throw new IOException("Registro de la línea " + recordLine + " excede " + MAX_RECORD_LENGTH + " caracteres");
+            }
+            if (quoted) {
+                if (c == '"') {
+                    int after = read();
+                    if (after == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        unread(after);
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+                started = true;
+            } else if (c == separator) {
+                fields.add(field.toString());
+                field.setLength(0);
+                started = true;
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    int after = read();
+                    if (after != '\n') {
+                        unread(after);
+                    }
+                }
+                line++;
+                if (!started && fields.isEmpty() && field.isEmpty()) {
+                    // Línea vacía
+                    recordLine = line;
+                    length = 0;
+                    continue;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+                started = true;
+            }
+        }
+    }
+
+    /**
+     * Línea del archivo (desde 1) en que empieza el último registro leído.
+     */
+    public long recordLine() {
+        return recordLine;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private int read() throws IOException {
+        if (pending != -2) {
+            int c = pending;
+            pending = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void unread(int c) {
+        pending = c;
+    }
+}
@@ -0,0 +1,40 @@
+package cl.sicc.siccapi.common.util;
+
+import cl.sicc.siccapi.common.dto.ImportEventDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Escribe los eventos de una carga masiva en la respuesta como NDJSON a medida que ocurren. Los
+ * errores se acumulan en el buffer de salida; el avance y el resumen se envían de inmediato.
+ */
+public class ImportEventWriter implements Consumer<ImportEventDto> {
+
+    private final HttpServletResponse response;
+    private final ObjectMapper objectMapper;
+
+    public ImportEventWriter(HttpServletResponse response, ObjectMapper objectMapper) {
+        this.response = response;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void accept(ImportEventDto event) {
+        try {
+            // El tipo se fija con el primer evento: un encabezado CSV inválido aún responde 400
+            response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            response.getOutputStream().write(objectMapper.writeValueAsBytes(event));
+            response.getOutputStream().write('\n');
+            if (event.type() != ImportEventDto.Type.ERROR) {
+                response.flushBuffer();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package cl.sicc.siccapi.common.util;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Formatos de entrada de las cargas masivas.
+ */
+public enum ImportFormat {
+    NDJSON,
+    CSV;
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType(TEXT_CSV_VALUE);
+
+    /**
+     * CSV si el tipo de contenido es {@code text/csv}; cualquier otro se lee como NDJSON.
+     */
+    public static ImportFormat fromContentType(String contentType) {
+        return contentType != null && MediaType.parseMediaType(contentType).isCompatibleWith(TEXT_CSV) ? CSV : NDJSON;
+    }
+}
@@ -0,0 +1,138 @@
+package cl.sicc.siccapi.common.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Filas de una carga masiva leídas de a una desde NDJSON (un objeto por línea) o CSV con
+ * encabezado. Una fila que no se puede interpretar se entrega con su error en vez de cortar la
+ * lectura.
+ */
+public interface ImportSource<T> extends Closeable {
+
+    /**
+     * Fila leída: los datos o el motivo por el que no se pudo leer. {@code ref} identifica la fila
+     * en los errores.
+     */
+    record Row<T>(long line, String ref, T data, String error) {
+
+        public static <T> Row<T> of(long line, String ref, T data) {
+            return new Row<>(line, ref, data, null);
+        }
+
+        public static <T> Row<T> invalid(long line, String ref, String error) {
+            return new Row<>(line, ref, null, error);
+        }
+    }
+
+    /**
+     * Construye una fila a partir de los campos del CSV; {@code field} devuelve null para columnas
+     * ausentes o vacías.
+     */
+    @FunctionalInterface
+    interface CsvMapper<T> {
+        T map(Function<String, String> field);
+    }
+
+    /**
+     * Siguiente fila, o null al final de la entrada.
+     */
+    Row<T> next() throws IOException;
+
+    static <T> ImportSource<T> ndjson(InputStream input, ObjectMapper objectMapper, Class<T> type,
+                                      Function<T, String> refOf) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        return new ImportSource<>() {
+            private long line;
+
+            @Override
+            public Row<T> next() throws IOException {
+                String text;
+                while ((text = reader.readLine()) != null) {
+                    line++;
+                    if (text.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        T data = objectMapper.readValue(text, type);
+                        return Row.of(line, refOf.apply(data), data);
+                    } catch (JsonProcessingException e) {
+                        return Row.invalid(line, null, "JSON inválido: " + e.getOriginalMessage());
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    /**
+     * CSV con encabezado; se reconocen las columnas de {@code columns} (sin distinguir mayúsculas)
+     * y se ignoran las demás. Lanza IllegalArgumentException si falta {@code requiredColumn}.
+     */
+    static <T> ImportSource<T> csv(InputStream input, List<String> columns, String requiredColumn, String refColumn,
+                                   CsvMapper<T> mapper) throws IOException {
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+        List<String> header = reader.next();
+        Map<String, Integer> indexes = new HashMap<>();
+        if (header != null) {
+            for (int i = 0; i < header.size(); i++) {
+                // Excel antepone una marca de orden de bytes a la primera columna
+                String name = header.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+                if (columns.contains(name)) {
+                    indexes.put(name, i);
+                }
+            }
+        }
+        if (!indexes.containsKey(requiredColumn)) {
+            reader.close();
+            throw new IllegalArgumentException("El CSV debe tener encabezado con las columnas " + String.join(",", columns));
+        }
+        return new ImportSource<>() {
+            @Override
+            public Row<T> next() throws IOException {
+                List<String> record = reader.next();
+                if (record == null) {
+                    return null;
+                }
+                Function<String, String> field = name -> field(record, indexes, name);
+                try {
+                    return Row.of(reader.recordLine(), field.apply(refColumn), mapper.map(field));
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    return Row.invalid(reader.recordLine(), field.apply(refColumn), "Valor inválido: " + e.getMessage());
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    private static String field(List<String> record, Map<String, Integer> indexes, String name) {
+        Integer index = indexes.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+}
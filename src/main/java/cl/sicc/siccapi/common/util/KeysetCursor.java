@@ -0,0 +1,62 @@
+package cl.sicc.siccapi.common.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición de una paginación por cursor (keyset): la clave de orden y el id de la última fila
+ * entregada. Viaja al cliente como un token opaco (Base64 URL-safe) que éste sólo devuelve en
+ * {@code cursor} para pedir la página siguiente.
+ *
+ * La clave puede ser null cuando el orden deja al final las filas sin clave (p. ej. consultas
+ * sin fecha); en ese tramo el orden sigue sólo por id.
+ */
+public record KeysetCursor(String key, long id) {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public static KeysetCursor of(Object key, long id) {
+        return new KeysetCursor(key == null ? null : key.toString(), id);
+    }
+
+    public String encode() {
+        String raw = key == null ? Long.toString(id) : id + ":" + key;
+        return ENCODER.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Cursor recibido del cliente; null si viene vacío (primera página).
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) return null;
+        try {
+            String raw = new String(DECODER.decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return separator < 0
+                    ? new KeysetCursor(null, Long.parseLong(raw))
+                    : new KeysetCursor(raw.substring(separator + 1), Long.parseLong(raw.substring(0, separator)));
+        } catch (IllegalArgumentException e) {
+            // Base64 o id mal formados (NumberFormatException es una IllegalArgumentException)
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+
+    public LocalDate dateKey() {
+        try {
+            return key == null ? null : LocalDate.parse(key);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+
+    public long longKey() {
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+}
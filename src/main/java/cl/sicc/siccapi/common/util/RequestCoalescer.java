@@ -0,0 +1,84 @@
+package cl.sicc.siccapi.common.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa llamadas concurrentes idénticas ("single flight"): mientras un cálculo para una clave
+ * está en curso, los demás llamadores con la misma clave esperan su resultado en lugar de
+ * repetirlo. Al terminar, la clave se libera; no guarda resultados (para eso están los cachés).
+ *
+ * Métricas: contador {@code request.coalescing} con etiquetas {@code operation} y
+ * {@code result} ({@code executed} o {@code coalesced}).
+ */
+@Component
+public class RequestCoalescer {
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public RequestCoalescer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param operation nombre de la operación (etiqueta de métricas y prefijo de la clave)
+     * @param key       parámetros que distinguen llamadas de la misma operación
+     * @param supplier  cálculo a ejecutar una sola vez por grupo de llamadas concurrentes
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, Object key, Supplier<T> supplier) {
+        String flightKey = operation + ":" + key;
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, mine);
+        if (existing != null) {
+            counter(operation, "coalesced").increment();
+            return (T) await(existing);
+        }
+
+        counter(operation, "executed").increment();
+        try {
+            T result = supplier.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, mine);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Se propaga la misma excepción que recibió el llamador que ejecutó el cálculo
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        } catch (CancellationException e) {
+            throw new IllegalStateException("Cálculo agrupado cancelado", e);
+        }
+    }
+
+    private Counter counter(String operation, String result) {
+        return Counter.builder("request.coalescing")
+                .description("Llamadas ejecutadas vs. agrupadas con un cálculo en curso")
+                .tag("operation", operation)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
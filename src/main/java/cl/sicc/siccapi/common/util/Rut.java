@@ -0,0 +1,45 @@
+package cl.sicc.siccapi.common.util;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * RUT chileno: normalización y dígito verificador (módulo 11).
+ */
+public final class Rut {
+
+    private static final Pattern FORMAT = Pattern.compile("\\d{1,8}-[\\dK]");
+
+    private Rut() {
+    }
+
+    /**
+     * Forma canónica {@code 12345678-5}: sin puntos ni espacios y con K mayúscula. Lanza
+     * IllegalArgumentException si el formato o el dígito verificador no son válidos.
+     */
+    public static String normalize(String rut) {
+        if (rut == null) {
+            throw new IllegalArgumentException("Falta el RUT");
+        }
+        String value = rut.replace(".", "").replace(" ", "").toUpperCase(Locale.ROOT);
+        if (!FORMAT.matcher(value).matches()) {
+            throw new IllegalArgumentException("RUT con formato inválido: " + rut);
+        }
+        int dash = value.indexOf('-');
+        if (value.charAt(dash + 1) != checkDigit(value.substring(0, dash))) {
+            throw new IllegalArgumentException("Dígito verificador inválido: " + rut);
+        }
+        return value.replaceFirst("^0+(?=\\d)", "");
+    }
+
+    static char checkDigit(String number) {
+        int sum = 0;
+        int factor = 2;
+        for (int i = number.length() - 1; i >= 0; i--) {
+            sum += (number.charAt(i) - '0') * factor;
+            factor = factor == 7 ? 2 : factor + 1;
+        }
+        int digit = 11 - sum % 11;
+        return digit == 11 ? '0' : digit == 10 ? 'K' : (char) ('0' + digit);
+    }
+}
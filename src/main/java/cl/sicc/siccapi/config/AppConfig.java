@@ -1,47 +1,79 @@
 package cl.sicc.siccapi.config;
 
+import cl.sicc.siccapi.stats.service.StatsCaches;
+import cl.sicc.siccapi.user.service.UserService;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Map;
+
 @Configuration
 @EnableCaching
 @EnableScheduling
 public class AppConfig {
 
+    /**
+     * Cachés Caffeine acotados. Cada caché toma su especificación de {@code cache.specs.<nombre>}
+     * o, si no está definida, de {@code cache.default-spec}. Todos registran estadísticas para
+     * exponer aciertos, fallos y desalojos vía actuator.
+     */
     @Bean
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager("iaResumen");
+    public CacheManager cacheManager(Environment environment) {
+        Binder binder = Binder.get(environment);
+        String defaultSpec = binder.bind("cache.default-spec", String.class)
+                .orElse("maximumSize=100,expireAfterWrite=10m");
+        Map<String, String> specs = binder.bind("cache.specs", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of());
+
+        CaffeineCacheManager manager = new CaffeineCacheManager();
+        for (String name : StatsCaches.names()) {
+            manager.registerCustomCache(name, build(specs.getOrDefault(name, defaultSpec)));
+        }
+        manager.registerCustomCache("iaResumen", build(specs.getOrDefault("iaResumen", defaultSpec)));
+        manager.registerCustomCache(UserService.STATUS_CACHE,
+                build(specs.getOrDefault(UserService.STATUS_CACHE, defaultSpec)));
+        return manager;
     }
 
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> build(String spec) {
+        return Caffeine.from(spec).recordStats().build();
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public RestTemplate restTemplate() {
+        return new RestTemplate();
     }
 
+    /**
+     * El PasswordEncoder es {@link cl.sicc.siccapi.security.service.BoundedPasswordEncoder}. Con
+     * un {@link UserDetailsPasswordService}, el proveedor vuelve a hashear la contraseña en un
+     * login exitoso cuando el hash guardado usa un factor de trabajo menor al configurado.
+     */
     @Bean
     public AuthenticationProvider authenticationProvider(
             UserDetailsService userDetailsService,
+            UserDetailsPasswordService userDetailsPasswordService,
             PasswordEncoder passwordEncoder
     ) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
         authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
@@ -1,28 +1,54 @@
 package cl.sicc.siccapi.consultation.controller;
 
+import cl.sicc.siccapi.common.dto.CursorSlice;
+import cl.sicc.siccapi.common.util.ImportEventWriter;
+import cl.sicc.siccapi.common.util.ImportFormat;
 import cl.sicc.siccapi.consultation.dto.ConsultationDto;
+import cl.sicc.siccapi.consultation.service.ConsultationImportService;
 import cl.sicc.siccapi.consultation.service.ConsultationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/api/consultations")
 @RequiredArgsConstructor
 @Validated
 public class ConsultationController {
     private final ConsultationService service;
+    private final ConsultationImportService importService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     public ResponseEntity<Page<ConsultationDto>> list(Pageable pageable) {
         return ResponseEntity.ok(service.findAll(pageable));
     }
 
+    /**
+     * Listado por cursor: {@code ?cursor=} (vacío) para la primera página y luego el
+     * {@code nextCursor} de la respuesta. Sin total, para que las páginas profundas cuesten lo
+     * mismo que la primera.
+     */
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorSlice<ConsultationDto>> listByCursor(@RequestParam String cursor,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(CursorSlice.MAX_SIZE) int size) {
+        return ResponseEntity.ok(service.findSlice(cursor, size));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ConsultationDto> get(@PathVariable Long id) {
         return ResponseEntity.ok(service.findById(id));
@@ -34,6 +60,19 @@ public class ConsultationController {
         return ResponseEntity.status(201).body(created);
     }
 
+    /**
+     * Carga masiva de consultas históricas desde NDJSON (una consulta por línea) o CSV.
+     * La respuesta es NDJSON: un evento por fila rechazada, el avance tras cada lote y un resumen
+     * al final.
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, ImportFormat.TEXT_CSV_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void importConsultations(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        importService.importConsultations(request.getInputStream(), ImportFormat.fromContentType(request.getContentType()),
+                new ImportEventWriter(response, objectMapper));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ConsultationDto> update(@PathVariable Long id, @Valid @RequestBody ConsultationDto dto) {
         return ResponseEntity.ok(service.update(id, dto));
@@ -21,8 +21,10 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 public class Consultation {
+    /** Secuencia con incremento 50: los ids se reservan por bloques y los INSERT van en lotes JDBC. */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "consultation_seq")
+    @SequenceGenerator(name = "consultation_seq", sequenceName = "consultation_seq", allocationSize = 50)
     private Long id;
 
     @PastOrPresent(message = "La fecha de la consulta no puede ser futura")
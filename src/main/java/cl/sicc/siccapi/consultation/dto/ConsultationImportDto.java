@@ -0,0 +1,32 @@
+package cl.sicc.siccapi.consultation.dto;
+
+import cl.sicc.siccapi.prescription.dto.PrescriptionMedicationDto;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Una consulta de la carga masiva ({@code POST /api/consultations/import}), con sus diagnósticos
+ * y recetas. El paciente y el profesional se indican por id o por RUT.
+ */
+@Data
+public class ConsultationImportDto {
+    /** Identificador de la fila en el sistema de origen; se devuelve en los errores. */
+    private String ref;
+    private LocalDate date;
+    private String type;
+    private Long patientId;
+    private String patientRut;
+    private Long professionalId;
+    private String professionalRut;
+    private List<DiagnosisDto> diagnoses;
+    private List<Prescription> prescriptions;
+
+    @Data
+    public static class Prescription {
+        /** Si falta se usa la fecha de la consulta. */
+        private LocalDate date;
+        private List<PrescriptionMedicationDto> medications;
+    }
+}
@@ -0,0 +1,24 @@
+package cl.sicc.siccapi.consultation.dto;
+
+import cl.sicc.siccapi.consultation.domain.Consultation;
+import cl.sicc.siccapi.patient.domain.Patient;
+
+import java.time.LocalDate;
+
+/**
+ * Proyección de una consulta con los datos del paciente que muestra el listado. El profesional
+ * se completa desde el catálogo en memoria.
+ */
+public record ConsultationRow(
+    Long id,
+    LocalDate date,
+    Consultation.Type type,
+    Long patientId,
+    String patientName,
+    String patientRut,
+    LocalDate patientBirthDate,
+    String patientSex,
+    Patient.FonasaTier fonasaTier,
+    Long professionalId
+) {
+}
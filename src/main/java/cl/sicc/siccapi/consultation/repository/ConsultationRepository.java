@@ -1,15 +1,46 @@
 package cl.sicc.siccapi.consultation.repository;
 
 import cl.sicc.siccapi.consultation.domain.Consultation;
+import cl.sicc.siccapi.consultation.dto.ConsultationRow;
 import cl.sicc.siccapi.patient.domain.Patient;
 import cl.sicc.siccapi.healthcareprofessional.domain.HealthcareProfessional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
 
 public interface ConsultationRepository extends JpaRepository<Consultation, Long> {
     Page<Consultation> findByPatientAndDateBetween(Patient patient, LocalDate from, LocalDate to, Pageable pageable);
     Page<Consultation> findByProfessionalAndDateBetween(HealthcareProfessional professional, LocalDate from, LocalDate to, Pageable pageable);
+
+    String ROW_SELECT = """
+            SELECT new cl.sicc.siccapi.consultation.dto.ConsultationRow(c.id, c.date, c.type, p.id, p.name, p.rut,
+                   p.birthDate, p.sex, p.fonasaTier, c.professional.id)
+            FROM Consultation c JOIN c.patient p
+            """;
+
+    // Proyecciones para listado y detalle: una sentencia por página en vez de cargar paciente y
+    // profesional de cada consulta
+    @Query(value = ROW_SELECT, countQuery = "SELECT COUNT(c) FROM Consultation c")
+    Page<ConsultationRow> findRows(Pageable pageable);
+
+    @Query(ROW_SELECT + "WHERE c.id = :id")
+    Optional<ConsultationRow> findRowById(@Param("id") Long id);
+
+    // Paginación por cursor en orden (date DESC, id DESC), apoyada en idx_consultation_date_id.
+    // Las consultas sin fecha van al final, sólo por id
+    @Query(ROW_SELECT + "WHERE c.date IS NOT NULL ORDER BY c.date DESC, c.id DESC")
+    List<ConsultationRow> findKeysetFirst(Limit limit);
+
+    @Query(ROW_SELECT + "WHERE (c.date, c.id) < (:date, :id) ORDER BY c.date DESC, c.id DESC")
+    List<ConsultationRow> findKeysetAfter(@Param("date") LocalDate date, @Param("id") Long id, Limit limit);
+
+    @Query(ROW_SELECT + "WHERE c.date IS NULL AND c.id < :id ORDER BY c.id DESC")
+    List<ConsultationRow> findKeysetUndatedBefore(@Param("id") Long id, Limit limit);
 }
@@ -0,0 +1,458 @@
+package cl.sicc.siccapi.consultation.service;
+
+import cl.sicc.siccapi.catalog.service.ReferenceCatalogService;
+import cl.sicc.siccapi.common.dto.ImportEventDto;
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import cl.sicc.siccapi.common.util.ImportFormat;
+import cl.sicc.siccapi.common.util.ImportSource;
+import cl.sicc.siccapi.common.util.ImportSource.Row;
+import cl.sicc.siccapi.common.util.Rut;
+import cl.sicc.siccapi.consultation.domain.Consultation;
+import cl.sicc.siccapi.consultation.dto.ConsultationImportDto;
+import cl.sicc.siccapi.consultation.dto.DiagnosisDto;
+import cl.sicc.siccapi.diagnosis.domain.Cie10;
+import cl.sicc.siccapi.diagnosis.domain.Diagnosis;
+import cl.sicc.siccapi.healthcareprofessional.domain.HealthcareProfessional;
+import cl.sicc.siccapi.patient.domain.Patient;
+import cl.sicc.siccapi.prescription.domain.Medication;
+import cl.sicc.siccapi.prescription.domain.Prescription;
+import cl.sicc.siccapi.prescription.domain.PrescriptionMedication;
+import cl.sicc.siccapi.prescription.dto.PrescriptionMedicationDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Carga masiva de consultas históricas con sus diagnósticos y recetas.
+ *
+ * La entrada (NDJSON o CSV) se lee fila a fila y se escribe en lotes de {@code chunk-size} filas,
+ * cada uno en su propia transacción: el contexto de persistencia se descarta al confirmar cada lote,
+ * así que la memoria no depende del tamaño del archivo. Profesionales, códigos CIE-10 y
+ * medicamentos se validan contra {@link ReferenceCatalogService}; los pacientes del lote se
+ * resuelven con una consulta por lote. Los INSERT salen en lotes JDBC (ids por secuencia).
+ *
+ * Las filas inválidas se informan y se omiten sin detener la carga. Si la base rechaza un lote, se
+ * reintenta fila a fila para aislar las que fallan. Cada lote publica, ya confirmado, un solo
+ * {@link DomainWriteEvent} con los pacientes y fechas de las filas importadas (también tras el
+ * reintento fila a fila).
+ */
+@Slf4j
+@Service
+public class ConsultationImportService {
+
+    /**
+     * Columnas del CSV. {@code diagnoses} lleva {@code código[:descripción]} separados por {@code |};
+     * {@code medications} lleva {@code id:cantidad[:indicaciones]} separados por {@code |} y forma una
+     * receta con fecha {@code prescription_date} (o la de la consulta).
+     */
+    public static final List<String> CSV_COLUMNS = List.of("ref", "date", "type", "patient_id", "patient_rut",
+            "professional_id", "professional_rut", "diagnoses", "prescription_date", "medications");
+
+    /** Fila válida con el paciente y el profesional resueltos. */
+    private record Resolved(Row<ConsultationImportDto> row, Long patientId, Long professionalId, Consultation.Type type) {
+    }
+
+    /** Pacientes de un lote encontrados por id o por RUT. */
+    private record Patients(Set<Long> ids, Map<String, Long> idByRut) {
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ReferenceCatalogService catalog;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public ConsultationImportService(ReferenceCatalogService catalog,
+                                     ObjectMapper objectMapper,
+                                     ApplicationEventPublisher eventPublisher,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${consultation.import.chunk-size:500}") int chunkSize) {
+        this.catalog = catalog;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Importa las consultas de {@code input}. Los errores por fila, el avance tras cada lote y el
+     * resumen final se entregan a {@code events} a medida que ocurren; el resumen también se
+     * devuelve.
+     */
+    public ImportEventDto importConsultations(InputStream input, ImportFormat format,
+                                                          Consumer<ImportEventDto> events) throws IOException {
+        long start = System.currentTimeMillis();
+        Progress progress = new Progress(events);
+        List<Row<ConsultationImportDto>> chunk = new ArrayList<>(chunkSize);
+        try (ImportSource<ConsultationImportDto> source = format == ImportFormat.CSV
+                ? ImportSource.csv(input, CSV_COLUMNS, "date", "ref", ConsultationImportService::fromCsv)
+                : ImportSource.ndjson(input, objectMapper, ConsultationImportDto.class, ConsultationImportDto::getRef)) {
+            Row<ConsultationImportDto> row;
+            while ((row = next(source, progress)) != null) {
+                progress.rows++;
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    write(chunk, progress);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                write(chunk, progress);
+            }
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("Carga masiva de consultas: {} filas, {} importadas, {} con error en {} ms",
+                progress.rows, progress.imported, progress.failed, elapsed);
+        ImportEventDto summary = ImportEventDto.summary(progress.rows, progress.imported,
+                progress.failed, elapsed);
+        events.accept(summary);
+        return summary;
+    }
+
+    /**
+     * Siguiente fila; un error de lectura que impide seguir (CSV mal cerrado) termina la entrada
+     * y se informa como error.
+     */
+    private Row<ConsultationImportDto> next(ImportSource<ConsultationImportDto> source, Progress progress) {
+        try {
+            return source.next();
+        } catch (IOException e) {
+            progress.events.accept(ImportEventDto.error(progress.rows + 1, null,
+                    "Lectura interrumpida: " + e.getMessage()));
+            return null;
+        }
+    }
+
+    private void write(List<Row<ConsultationImportDto>> chunk, Progress progress) {
+        Patients patients = resolvePatients(chunk);
+        Map<String, Long> professionalIdByRut = new HashMap<>();
+        for (ReferenceCatalogService.ProfessionalEntry professional : catalog.professionals().entries().values()) {
+            professionalIdByRut.put(professional.rut(), professional.id());
+        }
+
+        List<Resolved> valid = new ArrayList<>(chunk.size());
+        for (Row<ConsultationImportDto> row : chunk) {
+            if (row.error() != null) {
+                progress.fail(row, row.error());
+                continue;
+            }
+            try {
+                valid.add(resolve(row, patients, professionalIdByRut));
+            } catch (IllegalArgumentException e) {
+                progress.fail(row, e.getMessage());
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            Set<Long> patientIds = new HashSet<>();
+            Set<LocalDate> dates = new HashSet<>();
+            try {
+                transactionTemplate.executeWithoutResult(status -> persist(valid));
+                progress.imported += valid.size();
+                valid.forEach(resolved -> collect(resolved, patientIds, dates));
+            } catch (RuntimeException e) {
+                log.debug("Lote rechazado, reintentando fila a fila: {}", rootMessage(e));
+                for (Resolved resolved : valid) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> persist(List.of(resolved)));
+                        progress.imported++;
+                        collect(resolved, patientIds, dates);
+                    } catch (RuntimeException rowError) {
+                        progress.fail(resolved.row(), "Rechazada por la base de datos: " + rootMessage(rowError));
+                    }
+                }
+            }
+            if (!patientIds.isEmpty()) {
+                // Fuera de transacción: los suscriptores (fallbackExecution) lo reciben de inmediato
+                eventPublisher.publishEvent(DomainWriteEvent.of(DomainWriteEvent.Source.CONSULTATION,
+                        DomainWriteEvent.Action.CREATED, null, patientIds, dates));
+            }
+        }
+        progress.events.accept(ImportEventDto.progress(progress.rows, progress.imported, progress.failed));
+    }
+
+    private Patients resolvePatients(List<Row<ConsultationImportDto>> chunk) {
+        Set<Long> ids = new HashSet<>();
+        Set<String> ruts = new HashSet<>();
+        for (Row<ConsultationImportDto> row : chunk) {
+            if (row.data() == null) {
+                continue;
+            }
+            if (row.data().getPatientId() != null) {
+                ids.add(row.data().getPatientId());
+            } else if (row.data().getPatientRut() != null) {
+                try {
+                    ruts.add(Rut.normalize(row.data().getPatientRut()));
+                } catch (IllegalArgumentException e) {
+                    // resolve informa la fila
+                }
+            }
+        }
+        Set<Long> found = new HashSet<>();
+        Map<String, Long> idByRut = new HashMap<>();
+        if (!ids.isEmpty()) {
+            Query query = entityManager.createNativeQuery("SELECT p.id FROM patient p WHERE p.id IN (:ids)");
+            query.setParameter("ids", ids);
+            for (Object id : query.getResultList()) {
+                found.add(((Number) id).longValue());
+            }
+        }
+        if (!ruts.isEmpty()) {
+            Query query = entityManager.createNativeQuery("SELECT p.rut, p.id FROM patient p WHERE p.rut IN (:ruts)");
+            query.setParameter("ruts", ruts);
+            @SuppressWarnings("unchecked")
+            List<Object[]> rows = query.getResultList();
+            for (Object[] row : rows) {
+                idByRut.put((String) row[0], ((Number) row[1]).longValue());
+            }
+        }
+        return new Patients(found, idByRut);
+    }
+
+    /**
+     * Valida la fila contra los catálogos; lanza IllegalArgumentException con el motivo.
+     */
+    private Resolved resolve(Row<ConsultationImportDto> row, Patients patients, Map<String, Long> professionalIdByRut) {
+        ConsultationImportDto data = row.data();
+        LocalDate today = LocalDate.now();
+        if (data.getDate() == null) {
+            throw new IllegalArgumentException("Falta la fecha de la consulta");
+        }
+        if (data.getDate().isAfter(today)) {
+            throw new IllegalArgumentException("La fecha de la consulta no puede ser futura");
+        }
+
+        Consultation.Type type = null;
+        if (data.getType() != null && !data.getType().isBlank()) {
+            try {
+                type = Consultation.Type.valueOf(data.getType().trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Tipo de consulta desconocido: " + data.getType());
+            }
+        }
+
+        Long patientId;
+        if (data.getPatientId() != null) {
+            patientId = patients.ids().contains(data.getPatientId()) ? data.getPatientId() : null;
+        } else if (data.getPatientRut() != null) {
+            // patient.rut se guarda en forma canónica
+            patientId = patients.idByRut().get(Rut.normalize(data.getPatientRut()));
+        } else {
+            throw new IllegalArgumentException("Falta el paciente (patientId o patientRut)");
+        }
+        if (patientId == null) {
+            throw new IllegalArgumentException("Paciente no encontrado: "
+                    + (data.getPatientId() != null ? data.getPatientId() : data.getPatientRut()));
+        }
+
+        Long professionalId;
+        if (data.getProfessionalId() != null) {
+            professionalId = catalog.professional(data.getProfessionalId()).isPresent() ? data.getProfessionalId() : null;
+        } else if (data.getProfessionalRut() != null) {
+            professionalId = professionalIdByRut.get(data.getProfessionalRut().trim());
+        } else {
+            throw new IllegalArgumentException("Falta el profesional (professionalId o professionalRut)");
+        }
+        if (professionalId == null) {
+            throw new IllegalArgumentException("Profesional no encontrado: "
+                    + (data.getProfessionalId() != null ? data.getProfessionalId() : data.getProfessionalRut()));
+        }
+
+        for (DiagnosisDto diagnosis : nonNull(data.getDiagnoses())) {
+            if (catalog.cie10(diagnosis.getCie10Code()).isEmpty()) {
+                throw new IllegalArgumentException("CIE10 no existe: " + diagnosis.getCie10Code());
+            }
+        }
+
+        for (ConsultationImportDto.Prescription prescription : nonNull(data.getPrescriptions())) {
+            if (prescription.getDate() != null && prescription.getDate().isAfter(today)) {
+                throw new IllegalArgumentException("La fecha de la receta no puede ser futura");
+            }
+            Set<Long> medications = new HashSet<>();
+            for (PrescriptionMedicationDto line : nonNull(prescription.getMedications())) {
+                if (catalog.medication(line.getMedicationId()).isEmpty()) {
+                    throw new IllegalArgumentException("Medicamento no encontrado: " + line.getMedicationId());
+                }
+                if (!medications.add(line.getMedicationId())) {
+                    throw new IllegalArgumentException("Medicamento repetido en la receta: " + line.getMedicationId());
+                }
+                if (line.getQuantity() == null || line.getQuantity() < 1) {
+                    throw new IllegalArgumentException("La cantidad debe ser mayor que cero (medicamento "
+                            + line.getMedicationId() + ")");
+                }
+            }
+        }
+        return new Resolved(row, patientId, professionalId, type);
+    }
+
+    private void persist(List<Resolved> rows) {
+        for (Resolved resolved : rows) {
+            entityManager.persist(toEntity(resolved));
+        }
+    }
+
+    /**
+     * Paciente y fechas (consulta y recetas, como en {@link #toEntity}) de una fila importada.
+     */
+    private static void collect(Resolved resolved, Set<Long> patientIds, Set<LocalDate> dates) {
+        ConsultationImportDto data = resolved.row().data();
+        patientIds.add(resolved.patientId());
+        dates.add(data.getDate());
+        for (ConsultationImportDto.Prescription prescription : nonNull(data.getPrescriptions())) {
+            dates.add(prescription.getDate() != null ? prescription.getDate() : data.getDate());
+        }
+    }
+
+    /**
+     * Entidades nuevas en cada intento: un lote que falla deja ids asignados en las anteriores.
+     */
+    private Consultation toEntity(Resolved resolved) {
+        ConsultationImportDto data = resolved.row().data();
+        Consultation consultation = new Consultation();
+        consultation.setDate(data.getDate());
+        consultation.setType(resolved.type());
+        consultation.setPatient(entityManager.getReference(Patient.class, resolved.patientId()));
+        consultation.setProfessional(entityManager.getReference(HealthcareProfessional.class, resolved.professionalId()));
+
+        List<Diagnosis> diagnoses = new ArrayList<>();
+        for (DiagnosisDto dto : nonNull(data.getDiagnoses())) {
+            Diagnosis diagnosis = new Diagnosis();
+            diagnosis.setCie10(entityManager.getReference(Cie10.class, dto.getCie10Code()));
+            diagnosis.setDescription(dto.getDescription());
+            diagnosis.setConsultation(consultation);
+            diagnoses.add(diagnosis);
+        }
+        consultation.setDiagnoses(diagnoses);
+
+        List<Prescription> prescriptions = new ArrayList<>();
+        for (ConsultationImportDto.Prescription dto : nonNull(data.getPrescriptions())) {
+            Prescription prescription = new Prescription();
+            prescription.setDate(dto.getDate() != null ? dto.getDate() : data.getDate());
+            prescription.setConsultation(consultation);
+            List<PrescriptionMedication> lines = new ArrayList<>();
+            for (PrescriptionMedicationDto lineDto : nonNull(dto.getMedications())) {
+                PrescriptionMedication line = new PrescriptionMedication();
+                line.setMedication(entityManager.getReference(Medication.class, lineDto.getMedicationId()));
+                line.setQuantity(lineDto.getQuantity());
+                line.setInstructions(lineDto.getInstructions());
+                line.setPrescription(prescription);
+                lines.add(line);
+            }
+            prescription.setPrescriptionMedications(lines);
+            prescriptions.add(prescription);
+        }
+        consultation.setPrescriptions(prescriptions);
+        return consultation;
+    }
+
+    private static ConsultationImportDto fromCsv(Function<String, String> field) {
+        ConsultationImportDto dto = new ConsultationImportDto();
+        dto.setRef(field.apply("ref"));
+        String date = field.apply("date");
+        dto.setDate(date != null ? LocalDate.parse(date) : null);
+        dto.setType(field.apply("type"));
+        String patientId = field.apply("patient_id");
+        dto.setPatientId(patientId != null ? Long.valueOf(patientId) : null);
+        dto.setPatientRut(field.apply("patient_rut"));
+        String professionalId = field.apply("professional_id");
+        dto.setProfessionalId(professionalId != null ? Long.valueOf(professionalId) : null);
+        dto.setProfessionalRut(field.apply("professional_rut"));
+
+        List<DiagnosisDto> diagnoses = new ArrayList<>();
+        for (String item : items(field.apply("diagnoses"))) {
+            String[] parts = item.split(":", 2);
+            DiagnosisDto diagnosis = new DiagnosisDto();
+            diagnosis.setCie10Code(parts[0].trim());
+            diagnosis.setDescription(parts.length > 1 ? parts[1].trim() : null);
+            diagnoses.add(diagnosis);
+        }
+        dto.setDiagnoses(diagnoses);
+
+        List<PrescriptionMedicationDto> medications = new ArrayList<>();
+        for (String item : items(field.apply("medications"))) {
+            String[] parts = item.split(":", 3);
+            if (parts.length < 2) {
+                throw new IllegalArgumentException("medicamento sin cantidad: " + item);
+            }
+            PrescriptionMedicationDto line = new PrescriptionMedicationDto();
+            line.setMedicationId(Long.valueOf(parts[0].trim()));
+            line.setQuantity(Integer.valueOf(parts[1].trim()));
+            line.setInstructions(parts.length > 2 ? parts[2].trim() : null);
+            medications.add(line);
+        }
+        if (!medications.isEmpty()) {
+            ConsultationImportDto.Prescription prescription = new ConsultationImportDto.Prescription();
+            String prescriptionDate = field.apply("prescription_date");
+            prescription.setDate(prescriptionDate != null ? LocalDate.parse(prescriptionDate) : null);
+            prescription.setMedications(medications);
+            dto.setPrescriptions(List.of(prescription));
+        }
+        return dto;
+    }
+
+    private static List<String> items(String value) {
+        if (value == null) {
+            return List.of();
+        }
+        List<String> items = new ArrayList<>();
+        for (String item : value.split("\\|")) {
+            if (!item.isBlank()) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    private static <T> Collection<T> nonNull(Collection<T> values) {
+        return values == null ? List.of() : values;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    /** Contadores de la carga en curso. */
+    private static final class Progress {
+        private final Consumer<ImportEventDto> events;
+        private long rows;
+        private long imported;
+        private long failed;
+
+        private Progress(Consumer<ImportEventDto> events) {
+            this.events = events;
+        }
+
+        private void fail(Row<ConsultationImportDto> row, String message) {
+            failed++;
+            events.accept(ImportEventDto.error(row.line(), row.ref(), message));
+        }
+    }
+}
@@ -1,23 +1,42 @@
 package cl.sicc.siccapi.consultation.service;
 
+import cl.sicc.siccapi.catalog.service.ReferenceCatalogService;
+import cl.sicc.siccapi.common.dto.CursorSlice;
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import cl.sicc.siccapi.common.util.KeysetCursor;
 import cl.sicc.siccapi.consultation.dto.ConsultationDto;
+import cl.sicc.siccapi.consultation.dto.ConsultationRow;
 import cl.sicc.siccapi.consultation.dto.DiagnosisDto;
 import cl.sicc.siccapi.consultation.domain.Consultation;
 import cl.sicc.siccapi.diagnosis.domain.Diagnosis;
 import cl.sicc.siccapi.diagnosis.domain.Cie10;
+import cl.sicc.siccapi.diagnosis.dto.DiagnosisRow;
+import cl.sicc.siccapi.diagnosis.repository.DiagnosisRepository;
 import cl.sicc.siccapi.consultation.repository.ConsultationRepository;
+import cl.sicc.siccapi.patient.domain.Patient;
 import cl.sicc.siccapi.patient.repository.PatientRepository;
+import cl.sicc.siccapi.healthcareprofessional.domain.HealthcareProfessional;
 import cl.sicc.siccapi.healthcareprofessional.repository.HealthcareProfessionalRepository;
 import cl.sicc.siccapi.diagnosis.repository.Cie10Repository;
+import cl.sicc.siccapi.prescription.domain.Prescription;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -26,16 +45,56 @@ public class ConsultationService {
     private final PatientRepository patientRepository;
     private final HealthcareProfessionalRepository professionalRepository;
     private final Cie10Repository cie10Repository;
+    private final DiagnosisRepository diagnosisRepository;
+    private final ReferenceCatalogService catalog;
+    private final ApplicationEventPublisher eventPublisher;
 
+    /**
+     * Página de consultas en tres sentencias (página, COUNT y diagnósticos de la página), sin
+     * importar su tamaño.
+     */
     public Page<ConsultationDto> findAll(Pageable pageable) {
-        return repository.findAll(pageable).map(this::toDto);
+        Page<ConsultationRow> rows = repository.findRows(pageable);
+        return new PageImpl<>(toDtos(rows.getContent()), rows.getPageable(), rows.getTotalElements());
+    }
+
+    /**
+     * Consultas por cursor, de la más reciente a la más antigua y las sin fecha al final. Sin
+     * COUNT ni OFFSET: dos sentencias (filas y diagnósticos) sin importar la profundidad.
+     */
+    public CursorSlice<ConsultationDto> findSlice(String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<ConsultationRow> rows = new ArrayList<>(size + 1);
+        long undatedBefore = Long.MAX_VALUE;
+        if (after == null) {
+            rows.addAll(repository.findKeysetFirst(CursorSlice.limit(size)));
+        } else if (after.key() != null) {
+            rows.addAll(repository.findKeysetAfter(after.dateKey(), after.id(), CursorSlice.limit(size)));
+        } else {
+            undatedBefore = after.id();
+        }
+        if (rows.size() <= size) {
+            // Se acabaron las consultas con fecha: la página sigue con las que no tienen
+            rows.addAll(repository.findKeysetUndatedBefore(undatedBefore, Limit.of(size + 1 - rows.size())));
+        }
+        return CursorSlice.of(rows, size, row -> KeysetCursor.of(row.date(), row.id()), this::toDtos);
+    }
+
+    private List<ConsultationDto> toDtos(List<ConsultationRow> rows) {
+        if (rows.isEmpty()) return List.of();
+        Map<Long, List<DiagnosisRow>> diagnoses = diagnosisRepository
+                .findRowsByConsultationIdIn(rows.stream().map(ConsultationRow::id).toList()).stream()
+                .collect(Collectors.groupingBy(DiagnosisRow::consultationId));
+        return rows.stream().map(row -> toDto(row, diagnoses.getOrDefault(row.id(), List.of()))).toList();
     }
 
     public ConsultationDto findById(Long id) {
-        return repository.findById(id).map(this::toDto)
+        ConsultationRow row = repository.findRowById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        return toDto(row, diagnosisRepository.findRowsByConsultationIdIn(List.of(id)));
     }
 
+    @Transactional
     public ConsultationDto create(ConsultationDto dto) {
         Consultation c = new Consultation();
         c.setDate(dto.getDate());
@@ -43,17 +102,13 @@ public class ConsultationService {
             c.setType(Consultation.Type.valueOf(dto.getType()));
         c.setPatient(patientRepository.findById(dto.getPatientId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Paciente no encontrado")));
-        c.setProfessional(professionalRepository.findById(dto.getProfessionalId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Profesional no encontrado")));
+        c.setProfessional(professional(dto.getProfessionalId()));
 
         if (dto.getDiagnoses() != null) {
             List<Diagnosis> list = new ArrayList<>();
             for (DiagnosisDto dd : dto.getDiagnoses()) {
                 Diagnosis diag = new Diagnosis();
-                Cie10 cie = cie10Repository.findById(dd.getCie10Code())
-                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                                "CIE10 no existe: " + dd.getCie10Code()));
-                diag.setCie10(cie);
+                diag.setCie10(cie10(dd.getCie10Code()));
                 diag.setDescription(dd.getDescription());
                 diag.setConsultation(c);
                 list.add(diag);
@@ -62,11 +117,18 @@ public class ConsultationService {
         }
 
         Consultation saved = repository.save(c);
+        publish(DomainWriteEvent.Action.CREATED, saved, new HashSet<>(), new HashSet<>());
         return toDto(saved);
     }
 
+    @Transactional
     public ConsultationDto update(Long id, ConsultationDto dto) {
         Consultation c = repository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        // Estado previo: los agregados de la fecha y del paciente anteriores también cambian
+        Set<LocalDate> previousDates = datesOf(c);
+        Set<Long> previousPatients = new HashSet<>();
+        if (c.getPatient() != null)
+            previousPatients.add(c.getPatient().getId());
         c.setDate(dto.getDate());
         if (dto.getType() != null)
             c.setType(Consultation.Type.valueOf(dto.getType()));
@@ -74,17 +136,13 @@ public class ConsultationService {
             c.setPatient(patientRepository.findById(dto.getPatientId())
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Paciente no encontrado")));
         if (dto.getProfessionalId() != null)
-            c.setProfessional(professionalRepository.findById(dto.getProfessionalId()).orElseThrow(
-                    () -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Profesional no encontrado")));
+            c.setProfessional(professional(dto.getProfessionalId()));
 
         if (dto.getDiagnoses() != null) {
             List<Diagnosis> list = new ArrayList<>();
             for (DiagnosisDto dd : dto.getDiagnoses()) {
                 Diagnosis diag = new Diagnosis();
-                Cie10 cie = cie10Repository.findById(dd.getCie10Code())
-                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                                "CIE10 no existe: " + dd.getCie10Code()));
-                diag.setCie10(cie);
+                diag.setCie10(cie10(dd.getCie10Code()));
                 diag.setDescription(dd.getDescription());
                 diag.setConsultation(c);
                 list.add(diag);
@@ -93,53 +151,112 @@ public class ConsultationService {
             c.getDiagnoses().addAll(list);
         }
 
-        return toDto(repository.save(c));
+        Consultation saved = repository.save(c);
+        publish(DomainWriteEvent.Action.UPDATED, saved, previousDates, previousPatients);
+        return toDto(saved);
     }
 
+    @Transactional
     public void delete(Long id) {
-        if (!repository.existsById(id))
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
-        repository.deleteById(id);
+        Consultation c = repository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        Set<LocalDate> dates = datesOf(c);
+        Set<Long> patients = new HashSet<>();
+        if (c.getPatient() != null)
+            patients.add(c.getPatient().getId());
+        repository.delete(c);
+        eventPublisher.publishEvent(DomainWriteEvent.of(DomainWriteEvent.Source.CONSULTATION,
+                DomainWriteEvent.Action.DELETED, id, patients, dates));
+    }
+
+    /**
+     * Valida contra el catálogo en memoria y asocia una referencia sin consultar la base.
+     */
+    private HealthcareProfessional professional(Long id) {
+        if (catalog.professional(id).isEmpty())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Profesional no encontrado");
+        return professionalRepository.getReferenceById(id);
+    }
+
+    private Cie10 cie10(String code) {
+        if (catalog.cie10(code).isEmpty())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CIE10 no existe: " + code);
+        return cie10Repository.getReferenceById(code);
+    }
+
+    private void publish(DomainWriteEvent.Action action, Consultation c, Set<LocalDate> dates, Set<Long> patients) {
+        dates.addAll(datesOf(c));
+        if (c.getPatient() != null)
+            patients.add(c.getPatient().getId());
+        eventPublisher.publishEvent(DomainWriteEvent.of(DomainWriteEvent.Source.CONSULTATION,
+                action, c.getId(), patients, dates));
+    }
+
+    /**
+     * Fecha de la consulta más las fechas de sus recetas: los agregados de recetas también
+     * dependen del paciente y profesional de la consulta.
+     */
+    private Set<LocalDate> datesOf(Consultation c) {
+        Set<LocalDate> dates = new HashSet<>();
+        dates.add(c.getDate());
+        if (c.getPrescriptions() != null) {
+            for (Prescription p : c.getPrescriptions())
+                dates.add(p.getDate());
+        }
+        return dates;
     }
 
     private ConsultationDto toDto(Consultation c) {
-        ConsultationDto d = new ConsultationDto();
-        d.setId(c.getId());
-        d.setDate(c.getDate());
-        d.setType(c.getType() != null ? c.getType().name() : null);
-        d.setPatientId(c.getPatient() != null ? c.getPatient().getId() : null);
-        d.setProfessionalId(c.getProfessional() != null ? c.getProfessional().getId() : null);
+        Patient p = c.getPatient();
+        ConsultationRow row = new ConsultationRow(c.getId(), c.getDate(), c.getType(),
+                p != null ? p.getId() : null, p != null ? p.getName() : null, p != null ? p.getRut() : null,
+                p != null ? p.getBirthDate() : null, p != null ? p.getSex() : null, p != null ? p.getFonasaTier() : null,
+                c.getProfessional() != null ? c.getProfessional().getId() : null);
+        List<DiagnosisRow> diagnoses = new ArrayList<>();
         if (c.getDiagnoses() != null) {
-            List<DiagnosisDto> list = new ArrayList<>();
             for (Diagnosis diag : c.getDiagnoses()) {
-                DiagnosisDto dd = new DiagnosisDto();
-                dd.setId(diag.getId());
-                dd.setCie10Code(diag.getCie10() != null ? diag.getCie10().getCode() : null);
-                dd.setDescription(diag.getDescription());
-                list.add(dd);
+                diagnoses.add(new DiagnosisRow(diag.getId(), c.getId(),
+                        diag.getCie10() != null ? diag.getCie10().getCode() : null, diag.getDescription()));
             }
-            d.setDiagnoses(list);
+        }
+        return toDto(row, diagnoses);
+    }
 
-            if (!c.getDiagnoses().isEmpty()) {
-                // Use first diagnosis description as primary
-                d.setDiagnosis(c.getDiagnoses().get(0).getDescription());
-            }
+    private ConsultationDto toDto(ConsultationRow c, List<DiagnosisRow> diagnoses) {
+        ConsultationDto d = new ConsultationDto();
+        d.setId(c.id());
+        d.setDate(c.date());
+        d.setType(c.type() != null ? c.type().name() : null);
+        d.setPatientId(c.patientId());
+        d.setProfessionalId(c.professionalId());
+
+        List<DiagnosisDto> list = new ArrayList<>();
+        for (DiagnosisRow diag : diagnoses) {
+            DiagnosisDto dd = new DiagnosisDto();
+            dd.setId(diag.id());
+            dd.setCie10Code(diag.cie10Code());
+            dd.setDescription(diag.description());
+            list.add(dd);
+        }
+        d.setDiagnoses(list);
+        if (!diagnoses.isEmpty()) {
+            // Use first diagnosis description as primary
+            d.setDiagnosis(diagnoses.get(0).description());
         }
 
-        if (c.getPatient() != null) {
-            d.setPatientName(c.getPatient().getName());
-            d.setPatientRut(c.getPatient().getRut());
-            d.setPatientAge(c.getPatient().getAge());
-            d.setPatientSex(c.getPatient().getSex());
-            if (c.getPatient().getFonasaTier() != null) {
-                d.setFonasaType(c.getPatient().getFonasaTier().name());
+        if (c.patientId() != null) {
+            d.setPatientName(c.patientName());
+            d.setPatientRut(c.patientRut());
+            d.setPatientAge(Patient.age(c.patientBirthDate()));
+            d.setPatientSex(c.patientSex());
+            if (c.fonasaTier() != null) {
+                d.setFonasaType(c.fonasaTier().name());
             }
         }
 
-        if (c.getProfessional() != null) {
-            d.setDoctorName(c.getProfessional().getName());
-            d.setSpecialtyName(c.getProfessional().getSpecialty());
-        }
+        catalog.professional(c.professionalId()).ifPresent(hp -> {
+            d.setDoctorName(hp.name());
+            d.setSpecialtyName(hp.specialty());
+        });
         return d;
     }
 }
@@ -11,6 +11,8 @@ import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/cie10")
 @RequiredArgsConstructor
@@ -23,6 +25,16 @@ public class Cie10Controller {
         return ResponseEntity.ok(service.findAll(pageable));
     }
 
+    /**
+     * Autocompletado por código ({@code J06}, {@code j06.9}) o por palabras del nombre, sin
+     * distinguir tildes ni mayúsculas ({@code neumo bact}).
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Cie10Dto>> search(@RequestParam String q,
+                                                 @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(service.search(q, limit));
+    }
+
     @GetMapping("/{code}")
     public ResponseEntity<Cie10Dto> get(@PathVariable String code) {
         return ResponseEntity.ok(service.findById(code));
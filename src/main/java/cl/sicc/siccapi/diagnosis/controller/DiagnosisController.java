@@ -1,13 +1,17 @@
 package cl.sicc.siccapi.diagnosis.controller;
 
+import cl.sicc.siccapi.common.dto.CursorSlice;
 import cl.sicc.siccapi.diagnosis.dto.DiagnosisDto;
 import cl.sicc.siccapi.diagnosis.service.DiagnosisService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -15,6 +19,7 @@ import java.util.List;
 @RestController
 @RequestMapping("/api/diagnoses")
 @RequiredArgsConstructor
+@Validated
 public class DiagnosisController {
     private final DiagnosisService service;
 
@@ -23,6 +28,17 @@ public class DiagnosisController {
         return ResponseEntity.ok(service.findAll(pageable));
     }
 
+    /**
+     * Listado por cursor: {@code ?cursor=} (vacío) para la primera página y luego el
+     * {@code nextCursor} de la respuesta. Sin total, para que las páginas profundas cuesten lo
+     * mismo que la primera.
+     */
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorSlice<DiagnosisDto>> getAllByCursor(@RequestParam String cursor,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(CursorSlice.MAX_SIZE) int size) {
+        return ResponseEntity.ok(service.findSlice(cursor, size));
+    }
+
     @GetMapping("/all")
     public ResponseEntity<List<DiagnosisDto>> getAll() {
         return ResponseEntity.ok(service.findAll());
@@ -16,4 +16,12 @@ public class Cie10 {
 
     @Column(nullable = false)
     private String name;
+
+    /** Capítulo ({@code cie10_chapter.id}); lo asigna {@code Cie10Repository.assignHierarchy}. */
+    @Column(name = "chapter_id", insertable = false, updatable = false)
+    private Short chapterId;
+
+    /** Bloque ({@code cie10_block.id}); lo asigna {@code Cie10Repository.assignHierarchy}. */
+    @Column(name = "block_id", insertable = false, updatable = false)
+    private Short blockId;
 }
@@ -0,0 +1,71 @@
+package cl.sicc.siccapi.diagnosis.domain;
+
+import java.util.Locale;
+
+/**
+ * Capítulos de la CIE-10 (OMS) definidos por rangos de categoría de tres caracteres. Es la misma
+ * tabla que {@code cie10_chapter}, con el id en el orden de declaración.
+ */
+public enum Cie10Chapter {
+
+    I("A00", "B99", "Ciertas enfermedades infecciosas y parasitarias"),
+    II("C00", "D48", "Tumores [neoplasias]"),
+    III("D50", "D89", "Enfermedades de la sangre y de los órganos hematopoyéticos"),
+    IV("E00", "E90", "Enfermedades endocrinas, nutricionales y metabólicas"),
+    V("F00", "F99", "Trastornos mentales y del comportamiento"),
+    VI("G00", "G99", "Enfermedades del sistema nervioso"),
+    VII("H00", "H59", "Enfermedades del ojo y sus anexos"),
+    VIII("H60", "H95", "Enfermedades del oído y de la apófisis mastoides"),
+    IX("I00", "I99", "Enfermedades del sistema circulatorio"),
+    X("J00", "J99", "Enfermedades del sistema respiratorio"),
+    XI("K00", "K93", "Enfermedades del sistema digestivo"),
+    XII("L00", "L99", "Enfermedades de la piel y del tejido subcutáneo"),
+    XIII("M00", "M99", "Enfermedades del sistema osteomuscular y del tejido conjuntivo"),
+    XIV("N00", "N99", "Enfermedades del sistema genitourinario"),
+    XV("O00", "O99", "Embarazo, parto y puerperio"),
+    XVI("P00", "P96", "Ciertas afecciones originadas en el periodo perinatal"),
+    XVII("Q00", "Q99", "Malformaciones congénitas, deformidades y anomalías cromosómicas"),
+    XVIII("R00", "R99", "Síntomas, signos y hallazgos anormales clínicos y de laboratorio"),
+    XIX("S00", "T98", "Traumatismos, envenenamientos y otras consecuencias de causas externas"),
+    XX("V01", "Y98", "Causas externas de morbilidad y de mortalidad"),
+    XXI("Z00", "Z99", "Factores que influyen en el estado de salud y contacto con los servicios de salud"),
+    XXII("U00", "U85", "Códigos para propósitos especiales");
+
+    private final String first;
+    private final String last;
+    private final String title;
+
+    Cie10Chapter(String first, String last, String title) {
+        this.first = first;
+        this.last = last;
+        this.title = title;
+    }
+
+    /**
+     * Id en {@code cie10_chapter} (y en {@code cie10.chapter_id}).
+     */
+    public int getId() {
+        return ordinal() + 1;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Capítulo de un código CIE-10 ({@code J06}, {@code J06.9}, {@code j069}); null si el código no
+     * cae en ningún rango.
+     */
+    public static Cie10Chapter of(String code) {
+        if (code == null || code.length() < 3) {
+            return null;
+        }
+        String category = code.substring(0, 3).toUpperCase(Locale.ROOT);
+        for (Cie10Chapter chapter : values()) {
+            if (category.compareTo(chapter.first) >= 0 && category.compareTo(chapter.last) <= 0) {
+                return chapter;
+            }
+        }
+        return null;
+    }
+}
@@ -14,8 +14,10 @@ import lombok.*;
 @AllArgsConstructor
 @Builder
 public class Diagnosis {
+    /** Secuencia con incremento 50: los ids se reservan por bloques y los INSERT van en lotes JDBC. */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "diagnosis_seq")
+    @SequenceGenerator(name = "diagnosis_seq", sequenceName = "diagnosis_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false)
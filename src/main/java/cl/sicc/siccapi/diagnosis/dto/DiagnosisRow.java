@@ -0,0 +1,12 @@
+package cl.sicc.siccapi.diagnosis.dto;
+
+/**
+ * Proyección de un diagnóstico con sólo sus columnas: no carga la consulta ni el código CIE-10.
+ */
+public record DiagnosisRow(
+    Long id,
+    Long consultationId,
+    String cie10Code,
+    String description
+) {
+}
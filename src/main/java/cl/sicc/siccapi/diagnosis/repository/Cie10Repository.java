@@ -2,7 +2,26 @@ package cl.sicc.siccapi.diagnosis.repository;
 
 import cl.sicc.siccapi.diagnosis.domain.Cie10;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface Cie10Repository extends JpaRepository<Cie10, String> {
-}
 
+    /**
+     * Asigna capítulo y bloque según los rangos de categoría de {@code cie10_chapter} y
+     * {@code cie10_block} (ver V7__cie10_hierarchy.sql).
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE cie10
+            SET chapter_id = (SELECT ch.id
+                              FROM cie10_chapter ch
+                              WHERE UPPER(SUBSTRING(cie10.code, 1, 3)) BETWEEN ch.first_category AND ch.last_category),
+                block_id   = (SELECT b.id
+                              FROM cie10_block b
+                              WHERE UPPER(SUBSTRING(cie10.code, 1, 3)) BETWEEN b.first_category AND b.last_category)
+            WHERE code = :code
+            """, nativeQuery = true)
+    int assignHierarchy(@Param("code") String code);
+}
@@ -1,12 +1,18 @@
 package cl.sicc.siccapi.diagnosis.repository;
 
 import cl.sicc.siccapi.diagnosis.domain.Diagnosis;
+import cl.sicc.siccapi.diagnosis.dto.DiagnosisRow;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface DiagnosisRepository extends JpaRepository<Diagnosis, Long> {
@@ -15,4 +21,34 @@ public interface DiagnosisRepository extends JpaRepository<Diagnosis, Long> {
 
     @Query("SELECT d FROM Diagnosis d WHERE d.cie10.code = :code")
     List<Diagnosis> findByCie10Code(@Param("code") String code);
+
+    String ROW_SELECT = """
+            SELECT new cl.sicc.siccapi.diagnosis.dto.DiagnosisRow(d.id, d.consultation.id, d.cie10.code, d.description)
+            FROM Diagnosis d
+            """;
+
+    // Proyecciones de lectura: sólo columnas de diagnosis, sin cargar consulta ni CIE-10 (el
+    // nombre del código sale del catálogo en memoria)
+    @Query(value = ROW_SELECT, countQuery = "SELECT COUNT(d) FROM Diagnosis d")
+    Page<DiagnosisRow> findRows(Pageable pageable);
+
+    @Query(ROW_SELECT + "ORDER BY d.id")
+    List<DiagnosisRow> findAllRows();
+
+    // Paginación por cursor en orden (consultation_id DESC, id DESC): los diagnósticos de las
+    // consultas más recientes primero, apoyada en idx_diagnosis_consultation_id
+    @Query(ROW_SELECT + "ORDER BY d.consultation.id DESC, d.id DESC")
+    List<DiagnosisRow> findKeysetFirst(Limit limit);
+
+    @Query(ROW_SELECT + "WHERE (d.consultation.id, d.id) < (:consultationId, :id) ORDER BY d.consultation.id DESC, d.id DESC")
+    List<DiagnosisRow> findKeysetAfter(@Param("consultationId") Long consultationId, @Param("id") Long id, Limit limit);
+
+    @Query(ROW_SELECT + "WHERE d.id = :id")
+    Optional<DiagnosisRow> findRowById(@Param("id") Long id);
+
+    @Query(ROW_SELECT + "WHERE d.consultation.id IN :consultationIds ORDER BY d.id")
+    List<DiagnosisRow> findRowsByConsultationIdIn(@Param("consultationIds") Collection<Long> consultationIds);
+
+    @Query(ROW_SELECT + "WHERE d.cie10.code = :code ORDER BY d.id")
+    List<DiagnosisRow> findRowsByCie10Code(@Param("code") String code);
 }
\ No newline at end of file
@@ -0,0 +1,303 @@
+package cl.sicc.siccapi.diagnosis.service;
+
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import cl.sicc.siccapi.diagnosis.domain.Cie10;
+import cl.sicc.siccapi.diagnosis.dto.Cie10Dto;
+import cl.sicc.siccapi.diagnosis.repository.Cie10Repository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Índice en memoria del catálogo CIE-10 para autocompletar por código o por nombre.
+ *
+ * Cada versión del catálogo es un {@link Snapshot} inmutable: un trie sobre los códigos
+ * normalizados ({@code J06.9} → {@code J069}) y un índice de prefijos sobre las palabras de los
+ * nombres sin tildes ni mayúsculas. Las escrituras de {@link Cie10Service} lo reconstruyen completo
+ * después del commit y lo reemplazan de una vez; las búsquedas en curso terminan sobre la versión
+ * anterior.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class Cie10SearchIndex {
+
+    static final int MAX_LIMIT = 50;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+    private static final Pattern CODE_SEPARATORS = Pattern.compile("[.\\s-]+");
+
+    private final Cie10Repository repository;
+
+    private volatile Snapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo cargar el índice de búsqueda CIE-10: {}", e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDomainWrite(DomainWriteEvent event) {
+        if (event.source() != DomainWriteEvent.Source.CIE10) {
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            // La versión anterior sigue sirviendo búsquedas hasta la próxima escritura
+            log.warn("No se pudo reconstruir el índice de búsqueda CIE-10 tras {} {}: {}",
+                    event.action(), event.entityId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstruye el índice completo desde la base.
+     */
+    public synchronized void reload() {
+        long start = System.currentTimeMillis();
+        List<Cie10> entries = repository.findAll();
+        snapshot = new Snapshot(entries);
+        log.info("Índice de búsqueda CIE-10 cargado en {} ms: {} códigos", System.currentTimeMillis() - start,
+                entries.size());
+    }
+
+    /**
+     * Códigos que empiezan con {@code query} (exacto primero, luego en orden de código) seguidos de
+     * los nombres que contienen palabras que empiezan con cada palabra de {@code query} (los que
+     * empiezan con la consulta completa primero, luego los más cortos).
+     */
+    public List<Cie10Dto> search(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current.search(query, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    /**
+     * Minúsculas sin tildes ni diéresis ({@code "Neumonía"} → {@code "neumonia"}).
+     */
+    static String fold(String text) {
+        return MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    static String normalizeCode(String code) {
+        return CODE_SEPARATORS.matcher(code).replaceAll("").toUpperCase(Locale.ROOT);
+    }
+
+    private static String[] tokens(String folded) {
+        return Arrays.stream(NON_ALPHANUMERIC.split(folded))
+                .filter(token -> !token.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Versión inmutable del índice. Las entradas van ordenadas por código normalizado, de modo que
+     * cada nodo del trie cubre un rango contiguo {@code [from, to)}.
+     */
+    static final class Snapshot {
+
+        private final String[] codes;
+        private final String[] names;
+        private final String[] foldedNames;
+        private final TrieNode codeTrie;
+        /** Palabras distintas de los nombres, ordenadas, con las entradas que las contienen. */
+        private final String[] words;
+        private final int[][] postings;
+
+        Snapshot(List<Cie10> entries) {
+            Cie10[] sorted = entries.stream()
+                    .filter(entry -> entry.getCode() != null && entry.getName() != null)
+                    .sorted(Comparator.comparing((Cie10 entry) -> normalizeCode(entry.getCode())))
+                    .toArray(Cie10[]::new);
+            int size = sorted.length;
+            codes = new String[size];
+            names = new String[size];
+            foldedNames = new String[size];
+            String[] normalizedCodes = new String[size];
+            TreeMap<String, List<Integer>> byWord = new TreeMap<>();
+            for (int i = 0; i < size; i++) {
+                codes[i] = sorted[i].getCode();
+                names[i] = sorted[i].getName();
+                foldedNames[i] = fold(names[i]);
+                normalizedCodes[i] = normalizeCode(codes[i]);
+                for (String word : tokens(foldedNames[i])) {
+                    List<Integer> ids = byWord.computeIfAbsent(word, w -> new ArrayList<>());
+                    if (ids.isEmpty() || ids.get(ids.size() - 1) != i) {
+                        ids.add(i);
+                    }
+                }
+            }
+            codeTrie = TrieNode.build(normalizedCodes, 0, size, 0);
+            words = byWord.keySet().toArray(String[]::new);
+            postings = byWord.values().stream()
+                    .map(ids -> ids.stream().mapToInt(Integer::intValue).toArray())
+                    .toArray(int[][]::new);
+        }
+
+        int size() {
+            return codes.length;
+        }
+
+        List<Cie10Dto> search(String query, int limit) {
+            List<Cie10Dto> results = new ArrayList<>(limit);
+            BitSet seen = new BitSet(codes.length);
+
+            String code = normalizeCode(query.trim());
+            TrieNode node = code.isEmpty() ? null : codeTrie.find(code);
+            if (node != null) {
+                // El trie ordena el código exacto antes que sus subcódigos
+                for (int i = node.from; i < node.to && results.size() < limit; i++) {
+                    results.add(dto(i));
+                    seen.set(i);
+                }
+            }
+
+            String folded = fold(query.trim());
+            String[] queryWords = tokens(folded);
+            if (results.size() < limit && queryWords.length > 0) {
+                BitSet matches = null;
+                for (String word : queryWords) {
+                    BitSet withWord = entriesWithWordPrefix(word);
+                    if (matches == null) {
+                        matches = withWord;
+                    } else {
+                        matches.and(withWord);
+                    }
+                    if (matches.isEmpty()) {
+                        break;
+                    }
+                }
+                matches.andNot(seen);
+                for (int i : best(matches, folded, limit - results.size())) {
+                    results.add(dto(i));
+                }
+            }
+            return results;
+        }
+
+        private BitSet entriesWithWordPrefix(String prefix) {
+            BitSet entries = new BitSet(codes.length);
+            for (int w = lowerBound(prefix); w < words.length && words[w].startsWith(prefix); w++) {
+                for (int i : postings[w]) {
+                    entries.set(i);
+                }
+            }
+            return entries;
+        }
+
+        private int lowerBound(String word) {
+            int index = Arrays.binarySearch(words, word);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        /**
+         * Las {@code limit} mejores coincidencias por nombre, en orden.
+         */
+        private List<Integer> best(BitSet matches, String foldedQuery, int limit) {
+            Comparator<Integer> ranking = Comparator
+                    .comparing((Integer i) -> !foldedNames[i].startsWith(foldedQuery))
+                    .thenComparingInt(i -> foldedNames[i].length())
+                    .thenComparingInt(i -> i);
+            // Montículo con la peor de las mejores arriba
+            PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, ranking.reversed());
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                top.add(i);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<Integer> ordered = new ArrayList<>(top);
+            ordered.sort(ranking);
+            return ordered;
+        }
+
+        private Cie10Dto dto(int i) {
+            return new Cie10Dto(codes[i], names[i]);
+        }
+    }
+
+    /**
+     * Nodo del trie de códigos. Los hijos van ordenados por carácter; {@code [from, to)} es el
+     * rango de entradas cuyo código empieza con el camino hasta el nodo.
+     */
+    private static final class TrieNode {
+
+        private final char[] labels;
+        private final TrieNode[] children;
+        private final int from;
+        private final int to;
+
+        private TrieNode(char[] labels, TrieNode[] children, int from, int to) {
+            this.labels = labels;
+            this.children = children;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Construye el subárbol de {@code codes[from, to)}, que comparten los primeros
+         * {@code depth} caracteres.
+         */
+        static TrieNode build(String[] codes, int from, int to, int depth) {
+            List<Character> labels = new ArrayList<>();
+            List<TrieNode> children = new ArrayList<>();
+            int i = from;
+            // Los códigos que terminan en este nodo van primero en el orden
+            while (i < to && codes[i].length() == depth) {
+                i++;
+            }
+            while (i < to) {
+                char label = codes[i].charAt(depth);
+                int end = i;
+                while (end < to && codes[end].charAt(depth) == label) {
+                    end++;
+                }
+                labels.add(label);
+                children.add(build(codes, i, end, depth + 1));
+                i = end;
+            }
+            char[] labelArray = new char[labels.size()];
+            for (int k = 0; k < labelArray.length; k++) {
+                labelArray[k] = labels.get(k);
+            }
+            return new TrieNode(labelArray, children.toArray(TrieNode[]::new), from, to);
+        }
+
+        TrieNode find(String prefix) {
+            TrieNode node = this;
+            for (int depth = 0; depth < prefix.length() && node != null; depth++) {
+                int child = Arrays.binarySearch(node.labels, prefix.charAt(depth));
+                node = child >= 0 ? node.children[child] : null;
+            }
+            return node;
+        }
+    }
+}
@@ -1,19 +1,26 @@
 package cl.sicc.siccapi.diagnosis.service;
 
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
 import cl.sicc.siccapi.diagnosis.dto.Cie10Dto;
 import cl.sicc.siccapi.diagnosis.domain.Cie10;
 import cl.sicc.siccapi.diagnosis.repository.Cie10Repository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 public class Cie10Service {
     private final Cie10Repository repository;
+    private final Cie10SearchIndex searchIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<Cie10Dto> findAll(Pageable pageable) {
         return repository.findAll(pageable).map(this::toDto);
@@ -23,23 +30,44 @@ public class Cie10Service {
         return repository.findById(code).map(this::toDto).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
+    /**
+     * Autocompletado por código o nombre (ver {@link Cie10SearchIndex}).
+     */
+    public List<Cie10Dto> search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    @Transactional
     public Cie10Dto create(Cie10Dto dto) {
         if (repository.existsById(dto.getCode())) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CIE10 ya existe");
         Cie10 c = new Cie10();
         c.setCode(dto.getCode());
         c.setName(dto.getName());
-        return toDto(repository.save(c));
+        Cie10 saved = repository.saveAndFlush(c);
+        // Capítulo y bloque para las estadísticas, según el rango del código
+        repository.assignHierarchy(saved.getCode());
+        publish(DomainWriteEvent.Action.CREATED, saved.getCode());
+        return toDto(saved);
     }
 
+    @Transactional
     public Cie10Dto update(String code, Cie10Dto dto) {
         Cie10 c = repository.findById(code).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         c.setName(dto.getName());
-        return toDto(repository.save(c));
+        Cie10 saved = repository.save(c);
+        publish(DomainWriteEvent.Action.UPDATED, saved.getCode());
+        return toDto(saved);
     }
 
+    @Transactional
     public void delete(String code) {
         if (!repository.existsById(code)) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
         repository.deleteById(code);
+        publish(DomainWriteEvent.Action.DELETED, code);
+    }
+
+    private void publish(DomainWriteEvent.Action action, String code) {
+        eventPublisher.publishEvent(DomainWriteEvent.of(DomainWriteEvent.Source.CIE10, action, code));
     }
 
     private Cie10Dto toDto(Cie10 c) {
@@ -49,4 +77,3 @@ public class Cie10Service {
         return d;
     }
 }
-
@@ -1,20 +1,30 @@
 package cl.sicc.siccapi.diagnosis.service;
 
+import cl.sicc.siccapi.catalog.service.ReferenceCatalogService;
+import cl.sicc.siccapi.common.dto.CursorSlice;
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import cl.sicc.siccapi.common.util.KeysetCursor;
 import cl.sicc.siccapi.consultation.domain.Consultation;
 import cl.sicc.siccapi.consultation.repository.ConsultationRepository;
 import cl.sicc.siccapi.diagnosis.domain.Cie10;
 import cl.sicc.siccapi.diagnosis.domain.Diagnosis;
 import cl.sicc.siccapi.diagnosis.dto.DiagnosisDto;
+import cl.sicc.siccapi.diagnosis.dto.DiagnosisRow;
 import cl.sicc.siccapi.diagnosis.repository.Cie10Repository;
 import cl.sicc.siccapi.diagnosis.repository.DiagnosisRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDate;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -22,30 +32,48 @@ public class DiagnosisService {
     private final DiagnosisRepository repository;
     private final ConsultationRepository consultationRepository;
     private final Cie10Repository cie10Repository;
+    private final ReferenceCatalogService catalog;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Las lecturas usan proyecciones: una sentencia por consulta (más el COUNT de la página)
 
     public Page<DiagnosisDto> findAll(Pageable pageable) {
-        return repository.findAll(pageable).map(this::toDto);
+        return repository.findRows(pageable).map(this::toDto);
+    }
+
+    /**
+     * Diagnósticos por cursor, de las consultas más recientes (por id) a las más antiguas, sin
+     * COUNT ni OFFSET.
+     */
+    public CursorSlice<DiagnosisDto> findSlice(String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<DiagnosisRow> rows = after == null
+                ? repository.findKeysetFirst(CursorSlice.limit(size))
+                : repository.findKeysetAfter(after.longKey(), after.id(), CursorSlice.limit(size));
+        return CursorSlice.of(rows, size, row -> KeysetCursor.of(row.consultationId(), row.id()),
+                page -> page.stream().map(this::toDto).toList());
     }
 
     public List<DiagnosisDto> findAll() {
-        return repository.findAll().stream().map(this::toDto).toList();
+        return repository.findAllRows().stream().map(this::toDto).toList();
     }
 
     public DiagnosisDto findById(Long id) {
-        return repository.findById(id).map(this::toDto)
+        return repository.findRowById(id).map(this::toDto)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
     public List<DiagnosisDto> findByConsultationId(Long consultationId) {
-        return repository.findByConsultationId(consultationId).stream()
+        return repository.findRowsByConsultationIdIn(List.of(consultationId)).stream()
                 .map(this::toDto).toList();
     }
 
     public List<DiagnosisDto> findByCie10Code(String code) {
-        return repository.findByCie10Code(code).stream()
+        return repository.findRowsByCie10Code(code).stream()
                 .map(this::toDto).toList();
     }
 
+    @Transactional
     public DiagnosisDto create(DiagnosisDto dto) {
         Diagnosis d = new Diagnosis();
         d.setDescription(dto.getDescription());
@@ -54,17 +82,20 @@ public class DiagnosisService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Consulta no encontrada"));
         d.setConsultation(consultation);
 
-        Cie10 cie10 = cie10Repository.findById(dto.getCie10Code())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "CIE-10 no encontrado: " + dto.getCie10Code()));
-        d.setCie10(cie10);
+        d.setCie10(cie10(dto.getCie10Code()));
 
         Diagnosis saved = repository.save(d);
+        publish(DomainWriteEvent.Action.CREATED, saved, new HashSet<>(), new HashSet<>());
         return toDto(saved);
     }
 
+    @Transactional
     public DiagnosisDto update(Long id, DiagnosisDto dto) {
         Diagnosis d = repository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        Set<LocalDate> previousDates = new HashSet<>();
+        Set<Long> previousPatients = new HashSet<>();
+        collect(d, previousDates, previousPatients);
 
         d.setDescription(dto.getDescription());
 
@@ -75,26 +106,62 @@ public class DiagnosisService {
         }
 
         if (dto.getCie10Code() != null) {
-            Cie10 cie10 = cie10Repository.findById(dto.getCie10Code())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "CIE-10 no encontrado: " + dto.getCie10Code()));
-            d.setCie10(cie10);
+            d.setCie10(cie10(dto.getCie10Code()));
         }
 
-        return toDto(repository.save(d));
+        Diagnosis saved = repository.save(d);
+        publish(DomainWriteEvent.Action.UPDATED, saved, previousDates, previousPatients);
+        return toDto(saved);
     }
 
+    @Transactional
     public void delete(Long id) {
-        if (!repository.existsById(id)) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
-        repository.deleteById(id);
+        Diagnosis d = repository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        Set<LocalDate> dates = new HashSet<>();
+        Set<Long> patients = new HashSet<>();
+        collect(d, dates, patients);
+        repository.delete(d);
+        eventPublisher.publishEvent(DomainWriteEvent.of(DomainWriteEvent.Source.DIAGNOSIS,
+                DomainWriteEvent.Action.DELETED, id, patients, dates));
+    }
+
+    /**
+     * Valida contra el catálogo en memoria y asocia una referencia sin consultar la base.
+     */
+    private Cie10 cie10(String code) {
+        if (catalog.cie10(code).isEmpty())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CIE-10 no encontrado: " + code);
+        return cie10Repository.getReferenceById(code);
+    }
+
+    private void publish(DomainWriteEvent.Action action, Diagnosis d, Set<LocalDate> dates, Set<Long> patients) {
+        collect(d, dates, patients);
+        eventPublisher.publishEvent(DomainWriteEvent.of(DomainWriteEvent.Source.DIAGNOSIS,
+                action, d.getId(), patients, dates));
+    }
+
+    private void collect(Diagnosis d, Set<LocalDate> dates, Set<Long> patients) {
+        Consultation c = d.getConsultation();
+        if (c == null) return;
+        dates.add(c.getDate());
+        if (c.getPatient() != null) patients.add(c.getPatient().getId());
     }
 
     private DiagnosisDto toDto(Diagnosis d) {
+        DiagnosisDto dto = toDto(new DiagnosisRow(d.getId(),
+                d.getConsultation() != null ? d.getConsultation().getId() : null,
+                d.getCie10() != null ? d.getCie10().getCode() : null, d.getDescription()));
+        dto.setCie10Description(catalog.cie10Name(d.getCie10()));
+        return dto;
+    }
+
+    private DiagnosisDto toDto(DiagnosisRow d) {
         DiagnosisDto dto = new DiagnosisDto();
-        dto.setId(d.getId());
-        dto.setConsultationId(d.getConsultation() != null ? d.getConsultation().getId() : null);
-        dto.setCie10Code(d.getCie10() != null ? d.getCie10().getCode() : null);
-        dto.setCie10Description(d.getCie10() != null ? d.getCie10().getName() : null);
-        dto.setDescription(d.getDescription());
+        dto.setId(d.id());
+        dto.setConsultationId(d.consultationId());
+        dto.setCie10Code(d.cie10Code());
+        dto.setCie10Description(catalog.cie10(d.cie10Code()).map(ReferenceCatalogService.Cie10Entry::name).orElse(null));
+        dto.setDescription(d.description());
         return dto;
     }
 }
\ No newline at end of file
@@ -1,22 +1,26 @@
 package cl.sicc.siccapi.healthcareprofessional.service;
 
 
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
 import cl.sicc.siccapi.healthcareprofessional.dto.HealthcareProfessionalCreateDto;
 import cl.sicc.siccapi.healthcareprofessional.dto.HealthcareProfessionalDto;
 import cl.sicc.siccapi.healthcareprofessional.dto.HealthcareProfessionalUpdateDto;
 import cl.sicc.siccapi.healthcareprofessional.domain.HealthcareProfessional;
 import cl.sicc.siccapi.healthcareprofessional.repository.HealthcareProfessionalRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 @Service
 @RequiredArgsConstructor
 public class HealthcareProfessionalService {
     private final HealthcareProfessionalRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<HealthcareProfessionalDto> findAll(Pageable pageable) {
         return repository.findAll(pageable).map(this::toDto);
@@ -26,25 +30,37 @@ public class HealthcareProfessionalService {
         return repository.findById(id).map(this::toDto).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
+    @Transactional
     public HealthcareProfessionalDto create(HealthcareProfessionalCreateDto dto) {
         if (repository.findByRut(dto.getRut()).isPresent()) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Profesional ya existe");
         HealthcareProfessional hp = new HealthcareProfessional();
         hp.setRut(dto.getRut());
         hp.setName(dto.getName());
         hp.setSpecialty(dto.getSpecialty());
-        return toDto(repository.save(hp));
+        HealthcareProfessional saved = repository.save(hp);
+        publish(DomainWriteEvent.Action.CREATED, saved.getId());
+        return toDto(saved);
     }
 
+    @Transactional
     public HealthcareProfessionalDto update(Long id, HealthcareProfessionalUpdateDto dto) {
         HealthcareProfessional hp = repository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         hp.setName(dto.getName());
         hp.setSpecialty(dto.getSpecialty());
-        return toDto(repository.save(hp));
+        HealthcareProfessional saved = repository.save(hp);
+        publish(DomainWriteEvent.Action.UPDATED, saved.getId());
+        return toDto(saved);
     }
 
+    @Transactional
     public void delete(Long id) {
         if (!repository.existsById(id)) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
         repository.deleteById(id);
+        publish(DomainWriteEvent.Action.DELETED, id);
+    }
+
+    private void publish(DomainWriteEvent.Action action, Long id) {
+        eventPublisher.publishEvent(DomainWriteEvent.of(DomainWriteEvent.Source.PROFESSIONAL, action, id));
     }
 
     private HealthcareProfessionalDto toDto(HealthcareProfessional hp) {
@@ -1,21 +1,28 @@
 package cl.sicc.siccapi.integration.ai.controller;
 
 import cl.sicc.siccapi.integration.ai.dto.IAResumenDto;
+import cl.sicc.siccapi.integration.ai.dto.IAResumenJobDto;
 import cl.sicc.siccapi.integration.ai.service.AIService;
+import cl.sicc.siccapi.integration.ai.service.IAResumenJobService;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/ai")
 @RequiredArgsConstructor
 @Slf4j
+@Validated
 public class AIController {
 
     private final AIService aiService;
+    private final IAResumenJobService resumenJobs;
 
     @GetMapping("/resumen")
     public ResponseEntity<IAResumenDto> generarResumenIA(
@@ -25,10 +32,40 @@ public class AIController {
         return ResponseEntity.ok(resumen);
     }
 
+    /**
+     * Modo asíncrono del resumen IA: responde 202 de inmediato con el trabajo que lo genera. Una
+     * solicitud repetida para el mismo periodo devuelve el trabajo en curso o ya completado.
+     * @param periodo periodo del resumen (opcional)
+     * @return trabajo, con su estado en {@code Location}
+     */
+    @PostMapping("/resumen")
+    public ResponseEntity<IAResumenJobDto> solicitarResumenIA(
+            @RequestParam(required = false) @Size(max = 100) String periodo) {
+        log.info("Solicitando resumen IA asíncrono para periodo: {}", periodo);
+        IAResumenJobDto job = resumenJobs.solicitar(periodo);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/ai/resumen/jobs/" + job.getId()))
+                .body(job);
+    }
+
+    @GetMapping("/resumen/jobs/{id}")
+    public ResponseEntity<IAResumenJobDto> consultarResumenIA(@PathVariable String id) {
+        return ResponseEntity.ok(resumenJobs.consultar(id));
+    }
+
+    /**
+     * Resumen generado por un trabajo; 409 mientras no esté completado
+     */
+    @GetMapping("/resumen/jobs/{id}/resultado")
+    public ResponseEntity<IAResumenDto> obtenerResumenIA(@PathVariable String id) {
+        return ResponseEntity.ok(resumenJobs.resultado(id));
+    }
+
     @PostMapping("/cache/invalidate")
     public ResponseEntity<Map<String, String>> invalidarCache() {
         log.info("Invalidando caché de IA");
         aiService.invalidarCache();
+        resumenJobs.invalidar();
         return ResponseEntity.ok(Map.of("mensaje", "Caché invalidado exitosamente"));
     }
 
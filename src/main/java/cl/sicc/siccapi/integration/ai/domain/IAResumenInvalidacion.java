@@ -0,0 +1,27 @@
+package cl.sicc.siccapi.integration.ai.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Fila única con la última invalidación del caché de resúmenes IA.
+ */
+@Entity
+@Table(name = "ia_resumen_invalidacion")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IAResumenInvalidacion {
+
+    public static final short ID = 1;
+
+    @Id
+    private Short id;
+
+    @Column(name = "invalidado_en", nullable = false)
+    private Instant invalidadoEn;
+}
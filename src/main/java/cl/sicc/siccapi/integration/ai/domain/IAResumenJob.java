@@ -0,0 +1,50 @@
+package cl.sicc.siccapi.integration.ai.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "ia_resumen_job")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IAResumenJob {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false, length = 100)
+    private String periodo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Estado estado;
+
+    // IAResumenDto serializado, una vez completado
+    @Column(columnDefinition = "TEXT")
+    private String resultado;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(name = "creado_en", nullable = false)
+    private Instant creadoEn;
+
+    @Column(name = "terminado_en")
+    private Instant terminadoEn;
+
+    public enum Estado {
+        PENDIENTE, EN_CURSO, COMPLETADO, FALLIDO;
+
+        public boolean enCurso() {
+            return this == PENDIENTE || this == EN_CURSO;
+        }
+    }
+}
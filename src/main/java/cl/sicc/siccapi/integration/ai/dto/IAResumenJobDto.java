@@ -0,0 +1,20 @@
+package cl.sicc.siccapi.integration.ai.dto;
+
+import cl.sicc.siccapi.integration.ai.domain.IAResumenJob;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IAResumenJobDto {
+    private String id;
+    private String periodo;
+    private IAResumenJob.Estado estado;
+    private Instant creadoEn;
+    private Instant terminadoEn;
+    private String error;
+}
@@ -0,0 +1,21 @@
+package cl.sicc.siccapi.integration.ai.repository;
+
+import cl.sicc.siccapi.integration.ai.domain.IAResumenInvalidacion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface IAResumenInvalidacionRepository extends JpaRepository<IAResumenInvalidacion, Short> {
+
+    // Nunca retrocede, aunque otro nodo con el reloj adelantado haya invalidado antes
+    @Transactional
+    @Modifying
+    @Query("UPDATE IAResumenInvalidacion i SET i.invalidadoEn = :ahora WHERE i.id = 1 AND i.invalidadoEn < :ahora")
+    int invalidar(@Param("ahora") Instant ahora);
+}
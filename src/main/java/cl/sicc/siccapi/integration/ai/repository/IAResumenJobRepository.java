@@ -0,0 +1,23 @@
+package cl.sicc.siccapi.integration.ai.repository;
+
+import cl.sicc.siccapi.integration.ai.domain.IAResumenJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface IAResumenJobRepository extends JpaRepository<IAResumenJob, String> {
+
+    Optional<IAResumenJob> findFirstByPeriodoAndCreadoEnAfterOrderByCreadoEnDesc(String periodo, Instant desde);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IAResumenJob j WHERE j.creadoEn < :antesDe")
+    int deleteCreatedBefore(@Param("antesDe") Instant antesDe);
+}
@@ -1,8 +1,11 @@
 package cl.sicc.siccapi.integration.ai.service;
 
+import cl.sicc.siccapi.common.util.RequestCoalescer;
 import cl.sicc.siccapi.integration.ai.dto.*;
 import cl.sicc.siccapi.patient.repository.PatientRepository;
 import cl.sicc.siccapi.prescription.repository.PrescriptionRepository;
+import cl.sicc.siccapi.stats.service.StatsQueryExecutor;
+import cl.sicc.siccapi.stats.service.StatsPeriod;
 import cl.sicc.siccapi.stats.service.StatsService;
 import cl.sicc.siccapi.stats.dto.*;
 import cl.sicc.siccapi.consultation.repository.ConsultationRepository;
@@ -22,6 +25,7 @@ import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -37,6 +41,8 @@ public class AIService {
     private final ConsultationRepository consultationRepository;
 
     private final StatsService statsService;
+    private final StatsQueryExecutor queryExecutor;
+    private final RequestCoalescer requestCoalescer;
 
     @Value("${ai.provider:deepseek}")
     private String aiProvider;
@@ -73,6 +79,12 @@ public class AIService {
 
     @Cacheable(value = "iaResumen", key = "#periodo ?: 'default'")
     public IAResumenDto generarResumenIA(String periodo) {
+        // Un solo llamado al proveedor de IA por periodo aunque lleguen varias solicitudes a la vez
+        return requestCoalescer.execute("ai.resumen", periodo != null ? periodo : "default",
+                () -> calcularResumenIA(periodo));
+    }
+
+    private IAResumenDto calcularResumenIA(String periodo) {
         String periodoDisplay = periodo != null && !periodo.trim().isEmpty() ? periodo : "Periodo actual";
 
         log.info("📋 Solicitud de resumen IA para periodo: {}", periodoDisplay);
@@ -758,7 +770,7 @@ public class AIService {
     public Map<String, Object> predecirMedicamentos() {
         // Usar la predicción dinámica del StatsService en lugar de heurísticas
         // estáticas
-        List<MedicationForecastDto> forecasts = statsService.getMedicationForecast();
+        List<MedicationForecastDto> forecasts = statsService.getMedicationForecast(StatsPeriod.DEFAULT);
 
         List<Map<String, Object>> predicciones = new ArrayList<>();
         for (MedicationForecastDto forecast : forecasts) {
@@ -784,7 +796,7 @@ public class AIService {
      * E10 - Detectar diagnósticos emergentes automáticamente
      */
     public Map<String, Object> detectarDiagnosticosEmergentes() {
-        List<EmergingDiagnosisDto> emerging = statsService.getEmergingDiagnoses();
+        List<EmergingDiagnosisDto> emerging = statsService.getEmergingDiagnoses(StatsPeriod.DEFAULT);
 
         List<Map<String, Object>> emergentes = new ArrayList<>();
         for (EmergingDiagnosisDto diag : emerging) {
@@ -812,7 +824,7 @@ public class AIService {
      * E4 - Proyección de carga médica por especialidad
      */
     public Map<String, Object> proyectarCargaMedica() {
-        List<SpecialtyWorkloadDto> specialties = statsService.getSpecialtyWorkload();
+        List<SpecialtyWorkloadDto> specialties = statsService.getSpecialtyWorkload(StatsPeriod.DEFAULT);
 
         List<Map<String, Object>> proyecciones = new ArrayList<>();
         int totalAlerts = 0;
@@ -947,7 +959,7 @@ public class AIService {
 
         try {
             // Obtener consultas diarias de los últimos 30 días
-            List<DailyConsultationDto> history = statsService.getDailyConsultations(30);
+            List<DailyConsultationDto> history = statsService.getDailyConsultations(30, StatsPeriod.DEFAULT);
 
             if (history.size() > 7) {
                 // Calcular media móvil simple de 7 días
@@ -1031,18 +1043,32 @@ public class AIService {
         Map<String, Object> datos = new HashMap<>();
 
         try {
+            // Las lecturas son independientes entre sí: se lanzan en paralelo
+            CompletableFuture<Long> consultasFuture =
+                    queryExecutor.submit("ai.consultasTotales", consultationRepository::count);
+            CompletableFuture<Long> pacientesFuture =
+                    queryExecutor.submit("ai.pacientesTotales", patientRepository::count);
+            CompletableFuture<Long> recetasFuture =
+                    queryExecutor.submit("ai.recetasTotales", prescriptionRepository::count);
+            CompletableFuture<List<Map<String, Object>>> topMedicamentosFuture =
+                    queryExecutor.submit("ai.topMedicamentos", this::obtenerTopMedicamentos);
+            CompletableFuture<Map<String, Integer>> edadFuture =
+                    queryExecutor.submit("ai.distribucionEdad", this::obtenerDistribucionPorEdad);
+            CompletableFuture<Map<String, Integer>> fonasaFuture =
+                    queryExecutor.submit("ai.distribucionFonasa", this::obtenerDistribucionFonasa);
+
             // Consultas totales del mes actual
-            long consultasTotales = consultationRepository.count();
+            long consultasTotales = queryExecutor.join(consultasFuture);
             datos.put("consultasTotales", (int) consultasTotales);
             log.info("📊 Consultas totales: {}", consultasTotales);
 
             // Pacientes únicos atendidos
-            long pacientesTotales = patientRepository.count();
+            long pacientesTotales = queryExecutor.join(pacientesFuture);
             datos.put("pacientesTotales", (int) pacientesTotales);
             log.info("👥 Pacientes únicos atendidos: {}", pacientesTotales);
 
             // Recetas emitidas
-            long recetasTotales = prescriptionRepository.count();
+            long recetasTotales = queryExecutor.join(recetasFuture);
             datos.put("recetasTotales", (int) recetasTotales);
             log.info("💊 Recetas emitidas: {}", recetasTotales);
 
@@ -1056,7 +1082,7 @@ public class AIService {
 
             // Top medicamentos más recetados (consulta JPQL)
             log.info("🔍 Consultando top medicamentos...");
-            List<Map<String, Object>> topMedicamentos = obtenerTopMedicamentos();
+            List<Map<String, Object>> topMedicamentos = queryExecutor.join(topMedicamentosFuture);
             datos.put("topMedicamentos", topMedicamentos);
             log.info("💊 Top medicamentos obtenidos: {} medicamentos", topMedicamentos.size());
             for (int i = 0; i < Math.min(3, topMedicamentos.size()); i++) {
@@ -1065,12 +1091,12 @@ public class AIService {
             }
 
             // Distribución por edad
-            Map<String, Integer> pacientesPorEdad = obtenerDistribucionPorEdad();
+            Map<String, Integer> pacientesPorEdad = queryExecutor.join(edadFuture);
             datos.put("pacientesPorEdad", pacientesPorEdad);
             log.info("📈 Distribución por edad: {}", pacientesPorEdad);
 
             // Distribución FONASA
-            Map<String, Integer> distribucionFonasa = obtenerDistribucionFonasa();
+            Map<String, Integer> distribucionFonasa = queryExecutor.join(fonasaFuture);
             datos.put("distribucionFonasa", distribucionFonasa);
             log.info("🏛️ Distribución FONASA: {}", distribucionFonasa);
 
@@ -0,0 +1,281 @@
+package cl.sicc.siccapi.integration.ai.service;
+
+import cl.sicc.siccapi.integration.ai.domain.IAResumenJob;
+import cl.sicc.siccapi.integration.ai.domain.IAResumenJob.Estado;
+import cl.sicc.siccapi.integration.ai.domain.IAResumenInvalidacion;
+import cl.sicc.siccapi.integration.ai.dto.IAResumenDto;
+import cl.sicc.siccapi.integration.ai.dto.IAResumenJobDto;
+import cl.sicc.siccapi.integration.ai.repository.IAResumenInvalidacionRepository;
+import cl.sicc.siccapi.integration.ai.repository.IAResumenJobRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generación asíncrona del resumen IA. {@link #solicitar} responde de inmediato con un trabajo y
+ * el resumen se genera en un pool propio, sin ocupar un hilo de Tomcat durante el llamado al
+ * proveedor (varios segundos).
+ *
+ * Una solicitud para un periodo que ya tiene un trabajo en curso, o uno completado dentro de
+ * {@code ai.resumen.jobs.reuse-ms} (y posterior a la última invalidación del caché, guardada en
+ * {@code ia_resumen_invalidacion} para que valga en todos los nodos), devuelve ese mismo trabajo en
+ * vez de crear otro. El resumen terminado queda guardado en
+ * {@code ia_resumen_job}, así que sigue disponible tras un reinicio; los trabajos se borran pasados
+ * {@code ai.resumen.jobs.retention-ms}.
+ *
+ * El pool tiene {@code ai.resumen.jobs.threads} hilos y una cola de
+ * {@code ai.resumen.jobs.queue-capacity}; con la cola llena se responde 429. Un trabajo que no
+ * termina en {@code ai.resumen.jobs.timeout-ms} (por ejemplo, porque el nodo se reinició) se
+ * informa como fallido y deja de bloquear nuevas solicitudes del periodo.
+ */
+@Slf4j
+@Service
+public class IAResumenJobService {
+
+    private static final String PERIODO_ACTUAL = "default";
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final AIService aiService;
+    private final IAResumenJobRepository repository;
+    private final IAResumenInvalidacionRepository invalidaciones;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final Duration reutilizacion;
+    private final Duration timeout;
+    private final Duration retencion;
+    private final Counter reutilizados;
+    private final Counter rechazados;
+
+    public IAResumenJobService(AIService aiService,
+                               IAResumenJobRepository repository,
+                               IAResumenInvalidacionRepository invalidaciones,
+                               ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry,
+                               @Value("${ai.resumen.jobs.threads:2}") int threads,
+                               @Value("${ai.resumen.jobs.queue-capacity:20}") int queueCapacity,
+                               @Value("${ai.resumen.jobs.reuse-ms:21600000}") long reuseMs,
+                               @Value("${ai.resumen.jobs.timeout-ms:300000}") long timeoutMs,
+                               @Value("${ai.resumen.jobs.retention-ms:604800000}") long retentionMs) {
+        this.aiService = aiService;
+        this.repository = repository;
+        this.invalidaciones = invalidaciones;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.reutilizacion = Duration.ofMillis(reuseMs);
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.retencion = Duration.ofMillis(retentionMs);
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "ia-resumen-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("ai.resumen.jobs.queue.size", executor, e -> e.getQueue().size())
+                .description("Resúmenes IA esperando un hilo")
+                .register(meterRegistry);
+        Gauge.builder("ai.resumen.jobs.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Resúmenes IA en generación")
+                .register(meterRegistry);
+        this.reutilizados = Counter.builder("ai.resumen.jobs.reused")
+                .description("Solicitudes atendidas con un trabajo en curso o completado del mismo periodo")
+                .register(meterRegistry);
+        this.rechazados = Counter.builder("ai.resumen.jobs.rejected")
+                .description("Solicitudes rechazadas por pool saturado")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Trabajo que genera (o ya generó) el resumen del periodo.
+     *
+     * @throws ResponseStatusException 429 si el pool está saturado
+     */
+    public synchronized IAResumenJobDto solicitar(String periodo) {
+        String clave = periodo != null ? periodo : PERIODO_ACTUAL;
+        Instant now = Instant.now();
+        Instant desde = now.minus(reutilizacion);
+        Instant invalidadoEn = invalidaciones.findById(IAResumenInvalidacion.ID)
+                .map(IAResumenInvalidacion::getInvalidadoEn)
+                .orElse(Instant.EPOCH);
+        if (invalidadoEn.isAfter(desde)) {
+            desde = invalidadoEn;
+        }
+
+        IAResumenJob existente = repository.findFirstByPeriodoAndCreadoEnAfterOrderByCreadoEnDesc(clave, desde)
+                .filter(job -> job.getEstado() == Estado.COMPLETADO
+                        || job.getEstado().enCurso() && !vencido(job, now))
+                .orElse(null);
+        if (existente != null) {
+            reutilizados.increment();
+            log.info("Resumen IA para periodo {}: se reutiliza el trabajo {} ({})", clave, existente.getId(),
+                    existente.getEstado());
+            return toDto(existente, now);
+        }
+
+        IAResumenJob job = repository.save(IAResumenJob.builder()
+                .id(UUID.randomUUID().toString())
+                .periodo(clave)
+                .estado(Estado.PENDIENTE)
+                .creadoEn(now)
+                .build());
+        long encolado = System.nanoTime();
+        try {
+            executor.execute(() -> ejecutar(job.getId(), periodo, encolado));
+        } catch (RejectedExecutionException e) {
+            repository.delete(job);
+            rechazados.increment();
+            throw new Saturado();
+        }
+        log.info("Resumen IA para periodo {}: trabajo {} encolado", clave, job.getId());
+        return toDto(job, now);
+    }
+
+    public IAResumenJobDto consultar(String id) {
+        return toDto(buscar(id), Instant.now());
+    }
+
+    /**
+     * Resumen de un trabajo completado.
+     *
+     * @throws ResponseStatusException 404 si el trabajo no existe, 409 si aún no termina o falló
+     */
+    public IAResumenDto resultado(String id) {
+        IAResumenJob job = buscar(id);
+        if (job.getEstado() != Estado.COMPLETADO) {
+            IAResumenJobDto estado = toDto(job, Instant.now());
+            String mensaje = estado.getEstado() == Estado.FALLIDO
+                    ? "La generación del resumen falló: " + estado.getError()
+                    : "El resumen aún se está generando";
+            throw new ResponseStatusException(HttpStatus.CONFLICT, mensaje);
+        }
+        try {
+            return objectMapper.readValue(job.getResultado(), IAResumenDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Resumen IA guardado ilegible: " + id, e);
+        }
+    }
+
+    /**
+     * Los trabajos creados hasta ahora dejan de reutilizarse (junto con el caché iaResumen), en
+     * todos los nodos.
+     */
+    public void invalidar() {
+        Instant now = Instant.now();
+        if (invalidaciones.invalidar(now) > 0 || invalidaciones.existsById(IAResumenInvalidacion.ID)) {
+            return;
+        }
+        // Sin la fila que siembra la migración (p. ej. un esquema generado por Hibernate)
+        try {
+            invalidaciones.save(new IAResumenInvalidacion(IAResumenInvalidacion.ID, now));
+        } catch (DataIntegrityViolationException e) {
+            // Otro nodo la creó entretanto
+            invalidaciones.invalidar(now);
+        }
+    }
+
+    // Borrar trabajos antiguos cada hora
+    @Scheduled(fixedRate = 3600000)
+    public void purgar() {
+        int borrados = repository.deleteCreatedBefore(Instant.now().minus(retencion));
+        if (borrados > 0) {
+            log.info("Trabajos de resumen IA antiguos borrados: {}", borrados);
+        }
+    }
+
+    private void ejecutar(String id, String periodo, long start) {
+        String outcome = "success";
+        actualizar(id, Estado.EN_CURSO, null, null);
+        try {
+            IAResumenDto resumen = aiService.generarResumenIA(periodo);
+            actualizar(id, Estado.COMPLETADO, objectMapper.writeValueAsString(resumen), null);
+        } catch (Exception e) {
+            outcome = "error";
+            log.error("Error generando resumen IA del trabajo {}: {}", id, e.getMessage());
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            actualizar(id, Estado.FALLIDO, null, error.length() > MAX_ERROR_LENGTH
+                    ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        } finally {
+            Timer.builder("ai.resumen.job")
+                    .description("Duración de la generación asíncrona del resumen IA, incluida la espera en cola")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void actualizar(String id, Estado estado, String resultado, String error) {
+        repository.findById(id).ifPresent(job -> {
+            job.setEstado(estado);
+            job.setResultado(resultado);
+            job.setError(error);
+            if (!estado.enCurso()) {
+                job.setTerminadoEn(Instant.now());
+            }
+            repository.save(job);
+        });
+    }
+
+    private IAResumenJob buscar(String id) {
+        return repository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Trabajo de resumen IA no encontrado"));
+    }
+
+    private boolean vencido(IAResumenJob job, Instant now) {
+        return job.getCreadoEn().plus(timeout).isBefore(now);
+    }
+
+    private IAResumenJobDto toDto(IAResumenJob job, Instant now) {
+        if (job.getEstado().enCurso() && vencido(job, now)) {
+            return new IAResumenJobDto(job.getId(), job.getPeriodo(), Estado.FALLIDO, job.getCreadoEn(), null,
+                    "Tiempo de espera agotado");
+        }
+        return new IAResumenJobDto(job.getId(), job.getPeriodo(), job.getEstado(), job.getCreadoEn(),
+                job.getTerminadoEn(), job.getError());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Pool saturado: 429 con {@code Retry-After}, para que el cliente reintente más tarde.
+     */
+    static class Saturado extends ResponseStatusException {
+
+        Saturado() {
+            super(HttpStatus.TOO_MANY_REQUESTS, "Demasiados resúmenes IA en generación, reintente en unos segundos");
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, "5");
+            return headers;
+        }
+    }
+}
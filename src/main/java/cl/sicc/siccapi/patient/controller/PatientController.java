@@ -1,30 +1,56 @@
 package cl.sicc.siccapi.patient.controller;
 
+import cl.sicc.siccapi.common.dto.CursorSlice;
+import cl.sicc.siccapi.common.util.ImportEventWriter;
+import cl.sicc.siccapi.common.util.ImportFormat;
 import cl.sicc.siccapi.patient.dto.PatientCreateDto;
 import cl.sicc.siccapi.patient.dto.PatientDto;
 import cl.sicc.siccapi.patient.dto.PatientUpdateDto;
+import cl.sicc.siccapi.patient.service.PatientImportService;
 import cl.sicc.siccapi.patient.service.PatientService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/api/patients")
 @RequiredArgsConstructor
 @Validated
 public class PatientController {
     private final PatientService service;
+    private final PatientImportService importService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     public ResponseEntity<Page<PatientDto>> list(Pageable pageable) {
         return ResponseEntity.ok(service.findAll(pageable));
     }
 
+    /**
+     * Listado por cursor: {@code ?cursor=} (vacío) para la primera página y luego el
+     * {@code nextCursor} de la respuesta. Sin total, para que las páginas profundas cuesten lo
+     * mismo que la primera.
+     */
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorSlice<PatientDto>> listByCursor(@RequestParam String cursor,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(CursorSlice.MAX_SIZE) int size) {
+        return ResponseEntity.ok(service.findSlice(cursor, size));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<PatientDto> get(@PathVariable Long id) {
         return ResponseEntity.ok(service.findById(id));
@@ -36,6 +62,19 @@ public class PatientController {
         return ResponseEntity.status(201).body(created);
     }
 
+    /**
+     * Alta o actualización masiva de pacientes por RUT desde NDJSON o CSV (p. ej. el padrón de
+     * inscritos). La respuesta es NDJSON: un evento por fila rechazada, el avance tras cada lote y
+     * un resumen al final.
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, ImportFormat.TEXT_CSV_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void importPatients(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        importService.importPatients(request.getInputStream(), ImportFormat.fromContentType(request.getContentType()),
+                new ImportEventWriter(response, objectMapper));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<PatientDto> update(@PathVariable Long id, @Valid @RequestBody PatientUpdateDto dto) {
         return ResponseEntity.ok(service.update(id, dto));
@@ -37,6 +37,11 @@ public class Patient {
 
     @Transient
     public int getAge() {
+        return age(birthDate);
+    }
+
+    /** Edad en años cumplidos a hoy; 0 sin fecha de nacimiento. */
+    public static int age(LocalDate birthDate) {
         if (birthDate == null) return 0;
         return Period.between(birthDate, LocalDate.now()).getYears();
     }
@@ -1,9 +1,21 @@
 package cl.sicc.siccapi.patient.repository;
 
 import cl.sicc.siccapi.patient.domain.Patient;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 import java.util.Optional;
 
 public interface PatientRepository extends JpaRepository<Patient, Long> {
     Optional<Patient> findByRut(String rut);
-}
\ No newline at end of file
+
+    // Paginación por cursor en orden (name, id), apoyada en idx_patient_name_id
+    @Query("SELECT p FROM Patient p ORDER BY p.name, p.id")
+    List<Patient> findKeysetFirst(Limit limit);
+
+    @Query("SELECT p FROM Patient p WHERE (p.name, p.id) > (:name, :id) ORDER BY p.name, p.id")
+    List<Patient> findKeysetAfter(@Param("name") String name, @Param("id") Long id, Limit limit);
+}
@@ -0,0 +1,445 @@
+package cl.sicc.siccapi.patient.service;
+
+import cl.sicc.siccapi.common.dto.ImportEventDto;
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import cl.sicc.siccapi.common.util.ImportFormat;
+import cl.sicc.siccapi.common.util.ImportSource;
+import cl.sicc.siccapi.common.util.ImportSource.Row;
+import cl.sicc.siccapi.common.util.Rut;
+import cl.sicc.siccapi.patient.domain.Patient;
+import cl.sicc.siccapi.patient.dto.PatientCreateDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Carga masiva de pacientes (p. ej. el padrón de inscritos del CESFAM) con alta o actualización
+ * por RUT.
+ *
+ * La entrada (NDJSON o CSV) se valida fila a fila y se escribe en lotes de {@code chunk-size}
+ * filas, cada uno en su propia transacción. En PostgreSQL cada lote se copia con {@code COPY} a
+ * una tabla temporal y se integra con un único {@code INSERT ... ON CONFLICT (rut) DO UPDATE};
+ * los pacientes sin cambios no se reescriben. En otros motores (H2 en las pruebas) se usa una
+ * consulta por lote y INSERT/UPDATE en lotes JDBC.
+ *
+ * Si un RUT se repite dentro de la carga, queda la última fila. Las filas inválidas se informan y
+ * se omiten; si la base rechaza un lote, se reintenta fila a fila. Cada lote confirmado publica
+ * un {@link DomainWriteEvent} con los pacientes creados y otro con los modificados.
+ */
+@Slf4j
+@Service
+public class PatientImportService {
+
+    public static final List<String> CSV_COLUMNS = List.of("rut", "name", "birth_date", "sex",
+            "residential_sector", "fonasa_tier");
+
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    private static final String CREATE_STAGING_SQL = """
+            CREATE TEMP TABLE patient_import (
+                rut                VARCHAR(255) NOT NULL,
+                name               VARCHAR(255) NOT NULL,
+                birth_date         DATE         NOT NULL,
+                sex                VARCHAR(1),
+                residential_sector VARCHAR(255),
+                fonasa_tier        VARCHAR(255)
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COPY_SQL = """
+            COPY patient_import (rut, name, birth_date, sex, residential_sector, fonasa_tier) FROM STDIN (FORMAT csv)
+            """;
+
+    // xmax = 0 sólo en las filas recién insertadas: distingue altas de actualizaciones
+    private static final String MERGE_SQL = """
+            INSERT INTO patient AS p (rut, name, birth_date, sex, residential_sector, fonasa_tier)
+            SELECT rut, name, birth_date, sex, residential_sector, fonasa_tier FROM patient_import
+            ON CONFLICT (rut) DO UPDATE SET
+                name = EXCLUDED.name,
+                birth_date = EXCLUDED.birth_date,
+                sex = EXCLUDED.sex,
+                residential_sector = EXCLUDED.residential_sector,
+                fonasa_tier = EXCLUDED.fonasa_tier
+            WHERE (p.name, p.birth_date, p.sex, p.residential_sector, p.fonasa_tier)
+                  IS DISTINCT FROM
+                  (EXCLUDED.name, EXCLUDED.birth_date, EXCLUDED.sex, EXCLUDED.residential_sector, EXCLUDED.fonasa_tier)
+            RETURNING p.id, (p.xmax = 0) AS inserted
+            """;
+
+    /** Fila validada, con el RUT normalizado. */
+    private record PatientRow(Row<PatientCreateDto> source, String rut, String name, LocalDate birthDate, String sex,
+                              String residentialSector, String fonasaTier) {
+    }
+
+    /** Pacientes creados y modificados por un lote. */
+    private record Merged(List<Long> inserted, List<Long> updated) {
+    }
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    public PatientImportService(DataSource dataSource,
+                                ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${patient.import.chunk-size:5000}") int chunkSize) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Importa los pacientes de {@code input}. Los errores por fila, el avance tras cada lote y el
+     * resumen final se entregan a {@code events} a medida que ocurren; el resumen también se
+     * devuelve.
+     */
+    public ImportEventDto importPatients(InputStream input, ImportFormat format,
+                                         Consumer<ImportEventDto> events) throws IOException {
+        long start = System.currentTimeMillis();
+        Progress progress = new Progress(events);
+        List<Row<PatientCreateDto>> chunk = new ArrayList<>(chunkSize);
+        try (ImportSource<PatientCreateDto> source = format == ImportFormat.CSV
+                ? ImportSource.csv(input, CSV_COLUMNS, "rut", "rut", PatientImportService::fromCsv)
+                : ImportSource.ndjson(input, objectMapper, PatientCreateDto.class, PatientCreateDto::getRut)) {
+            Row<PatientCreateDto> row;
+            while ((row = next(source, progress)) != null) {
+                progress.rows++;
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    write(chunk, progress);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                write(chunk, progress);
+            }
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("Carga masiva de pacientes: {} filas, {} nuevos, {} actualizados, {} con error en {} ms",
+                progress.rows, progress.inserted, progress.updated, progress.failed, elapsed);
+        ImportEventDto summary = ImportEventDto.summary(progress.rows, progress.imported, progress.failed,
+                progress.inserted, progress.updated, elapsed);
+        events.accept(summary);
+        return summary;
+    }
+
+    private Row<PatientCreateDto> next(ImportSource<PatientCreateDto> source, Progress progress) {
+        try {
+            return source.next();
+        } catch (IOException e) {
+            progress.events.accept(ImportEventDto.error(progress.rows + 1, null, "Lectura interrumpida: " + e.getMessage()));
+            return null;
+        }
+    }
+
+    private void write(List<Row<PatientCreateDto>> chunk, Progress progress) {
+        // Un RUT repetido en el lote queda con su última fila
+        Map<String, PatientRow> byRut = new LinkedHashMap<>();
+        int valid = 0;
+        for (Row<PatientCreateDto> row : chunk) {
+            if (row.error() != null) {
+                progress.fail(row, row.error());
+                continue;
+            }
+            try {
+                PatientRow patient = validate(row);
+                byRut.put(patient.rut(), patient);
+                valid++;
+            } catch (IllegalArgumentException e) {
+                progress.fail(row, e.getMessage());
+            }
+        }
+
+        if (!byRut.isEmpty()) {
+            List<PatientRow> patients = new ArrayList<>(byRut.values());
+            try {
+                apply(merge(patients), progress);
+                progress.imported += valid;
+            } catch (SQLException e) {
+                log.debug("Lote de pacientes rechazado, reintentando fila a fila: {}", e.getMessage());
+                progress.imported += valid - patients.size();
+                for (PatientRow patient : patients) {
+                    try {
+                        apply(merge(List.of(patient)), progress);
+                        progress.imported++;
+                    } catch (SQLException rowError) {
+                        progress.fail(patient.source(), "Rechazada por la base de datos: " + rowError.getMessage());
+                    }
+                }
+            }
+        }
+        progress.events.accept(ImportEventDto.progress(progress.rows, progress.imported, progress.failed,
+                progress.inserted, progress.updated));
+    }
+
+    private void apply(Merged merged, Progress progress) {
+        progress.inserted += merged.inserted().size();
+        progress.updated += merged.updated().size();
+        if (!merged.inserted().isEmpty()) {
+            eventPublisher.publishEvent(DomainWriteEvent.of(DomainWriteEvent.Source.PATIENT,
+                    DomainWriteEvent.Action.CREATED, null, merged.inserted(), Set.of()));
+        }
+        if (!merged.updated().isEmpty()) {
+            eventPublisher.publishEvent(DomainWriteEvent.of(DomainWriteEvent.Source.PATIENT,
+                    DomainWriteEvent.Action.UPDATED, null, merged.updated(), Set.of()));
+        }
+    }
+
+    private PatientRow validate(Row<PatientCreateDto> row) {
+        PatientCreateDto data = row.data();
+        String rut = Rut.normalize(data.getRut());
+        String name = data.getName() != null ? data.getName().trim() : "";
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Falta el nombre");
+        }
+        checkLength("El nombre", name);
+        if (data.getBirthDate() == null) {
+            throw new IllegalArgumentException("Falta la fecha de nacimiento");
+        }
+        if (!data.getBirthDate().isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("La fecha de nacimiento debe ser anterior a hoy");
+        }
+        String sex = blankToNull(data.getSex());
+        if (sex != null) {
+            sex = sex.toUpperCase(Locale.ROOT);
+            if (!sex.equals("M") && !sex.equals("F")) {
+                throw new IllegalArgumentException("Sexo inválido (M o F): " + data.getSex());
+            }
+        }
+        String sector = blankToNull(data.getResidentialSector());
+        if (sector != null) {
+            checkLength("El sector", sector);
+        }
+        String tier = blankToNull(data.getFonasaTier());
+        if (tier != null) {
+            try {
+                tier = Patient.FonasaTier.valueOf(tier.toUpperCase(Locale.ROOT)).name();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Tramo FONASA desconocido: " + data.getFonasaTier());
+            }
+        }
+        return new PatientRow(row, rut, name, data.getBirthDate(), sex, sector, tier);
+    }
+
+    /**
+     * Escribe el lote en una transacción.
+     */
+    private Merged merge(List<PatientRow> patients) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                Merged merged = connection.isWrapperFor(PGConnection.class)
+                        ? copyMerge(connection, patients)
+                        : jdbcMerge(connection, patients);
+                connection.commit();
+                return merged;
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e instanceof SQLException sql ? sql : new SQLException(e.getMessage(), e);
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private Merged copyMerge(Connection connection, List<PatientRow> patients) throws SQLException, IOException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING_SQL);
+        }
+        PGConnection pg = connection.unwrap(PGConnection.class);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new PGCopyOutputStream(pg, COPY_SQL, 1 << 16),
+                StandardCharsets.UTF_8))) {
+            for (PatientRow patient : patients) {
+                out.write(csv(patient.rut()));
+                out.write(',');
+                out.write(csv(patient.name()));
+                out.write(',');
+                out.write(patient.birthDate().toString());
+                out.write(',');
+                out.write(csv(patient.sex()));
+                out.write(',');
+                out.write(csv(patient.residentialSector()));
+                out.write(',');
+                out.write(csv(patient.fonasaTier()));
+                out.write('\n');
+            }
+        }
+        List<Long> inserted = new ArrayList<>();
+        List<Long> updated = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(MERGE_SQL)) {
+            while (rs.next()) {
+                (rs.getBoolean(2) ? inserted : updated).add(rs.getLong(1));
+            }
+        }
+        return new Merged(inserted, updated);
+    }
+
+    private Merged jdbcMerge(Connection connection, List<PatientRow> patients) throws SQLException {
+        Map<String, PatientRow> existing = new HashMap<>();
+        Map<String, Long> ids = new HashMap<>();
+        forEachByRut(connection, "SELECT id, rut, name, birth_date, sex, residential_sector, fonasa_tier FROM patient",
+                patients, rs -> {
+                    ids.put(rs.getString(2), rs.getLong(1));
+                    existing.put(rs.getString(2), new PatientRow(null, rs.getString(2), rs.getString(3),
+                            rs.getObject(4, LocalDate.class), rs.getString(5), rs.getString(6), rs.getString(7)));
+                });
+
+        List<PatientRow> toInsert = new ArrayList<>();
+        List<PatientRow> toUpdate = new ArrayList<>();
+        for (PatientRow patient : patients) {
+            PatientRow current = existing.get(patient.rut());
+            if (current == null) {
+                toInsert.add(patient);
+            } else if (!sameData(current, patient)) {
+                toUpdate.add(patient);
+            }
+        }
+
+        if (!toInsert.isEmpty()) {
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO patient (name, birth_date, sex, residential_sector, fonasa_tier, rut) VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (PatientRow patient : toInsert) {
+                    bind(insert, patient);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+        if (!toUpdate.isEmpty()) {
+            try (PreparedStatement update = connection.prepareStatement(
+                    "UPDATE patient SET name = ?, birth_date = ?, sex = ?, residential_sector = ?, fonasa_tier = ? WHERE rut = ?")) {
+                for (PatientRow patient : toUpdate) {
+                    bind(update, patient);
+                    update.addBatch();
+                }
+                update.executeBatch();
+            }
+        }
+
+        List<Long> inserted = new ArrayList<>();
+        if (!toInsert.isEmpty()) {
+            forEachByRut(connection, "SELECT id FROM patient", toInsert, rs -> inserted.add(rs.getLong(1)));
+        }
+        List<Long> updated = toUpdate.stream().map(patient -> ids.get(patient.rut())).toList();
+        return new Merged(inserted, updated);
+    }
+
+    @FunctionalInterface
+    private interface RowHandler {
+        void handle(ResultSet rs) throws SQLException;
+    }
+
+    private static void forEachByRut(Connection connection, String select, Collection<PatientRow> patients,
+                                     RowHandler handler) throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(patients.size(), "?"));
+        try (PreparedStatement statement = connection.prepareStatement(select + " WHERE rut IN (" + placeholders + ")")) {
+            int i = 1;
+            for (PatientRow patient : patients) {
+                statement.setString(i++, patient.rut());
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                }
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement statement, PatientRow patient) throws SQLException {
+        statement.setString(1, patient.name());
+        statement.setDate(2, Date.valueOf(patient.birthDate()));
+        statement.setString(3, patient.sex());
+        statement.setString(4, patient.residentialSector());
+        statement.setString(5, patient.fonasaTier());
+        statement.setString(6, patient.rut());
+    }
+
+    private static boolean sameData(PatientRow a, PatientRow b) {
+        return a.name().equals(b.name())
+                && a.birthDate().equals(b.birthDate())
+                && Objects.equals(a.sex(), b.sex())
+                && Objects.equals(a.residentialSector(), b.residentialSector())
+                && Objects.equals(a.fonasaTier(), b.fonasaTier());
+    }
+
+    /** Campo de texto para COPY en formato CSV; null queda como campo vacío sin comillas. */
+    private static String csv(String value) {
+        return value == null ? "" : '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static PatientCreateDto fromCsv(Function<String, String> field) {
+        PatientCreateDto dto = new PatientCreateDto();
+        dto.setRut(field.apply("rut"));
+        dto.setName(field.apply("name"));
+        String birthDate = field.apply("birth_date");
+        dto.setBirthDate(birthDate != null ? LocalDate.parse(birthDate) : null);
+        dto.setSex(field.apply("sex"));
+        dto.setResidentialSector(field.apply("residential_sector"));
+        dto.setFonasaTier(field.apply("fonasa_tier"));
+        return dto;
+    }
+
+    private static void checkLength(String label, String value) {
+        if (value.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException(label + " excede " + MAX_TEXT_LENGTH + " caracteres");
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /** Contadores de la carga en curso. */
+    private static final class Progress {
+        private final Consumer<ImportEventDto> events;
+        private long rows;
+        private long imported;
+        private long failed;
+        private long inserted;
+        private long updated;
+
+        private Progress(Consumer<ImportEventDto> events) {
+            this.events = events;
+        }
+
+        private void fail(Row<PatientCreateDto> row, String message) {
+            failed++;
+            events.accept(ImportEventDto.error(row.line(), row.ref(), message));
+        }
+    }
+}
@@ -1,47 +1,79 @@
 package cl.sicc.siccapi.patient.service;
 
+import cl.sicc.siccapi.common.dto.CursorSlice;
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import cl.sicc.siccapi.common.util.KeysetCursor;
+import cl.sicc.siccapi.common.util.Rut;
 import cl.sicc.siccapi.patient.dto.PatientCreateDto;
 import cl.sicc.siccapi.patient.dto.PatientDto;
 import cl.sicc.siccapi.patient.dto.PatientUpdateDto;
 import cl.sicc.siccapi.patient.domain.Patient;
 import cl.sicc.siccapi.patient.repository.PatientRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class PatientService {
     private final PatientRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<PatientDto> findAll(Pageable pageable) {
         return repository.findAll(pageable).map(this::toDto);
     }
 
+    /**
+     * Pacientes por cursor en orden alfabético (nombre, id): sin COUNT ni OFFSET, el costo no
+     * depende de la profundidad de la página.
+     */
+    public CursorSlice<PatientDto> findSlice(String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<Patient> rows = after == null
+                ? repository.findKeysetFirst(CursorSlice.limit(size))
+                : repository.findKeysetAfter(after.key(), after.id(), CursorSlice.limit(size));
+        return CursorSlice.of(rows, size, p -> KeysetCursor.of(p.getName(), p.getId()),
+                page -> page.stream().map(this::toDto).toList());
+    }
+
     public PatientDto findById(Long id) {
         return repository.findById(id).map(this::toDto).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
+    @Transactional
     public PatientDto create(PatientCreateDto dto) {
-        if (repository.findByRut(dto.getRut()).isPresent()) {
+        // Forma canónica, igual que la carga masiva: un mismo RUT escrito con o sin puntos es un solo paciente
+        String rut;
+        try {
+            rut = Rut.normalize(dto.getRut());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (repository.findByRut(rut).isPresent()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Paciente con ese RUT ya existe");
         }
         Patient p = new Patient();
-        p.setRut(dto.getRut());
+        p.setRut(rut);
         p.setName(dto.getName());
         p.setBirthDate(dto.getBirthDate());
         p.setSex(dto.getSex());
         p.setResidentialSector(dto.getResidentialSector());
         if (dto.getFonasaTier() != null) p.setFonasaTier(Patient.FonasaTier.valueOf(dto.getFonasaTier()));
         Patient saved = repository.save(p);
+        publish(DomainWriteEvent.Action.CREATED, saved.getId());
         return toDto(saved);
     }
 
+    @Transactional
     public PatientDto update(Long id, PatientUpdateDto dto) {
         Patient p = repository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         p.setName(dto.getName());
@@ -49,16 +81,32 @@ public class PatientService {
         p.setSex(dto.getSex());
         p.setResidentialSector(dto.getResidentialSector());
         if (dto.getFonasaTier() != null) p.setFonasaTier(Patient.FonasaTier.valueOf(dto.getFonasaTier()));
-        return toDto(repository.save(p));
+        Patient saved = repository.save(p);
+        publish(DomainWriteEvent.Action.UPDATED, saved.getId());
+        return toDto(saved);
     }
 
+    @Transactional
     public void delete(Long id) {
         if (!repository.existsById(id)) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
         repository.deleteById(id);
+        publish(DomainWriteEvent.Action.DELETED, id);
+    }
+
+    private void publish(DomainWriteEvent.Action action, Long id) {
+        // Sin fechas: los suscriptores resuelven las fechas afectadas a partir del paciente
+        eventPublisher.publishEvent(DomainWriteEvent.of(DomainWriteEvent.Source.PATIENT,
+                action, id, Set.of(id), Set.of()));
     }
 
     public Optional<PatientDto> findByRut(String rut) {
-        return repository.findByRut(rut).map(this::toDto);
+        String canonical;
+        try {
+            canonical = Rut.normalize(rut);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        return repository.findByRut(canonical).map(this::toDto);
     }
 
     private PatientDto toDto(Patient p) {
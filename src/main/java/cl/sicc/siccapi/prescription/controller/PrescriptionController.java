@@ -1,7 +1,10 @@
 package cl.sicc.siccapi.prescription.controller;
 
+import cl.sicc.siccapi.common.dto.CursorSlice;
 import cl.sicc.siccapi.prescription.dto.PrescriptionDto;
 import cl.sicc.siccapi.prescription.service.PrescriptionService;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -25,6 +28,17 @@ public class PrescriptionController {
         return ResponseEntity.ok(service.findAll(pageable));
     }
 
+    /**
+     * Listado por cursor: {@code ?cursor=} (vacío) para la primera página y luego el
+     * {@code nextCursor} de la respuesta. Sin total, para que las páginas profundas cuesten lo
+     * mismo que la primera.
+     */
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorSlice<PrescriptionDto>> listByCursor(@RequestParam String cursor,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(CursorSlice.MAX_SIZE) int size) {
+        return ResponseEntity.ok(service.findSlice(cursor, size));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<PrescriptionDto> get(@PathVariable Long id) {
         return ResponseEntity.ok(service.findById(id));
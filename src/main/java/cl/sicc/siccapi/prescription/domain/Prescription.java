@@ -18,8 +18,10 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 public class Prescription {
+    /** Secuencia con incremento 50: los ids se reservan por bloques y los INSERT van en lotes JDBC. */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "prescription_seq")
+    @SequenceGenerator(name = "prescription_seq", sequenceName = "prescription_seq", allocationSize = 50)
     private Long id;
 
     @PastOrPresent(message = "La fecha de la receta no puede ser futura")
@@ -12,8 +12,10 @@ import lombok.*;
 @Builder
 public class PrescriptionMedication {
 
+    /** Vacío al crear; Hibernate lo completa desde las asociaciones (@MapsId). */
     @EmbeddedId
-    private PrescriptionMedicationId id;
+    @Builder.Default
+    private PrescriptionMedicationId id = new PrescriptionMedicationId();
 
     @ManyToOne
     @MapsId("prescriptionId")
@@ -0,0 +1,12 @@
+package cl.sicc.siccapi.prescription.dto;
+
+/**
+ * Proyección de una línea de receta; el nombre del medicamento sale del catálogo en memoria.
+ */
+public record PrescriptionMedicationRow(
+    Long prescriptionId,
+    Long medicationId,
+    Integer quantity,
+    String instructions
+) {
+}
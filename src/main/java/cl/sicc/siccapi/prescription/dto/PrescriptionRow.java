@@ -0,0 +1,13 @@
+package cl.sicc.siccapi.prescription.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Proyección de una receta sin su consulta.
+ */
+public record PrescriptionRow(
+    Long id,
+    LocalDate date,
+    Long consultationId
+) {
+}
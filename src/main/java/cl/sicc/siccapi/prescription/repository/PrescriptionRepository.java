@@ -2,14 +2,20 @@ package cl.sicc.siccapi.prescription.repository;
 
 import cl.sicc.siccapi.consultation.domain.Consultation;
 import cl.sicc.siccapi.prescription.domain.Prescription;
+import cl.sicc.siccapi.prescription.dto.PrescriptionMedicationRow;
+import cl.sicc.siccapi.prescription.dto.PrescriptionRow;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface PrescriptionRepository extends JpaRepository<Prescription, Long> {
     Page<Prescription> findByConsultationAndDateBetween(Consultation consultation, LocalDate from, LocalDate to, Pageable pageable);
@@ -23,4 +29,37 @@ public interface PrescriptionRepository extends JpaRepository<Prescription, Long
 
     @Query("SELECT COUNT(pm) FROM PrescriptionMedication pm")
     Long countTotalPrescriptionMedications();
+
+    String ROW_SELECT = """
+            SELECT new cl.sicc.siccapi.prescription.dto.PrescriptionRow(p.id, p.date, p.consultation.id)
+            FROM Prescription p
+            """;
+
+    // Proyecciones para listado y detalle: la receta y sus líneas en dos sentencias, sin cargar
+    // consulta ni medicamentos (los nombres salen del catálogo en memoria)
+    @Query(value = ROW_SELECT, countQuery = "SELECT COUNT(p) FROM Prescription p")
+    Page<PrescriptionRow> findRows(Pageable pageable);
+
+    @Query(ROW_SELECT + "WHERE p.id = :id")
+    Optional<PrescriptionRow> findRowById(@Param("id") Long id);
+
+    // Paginación por cursor en orden (date DESC, id DESC), apoyada en idx_prescription_date_id.
+    // Las recetas sin fecha van al final, sólo por id
+    @Query(ROW_SELECT + "WHERE p.date IS NOT NULL ORDER BY p.date DESC, p.id DESC")
+    List<PrescriptionRow> findKeysetFirst(Limit limit);
+
+    @Query(ROW_SELECT + "WHERE (p.date, p.id) < (:date, :id) ORDER BY p.date DESC, p.id DESC")
+    List<PrescriptionRow> findKeysetAfter(@Param("date") LocalDate date, @Param("id") Long id, Limit limit);
+
+    @Query(ROW_SELECT + "WHERE p.date IS NULL AND p.id < :id ORDER BY p.id DESC")
+    List<PrescriptionRow> findKeysetUndatedBefore(@Param("id") Long id, Limit limit);
+
+    @Query("""
+            SELECT new cl.sicc.siccapi.prescription.dto.PrescriptionMedicationRow(pm.prescription.id, pm.medication.id,
+                   pm.quantity, pm.instructions)
+            FROM PrescriptionMedication pm
+            WHERE pm.prescription.id IN :prescriptionIds
+            ORDER BY pm.prescription.id, pm.medication.id
+            """)
+    List<PrescriptionMedicationRow> findMedicationRows(@Param("prescriptionIds") Collection<Long> prescriptionIds);
 }
@@ -1,19 +1,23 @@
 package cl.sicc.siccapi.prescription.service;
 
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
 import cl.sicc.siccapi.prescription.dto.MedicationDto;
 import cl.sicc.siccapi.prescription.domain.Medication;
 import cl.sicc.siccapi.prescription.repository.MedicationRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 @Service
 @RequiredArgsConstructor
 public class MedicationService {
     private final MedicationRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<MedicationDto> findAll(Pageable pageable) {
         return repository.findAll(pageable).map(this::toDto);
@@ -23,24 +27,36 @@ public class MedicationService {
         return repository.findById(id).map(this::toDto).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
+    @Transactional
     public MedicationDto create(MedicationDto dto) {
         Medication m = new Medication();
         m.setName(dto.getName());
         m.setDosage(dto.getDosage());
         // pharmaceutical form association omitted here; can be set via separate endpoint
-        return toDto(repository.save(m));
+        Medication saved = repository.save(m);
+        publish(DomainWriteEvent.Action.CREATED, saved.getId());
+        return toDto(saved);
     }
 
+    @Transactional
     public MedicationDto update(Long id, MedicationDto dto) {
         Medication m = repository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         m.setName(dto.getName());
         m.setDosage(dto.getDosage());
-        return toDto(repository.save(m));
+        Medication saved = repository.save(m);
+        publish(DomainWriteEvent.Action.UPDATED, saved.getId());
+        return toDto(saved);
     }
 
+    @Transactional
     public void delete(Long id) {
         if (!repository.existsById(id)) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
         repository.deleteById(id);
+        publish(DomainWriteEvent.Action.DELETED, id);
+    }
+
+    private void publish(DomainWriteEvent.Action action, Long id) {
+        eventPublisher.publishEvent(DomainWriteEvent.of(DomainWriteEvent.Source.MEDICATION, action, id));
     }
 
     private MedicationDto toDto(Medication m) {
@@ -1,19 +1,23 @@
 package cl.sicc.siccapi.prescription.service;
 
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
 import cl.sicc.siccapi.prescription.domain.PharmaceuticalForm;
 import cl.sicc.siccapi.prescription.repository.PharmaceuticalFormRepository;
 import cl.sicc.siccapi.prescription.dto.PharmaceuticalFormDto;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 @Service
 @RequiredArgsConstructor
 public class PharmaceuticalFormService {
     private final PharmaceuticalFormRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<PharmaceuticalFormDto> findAll(Pageable pageable) {
         return repository.findAll(pageable).map(this::toDto);
@@ -23,21 +27,33 @@ public class PharmaceuticalFormService {
         return repository.findById(id).map(this::toDto).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
+    @Transactional
     public PharmaceuticalFormDto create(PharmaceuticalFormDto dto) {
         PharmaceuticalForm p = new PharmaceuticalForm();
         p.setName(dto.getName());
-        return toDto(repository.save(p));
+        PharmaceuticalForm saved = repository.save(p);
+        publish(DomainWriteEvent.Action.CREATED, saved.getId());
+        return toDto(saved);
     }
 
+    @Transactional
     public PharmaceuticalFormDto update(Long id, PharmaceuticalFormDto dto) {
         PharmaceuticalForm p = repository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         p.setName(dto.getName());
-        return toDto(repository.save(p));
+        PharmaceuticalForm saved = repository.save(p);
+        publish(DomainWriteEvent.Action.UPDATED, saved.getId());
+        return toDto(saved);
     }
 
+    @Transactional
     public void delete(Long id) {
         if (!repository.existsById(id)) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
         repository.deleteById(id);
+        publish(DomainWriteEvent.Action.DELETED, id);
+    }
+
+    private void publish(DomainWriteEvent.Action action, Long id) {
+        eventPublisher.publishEvent(DomainWriteEvent.of(DomainWriteEvent.Source.PHARMACEUTICAL_FORM, action, id));
     }
 
     private PharmaceuticalFormDto toDto(PharmaceuticalForm p) {
@@ -1,7 +1,14 @@
 package cl.sicc.siccapi.prescription.service;
 
+import cl.sicc.siccapi.catalog.service.ReferenceCatalogService;
+import cl.sicc.siccapi.common.dto.CursorSlice;
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import cl.sicc.siccapi.common.util.KeysetCursor;
+import cl.sicc.siccapi.consultation.domain.Consultation;
 import cl.sicc.siccapi.prescription.dto.PrescriptionDto;
 import cl.sicc.siccapi.prescription.dto.PrescriptionMedicationDto;
+import cl.sicc.siccapi.prescription.dto.PrescriptionMedicationRow;
+import cl.sicc.siccapi.prescription.dto.PrescriptionRow;
 import cl.sicc.siccapi.prescription.domain.Prescription;
 import cl.sicc.siccapi.prescription.domain.PrescriptionMedication;
 import cl.sicc.siccapi.prescription.domain.Medication;
@@ -9,15 +16,24 @@ import cl.sicc.siccapi.prescription.repository.PrescriptionRepository;
 import cl.sicc.siccapi.consultation.repository.ConsultationRepository;
 import cl.sicc.siccapi.prescription.repository.MedicationRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -25,16 +41,56 @@ public class PrescriptionService {
     private final PrescriptionRepository repository;
     private final ConsultationRepository consultationRepository;
     private final MedicationRepository medicationRepository;
+    private final ReferenceCatalogService catalog;
+    private final ApplicationEventPublisher eventPublisher;
 
+    /**
+     * Página de recetas en tres sentencias (página, COUNT y líneas de la página), sin importar su
+     * tamaño.
+     */
     public Page<PrescriptionDto> findAll(Pageable pageable) {
-        return repository.findAll(pageable).map(this::toDto);
+        Page<PrescriptionRow> rows = repository.findRows(pageable);
+        return new PageImpl<>(toDtos(rows.getContent()), rows.getPageable(), rows.getTotalElements());
+    }
+
+    /**
+     * Recetas por cursor, de la más reciente a la más antigua y las sin fecha al final. Sin COUNT
+     * ni OFFSET: dos sentencias (recetas y líneas) sin importar la profundidad.
+     */
+    public CursorSlice<PrescriptionDto> findSlice(String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<PrescriptionRow> rows = new ArrayList<>(size + 1);
+        long undatedBefore = Long.MAX_VALUE;
+        if (after == null) {
+            rows.addAll(repository.findKeysetFirst(CursorSlice.limit(size)));
+        } else if (after.key() != null) {
+            rows.addAll(repository.findKeysetAfter(after.dateKey(), after.id(), CursorSlice.limit(size)));
+        } else {
+            undatedBefore = after.id();
+        }
+        if (rows.size() <= size) {
+            // Se acabaron las recetas con fecha: la página sigue con las que no tienen
+            rows.addAll(repository.findKeysetUndatedBefore(undatedBefore, Limit.of(size + 1 - rows.size())));
+        }
+        return CursorSlice.of(rows, size, row -> KeysetCursor.of(row.date(), row.id()), this::toDtos);
+    }
+
+    private List<PrescriptionDto> toDtos(List<PrescriptionRow> rows) {
+        if (rows.isEmpty()) return List.of();
+        Map<Long, List<PrescriptionMedicationRow>> lines = repository
+                .findMedicationRows(rows.stream().map(PrescriptionRow::id).toList()).stream()
+                .collect(Collectors.groupingBy(PrescriptionMedicationRow::prescriptionId));
+        return rows.stream().map(row -> toDto(row, lines.getOrDefault(row.id(), List.of()))).toList();
     }
 
     public PrescriptionDto findById(Long id) {
-        return repository.findById(id).map(this::toDto).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        PrescriptionRow row = repository.findRowById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        return toDto(row, repository.findMedicationRows(List.of(id)));
     }
 
+    @Transactional
     public PrescriptionDto create(PrescriptionDto dto) {
+        rejectRepeatedMedications(dto);
         Prescription p = new Prescription();
         p.setDate(dto.getDate());
         p.setConsultation(consultationRepository.findById(dto.getConsultationId()).orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Consulta no encontrada")));
@@ -42,7 +98,7 @@ public class PrescriptionService {
         if (dto.getMedications() != null) {
             List<PrescriptionMedication> list = new ArrayList<>();
             for (PrescriptionMedicationDto md : dto.getMedications()) {
-                Medication m = medicationRepository.findById(md.getMedicationId()).orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Medicamento no encontrado: " + md.getMedicationId()));
+                Medication m = medication(md.getMedicationId());
                 PrescriptionMedication pm = new PrescriptionMedication();
                 // No asignamos el EmbeddedId manualmente; dejamos que JPA lo rellene a partir de las asociaciones (@MapsId)
                 pm.setMedication(m);
@@ -55,54 +111,117 @@ public class PrescriptionService {
         }
 
         Prescription saved = repository.save(p);
+        publish(DomainWriteEvent.Action.CREATED, saved, new HashSet<>(), new HashSet<>());
         return toDto(saved);
     }
 
+    @Transactional
     public PrescriptionDto update(Long id, PrescriptionDto dto) {
+        rejectRepeatedMedications(dto);
         Prescription p = repository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        Set<LocalDate> previousDates = new HashSet<>();
+        Set<Long> previousPatients = new HashSet<>();
+        collect(p, previousDates, previousPatients);
         p.setDate(dto.getDate());
         if (dto.getConsultationId() != null) p.setConsultation(consultationRepository.findById(dto.getConsultationId()).orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Consulta no encontrada")));
 
         if (dto.getMedications() != null) {
-            p.getPrescriptionMedications().clear();
+            // Las líneas se identifican por (receta, medicamento): las que siguen se actualizan en su
+            // lugar, porque borrar y volver a insertar la misma clave choca en el contexto de persistencia
+            Map<Long, PrescriptionMedication> current = new HashMap<>();
+            for (PrescriptionMedication pm : p.getPrescriptionMedications()) current.put(pm.getMedication().getId(), pm);
             List<PrescriptionMedication> list = new ArrayList<>();
             for (PrescriptionMedicationDto md : dto.getMedications()) {
-                Medication m = medicationRepository.findById(md.getMedicationId()).orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Medicamento no encontrado: " + md.getMedicationId()));
-                PrescriptionMedication pm = new PrescriptionMedication();
-                pm.setMedication(m);
+                PrescriptionMedication pm = current.remove(md.getMedicationId());
+                if (pm == null) {
+                    pm = new PrescriptionMedication();
+                    pm.setMedication(medication(md.getMedicationId()));
+                    pm.setPrescription(p);
+                }
                 pm.setQuantity(md.getQuantity());
                 pm.setInstructions(md.getInstructions());
-                pm.setPrescription(p);
                 list.add(pm);
             }
+            p.getPrescriptionMedications().clear();
             p.getPrescriptionMedications().addAll(list);
         }
 
-        return toDto(repository.save(p));
+        Prescription saved = repository.save(p);
+        publish(DomainWriteEvent.Action.UPDATED, saved, previousDates, previousPatients);
+        return toDto(saved);
     }
 
+    @Transactional
     public void delete(Long id) {
-        if (!repository.existsById(id)) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
-        repository.deleteById(id);
+        Prescription p = repository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        Set<LocalDate> dates = new HashSet<>();
+        Set<Long> patients = new HashSet<>();
+        collect(p, dates, patients);
+        repository.delete(p);
+        eventPublisher.publishEvent(DomainWriteEvent.of(DomainWriteEvent.Source.PRESCRIPTION,
+                DomainWriteEvent.Action.DELETED, id, patients, dates));
+    }
+
+    /**
+     * Cada medicamento va una sola vez por receta: las líneas se identifican por (receta, medicamento).
+     */
+    private void rejectRepeatedMedications(PrescriptionDto dto) {
+        if (dto.getMedications() == null) return;
+        Set<Long> seen = new HashSet<>();
+        for (PrescriptionMedicationDto md : dto.getMedications()) {
+            if (md.getMedicationId() != null && !seen.add(md.getMedicationId())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Medicamento repetido en la receta: " + md.getMedicationId());
+            }
+        }
+    }
+
+    /**
+     * Valida contra el catálogo en memoria y asocia una referencia sin consultar la base.
+     */
+    private Medication medication(Long id) {
+        if (catalog.medication(id).isEmpty()) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Medicamento no encontrado: " + id);
+        return medicationRepository.getReferenceById(id);
+    }
+
+    private void publish(DomainWriteEvent.Action action, Prescription p, Set<LocalDate> dates, Set<Long> patients) {
+        collect(p, dates, patients);
+        eventPublisher.publishEvent(DomainWriteEvent.of(DomainWriteEvent.Source.PRESCRIPTION,
+                action, p.getId(), patients, dates));
+    }
+
+    private void collect(Prescription p, Set<LocalDate> dates, Set<Long> patients) {
+        dates.add(p.getDate());
+        Consultation c = p.getConsultation();
+        if (c != null && c.getPatient() != null) patients.add(c.getPatient().getId());
     }
 
     private PrescriptionDto toDto(Prescription p) {
-        PrescriptionDto d = new PrescriptionDto();
-        d.setId(p.getId());
-        d.setDate(p.getDate());
-        d.setConsultationId(p.getConsultation() != null ? p.getConsultation().getId() : null);
+        List<PrescriptionMedicationRow> lines = new ArrayList<>();
         if (p.getPrescriptionMedications() != null) {
-            List<PrescriptionMedicationDto> list = new ArrayList<>();
             for (PrescriptionMedication pm : p.getPrescriptionMedications()) {
-                PrescriptionMedicationDto md = new PrescriptionMedicationDto();
-                md.setMedicationId(pm.getMedication() != null ? pm.getMedication().getId() : null);
-                md.setMedicationName(pm.getMedication() != null ? pm.getMedication().getName() : null);
-                md.setQuantity(pm.getQuantity());
-                md.setInstructions(pm.getInstructions());
-                list.add(md);
+                lines.add(new PrescriptionMedicationRow(p.getId(), pm.getMedication() != null ? pm.getMedication().getId() : null,
+                        pm.getQuantity(), pm.getInstructions()));
             }
-            d.setMedications(list);
         }
+        return toDto(new PrescriptionRow(p.getId(), p.getDate(),
+                p.getConsultation() != null ? p.getConsultation().getId() : null), lines);
+    }
+
+    private PrescriptionDto toDto(PrescriptionRow p, List<PrescriptionMedicationRow> lines) {
+        PrescriptionDto d = new PrescriptionDto();
+        d.setId(p.id());
+        d.setDate(p.date());
+        d.setConsultationId(p.consultationId());
+        List<PrescriptionMedicationDto> list = new ArrayList<>();
+        for (PrescriptionMedicationRow pm : lines) {
+            PrescriptionMedicationDto md = new PrescriptionMedicationDto();
+            md.setMedicationId(pm.medicationId());
+            md.setMedicationName(catalog.medication(pm.medicationId()).map(ReferenceCatalogService.MedicationEntry::name).orElse(null));
+            md.setQuantity(pm.quantity());
+            md.setInstructions(pm.instructions());
+            list.add(md);
+        }
+        d.setMedications(list);
         return d;
     }
 
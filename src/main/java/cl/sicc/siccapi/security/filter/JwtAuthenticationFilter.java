@@ -1,6 +1,9 @@
 package cl.sicc.siccapi.security.filter;
 
-import cl.sicc.siccapi.security.service.JwtService;
+import cl.sicc.siccapi.security.service.TokenClaims;
+import cl.sicc.siccapi.security.service.TokenRevocationService;
+import cl.sicc.siccapi.security.service.VerifiedTokenCache;
+import cl.sicc.siccapi.user.dto.UserStatus;
 import cl.sicc.siccapi.user.service.UserService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -11,20 +14,22 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtService jwtService;
+    private final VerifiedTokenCache verifiedTokens;
+    private final TokenRevocationService revocations;
     private final UserService userService;
 
     @Override
@@ -78,29 +83,51 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
 
     /**
-     * Procesa la autenticación si el token es válido
+     * Procesa la autenticación si el token es válido.
+     *
+     * Cada token se verifica una sola vez mientras esté vigente ({@link VerifiedTokenCache}) y el
+     * rol sale de sus claims. El usuario no se carga: su rol y estado se confirman en un caché de
+     * vida corta ({@link UserService#findStatus}) y la revocación en la lista en memoria
+     * ({@link TokenRevocationService}), de modo que un request autenticado no va a la base.
      */
     private void processTokenAuthentication(String token, HttpServletRequest request) {
-        String userEmail = jwtService.extractUsername(token);
-
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userService.loadUserByUsername(userEmail);
-
-            if (jwtService.isTokenValid(token, userDetails)) {
-                SecurityContext context = SecurityContextHolder.createEmptyContext();
-                UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities()
-                        );
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                context.setAuthentication(authToken);
-                SecurityContextHolder.setContext(context);
-
-                log.debug("Autenticación JWT establecida para usuario: {}", userEmail);
-            }
+        if (SecurityContextHolder.getContext().getAuthentication() != null) {
+            return;
+        }
+        TokenClaims claims = verifiedTokens.verify(token);
+        if (!claims.isAccessToken() || claims.subject() == null || Boolean.FALSE.equals(claims.enabled())) {
+            return;
         }
+        if (revocations.isRevoked(claims.id()) || revocations.isRevoked(claims.sessionId())) {
+            log.debug("Token revocado para usuario: {}", claims.subject());
+            return;
+        }
+
+        UserStatus status = userService.findStatus(claims.subject()).orElse(null);
+        if (status == null || !status.enabled()) {
+            log.debug("Usuario inexistente o desactivado: {}", claims.subject());
+            return;
+        }
+        // Un token emitido antes de un cambio de rol deja de servir; el cliente debe refrescarlo.
+        // Los tokens sin claim de rol (anteriores a él) toman el rol vigente
+        String role = status.role().name();
+        if (claims.role() != null && !claims.role().equals(role)) {
+            log.debug("Rol del token desactualizado para usuario: {}", claims.subject());
+            return;
+        }
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        UsernamePasswordAuthenticationToken authToken =
+                new UsernamePasswordAuthenticationToken(
+                        claims.subject(),
+                        null,
+                        List.of(new SimpleGrantedAuthority(role))
+                );
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        context.setAuthentication(authToken);
+        SecurityContextHolder.setContext(context);
+
+        log.debug("Autenticación JWT establecida para usuario: {}", claims.subject());
     }
 
     /**
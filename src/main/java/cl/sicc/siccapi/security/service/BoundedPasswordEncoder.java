@@ -0,0 +1,146 @@
+package cl.sicc.siccapi.security.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * BCrypt sobre un pool propio y acotado, para que un pico de logins (cambio de turno, credential
+ * stuffing) no ocupe los hilos de Tomcat con hashing y deje sin atender a las estadísticas y al
+ * CRUD.
+ *
+ * El pool tiene {@code security.password.hashing.threads} hilos y una cola de
+ * {@code security.password.hashing.queue-capacity}; con la cola llena se rechaza de inmediato con
+ * 429 en vez de encolar sin límite. Registra la latencia de cada operación
+ * ({@code security.password.hash}, por operación y resultado, incluida la espera en cola), la
+ * profundidad de la cola y los rechazos.
+ *
+ * {@link #upgradeEncoding} detecta hashes con un factor de trabajo menor al configurado
+ * ({@code security.password.bcrypt-strength}); el proveedor de autenticación los vuelve a hashear
+ * en el siguiente login exitoso.
+ */
+@Slf4j
+@Component
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final BCryptPasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(@Value("${security.password.bcrypt-strength:10}") int strength,
+                                  @Value("${security.password.hashing.threads:2}") int threads,
+                                  @Value("${security.password.hashing.queue-capacity:16}") int queueCapacity,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.meterRegistry = meterRegistry;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("security.password.queue.size", executor, e -> e.getQueue().size())
+                .description("Operaciones BCrypt esperando un hilo")
+                .register(meterRegistry);
+        Gauge.builder("security.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Operaciones BCrypt en curso")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("security.password.rejected")
+                .description("Operaciones BCrypt rechazadas por pool saturado")
+                .register(meterRegistry);
+        log.info("Hashing de contraseñas: BCrypt {} en pool de {} hilos, cola de {}", strength, threads, queueCapacity);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run("encode", () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run("matches", () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Sólo lee el prefijo del hash: no pasa por el pool.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(String operation, Supplier<T> task) {
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            Future<T> future = executor.submit(task::get);
+            return future.get();
+        } catch (RejectedExecutionException e) {
+            outcome = "rejected";
+            rejected.increment();
+            throw new Saturated();
+        } catch (InterruptedException e) {
+            outcome = "error";
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Hashing de contraseña interrumpido", e);
+        } catch (ExecutionException e) {
+            outcome = "error";
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            Timer.builder("security.password.hash")
+                    .description("Duración de las operaciones BCrypt, incluida la espera en cola")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Pool saturado: 429 con {@code Retry-After}, para que el cliente reintente en vez de esperar.
+     */
+    static class Saturated extends ResponseStatusException {
+
+        Saturated() {
+            super(HttpStatus.TOO_MANY_REQUESTS, "Demasiados inicios de sesión simultáneos, reintente en unos segundos");
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, "1");
+            return headers;
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package cl.sicc.siccapi.security.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -14,6 +18,7 @@ import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
@@ -30,23 +35,87 @@ public class JwtService {
     @Value("${security.jwt.expiration-refresh:2592000000}")  // 30 días default
     private long refreshTokenExpiration;
 
+    // La clave y el parser no cambian: se derivan una vez y se comparten entre hilos
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        parser = Jwts.parser().verifyWith(signingKey).build();
+    }
+
     // ============ ACCESS TOKEN ============
 
+    /**
+     * El access token lleva el rol y el estado del usuario, para que el filtro arme la
+     * autenticación sin cargar al usuario (ver {@link #verify}).
+     */
     public String generateAccessToken(UserDetails userDetails) {
-        return buildToken(new HashMap<>(), userDetails, accessTokenExpiration, "access");
+        return generateAccessToken(userDetails, null);
+    }
+
+    /**
+     * @param sessionId jti del refresh token de la sesión; al revocarlo en el logout se revocan
+     *                  también los access tokens obtenidos con él
+     */
+    public String generateAccessToken(UserDetails userDetails, String sessionId) {
+        Map<String, Object> claims = new HashMap<>();
+        if (sessionId != null) {
+            claims.put(TokenClaims.SESSION_ID, sessionId);
+        }
+        userDetails.getAuthorities().stream().findFirst()
+                .ifPresent(authority -> claims.put(TokenClaims.ROLE, authority.getAuthority()));
+        claims.put(TokenClaims.ENABLED, userDetails.isEnabled());
+        return buildToken(claims, userDetails, accessTokenExpiration, TokenClaims.ACCESS, newTokenId());
     }
 
     // ============ REFRESH TOKEN ============
 
     public String generateRefreshToken(UserDetails userDetails) {
-        return buildToken(new HashMap<>(), userDetails, refreshTokenExpiration, "refresh");
+        return generateRefreshToken(userDetails, newTokenId());
+    }
+
+    /**
+     * @param tokenId jti del token, que pasa a ser el id de la sesión (ver {@link #generateAccessToken(UserDetails, String)})
+     */
+    public String generateRefreshToken(UserDetails userDetails, String tokenId) {
+        return buildToken(new HashMap<>(), userDetails, refreshTokenExpiration, TokenClaims.REFRESH, tokenId);
+    }
+
+    public String newTokenId() {
+        return UUID.randomUUID().toString();
     }
 
     // ============ VALIDACIÓN ============
 
+    /**
+     * Verifica firma y expiración y devuelve los claims, con un solo parseo.
+     *
+     * @throws JwtException si el token no es válido o expiró
+     */
+    public TokenClaims verify(String token) {
+        return TokenClaims.from(extractAllClaims(token));
+    }
+
+    /**
+     * Como {@link #verify}, pero también devuelve los claims de un token expirado: la firma se
+     * verifica antes que la expiración. Sólo para el logout, que debe poder revocar la sesión de
+     * un access token ya vencido.
+     *
+     * @throws JwtException si la firma no es válida
+     */
+    public TokenClaims verifyIgnoringExpiration(String token) {
+        try {
+            return verify(token);
+        } catch (ExpiredJwtException e) {
+            return TokenClaims.from(e.getClaims());
+        }
+    }
+
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        final Claims claims = extractAllClaims(token);
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date());
     }
 
     public String extractUsername(String token) {
@@ -63,7 +132,7 @@ public class JwtService {
     }
 
     public String extractTokenType(String token) {
-        return extractClaim(token, claims -> claims.get("tokenType", String.class));
+        return extractClaim(token, claims -> claims.get(TokenClaims.TOKEN_TYPE, String.class));
     }
 
     // ============ PRIVADOS ============
@@ -72,41 +141,27 @@ public class JwtService {
             Map<String, Object> extraClaims,
             UserDetails userDetails,
             long expiration,
-            String tokenType
+            String tokenType,
+            String tokenId
     ) {
-        SecretKey key = getSigningKey();
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expiration);
 
-        extraClaims.put("tokenType", tokenType);
+        extraClaims.put(TokenClaims.TOKEN_TYPE, tokenType);
 
         return Jwts
                 .builder()
                 .claims(extraClaims)
+                .id(tokenId)
                 .subject(userDetails.getUsername())
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(key, SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
     private Claims extractAllClaims(String token) {
-        SecretKey key = getSigningKey();
-        return Jwts
-                .parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
-
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     // ============ GETTERS PARA CONFIGURACIÓN ============
@@ -0,0 +1,39 @@
+package cl.sicc.siccapi.security.service;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+/**
+ * Claims de un token cuya firma y expiración ya se verificaron.
+ *
+ * {@code role} y {@code enabled} sólo vienen en los access tokens emitidos desde que se agregaron
+ * esos claims; en los anteriores son null. Lo mismo vale para {@code id} (jti) y {@code sessionId}: el
+ * id de sesión de un access token es el jti del refresh token con que se obtuvo, y permite revocar
+ * la sesión completa en el logout.
+ */
+public record TokenClaims(String id, String subject, String tokenType, String role, Boolean enabled,
+                          String sessionId, Date expiration) {
+
+    public static final String TOKEN_TYPE = "tokenType";
+    public static final String ROLE = "role";
+    public static final String ENABLED = "enabled";
+    public static final String SESSION_ID = "sid";
+
+    public static final String ACCESS = "access";
+    public static final String REFRESH = "refresh";
+
+    static TokenClaims from(Claims claims) {
+        return new TokenClaims(claims.getId(), claims.getSubject(), claims.get(TOKEN_TYPE, String.class),
+                claims.get(ROLE, String.class), claims.get(ENABLED, Boolean.class),
+                claims.get(SESSION_ID, String.class), claims.getExpiration());
+    }
+
+    public boolean isAccessToken() {
+        return ACCESS.equals(tokenType);
+    }
+
+    public boolean isRefreshToken() {
+        return REFRESH.equals(tokenType);
+    }
+}
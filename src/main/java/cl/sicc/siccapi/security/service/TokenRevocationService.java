@@ -0,0 +1,174 @@
+package cl.sicc.siccapi.security.service;
+
+import cl.sicc.siccapi.common.util.BloomFilter;
+import cl.sicc.siccapi.security.domain.RevokedToken;
+import cl.sicc.siccapi.security.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lista de tokens revocados (por jti, o por id de sesión para revocar todos los access tokens de
+ * un refresh token), persistida en {@code revoked_token} y replicada en memoria en cada nodo.
+ *
+ * {@link #isRevoked} no va a la base: un filtro de Bloom descarta casi todos los tokens vigentes
+ * con unas pocas lecturas de memoria, y sólo sus positivos se confirman en el conjunto exacto, que
+ * guarda el vencimiento de cada entrada. Cada nodo trae las revocaciones de los demás consultando
+ * cada {@code security.revocation.poll-interval-ms} las filas con {@code revoked_at} posterior a la
+ * última consulta, menos un margen ({@code overlap}) para relojes desfasados y transacciones que
+ * confirman tarde; una revocación tarda a lo más ese intervalo en valer en todos los nodos.
+ *
+ * Las entradas vencidas se descartan cada {@code purge-interval-ms}: el filtro se reconstruye sólo
+ * con las vigentes (un Bloom no admite borrados) y se borran las filas vencidas.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    private final RevokedTokenRepository repository;
+    private final long expectedTokens;
+    private final double falsePositiveRate;
+    private final Duration overlap;
+    private final Duration purgeInterval;
+    private final Counter falsePositives;
+
+    // jti -> vencimiento. Las altas y la reconstrucción del filtro se serializan en este monitor
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    private long capacity;
+
+    private final Object syncLock = new Object();
+    private Instant lastSync;
+    private Instant nextPurge = Instant.MIN;
+
+    public TokenRevocationService(RevokedTokenRepository repository,
+                                  @Value("${security.revocation.expected-tokens:100000}") long expectedTokens,
+                                  @Value("${security.revocation.false-positive-rate:0.001}") double falsePositiveRate,
+                                  @Value("${security.revocation.overlap-ms:30000}") long overlapMs,
+                                  @Value("${security.revocation.purge-interval-ms:600000}") long purgeIntervalMs,
+                                  MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.expectedTokens = expectedTokens;
+        this.falsePositiveRate = falsePositiveRate;
+        this.overlap = Duration.ofMillis(overlapMs);
+        this.purgeInterval = Duration.ofMillis(purgeIntervalMs);
+        this.capacity = expectedTokens;
+        this.filter = BloomFilter.create(capacity, falsePositiveRate);
+
+        Gauge.builder("security.revocation.size", revoked, Map::size)
+                .description("Tokens revocados vigentes en memoria")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("security.revocation.bloom.false.positive")
+                .description("Tokens no revocados que el filtro de Bloom no descartó (falsos positivos)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Revoca el token (o la sesión) hasta su vencimiento. Vale de inmediato en este nodo y, tras la
+     * siguiente consulta periódica, en los demás.
+     */
+    public void revoke(String jti, Instant expiresAt) {
+        Instant now = Instant.now();
+        if (jti == null || !expiresAt.isAfter(now)) {
+            return;
+        }
+        repository.save(RevokedToken.builder().jti(jti).expiresAt(expiresAt).revokedAt(now).build());
+        remember(jti, expiresAt);
+        log.info("Token revocado: {} (vence {})", jti, expiresAt);
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null || !filter.mightContain(jti)) {
+            return false;
+        }
+        Instant expiresAt = revoked.get(jti);
+        if (expiresAt == null) {
+            falsePositives.increment();
+            return false;
+        }
+        return expiresAt.isAfter(Instant.now());
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        sync();
+    }
+
+    /**
+     * La primera vez carga todas las revocaciones vigentes; después, sólo las nuevas. Si la base no
+     * responde se conserva lo que ya está en memoria y se reintenta en la próxima vuelta.
+     */
+    @Scheduled(fixedDelayString = "${security.revocation.poll-interval-ms:5000}",
+            initialDelayString = "${security.revocation.poll-interval-ms:5000}")
+    public void sync() {
+        synchronized (syncLock) {
+            Instant now = Instant.now();
+            try {
+                List<RevokedToken> rows = lastSync == null
+                        ? repository.findByExpiresAtAfter(now)
+                        : repository.findByRevokedAtAfterAndExpiresAtAfter(lastSync.minus(overlap), now);
+                rows.forEach(row -> remember(row.getJti(), row.getExpiresAt()));
+                if (lastSync == null) {
+                    log.info("Revocaciones de tokens cargadas: {}", rows.size());
+                }
+                lastSync = now;
+
+                if (now.isAfter(nextPurge)) {
+                    purge(now);
+                    nextPurge = now.plus(purgeInterval);
+                }
+            } catch (RuntimeException e) {
+                log.warn("No se pudieron sincronizar las revocaciones de tokens: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void remember(String jti, Instant expiresAt) {
+        synchronized (revoked) {
+            revoked.merge(jti, expiresAt, (a, b) -> a.isAfter(b) ? a : b);
+            filter.put(jti);
+            if (revoked.size() > capacity) {
+                // El filtro pasó su capacidad y sus falsos positivos crecen: se agranda
+                rebuild();
+            }
+        }
+    }
+
+    private void purge(Instant now) {
+        synchronized (revoked) {
+            int before = revoked.size();
+            revoked.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+            if (revoked.size() < before) {
+                rebuild();
+            }
+        }
+        int deleted = repository.deleteExpired(now);
+        if (deleted > 0) {
+            log.debug("Revocaciones vencidas borradas: {}", deleted);
+        }
+    }
+
+    // Llamar con el monitor de revoked tomado, para no perder altas concurrentes
+    private void rebuild() {
+        capacity = Math.max(expectedTokens, 2L * revoked.size());
+        BloomFilter rebuilt = BloomFilter.create(capacity, falsePositiveRate);
+        revoked.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+    }
+}
@@ -0,0 +1,104 @@
+package cl.sicc.siccapi.security.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Claims de los access tokens ya verificados, por SHA-256 del token. El frontend consulta las
+ * estadísticas cada pocos segundos con el mismo token, así que la firma HMAC y el parseo del JSON
+ * se hacen una vez por token y no una vez por request.
+ *
+ * Cada entrada vence en el {@code exp} de su token, de modo que el caché nunca acepta un token
+ * expirado. Sólo entran tokens con firma válida, por lo que no se puede llenar con tokens
+ * inventados; el tamaño máximo ({@code security.jwt.verified-cache.max-size}) acota la memoria
+ * ante muchos tokens legítimos distintos, y la admisión de Caffeine (W-TinyLFU) evita que tokens
+ * de un solo uso desplacen a los que se repiten.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final JwtService jwtService;
+    private final Cache<ByteBuffer, TokenClaims> cache;
+
+    public VerifiedTokenCache(JwtService jwtService,
+                              @Value("${security.jwt.verified-cache.max-size:10000}") long maxSize,
+                              MeterRegistry meterRegistry) {
+        this.jwtService = jwtService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwtVerified");
+        Gauge.builder("security.jwt.verified.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Proporción de access tokens resueltos sin verificar la firma de nuevo")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Claims del access token, verificándolo sólo si no está en el caché. Los refresh tokens se
+     * verifican siempre: se usan una vez cada muchos minutos.
+     *
+     * @throws JwtException si el token no es válido o expiró
+     */
+    public TokenClaims verify(String token) {
+        ByteBuffer key = digest(token);
+        TokenClaims cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        TokenClaims claims = jwtService.verify(token);
+        if (claims.isAccessToken() && claims.expiration() != null) {
+            cache.put(key, claims);
+        }
+        return claims;
+    }
+
+    public long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private static ByteBuffer digest(String token) {
+        return ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static class UntilTokenExpiry implements Expiry<ByteBuffer, TokenClaims> {
+
+        @Override
+        public long expireAfterCreate(ByteBuffer key, TokenClaims claims, long currentTime) {
+            return Math.max(0, claims.expiration().getTime() - System.currentTimeMillis()) * 1_000_000;
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, TokenClaims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, TokenClaims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
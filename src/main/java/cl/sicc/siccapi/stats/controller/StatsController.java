@@ -1,15 +1,28 @@
 package cl.sicc.siccapi.stats.controller;
 
 import cl.sicc.siccapi.stats.dto.*;
+import cl.sicc.siccapi.stats.service.ChronicConditionService;
+import cl.sicc.siccapi.stats.service.PatientCohortIndex;
+import cl.sicc.siccapi.stats.service.StatsGranularity;
+import cl.sicc.siccapi.stats.service.StatsPeriod;
+import cl.sicc.siccapi.stats.service.StatsPivotService;
+import cl.sicc.siccapi.stats.service.StatsRollupService;
 import cl.sicc.siccapi.stats.service.StatsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.InitBinder;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.beans.PropertyEditorSupport;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/stats")
@@ -17,23 +30,41 @@ import java.util.List;
 public class StatsController {
 
     private final StatsService statsService;
+    private final StatsRollupService statsRollupService;
+    private final ChronicConditionService chronicConditionService;
+    private final PatientCohortIndex patientCohortIndex;
+    private final StatsPivotService statsPivotService;
+
+    /**
+     * Los endpoints de estadísticas aceptan {@code ?from=&to=&granularity=} (ver {@link StatsPeriod});
+     * la granularidad se acepta sin distinguir mayúsculas.
+     */
+    @InitBinder
+    void initBinder(WebDataBinder binder) {
+        binder.registerCustomEditor(StatsGranularity.class, new PropertyEditorSupport() {
+            @Override
+            public void setAsText(String text) {
+                setValue(text == null || text.isBlank() ? null : StatsGranularity.from(text));
+            }
+        });
+    }
 
     @GetMapping("/dashboard")
-    public ResponseEntity<DashboardStatsDto> getDashboardStats() {
+    public ResponseEntity<DashboardStatsDto> getDashboardStats(StatsPeriod period) {
         System.out.println("🔷 [STATS-CONTROLLER] GET /api/stats/dashboard - Solicitud recibida");
-        DashboardStatsDto result = statsService.getDashboardStats();
+        DashboardStatsDto result = statsService.getDashboardStats(period);
         System.out.println("✅ [STATS-CONTROLLER] GET /api/stats/dashboard - Respuesta enviada");
         return ResponseEntity.ok(result);
     }
 
     @GetMapping("/weekly-trend")
-    public ResponseEntity<List<WeeklyTrendDto>> getWeeklyTrend() {
-        return ResponseEntity.ok(statsService.getWeeklyTrend());
+    public ResponseEntity<List<WeeklyTrendDto>> getWeeklyTrend(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getWeeklyTrend(period));
     }
 
     @GetMapping("/medication")
-    public ResponseEntity<MedicationStatsDto> getMedicationStats() {
-        return ResponseEntity.ok(statsService.getMedicationStats());
+    public ResponseEntity<MedicationStatsDto> getMedicationStats(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getMedicationStats(period));
     }
 
     @GetMapping("/patient")
@@ -42,18 +73,18 @@ public class StatsController {
     }
 
     @GetMapping("/diagnosis")
-    public ResponseEntity<DiagnosisStatsDto> getDiagnosisStats() {
-        return ResponseEntity.ok(statsService.getDiagnosisStats());
+    public ResponseEntity<DiagnosisStatsDto> getDiagnosisStats(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getDiagnosisStats(period));
     }
 
     @GetMapping("/specialty")
-    public ResponseEntity<List<SpecialtyCountDto>> getConsultationsBySpecialty() {
-        return ResponseEntity.ok(statsService.getConsultationsBySpecialty());
+    public ResponseEntity<List<SpecialtyCountDto>> getConsultationsBySpecialty(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getConsultationsBySpecialty(period));
     }
 
     @GetMapping("/patient/chronic-summary")
-    public ResponseEntity<ChronicSummaryDto> getChronicSummary() {
-        return ResponseEntity.ok(statsService.getChronicSummary());
+    public ResponseEntity<ChronicSummaryDto> getChronicSummary(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getChronicSummary(period));
     }
 
     @GetMapping("/patient/chronic-list")
@@ -63,13 +94,13 @@ public class StatsController {
     }
 
     @GetMapping("/patient/diseases-by-age")
-    public ResponseEntity<List<DiseaseByAgeGroupDto>> getDiseasesByAgeGroup() {
-        return ResponseEntity.ok(statsService.getDiseasesByAgeGroup());
+    public ResponseEntity<List<DiseaseByAgeGroupDto>> getDiseasesByAgeGroup(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getDiseasesByAgeGroup(period));
     }
 
     @GetMapping("/patient/diseases-by-fonasa")
-    public ResponseEntity<List<DiseaseByFonasaDto>> getDiseasesByFonasa() {
-        return ResponseEntity.ok(statsService.getDiseasesByFonasa());
+    public ResponseEntity<List<DiseaseByFonasaDto>> getDiseasesByFonasa(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getDiseasesByFonasa(period));
     }
 
     /**
@@ -88,53 +119,53 @@ public class StatsController {
     }
 
     @GetMapping("/medication/by-age-group")
-    public ResponseEntity<List<MedicationByAgeGroupDto>> getMedicationsByAgeGroup() {
-        return ResponseEntity.ok(statsService.getMedicationsByAgeGroup());
+    public ResponseEntity<List<MedicationByAgeGroupDto>> getMedicationsByAgeGroup(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getMedicationsByAgeGroup(period));
     }
 
     @GetMapping("/diagnosis/emerging")
-    public ResponseEntity<List<EmergingDiagnosisDto>> getEmergingDiagnoses() {
-        return ResponseEntity.ok(statsService.getEmergingDiagnoses());
+    public ResponseEntity<List<EmergingDiagnosisDto>> getEmergingDiagnoses(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getEmergingDiagnoses(period));
     }
 
     @GetMapping("/diagnosis/by-sex")
-    public ResponseEntity<List<DiagnosisBySexDto>> getDiagnosesBySex() {
-        return ResponseEntity.ok(statsService.getDiagnosesBySex());
+    public ResponseEntity<List<DiagnosisBySexDto>> getDiagnosesBySex(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getDiagnosesBySex(period));
     }
 
     @GetMapping("/diagnosis/by-fonasa")
-    public ResponseEntity<List<DiseaseByFonasaDto>> getDiagnosesByFonasa() {
-        return ResponseEntity.ok(statsService.getDiagnosesByFonasa());
+    public ResponseEntity<List<DiseaseByFonasaDto>> getDiagnosesByFonasa(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getDiagnosesByFonasa(period));
     }
 
     @GetMapping("/diagnosis/by-specialty")
-    public ResponseEntity<List<SpecialtyDiagnosisDto>> getDiagnosesBySpecialty() {
-        return ResponseEntity.ok(statsService.getDiagnosesBySpecialty());
+    public ResponseEntity<List<SpecialtyDiagnosisDto>> getDiagnosesBySpecialty(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getDiagnosesBySpecialty(period));
     }
 
     @GetMapping("/medication/forecast")
-    public ResponseEntity<List<MedicationForecastDto>> getMedicationForecast() {
-        return ResponseEntity.ok(statsService.getMedicationForecast());
+    public ResponseEntity<List<MedicationForecastDto>> getMedicationForecast(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getMedicationForecast(period));
     }
 
     @GetMapping("/consultations/daily")
     public ResponseEntity<List<DailyConsultationDto>> getDailyConsultations(
-            @RequestParam(defaultValue = "30") int days) {
-        return ResponseEntity.ok(statsService.getDailyConsultations(days));
+            @RequestParam(defaultValue = "30") int days, StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getDailyConsultations(days, period));
     }
 
     @GetMapping("/workload/professional")
-    public ResponseEntity<List<ProfessionalWorkloadDto>> getProfessionalWorkload() {
+    public ResponseEntity<List<ProfessionalWorkloadDto>> getProfessionalWorkload(StatsPeriod period) {
         System.out.println("🔷 [STATS-CONTROLLER] GET /api/stats/workload/professional - Solicitud recibida");
-        List<ProfessionalWorkloadDto> result = statsService.getProfessionalWorkload();
+        List<ProfessionalWorkloadDto> result = statsService.getProfessionalWorkload(period);
         System.out.println("✅ [STATS-CONTROLLER] GET /api/stats/workload/professional - Devolviendo " + result.size() + " registros");
         return ResponseEntity.ok(result);
     }
 
     @GetMapping("/workload/specialty")
-    public ResponseEntity<List<SpecialtyWorkloadDto>> getSpecialtyWorkload() {
+    public ResponseEntity<List<SpecialtyWorkloadDto>> getSpecialtyWorkload(StatsPeriod period) {
         System.out.println("🔷 [STATS-CONTROLLER] GET /api/stats/workload/specialty - Solicitud recibida");
-        List<SpecialtyWorkloadDto> result = statsService.getSpecialtyWorkload();
+        List<SpecialtyWorkloadDto> result = statsService.getSpecialtyWorkload(period);
         System.out.println("✅ [STATS-CONTROLLER] GET /api/stats/workload/specialty - Devolviendo " + result.size() + " registros");
         return ResponseEntity.ok(result);
     }
@@ -145,25 +176,25 @@ public class StatsController {
      * E13: Gráfico anual de derivaciones a especialistas
      */
     @GetMapping("/referrals")
-    public ResponseEntity<ReferralStatsDto> getReferralStats() {
-        return ResponseEntity.ok(statsService.getReferralStats());
+    public ResponseEntity<ReferralStatsDto> getReferralStats(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getReferralStats(period));
     }
 
     /**
      * T7/O8: Consultas por tipo (urgentes vs generales)
      */
     @GetMapping("/consultations/by-type")
-    public ResponseEntity<List<ConsultationTypeStatsDto>> getConsultationsByType() {
-        return ResponseEntity.ok(statsService.getConsultationsByTypeDetailed());
+    public ResponseEntity<List<ConsultationTypeStatsDto>> getConsultationsByType(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getConsultationsByTypeDetailed(period));
     }
 
     /**
      * E6: Tendencia detallada de enfermedades respiratorias
      */
     @GetMapping("/diagnosis/respiratory-trend")
-    public ResponseEntity<RespiratoryTrendDto> getRespiratoryTrendDetailed() {
+    public ResponseEntity<RespiratoryTrendDto> getRespiratoryTrendDetailed(StatsPeriod period) {
         System.out.println("🔷 [STATS-CONTROLLER] GET /api/stats/diagnosis/respiratory-trend - Solicitud recibida");
-        RespiratoryTrendDto result = statsService.getRespiratoryTrendDetailed();
+        RespiratoryTrendDto result = statsService.getRespiratoryTrendDetailed(period);
         System.out.println("✅ [STATS-CONTROLLER] GET /api/stats/diagnosis/respiratory-trend - Respuesta enviada");
         return ResponseEntity.ok(result);
     }
@@ -172,8 +203,8 @@ public class StatsController {
      * T14: Recetas frecuentes por grupo etario
      */
     @GetMapping("/prescription/by-age-group")
-    public ResponseEntity<List<PrescriptionsByAgeGroupDto>> getPrescriptionsByAgeGroup() {
-        return ResponseEntity.ok(statsService.getPrescriptionsByAgeGroupDetailed());
+    public ResponseEntity<List<PrescriptionsByAgeGroupDto>> getPrescriptionsByAgeGroup(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getPrescriptionsByAgeGroupDetailed(period));
     }
 
     @GetMapping("/demand/prediction")
@@ -187,8 +218,66 @@ public class StatsController {
     }
 
     @GetMapping("/prescription/weekly-trend")
-    public ResponseEntity<List<WeeklyTrendDto>> getPrescriptionWeeklyTrend() {
-        return ResponseEntity.ok(statsService.getPrescriptionWeeklyTrend());
+    public ResponseEntity<List<WeeklyTrendDto>> getPrescriptionWeeklyTrend(StatsPeriod period) {
+        return ResponseEntity.ok(statsService.getPrescriptionWeeklyTrend(period));
     }
-}
 
+    /**
+     * Cuenta una cohorte de pacientes definida por filtros and/or/not sobre sexo, FONASA, sector,
+     * tramo etario, patología crónica y capítulo CIE-10, opcionalmente desglosada por una dimensión.
+     * Requiere {@code stats.cohort.enabled=true}; si no, 503.
+     */
+    @PostMapping("/cohort")
+    public ResponseEntity<CohortCountDto> countCohort(@RequestBody CohortQueryDto query) {
+        return ResponseEntity.ok(patientCohortIndex.count(query));
+    }
+
+    /**
+     * Valores disponibles por dimensión de cohorte.
+     */
+    @GetMapping("/cohort/dimensions")
+    public ResponseEntity<Map<String, List<String>>> getCohortDimensions() {
+        return ResponseEntity.ok(patientCohortIndex.dimensionValues());
+    }
+
+    /**
+     * Tabla dinámica: {@code measure} desglosada por las dimensiones de {@code rows} y {@code cols},
+     * con filtros {@code dimension:valor1|valor2}. Ejemplo:
+     * {@code ?measure=diagnoses&rows=diagnosis&cols=sex&filters=fonasa:A|B&from=2025-01-01}
+     */
+    @GetMapping("/pivot")
+    public ResponseEntity<PivotDto> getPivot(@RequestParam String measure,
+                                             @RequestParam(required = false) List<String> rows,
+                                             @RequestParam(required = false) List<String> cols,
+                                             @RequestParam(required = false) List<String> filters,
+                                             StatsPeriod period) {
+        return ResponseEntity.ok(statsPivotService.pivot(measure, rows, cols, filters, period));
+    }
+
+    /**
+     * Reconstruye las tablas de agregados diarios desde las tablas base.
+     */
+    @PostMapping("/rollup/rebuild")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<RollupRebuildDto> rebuildRollups() {
+        return ResponseEntity.ok(statsRollupService.rebuildAll());
+    }
+
+    /**
+     * Compara los agregados diarios con un recálculo desde las tablas base.
+     */
+    @GetMapping("/rollup/consistency")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<RollupConsistencyDto> checkRollupConsistency() {
+        return ResponseEntity.ok(statsRollupService.checkConsistency());
+    }
+
+    /**
+     * Recalcula el registro de condiciones crónicas por paciente.
+     */
+    @PostMapping("/chronic/backfill")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<ChronicBackfillDto> backfillChronicConditions() {
+        return ResponseEntity.ok(chronicConditionService.backfill());
+    }
+}
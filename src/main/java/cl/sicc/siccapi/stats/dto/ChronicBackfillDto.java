@@ -0,0 +1,6 @@
+package cl.sicc.siccapi.stats.dto;
+
+public record ChronicBackfillDto(
+    long processedPatients,
+    long elapsedMs
+) {}
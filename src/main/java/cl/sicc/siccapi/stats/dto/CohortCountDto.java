@@ -0,0 +1,9 @@
+package cl.sicc.siccapi.stats.dto;
+
+import java.util.List;
+
+public record CohortCountDto(
+    long patients,
+    String groupBy,
+    List<CohortGroupDto> groups
+) {}
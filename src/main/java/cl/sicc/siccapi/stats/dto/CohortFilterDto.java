@@ -0,0 +1,19 @@
+package cl.sicc.siccapi.stats.dto;
+
+import java.util.List;
+
+/**
+ * Filtro de cohorte de pacientes. Cada nodo usa exactamente una de sus formas:
+ * <ul>
+ *   <li>{@code {"dimension": "fonasa", "values": ["A", "B"]}}: pacientes con alguno de los valores</li>
+ *   <li>{@code {"and": [...]}} / {@code {"or": [...]}}: intersección / unión de los subfiltros</li>
+ *   <li>{@code {"not": {...}}}: todos los pacientes menos los del subfiltro</li>
+ * </ul>
+ */
+public record CohortFilterDto(
+    String dimension,
+    List<String> values,
+    List<CohortFilterDto> and,
+    List<CohortFilterDto> or,
+    CohortFilterDto not
+) {}
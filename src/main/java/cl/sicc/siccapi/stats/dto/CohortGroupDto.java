@@ -0,0 +1,7 @@
+package cl.sicc.siccapi.stats.dto;
+
+public record CohortGroupDto(
+    String value,
+    long patients,
+    double percentage
+) {}
@@ -0,0 +1,10 @@
+package cl.sicc.siccapi.stats.dto;
+
+/**
+ * @param filter  filtro de la cohorte; null = todos los pacientes
+ * @param groupBy dimensión por la que desglosar la cohorte; null = sólo el total
+ */
+public record CohortQueryDto(
+    CohortFilterDto filter,
+    String groupBy
+) {}
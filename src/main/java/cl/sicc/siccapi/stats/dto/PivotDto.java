@@ -0,0 +1,21 @@
+package cl.sicc.siccapi.stats.dto;
+
+import java.util.List;
+
+/**
+ * Tabla dinámica: {@code values.get(i).get(j)} es la métrica para la fila {@code rowKeys.get(i)} y
+ * la columna {@code colKeys.get(j)} (0 si no hay datos). Cada clave tiene un valor por dimensión de
+ * {@code rows} / {@code cols}, en el mismo orden.
+ */
+public record PivotDto(
+    String measure,
+    List<String> rows,
+    List<String> cols,
+    List<List<String>> rowKeys,
+    List<List<String>> colKeys,
+    List<List<Long>> values,
+    List<Long> rowTotals,
+    List<Long> colTotals,
+    long total,
+    boolean fromRollups
+) {}
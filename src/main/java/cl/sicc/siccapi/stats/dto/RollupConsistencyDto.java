@@ -0,0 +1,8 @@
+package cl.sicc.siccapi.stats.dto;
+
+import java.util.List;
+
+public record RollupConsistencyDto(
+    boolean consistent,
+    List<RollupMismatchDto> mismatches
+) {}
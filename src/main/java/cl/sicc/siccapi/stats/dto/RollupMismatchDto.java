@@ -0,0 +1,9 @@
+package cl.sicc.siccapi.stats.dto;
+
+import java.time.LocalDate;
+
+public record RollupMismatchDto(
+    String table,
+    LocalDate date,
+    long differingRows
+) {}
@@ -0,0 +1,9 @@
+package cl.sicc.siccapi.stats.dto;
+
+public record RollupRebuildDto(
+    long consultationFacts,
+    long diagnosisFacts,
+    long prescriptionFacts,
+    long medicationFacts,
+    long elapsedMs
+) {}
@@ -0,0 +1,196 @@
+package cl.sicc.siccapi.stats.service;
+
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import cl.sicc.siccapi.stats.dto.ChronicBackfillDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Mantiene el registro {@code patient_chronic_condition}: una fila por paciente y patología
+ * crónica, derivada de sus diagnósticos mediante {@code chronic_pathology_mapping}
+ * (prefijo de código CIE-10 → patología).
+ *
+ * Las escrituras de diagnósticos y consultas recalculan el registro de los pacientes afectados
+ * tras el commit; {@link #backfill()} lo reconstruye completo por lotes de pacientes.
+ *
+ * Cada recálculo borra e inserta las filas de sus pacientes. Dos recálculos concurrentes del mismo
+ * paciente (una consulta y un diagnóstico, o el backfill junto a una escritura) chocarían en la
+ * clave {@code (patient_id, pathology)}: en PostgreSQL cada uno toma antes un advisory lock de
+ * transacción por paciente, en orden para no bloquearse entre sí, y el segundo recalcula cuando el
+ * primero confirma.
+ */
+@Slf4j
+@Service
+public class ChronicConditionService {
+
+    private static final String REFRESH_SQL = """
+            INSERT INTO patient_chronic_condition (patient_id, pathology, first_diagnosed, last_diagnosed, diagnoses)
+            SELECT c.patient_id, m.pathology, MIN(c.date), MAX(c.date), COUNT(*)
+            FROM diagnosis d
+            JOIN consultation c ON d.consultation_id = c.id
+            JOIN chronic_pathology_mapping m ON d.cie10_code LIKE m.code_prefix || '%'
+            WHERE c.patient_id IN (:patientIds)
+            GROUP BY c.patient_id, m.pathology
+            """;
+
+    /** Espacio de advisory locks del registro ("CHRN"); el segundo entero es el id del paciente. */
+    private static final int LOCK_CLASS = 0x4348524E;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final StatsCacheInvalidator statsCacheInvalidator;
+    private final PatientCohortIndex patientCohortIndex;
+
+    @Value("${stats.chronic.backfill-batch-size:500}")
+    private int batchSize;
+
+    @Value("${stats.chronic.backfill-if-empty:true}")
+    private boolean backfillIfEmpty;
+
+    private volatile Boolean advisoryLocks;
+
+    public ChronicConditionService(PlatformTransactionManager transactionManager,
+                                   StatsCacheInvalidator statsCacheInvalidator,
+                                   PatientCohortIndex patientCohortIndex) {
+        this.statsCacheInvalidator = statsCacheInvalidator;
+        this.patientCohortIndex = patientCohortIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Order(StatsCacheInvalidator.DERIVED_DATA_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDomainWrite(DomainWriteEvent event) {
+        if (event.source() != DomainWriteEvent.Source.DIAGNOSIS
+                && event.source() != DomainWriteEvent.Source.CONSULTATION) {
+            return;
+        }
+        if (event.patientIds().isEmpty()) {
+            return;
+        }
+        try {
+            refresh(event.patientIds());
+        } catch (RuntimeException e) {
+            log.warn("No se pudo actualizar el registro de crónicos para {} {} {}: {}",
+                    event.source(), event.action(), event.entityId(), e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (!backfillIfEmpty) {
+            return;
+        }
+        try {
+            long registered = count("SELECT COUNT(*) FROM patient_chronic_condition");
+            long diagnoses = count("SELECT COUNT(*) FROM diagnosis");
+            if (registered == 0 && diagnoses > 0) {
+                log.info("Registro de crónicos vacío con {} diagnósticos existentes, poblando...", diagnoses);
+                backfill();
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudo verificar el registro de crónicos: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recalcula el registro para todos los pacientes con consultas, en lotes de
+     * {@code stats.chronic.backfill-batch-size} pacientes, cada lote en su propia transacción.
+     */
+    public ChronicBackfillDto backfill() {
+        long start = System.currentTimeMillis();
+        long processed = 0;
+        long after = 0;
+        while (true) {
+            long lastId = after;
+            List<Long> batch = transactionTemplate.execute(status -> {
+                @SuppressWarnings("unchecked")
+                List<Number> ids = entityManager.createNativeQuery("""
+                                SELECT DISTINCT c.patient_id
+                                FROM consultation c
+                                WHERE c.patient_id > :after
+                                ORDER BY c.patient_id
+                                LIMIT :batchSize
+                                """)
+                        .setParameter("after", lastId)
+                        .setParameter("batchSize", batchSize)
+                        .getResultList();
+                List<Long> patientIds = ids.stream().map(Number::longValue).toList();
+                if (!patientIds.isEmpty()) {
+                    refreshPatients(patientIds);
+                }
+                return patientIds;
+            });
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            processed += batch.size();
+            after = batch.get(batch.size() - 1);
+        }
+        // Pacientes que ya no tienen consultas no entran en los lotes: se limpian aparte
+        transactionTemplate.executeWithoutResult(status -> entityManager.createNativeQuery("""
+                        DELETE FROM patient_chronic_condition
+                        WHERE patient_id NOT IN (SELECT c.patient_id FROM consultation c)
+                        """)
+                .executeUpdate());
+        patientCohortIndex.reload();
+        statsCacheInvalidator.clearAll();
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("Registro de crónicos recalculado para {} pacientes en {} ms", processed, elapsed);
+        return new ChronicBackfillDto(processed, elapsed);
+    }
+
+    /**
+     * Recalcula el registro de los pacientes en una transacción propia.
+     */
+    void refresh(Collection<Long> patientIds) {
+        transactionTemplate.executeWithoutResult(status -> refreshPatients(patientIds));
+    }
+
+    private void refreshPatients(Collection<Long> patientIds) {
+        if (supportsAdvisoryLocks()) {
+            // Ids distintos pueden compartir clave si no caben en un int: sólo se serializan de más
+            for (int key : patientIds.stream().mapToInt(id -> Long.hashCode(id)).distinct().sorted().toArray()) {
+                entityManager.createNativeQuery("SELECT pg_advisory_xact_lock(:lockClass, :key)")
+                        .setParameter("lockClass", LOCK_CLASS)
+                        .setParameter("key", key)
+                        .getSingleResult();
+            }
+        }
+        entityManager.createNativeQuery("DELETE FROM patient_chronic_condition WHERE patient_id IN (:patientIds)")
+                .setParameter("patientIds", patientIds)
+                .executeUpdate();
+        entityManager.createNativeQuery(REFRESH_SQL)
+                .setParameter("patientIds", patientIds)
+                .executeUpdate();
+    }
+
+    private boolean supportsAdvisoryLocks() {
+        if (advisoryLocks == null) {
+            advisoryLocks = entityManager.unwrap(Session.class)
+                    .doReturningWork(connection -> connection.isWrapperFor(PGConnection.class));
+        }
+        return advisoryLocks;
+    }
+
+    private long count(String sql) {
+        return ((Number) entityManager.createNativeQuery(sql).getSingleResult()).longValue();
+    }
+}
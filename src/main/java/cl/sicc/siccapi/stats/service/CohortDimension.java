@@ -0,0 +1,38 @@
+package cl.sicc.siccapi.stats.service;
+
+import java.util.Locale;
+
+/**
+ * Atributos de paciente indexados por {@link PatientCohortIndex}.
+ *
+ * {@link #CHRONIC} y {@link #CHAPTER} son multivaluados: un paciente está en tantos valores como
+ * patologías crónicas o capítulos CIE-10 tenga diagnosticados, así que los grupos pueden sumar
+ * más que el total de la cohorte.
+ */
+public enum CohortDimension {
+
+    /** {@code M} / {@code F}. */
+    SEX,
+    /** Tramo FONASA {@code A}..{@code D}. */
+    FONASA,
+    /** Sector de residencia. */
+    SECTOR,
+    /** Tramo etario a la fecha de referencia ({@code 0-10}, ..., {@code 81+}). */
+    AGE,
+    /** Patología crónica del registro {@code patient_chronic_condition}. */
+    CHRONIC,
+    /** Capítulo CIE-10 (número romano) de cualquiera de sus diagnósticos. */
+    CHAPTER;
+
+    /**
+     * Acepta el nombre sin distinguir mayúsculas ({@code sex}, {@code fonasa}, ...).
+     */
+    public static CohortDimension from(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Dimensión de cohorte no válida: " + value
+                    + " (sex, fonasa, sector, age, chronic o chapter)");
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package cl.sicc.siccapi.stats.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Backend en memoria de las estadísticas ({@code stats.backend=memory}).
+ *
+ * Carga al iniciar las tablas de agregados diarios en {@link ColumnarTable}s y las mantiene al día:
+ * {@link StatsRollupService} llama a {@link #refreshDays} con los días que acaba de recalcular y
+ * a {@link #reload} tras una reconstrucción completa. Mientras la carga inicial no termina (o si
+ * falla) {@link #isActive()} es falso y {@link StatsService} sigue consultando PostgreSQL.
+ *
+ * Está pensado para un solo nodo: los días que recalcula otro nodo, o un cambio hecho directamente
+ * en la base, sólo se ven tras la recarga completa periódica
+ * ({@code stats.memory.reload-interval-ms}), que también reintenta una carga inicial fallida.
+ *
+ * Con {@code stats.backend=sql} (por defecto) no carga nada.
+ */
+@Slf4j
+@Component
+public class ColumnarFactStore {
+
+    public static final String CONSULTATIONS = "consultation_daily_fact";
+    public static final String DIAGNOSES = "diagnosis_daily_fact";
+    public static final String PRESCRIPTIONS = "prescription_daily_fact";
+    public static final String MEDICATIONS = "medication_daily_fact";
+
+    /** Tamaño máximo de la lista de días enlazada en un único IN (...). */
+    private static final int DAY_CHUNK = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Map<String, ColumnarTable.Schema> schemas = new HashMap<>();
+
+    private volatile Map<String, ColumnarTable> tables = Map.of();
+    private volatile boolean ready;
+
+    public ColumnarFactStore(PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${stats.backend:sql}") String backend) {
+        this.enabled = switch (backend.trim().toLowerCase()) {
+            case "sql" -> false;
+            case "memory" -> true;
+            default -> throw new IllegalArgumentException("stats.backend no válido: " + backend + " (sql o memory)");
+        };
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+
+        register(new ColumnarTable.Schema(CONSULTATIONS,
+                List.of("professional_id", "specialty", "type", "sex", "fonasa_tier", "age_bucket"),
+                List.of("consultations")));
+        register(new ColumnarTable.Schema(DIAGNOSES,
+                List.of("specialty", "cie10_code", "sex", "fonasa_tier", "age_bucket"),
+                List.of("diagnoses")));
+        register(new ColumnarTable.Schema(PRESCRIPTIONS,
+                List.of("specialty", "sex", "fonasa_tier", "age_bucket"),
+                List.of("prescriptions")));
+        register(new ColumnarTable.Schema(MEDICATIONS,
+                List.of("medication_id", "sex", "fonasa_tier", "age_bucket"),
+                List.of("prescription_lines", "units")));
+
+        for (String name : schemas.keySet()) {
+            Gauge.builder("stats.columnar.rows", this, store -> store.rows(name))
+                    .description("Filas cargadas en el backend de estadísticas en memoria")
+                    .tag("table", name)
+                    .register(meterRegistry);
+        }
+    }
+
+    private void register(ColumnarTable.Schema schema) {
+        schemas.put(schema.name(), schema);
+    }
+
+    /**
+     * true si el backend configurado es el de memoria y ya está cargado.
+     */
+    public boolean isActive() {
+        return enabled && ready;
+    }
+
+    /**
+     * Versión actual de la tabla; sólo válida si {@link #isActive()}.
+     */
+    ColumnarTable table(String name) {
+        return tables.get(name);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo cargar el backend de estadísticas en memoria, se usará SQL: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.memory.reload-interval-ms:300000}",
+            initialDelayString = "${stats.memory.reload-interval-ms:300000}")
+    public void reloadPeriodically() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            // Se conserva la versión cargada y se reintenta en la próxima vuelta
+            log.warn("No se pudo recargar el backend de estadísticas en memoria: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Carga completa de todas las tablas de agregados.
+     */
+    public synchronized void reload() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Map<String, ColumnarTable> loaded = new HashMap<>();
+        for (ColumnarTable.Schema schema : schemas.values()) {
+            loaded.put(schema.name(), load(schema, null, false));
+        }
+        tables = Map.copyOf(loaded);
+        ready = true;
+        log.info("Backend de estadísticas en memoria cargado en {} ms: {}", System.currentTimeMillis() - start,
+                loaded.values().stream().map(t -> t.schema().name() + "=" + t.size()).toList());
+    }
+
+    /**
+     * Sustituye en memoria los días recalculados en las tablas de agregados. Se llama después del
+     * commit de esos agregados; los lectores ven la versión anterior hasta que termina.
+     */
+    public synchronized void refreshDays(Collection<LocalDate> days) {
+        if (!isActive() || days == null) {
+            return;
+        }
+        int[] epochDays = days.stream()
+                .mapToInt(d -> d != null ? (int) d.toEpochDay() : ColumnarTable.UNDATED)
+                .distinct()
+                .toArray();
+        if (epochDays.length == 0) {
+            return;
+        }
+        List<LocalDate> dated = days.stream().filter(Objects::nonNull).distinct().sorted().toList();
+        boolean undated = days.stream().anyMatch(Objects::isNull);
+        Map<String, ColumnarTable> updated = new HashMap<>(tables);
+        for (ColumnarTable.Schema schema : schemas.values()) {
+            ColumnarTable fresh = load(schema, dated, undated);
+            updated.put(schema.name(), updated.get(schema.name()).replaceDays(epochDays, fresh));
+        }
+        tables = Map.copyOf(updated);
+    }
+
+    /**
+     * @param days    días a leer; {@code null} para la tabla completa, incluidas las filas sin fecha
+     * @param undated si se leen además las filas sin fecha (van primero en la tabla)
+     */
+    private ColumnarTable load(ColumnarTable.Schema schema, List<LocalDate> days, boolean undated) {
+        ColumnarTable.Builder builder = new ColumnarTable.Builder(schema);
+        if (days == null) {
+            read(schema, "1 = 1", null, builder);
+        } else {
+            if (undated) {
+                read(schema, "date IS NULL", null, builder);
+            }
+            for (int from = 0; from < days.size(); from += DAY_CHUNK) {
+                read(schema, "date IN (:days)", days.subList(from, Math.min(from + DAY_CHUNK, days.size())), builder);
+            }
+        }
+        return builder.build();
+    }
+
+    private void read(ColumnarTable.Schema schema, String predicate, List<LocalDate> days,
+                      ColumnarTable.Builder builder) {
+        int dimensions = schema.dimensions().size();
+        int measures = schema.measures().size();
+        String sql = "SELECT date, " + String.join(", ", schema.dimensions()) + ", "
+                + String.join(", ", schema.measures())
+                + " FROM " + schema.name() + " WHERE " + predicate + " ORDER BY date NULLS FIRST";
+        transactionTemplate.executeWithoutResult(status -> {
+            var query = entityManager.createNativeQuery(sql);
+            if (days != null) {
+                query.setParameter("days", days);
+            }
+            try (Stream<?> rows = query.getResultStream()) {
+                rows.forEach(result -> {
+                    Object[] row = (Object[]) result;
+                    Object[] values = new Object[dimensions];
+                    for (int d = 0; d < dimensions; d++) {
+                        values[d] = normalize(row[1 + d]);
+                    }
+                    long[] measureValues = new long[measures];
+                    for (int m = 0; m < measures; m++) {
+                        measureValues[m] = ((Number) row[1 + dimensions + m]).longValue();
+                    }
+                    builder.add(toLocalDate(row[0]), values, measureValues);
+                });
+            }
+        });
+    }
+
+    private long rows(String name) {
+        ColumnarTable table = tables.get(name);
+        return table != null ? table.size() : 0;
+    }
+
+    /**
+     * Unifica los tipos que devuelve el driver para que el diccionario no distinga, por ejemplo,
+     * {@code Integer} de {@code Long} o {@code Character} de {@code String}.
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof Character character) {
+            return character.toString();
+        }
+        return value;
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof LocalDate date) {
+            return date;
+        }
+        return ((java.sql.Date) value).toLocalDate();
+    }
+}
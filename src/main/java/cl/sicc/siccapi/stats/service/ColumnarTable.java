@@ -0,0 +1,383 @@
+package cl.sicc.siccapi.stats.service;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Copia inmutable, en columnas, de una tabla de agregados diarios ({@code *_daily_fact}).
+ *
+ * Las filas van ordenadas por día ({@code int} epoch-day), de modo que una {@link StatsWindow}
+ * se resuelve con dos búsquedas binarias y un recorrido contiguo. Las filas sin fecha van primero
+ * (día {@link #UNDATED}): sólo las cuenta la ventana sin límites, como en SQL. Cada dimensión se guarda
+ * codificada contra un {@link Dictionary} compartido entre versiones de la tabla, en un
+ * {@code byte[]} si el diccionario cabe en un byte (sexo, tramo FONASA, tramo etario, tipo) o en un
+ * {@code int[]} si no (CIE-10, medicamento, profesional). Las métricas son {@code long[]}.
+ *
+ * Una tabla nunca se modifica: {@link #replaceDays} devuelve una nueva versión, y los lectores
+ * siguen usando la que tenían.
+ */
+final class ColumnarTable {
+
+    /** Día de las filas sin fecha; menor que cualquier día real. */
+    static final int UNDATED = Integer.MIN_VALUE;
+
+    /**
+     * Nombres de dimensiones y métricas de una tabla, con los diccionarios de sus dimensiones.
+     */
+    record Schema(String name, List<String> dimensions, List<String> measures, List<Dictionary> dictionaries) {
+
+        Schema(String name, List<String> dimensions, List<String> measures) {
+            this(name, List.copyOf(dimensions), List.copyOf(measures),
+                    dimensions.stream().map(d -> new Dictionary()).toList());
+        }
+
+        int dimension(String dimension) {
+            return indexOf(dimensions, dimension);
+        }
+
+        int measure(String measure) {
+            return indexOf(measures, measure);
+        }
+
+        private int indexOf(List<String> names, String name) {
+            int index = names.indexOf(name);
+            if (index < 0) {
+                throw new IllegalArgumentException("Columna desconocida en " + this.name + ": " + name);
+            }
+            return index;
+        }
+    }
+
+    private final Schema schema;
+    private final int[] days;
+    private final CodeColumn[] dimensions;
+    private final long[][] measures;
+
+    private ColumnarTable(Schema schema, int[] days, CodeColumn[] dimensions, long[][] measures) {
+        this.schema = schema;
+        this.days = days;
+        this.dimensions = dimensions;
+        this.measures = measures;
+    }
+
+    static ColumnarTable empty(Schema schema) {
+        return new Builder(schema).build();
+    }
+
+    Schema schema() {
+        return schema;
+    }
+
+    int size() {
+        return days.length;
+    }
+
+    int dimension(String name) {
+        return schema.dimension(name);
+    }
+
+    int measure(String name) {
+        return schema.measure(name);
+    }
+
+    int day(int row) {
+        return days[row];
+    }
+
+    Object value(int dimension, int row) {
+        return schema.dictionaries().get(dimension).decode(dimensions[dimension].code(row));
+    }
+
+    long measure(int measure, int row) {
+        return measures[measure][row];
+    }
+
+    /**
+     * Recorre las filas con fecha cuyo día cae en la ventana, en orden de día.
+     */
+    void scan(StatsWindow window, IntConsumer row) {
+        int end = end(window);
+        for (int i = firstDated(start(window)); i < end; i++) {
+            row.accept(i);
+        }
+    }
+
+    long sum(StatsWindow window, String measure) {
+        long[] values = measures[schema.measure(measure)];
+        long total = 0;
+        int end = end(window);
+        for (int i = start(window); i < end; i++) {
+            total += values[i];
+        }
+        return total;
+    }
+
+    /**
+     * Suma de la métrica por valor de la dimensión, sólo para los valores presentes en la ventana.
+     */
+    Map<Object, Long> sumBy(StatsWindow window, String dimension, String measure) {
+        int d = schema.dimension(dimension);
+        CodeColumn codes = dimensions[d];
+        long[] values = measures[schema.measure(measure)];
+        Dictionary dictionary = schema.dictionaries().get(d);
+
+        // Acumulación densa por código: el diccionario es pequeño comparado con las filas
+        int cardinality = dictionary.size();
+        long[] sums = new long[cardinality];
+        boolean[] present = new boolean[cardinality];
+        int end = end(window);
+        for (int i = start(window); i < end; i++) {
+            int code = codes.code(i);
+            sums[code] += values[i];
+            present[code] = true;
+        }
+
+        Map<Object, Long> result = new LinkedHashMap<>();
+        for (int code = 0; code < cardinality; code++) {
+            if (present[code]) {
+                result.put(dictionary.decode(code), sums[code]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Serie de la métrica por periodo, con las mismas etiquetas que {@link StatsGranularity#label(String)}
+     * y en orden cronológico. Las filas sin fecha no caen en ningún periodo.
+     */
+    Map<String, Long> sumByPeriod(StatsWindow window, StatsGranularity granularity, String measure) {
+        long[] values = measures[schema.measure(measure)];
+        Map<String, Long> result = new LinkedHashMap<>();
+        int end = end(window);
+        int currentDay = UNDATED;
+        String label = null;
+        for (int i = firstDated(start(window)); i < end; i++) {
+            // Filas ordenadas por día: la etiqueta sólo se recalcula al cambiar de día
+            if (days[i] != currentDay) {
+                currentDay = days[i];
+                label = granularity.label(LocalDate.ofEpochDay(currentDay));
+            }
+            result.merge(label, values[i], Long::sum);
+        }
+        return result;
+    }
+
+    /**
+     * Nueva versión de la tabla con las filas de {@code replacedDays} sustituidas por las de
+     * {@code fresh} (que sólo debe contener esos días). Mezcla en O(n) aprovechando el orden.
+     */
+    ColumnarTable replaceDays(int[] replacedDays, ColumnarTable fresh) {
+        int[] replaced = replacedDays.clone();
+        Arrays.sort(replaced);
+        Builder builder = new Builder(schema);
+        int i = 0;
+        int j = 0;
+        while (i < size() || j < fresh.size()) {
+            boolean takeOld = j >= fresh.size() || (i < size() && days[i] <= fresh.days[j]);
+            if (takeOld) {
+                if (Arrays.binarySearch(replaced, days[i]) < 0) {
+                    builder.copyRow(this, i);
+                }
+                i++;
+            } else {
+                builder.copyRow(fresh, j);
+                j++;
+            }
+        }
+        return builder.build();
+    }
+
+    private int start(StatsWindow window) {
+        return window.isUnbounded() ? 0 : lowerBound(window.from());
+    }
+
+    private int end(StatsWindow window) {
+        return window.isUnbounded() ? days.length : lowerBound(window.to());
+    }
+
+    private int firstDated(int row) {
+        while (row < days.length && days[row] == UNDATED) {
+            row++;
+        }
+        return row;
+    }
+
+    /**
+     * Primera fila con día mayor o igual a {@code date}.
+     */
+    private int lowerBound(LocalDate date) {
+        long target = date.toEpochDay();
+        int low = 0;
+        int high = days.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Acumula filas en orden de día y produce la tabla con el ancho de columna mínimo.
+     */
+    static final class Builder {
+
+        private final Schema schema;
+        private int size;
+        private int[] days = new int[1024];
+        private final int[][] codes;
+        private final long[][] measures;
+
+        Builder(Schema schema) {
+            this.schema = schema;
+            this.codes = new int[schema.dimensions().size()][days.length];
+            this.measures = new long[schema.measures().size()][days.length];
+        }
+
+        /**
+         * @param date   día de la fila, {@code null} si no tiene fecha
+         * @param values valores de las dimensiones en el orden del esquema ({@code null} incluido)
+         */
+        void add(LocalDate date, Object[] values, long[] measureValues) {
+            int row = nextRow(date != null ? (int) date.toEpochDay() : UNDATED);
+            for (int d = 0; d < codes.length; d++) {
+                codes[d][row] = schema.dictionaries().get(d).encode(values[d]);
+            }
+            for (int m = 0; m < measures.length; m++) {
+                measures[m][row] = measureValues[m];
+            }
+        }
+
+        void copyRow(ColumnarTable source, int sourceRow) {
+            int row = nextRow(source.days[sourceRow]);
+            for (int d = 0; d < codes.length; d++) {
+                codes[d][row] = source.dimensions[d].code(sourceRow);
+            }
+            for (int m = 0; m < measures.length; m++) {
+                measures[m][row] = source.measures[m][sourceRow];
+            }
+        }
+
+        private int nextRow(int day) {
+            if (size > 0 && day < days[size - 1]) {
+                throw new IllegalStateException("Filas fuera de orden en " + schema.name());
+            }
+            if (size == days.length) {
+                int capacity = days.length * 2;
+                days = Arrays.copyOf(days, capacity);
+                for (int d = 0; d < codes.length; d++) {
+                    codes[d] = Arrays.copyOf(codes[d], capacity);
+                }
+                for (int m = 0; m < measures.length; m++) {
+                    measures[m] = Arrays.copyOf(measures[m], capacity);
+                }
+            }
+            days[size] = day;
+            return size++;
+        }
+
+        ColumnarTable build() {
+            CodeColumn[] columns = new CodeColumn[codes.length];
+            for (int d = 0; d < codes.length; d++) {
+                columns[d] = CodeColumn.of(Arrays.copyOf(codes[d], size), schema.dictionaries().get(d).size());
+            }
+            long[][] measureColumns = new long[measures.length][];
+            for (int m = 0; m < measures.length; m++) {
+                measureColumns[m] = Arrays.copyOf(measures[m], size);
+            }
+            return new ColumnarTable(schema, Arrays.copyOf(days, size), columns, measureColumns);
+        }
+    }
+
+    /**
+     * Diccionario de una dimensión: asigna códigos densos a los valores en orden de aparición.
+     * Sólo crece, así que los códigos son estables entre versiones de la tabla; {@code null} es un
+     * valor más.
+     */
+    static final class Dictionary {
+
+        private final Map<Object, Integer> codes = new HashMap<>();
+        private volatile Object[] values = new Object[16];
+        private volatile int size;
+
+        synchronized int encode(Object value) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            int next = size;
+            Object[] current = values;
+            if (next == current.length) {
+                current = Arrays.copyOf(current, next * 2);
+            }
+            current[next] = value;
+            values = current;
+            codes.put(value, next);
+            size = next + 1;
+            return next;
+        }
+
+        Object decode(int code) {
+            return values[code];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Columna de códigos de diccionario en el ancho mínimo.
+     */
+    private abstract static class CodeColumn {
+
+        abstract int code(int row);
+
+        static CodeColumn of(int[] codes, int cardinality) {
+            if (cardinality <= 1 << Byte.SIZE) {
+                byte[] narrow = new byte[codes.length];
+                for (int i = 0; i < codes.length; i++) {
+                    narrow[i] = (byte) codes[i];
+                }
+                return new ByteCodes(narrow);
+            }
+            return new IntCodes(codes);
+        }
+    }
+
+    private static final class ByteCodes extends CodeColumn {
+
+        private final byte[] codes;
+
+        ByteCodes(byte[] codes) {
+            this.codes = codes;
+        }
+
+        @Override
+        int code(int row) {
+            return codes[row] & 0xFF;
+        }
+    }
+
+    private static final class IntCodes extends CodeColumn {
+
+        private final int[] codes;
+
+        IntCodes(int[] codes) {
+            this.codes = codes;
+        }
+
+        @Override
+        int code(int row) {
+            return codes[row];
+        }
+    }
+}
@@ -0,0 +1,562 @@
+package cl.sicc.siccapi.stats.service;
+
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import cl.sicc.siccapi.diagnosis.domain.Cie10Chapter;
+import cl.sicc.siccapi.stats.dto.CohortCountDto;
+import cl.sicc.siccapi.stats.dto.CohortFilterDto;
+import cl.sicc.siccapi.stats.dto.CohortGroupDto;
+import cl.sicc.siccapi.stats.dto.CohortQueryDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Índice de cohortes de pacientes: un bitmap comprimido (Roaring) de ids de paciente por cada valor
+ * de sexo, tramo FONASA, sector, patología crónica y capítulo CIE-10, más uno por fecha de
+ * nacimiento del que se derivan los tramos etarios para la fecha de referencia vigente.
+ *
+ * Una consulta de cohorte ({@link #count}) se resuelve con uniones, intersecciones y diferencias
+ * de bitmaps, y el desglose por dimensión con cardinalidades de intersección, sin tocar la base.
+ *
+ * Se carga al iniciar y se actualiza tras cada escritura: las de pacientes recargan sus atributos
+ * demográficos y las de diagnósticos o consultas sus patologías crónicas y capítulos. Las lecturas
+ * comparten un read lock; las actualizaciones se serializan y sólo toman el write lock para aplicar
+ * los cambios ya leídos de la base.
+ *
+ * Está pensado para un solo nodo: las escrituras de otro nodo, o un cambio hecho directamente en la
+ * base, sólo se ven tras la recarga completa periódica ({@code stats.cohort.reload-interval-ms}),
+ * que también reintenta una carga inicial fallida. Con {@code stats.cohort.enabled=false} (por
+ * defecto) no carga nada: {@link StatsService} consulta la base y {@link #count} responde 503.
+ *
+ * Los ids de paciente deben caber en un {@code int}.
+ */
+@Slf4j
+@Component
+public class PatientCohortIndex {
+
+    /** Tramos etarios, los mismos de la distribución por edad y sexo del perfil de pacientes. */
+    static final List<String> AGE_GROUPS = List.of("0-10", "11-20", "21-30", "31-40", "41-50", "51-60",
+            "61-70", "71-80", "81+");
+    static final String UNKNOWN_AGE = "Desconocido";
+
+    /** Tamaño máximo de la lista de pacientes enlazada en un único IN (...). */
+    private static final int PATIENT_CHUNK = 1000;
+
+    private static final String PATIENT_SQL = """
+            SELECT p.id, p.sex, CAST(p.fonasa_tier AS VARCHAR), p.residential_sector, p.birth_date
+            FROM patient p
+            """;
+    private static final String CHRONIC_SQL = """
+            SELECT pcc.patient_id, pcc.pathology
+            FROM patient_chronic_condition pcc
+            """;
+    private static final String CHAPTER_SQL = """
+            SELECT DISTINCT c.patient_id, ch.code
+            FROM diagnosis d
+            JOIN consultation c ON d.consultation_id = c.id
+            JOIN cie10 cie ON d.cie10_code = cie.code
+            JOIN cie10_chapter ch ON cie.chapter_id = ch.id
+            WHERE c.patient_id IS NOT NULL
+            """;
+
+    /**
+     * Estado del índice. Se modifica sólo con el write lock tomado.
+     */
+    private static final class Bitmaps {
+        final RoaringBitmap all = new RoaringBitmap();
+        final Map<CohortDimension, Map<String, RoaringBitmap>> values = new EnumMap<>(CohortDimension.class);
+        /** Pacientes por fecha de nacimiento (epoch-day); los sin fecha van en {@link #unknownBirth}. */
+        final TreeMap<Integer, RoaringBitmap> byBirthDay = new TreeMap<>();
+        final RoaringBitmap unknownBirth = new RoaringBitmap();
+        long version;
+
+        Bitmaps() {
+            for (CohortDimension dimension : CohortDimension.values()) {
+                if (dimension != CohortDimension.AGE) {
+                    values.put(dimension, new HashMap<>());
+                }
+            }
+        }
+
+        void add(CohortDimension dimension, String value, int patientId) {
+            values.get(dimension).computeIfAbsent(value, v -> new RoaringBitmap()).add(patientId);
+        }
+
+        void addBirthDate(LocalDate birthDate, int patientId) {
+            if (birthDate == null) {
+                unknownBirth.add(patientId);
+            } else {
+                byBirthDay.computeIfAbsent((int) birthDate.toEpochDay(), d -> new RoaringBitmap()).add(patientId);
+            }
+        }
+
+        void remove(CohortDimension dimension, RoaringBitmap patients) {
+            removeFrom(values.get(dimension).values(), patients);
+        }
+
+        void removeBirthDates(RoaringBitmap patients) {
+            removeFrom(byBirthDay.values(), patients);
+            unknownBirth.andNot(patients);
+        }
+
+        private static void removeFrom(Collection<RoaringBitmap> bitmaps, RoaringBitmap patients) {
+            Iterator<RoaringBitmap> it = bitmaps.iterator();
+            while (it.hasNext()) {
+                RoaringBitmap bitmap = it.next();
+                bitmap.andNot(patients);
+                if (bitmap.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /** Tramos etarios calculados para una versión del índice y una fecha de referencia. */
+    private record AgeBuckets(long version, LocalDate referenceDate, Map<String, RoaringBitmap> buckets) {
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ReferenceDateService referenceDateService;
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object writeMonitor = new Object();
+
+    private Bitmaps bitmaps = new Bitmaps();
+    private volatile AgeBuckets ageBuckets;
+    private volatile boolean ready;
+
+    public PatientCohortIndex(PlatformTransactionManager transactionManager,
+                              ReferenceDateService referenceDateService,
+                              MeterRegistry meterRegistry,
+                              @Value("${stats.cohort.enabled:false}") boolean enabled) {
+        this.referenceDateService = referenceDateService;
+        this.enabled = enabled;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+
+        Gauge.builder("stats.cohort.patients", this, index -> index.read(b -> b.all.getLongCardinality()))
+                .description("Pacientes en el índice de cohortes")
+                .register(meterRegistry);
+        Gauge.builder("stats.cohort.bytes", this, PatientCohortIndex::sizeInBytes)
+                .description("Tamaño serializado de los bitmaps del índice de cohortes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * true si el índice está habilitado y la carga inicial terminó; si no, {@link StatsService} usa SQL.
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo cargar el índice de cohortes: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.cohort.reload-interval-ms:300000}",
+            initialDelayString = "${stats.cohort.reload-interval-ms:300000}")
+    public void reloadPeriodically() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            // Se conserva la versión cargada y se reintenta en la próxima vuelta
+            log.warn("No se pudo recargar el índice de cohortes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstruye el índice completo desde la base.
+     */
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (writeMonitor) {
+            long start = System.currentTimeMillis();
+            Bitmaps fresh = new Bitmaps();
+            query(PATIENT_SQL, null, (id, row) -> addPatient(fresh, id, row));
+            query(CHRONIC_SQL, null, (id, row) -> fresh.add(CohortDimension.CHRONIC, (String) row[1], id));
+            query(CHAPTER_SQL, null, (id, row) -> addChapter(fresh, id, row));
+            fresh.all.runOptimize();
+            for (Map<String, RoaringBitmap> byValue : fresh.values.values()) {
+                byValue.values().forEach(RoaringBitmap::runOptimize);
+            }
+            write(b -> {
+                fresh.version = b.version + 1;
+                bitmaps = fresh;
+            });
+            ready = true;
+            log.info("Índice de cohortes cargado en {} ms: {} pacientes", System.currentTimeMillis() - start,
+                    fresh.all.getLongCardinality());
+        }
+    }
+
+    /**
+     * Recarga los datos de los pacientes afectados por una escritura, después del registro de
+     * crónicos ({@link ChronicConditionService}) y antes de vaciar los cachés.
+     */
+    @Order(StatsCacheInvalidator.DERIVED_DATA_ORDER + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDomainWrite(DomainWriteEvent event) {
+        if (!isReady() || event.patientIds().isEmpty()) {
+            return;
+        }
+        try {
+            switch (event.source()) {
+                case PATIENT -> refreshPatients(event.patientIds());
+                case CONSULTATION, DIAGNOSIS -> refreshDiagnoses(event.patientIds());
+                default -> {
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudo actualizar el índice de cohortes para {} {} {}: {}",
+                    event.source(), event.action(), event.entityId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Recarga sexo, tramo FONASA, sector y fecha de nacimiento; los pacientes que ya no existen
+     * salen del índice completo.
+     */
+    void refreshPatients(Collection<Long> patientIds) {
+        synchronized (writeMonitor) {
+            RoaringBitmap affected = toBitmap(patientIds);
+            Bitmaps loaded = new Bitmaps();
+            readChunked(PATIENT_SQL + "WHERE p.id IN (:ids)", patientIds, (id, row) -> addPatient(loaded, id, row));
+            RoaringBitmap gone = RoaringBitmap.andNot(affected, loaded.all);
+            write(b -> {
+                for (CohortDimension dimension : List.of(CohortDimension.SEX, CohortDimension.FONASA, CohortDimension.SECTOR)) {
+                    b.remove(dimension, affected);
+                    merge(b.values.get(dimension), loaded.values.get(dimension));
+                }
+                b.removeBirthDates(affected);
+                loaded.byBirthDay.forEach((day, ids) ->
+                        b.byBirthDay.computeIfAbsent(day, d -> new RoaringBitmap()).or(ids));
+                b.unknownBirth.or(loaded.unknownBirth);
+                if (!gone.isEmpty()) {
+                    b.remove(CohortDimension.CHRONIC, gone);
+                    b.remove(CohortDimension.CHAPTER, gone);
+                }
+                b.all.andNot(gone);
+                b.all.or(loaded.all);
+                b.version++;
+            });
+        }
+    }
+
+    /**
+     * Recarga patologías crónicas y capítulos CIE-10.
+     */
+    void refreshDiagnoses(Collection<Long> patientIds) {
+        synchronized (writeMonitor) {
+            RoaringBitmap affected = toBitmap(patientIds);
+            Bitmaps loaded = new Bitmaps();
+            readChunked(CHRONIC_SQL + "WHERE pcc.patient_id IN (:ids)", patientIds,
+                    (id, row) -> loaded.add(CohortDimension.CHRONIC, (String) row[1], id));
+            readChunked(CHAPTER_SQL + "AND c.patient_id IN (:ids)", patientIds, (id, row) -> addChapter(loaded, id, row));
+            write(b -> {
+                for (CohortDimension dimension : List.of(CohortDimension.CHRONIC, CohortDimension.CHAPTER)) {
+                    b.remove(dimension, affected);
+                    merge(b.values.get(dimension), loaded.values.get(dimension));
+                }
+                b.version++;
+            });
+        }
+    }
+
+    /**
+     * Cuenta los pacientes de la cohorte y, si se pide, los desglosa por una dimensión.
+     *
+     * @throws ResponseStatusException 503 si el índice está deshabilitado o aún no se carga
+     */
+    public CohortCountDto count(CohortQueryDto query) {
+        requireReady();
+        CohortDimension groupBy = query.groupBy() == null || query.groupBy().isBlank()
+                ? null
+                : CohortDimension.from(query.groupBy());
+        LocalDate referenceDate = referenceDateService.getReferenceDate();
+        return read(b -> {
+            RoaringBitmap cohort = evaluate(b, query.filter(), referenceDate);
+            long total = cohort.getLongCardinality();
+            List<CohortGroupDto> groups = new ArrayList<>();
+            if (groupBy != null) {
+                groupCounts(b, cohort, groupBy, referenceDate).forEach((value, patients) ->
+                        groups.add(new CohortGroupDto(value, patients, total > 0 ? (patients * 100.0) / total : 0.0)));
+            }
+            return new CohortCountDto(total, groupBy != null ? groupBy.name().toLowerCase(Locale.ROOT) : null, groups);
+        });
+    }
+
+    /**
+     * Pacientes de la cohorte por valor de la dimensión, sólo los valores con pacientes; en el orden
+     * natural de la dimensión (tramo etario, capítulo) o de mayor a menor.
+     */
+    public Map<String, Long> countBy(CohortDimension groupBy, CohortFilterDto filter) {
+        LocalDate referenceDate = referenceDateService.getReferenceDate();
+        return read(b -> groupCounts(b, evaluate(b, filter, referenceDate), groupBy, referenceDate));
+    }
+
+    /**
+     * Valores presentes en cada dimensión, para construir filtros.
+     */
+    public Map<String, List<String>> dimensionValues() {
+        requireReady();
+        LocalDate referenceDate = referenceDateService.getReferenceDate();
+        return read(b -> {
+            Map<String, List<String>> result = new LinkedHashMap<>();
+            for (CohortDimension dimension : CohortDimension.values()) {
+                result.put(dimension.name().toLowerCase(Locale.ROOT),
+                        new ArrayList<>(groupCounts(b, b.all, dimension, referenceDate).keySet()));
+            }
+            return result;
+        });
+    }
+
+    private void requireReady() {
+        if (!enabled) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "El índice de cohortes está deshabilitado (stats.cohort.enabled)");
+        }
+        if (!ready) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "El índice de cohortes aún se está cargando");
+        }
+    }
+
+    private Map<String, Long> groupCounts(Bitmaps b, RoaringBitmap cohort, CohortDimension dimension,
+                                          LocalDate referenceDate) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        valuesOf(b, dimension, referenceDate).forEach((value, patients) -> {
+            long count = RoaringBitmap.andCardinality(cohort, patients);
+            if (count > 0) {
+                counts.put(value, count);
+            }
+        });
+        if (dimension == CohortDimension.AGE || dimension == CohortDimension.CHAPTER) {
+            return counts;
+        }
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.nullsLast(Comparator.naturalOrder()))))
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    private RoaringBitmap evaluate(Bitmaps b, CohortFilterDto filter, LocalDate referenceDate) {
+        if (filter == null) {
+            return b.all;
+        }
+        int forms = (filter.dimension() != null ? 1 : 0) + (filter.and() != null ? 1 : 0)
+                + (filter.or() != null ? 1 : 0) + (filter.not() != null ? 1 : 0);
+        if (forms != 1) {
+            throw new IllegalArgumentException(
+                    "Cada filtro de cohorte debe tener exactamente uno de: dimension, and, or, not");
+        }
+        if (filter.dimension() != null) {
+            if (filter.values() == null || filter.values().isEmpty()) {
+                throw new IllegalArgumentException("El filtro por " + filter.dimension() + " no tiene valores");
+            }
+            Map<String, RoaringBitmap> byValue = valuesOf(b, CohortDimension.from(filter.dimension()), referenceDate);
+            return FastAggregation.or(filter.values().stream()
+                    .map(byValue::get)
+                    .filter(Objects::nonNull)
+                    .iterator());
+        }
+        if (filter.not() != null) {
+            return RoaringBitmap.andNot(b.all, evaluate(b, filter.not(), referenceDate));
+        }
+        List<CohortFilterDto> children = filter.and() != null ? filter.and() : filter.or();
+        if (children.isEmpty()) {
+            throw new IllegalArgumentException("Los filtros and/or de cohorte necesitan al menos un elemento");
+        }
+        Iterator<RoaringBitmap> operands = children.stream().map(child -> evaluate(b, child, referenceDate)).iterator();
+        return filter.and() != null ? FastAggregation.and(operands) : FastAggregation.or(operands);
+    }
+
+    private Map<String, RoaringBitmap> valuesOf(Bitmaps b, CohortDimension dimension, LocalDate referenceDate) {
+        return switch (dimension) {
+            case AGE -> ageBuckets(b, referenceDate);
+            case CHAPTER -> {
+                // Orden de capítulos de la CIE-10
+                Map<String, RoaringBitmap> chapters = new LinkedHashMap<>();
+                for (Cie10Chapter chapter : Cie10Chapter.values()) {
+                    RoaringBitmap patients = b.values.get(dimension).get(chapter.name());
+                    if (patients != null) {
+                        chapters.put(chapter.name(), patients);
+                    }
+                }
+                yield chapters;
+            }
+            default -> b.values.get(dimension);
+        };
+    }
+
+    /**
+     * Tramos etarios a la fecha de referencia: cada tramo es la unión de los bitmaps de un rango de
+     * fechas de nacimiento. Se memoriza hasta que cambia el índice o la fecha de referencia.
+     */
+    private Map<String, RoaringBitmap> ageBuckets(Bitmaps b, LocalDate referenceDate) {
+        AgeBuckets cached = ageBuckets;
+        if (cached != null && cached.version() == b.version && cached.referenceDate().equals(referenceDate)) {
+            return cached.buckets();
+        }
+        Map<String, RoaringBitmap> buckets = new LinkedHashMap<>();
+        // Edad < N años  <=>  nacido después de referencia - N años (igual que AGE() de PostgreSQL)
+        Integer youngerThan = null;
+        for (int i = 0; i < AGE_GROUPS.size(); i++) {
+            boolean last = i == AGE_GROUPS.size() - 1;
+            Integer bound = last ? null : (int) referenceDate.minusYears(10L * (i + 1) + 1).toEpochDay();
+            Map<Integer, RoaringBitmap> range;
+            if (youngerThan == null) {
+                range = b.byBirthDay.tailMap(bound, false);
+            } else if (bound == null) {
+                range = b.byBirthDay.headMap(youngerThan, true);
+            } else {
+                range = b.byBirthDay.subMap(bound, false, youngerThan, true);
+            }
+            RoaringBitmap bucket = FastAggregation.or(range.values().iterator());
+            if (!bucket.isEmpty()) {
+                buckets.put(AGE_GROUPS.get(i), bucket);
+            }
+            youngerThan = bound;
+        }
+        if (!b.unknownBirth.isEmpty()) {
+            buckets.put(UNKNOWN_AGE, b.unknownBirth);
+        }
+        ageBuckets = new AgeBuckets(b.version, referenceDate, buckets);
+        return buckets;
+    }
+
+    private static void addPatient(Bitmaps b, int id, Object[] row) {
+        b.all.add(id);
+        b.add(CohortDimension.SEX, Objects.toString(row[1], null), id);
+        b.add(CohortDimension.FONASA, Objects.toString(row[2], null), id);
+        b.add(CohortDimension.SECTOR, Objects.toString(row[3], null), id);
+        b.addBirthDate(toLocalDate(row[4]), id);
+    }
+
+    private static void addChapter(Bitmaps b, int id, Object[] row) {
+        b.add(CohortDimension.CHAPTER, (String) row[1], id);
+    }
+
+    private static void merge(Map<String, RoaringBitmap> target, Map<String, RoaringBitmap> source) {
+        source.forEach((value, ids) -> target.computeIfAbsent(value, v -> new RoaringBitmap()).or(ids));
+    }
+
+    private void readChunked(String sql, Collection<Long> patientIds, BiConsumer<Integer, Object[]> consumer) {
+        List<Long> ids = List.copyOf(patientIds);
+        for (int from = 0; from < ids.size(); from += PATIENT_CHUNK) {
+            query(sql, ids.subList(from, Math.min(from + PATIENT_CHUNK, ids.size())), consumer);
+        }
+    }
+
+    private void query(String sql, List<Long> ids, BiConsumer<Integer, Object[]> consumer) {
+        transactionTemplate.executeWithoutResult(status -> {
+            var query = entityManager.createNativeQuery(sql);
+            if (ids != null) {
+                query.setParameter("ids", ids);
+            }
+            try (Stream<?> rows = query.getResultStream()) {
+                rows.forEach(result -> {
+                    Object[] row = (Object[]) result;
+                    consumer.accept(Math.toIntExact(((Number) row[0]).longValue()), row);
+                });
+            }
+        });
+    }
+
+    private <T> T read(Function<Bitmaps, T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.apply(bitmaps);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Consumer<Bitmaps> writer) {
+        lock.writeLock().lock();
+        try {
+            writer.accept(bitmaps);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private double sizeInBytes() {
+        return read(b -> {
+            long bytes = b.all.serializedSizeInBytes() + b.unknownBirth.serializedSizeInBytes();
+            for (Map<String, RoaringBitmap> byValue : b.values.values()) {
+                for (RoaringBitmap bitmap : byValue.values()) {
+                    bytes += bitmap.serializedSizeInBytes();
+                }
+            }
+            for (RoaringBitmap bitmap : b.byBirthDay.values()) {
+                bytes += bitmap.serializedSizeInBytes();
+            }
+            return (double) bytes;
+        });
+    }
+
+    private static RoaringBitmap toBitmap(Collection<Long> patientIds) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        patientIds.forEach(id -> bitmap.add(Math.toIntExact(id)));
+        return bitmap;
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value == null || value instanceof LocalDate) {
+            return (LocalDate) value;
+        }
+        return ((java.sql.Date) value).toLocalDate();
+    }
+}
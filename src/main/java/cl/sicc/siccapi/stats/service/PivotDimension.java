@@ -0,0 +1,100 @@
+package cl.sicc.siccapi.stats.service;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Dimensiones de {@link StatsPivotService}. Las expresiones SQL salen de esta enumeración, nunca
+ * de la petición.
+ *
+ * Cada dimensión tiene su expresión sobre las tablas base (con el alias de la tabla que necesita y
+ * el JOIN que agrega) y, si la tabla de agregados diarios la tiene, la columna y expresión sobre
+ * ésta. Tramo etario, sector y diagnóstico sólo existen sobre las tablas base: el tramo se calcula
+ * a la fecha de referencia (como en el perfil de pacientes), no a la fecha de la consulta.
+ */
+public enum PivotDimension {
+
+    SEX("p.sex", "c", Join.PATIENT, "sex", "f.sex", null),
+    FONASA("CAST(p.fonasa_tier AS VARCHAR)", "c", Join.PATIENT, "fonasa_tier", "f.fonasa_tier", null),
+    SECTOR("p.residential_sector", "c", Join.PATIENT, null, null, null),
+    AGE_GROUP("""
+            CASE
+                WHEN p.birth_date IS NULL THEN 'Desconocido'
+                WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 18 THEN '0-17'
+                WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 30 THEN '18-29'
+                WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 50 THEN '30-49'
+                WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 65 THEN '50-64'
+                ELSE '65+'
+            END""", "c", Join.PATIENT, null, null, null),
+    SPECIALTY("hp.specialty", "c", Join.PROFESSIONAL, "specialty", "f.specialty", null),
+    PROFESSIONAL("hp.name", "c", Join.PROFESSIONAL, "professional_id", "hp.name", Join.PROFESSIONAL),
+    TYPE("c.type", "c", null, "type", "f.type", null),
+    /** Descripción del diagnóstico o, si no tiene, nombre CIE-10. */
+    DIAGNOSIS("COALESCE(d.description, cie.name)", "d", Join.CIE10, null, null, null),
+    CIE10("d.cie10_code", "d", null, "cie10_code", "f.cie10_code", null),
+    /** Capítulo CIE-10 en números romanos ({@code X}). */
+    CHAPTER("ch.code", "d", Join.CHAPTER, "cie10_code", "ch.code", Join.CHAPTER),
+    /** Bloque CIE-10 como rango de categorías ({@code J00-J06}). */
+    BLOCK("bl.first_category || '-' || bl.last_category", "d", Join.BLOCK, "cie10_code",
+            "bl.first_category || '-' || bl.last_category", Join.BLOCK),
+    MEDICATION("m.name", "pm", Join.MEDICATION, "medication_id", "m.name", Join.MEDICATION),
+    /** Periodo según la granularidad pedida (mes por defecto). */
+    PERIOD(null, "c", null, "date", null, null);
+
+    /** Orden de presentación de los tramos etarios. */
+    static final List<String> AGE_GROUPS = List.of("0-17", "18-29", "30-49", "50-64", "65+", "Desconocido");
+
+    /**
+     * JOINs que agregan las dimensiones, en el orden en que se escriben. {@code requires} es el JOIN
+     * previo del que depende (capítulo y bloque salen de {@code cie10}).
+     */
+    enum Join {
+        PATIENT("JOIN patient p ON c.patient_id = p.id", null, null),
+        PROFESSIONAL("LEFT JOIN healthcare_professional hp ON c.professional_id = hp.id",
+                "LEFT JOIN healthcare_professional hp ON f.professional_id = hp.id", null),
+        CIE10("JOIN cie10 cie ON d.cie10_code = cie.code", "JOIN cie10 cie ON f.cie10_code = cie.code", null),
+        CHAPTER("LEFT JOIN cie10_chapter ch ON cie.chapter_id = ch.id",
+                "LEFT JOIN cie10_chapter ch ON cie.chapter_id = ch.id", CIE10),
+        BLOCK("LEFT JOIN cie10_block bl ON cie.block_id = bl.id",
+                "LEFT JOIN cie10_block bl ON cie.block_id = bl.id", CIE10),
+        MEDICATION("JOIN medication m ON pm.medication_id = m.id", "JOIN medication m ON f.medication_id = m.id", null);
+
+        final String sql;
+        final String factSql;
+        final Join requires;
+
+        Join(String sql, String factSql, Join requires) {
+            this.sql = sql;
+            this.factSql = factSql;
+            this.requires = requires;
+        }
+    }
+
+    final String expression;
+    final String alias;
+    final Join join;
+    final String factColumn;
+    final String factExpression;
+    final Join factJoin;
+
+    PivotDimension(String expression, String alias, Join join, String factColumn, String factExpression, Join factJoin) {
+        this.expression = expression;
+        this.alias = alias;
+        this.join = join;
+        this.factColumn = factColumn;
+        this.factExpression = factExpression;
+        this.factJoin = factJoin;
+    }
+
+    /**
+     * Acepta el nombre sin distinguir mayúsculas ({@code sex}, {@code age_group}, ...).
+     */
+    public static PivotDimension from(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Dimensión no válida: " + value + " (sex, fonasa, sector, age_group, "
+                    + "specialty, professional, type, diagnosis, cie10, chapter, block, medication o period)");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package cl.sicc.siccapi.stats.service;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Métricas de {@link StatsPivotService}. Cada una define su tabla base (con los alias {@code c},
+ * {@code d}, {@code pr}, {@code pm} disponibles para las dimensiones) y, si existe, la tabla de
+ * agregados diarios que la precalcula y las columnas de ésta.
+ */
+public enum PivotMeasure {
+
+    CONSULTATIONS("COUNT(*)", "FROM consultation c", "c.date", Set.of("c"),
+            "consultation_daily_fact", "SUM(f.consultations)",
+            Set.of("date", "professional_id", "specialty", "type", "sex", "fonasa_tier")),
+    DIAGNOSES("COUNT(*)", """
+            FROM diagnosis d
+            JOIN consultation c ON d.consultation_id = c.id""", "c.date", Set.of("c", "d"),
+            "diagnosis_daily_fact", "SUM(f.diagnoses)",
+            Set.of("date", "specialty", "cie10_code", "sex", "fonasa_tier")),
+    PRESCRIPTIONS("COUNT(*)", """
+            FROM prescription pr
+            JOIN consultation c ON pr.consultation_id = c.id""", "pr.date", Set.of("c", "pr"),
+            "prescription_daily_fact", "SUM(f.prescriptions)",
+            Set.of("date", "specialty", "sex", "fonasa_tier")),
+    /** Líneas de receta (medicamento recetado en una receta). */
+    PRESCRIPTION_LINES("COUNT(*)", """
+            FROM prescription_medication pm
+            JOIN prescription pr ON pm.prescription_id = pr.id
+            JOIN consultation c ON pr.consultation_id = c.id""", "pr.date", Set.of("c", "pr", "pm"),
+            "medication_daily_fact", "SUM(f.prescription_lines)",
+            Set.of("date", "medication_id", "sex", "fonasa_tier")),
+    /** Unidades recetadas ({@code quantity}). */
+    UNITS("COALESCE(SUM(pm.quantity), 0)", PRESCRIPTION_LINES.from, "pr.date", Set.of("c", "pr", "pm"),
+            "medication_daily_fact", "COALESCE(SUM(f.units), 0)",
+            Set.of("date", "medication_id", "sex", "fonasa_tier"));
+
+    final String aggregate;
+    final String from;
+    final String dateColumn;
+    final Set<String> aliases;
+    final String factTable;
+    final String factAggregate;
+    final Set<String> factColumns;
+
+    PivotMeasure(String aggregate, String from, String dateColumn, Set<String> aliases,
+                 String factTable, String factAggregate, Set<String> factColumns) {
+        this.aggregate = aggregate;
+        this.from = from;
+        this.dateColumn = dateColumn;
+        this.aliases = aliases;
+        this.factTable = factTable;
+        this.factAggregate = factAggregate;
+        this.factColumns = factColumns;
+    }
+
+    /**
+     * Acepta el nombre sin distinguir mayúsculas ({@code diagnoses}, {@code prescription_lines}, ...).
+     */
+    public static PivotMeasure from(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Métrica no válida: " + value
+                    + " (consultations, diagnoses, prescriptions, prescription_lines o units)");
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package cl.sicc.siccapi.stats.service;
+
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fecha de referencia de las estadísticas: la fecha de la última consulta registrada.
+ *
+ * Todas las ventanas de tiempo de {@link StatsService} se anclan a esta fecha en vez de a la
+ * fecha actual, porque los datos se cargan por lotes y pueden ir atrasados. Se calcula una vez,
+ * queda en memoria y se invalida cuando {@code ConsultationService} crea, modifica o elimina una
+ * consulta. Si no hay consultas se usa la fecha actual.
+ */
+@Slf4j
+@Service
+public class ReferenceDateService {
+
+    /**
+     * @param fallback true si no había consultas y la fecha es la actual
+     */
+    private record Snapshot(long generation, LocalDate date, boolean fallback) {
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    public LocalDate getReferenceDate() {
+        long current = generation.get();
+        Snapshot cached = snapshot;
+        if (cached != null && cached.generation() == current) {
+            return cached.date();
+        }
+        LocalDate date = load();
+        LocalDate resolved = date != null ? date : LocalDate.now();
+        // Sólo se guarda si nadie invalidó mientras se calculaba
+        if (generation.get() == current) {
+            snapshot = new Snapshot(current, resolved, date == null);
+        }
+        return resolved;
+    }
+
+    /**
+     * Descarta el valor en memoria; el próximo acceso lo recalcula.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    @Order(StatsCacheInvalidator.DERIVED_DATA_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onDomainWrite(DomainWriteEvent event) {
+        if (event.source() != DomainWriteEvent.Source.CONSULTATION) {
+            return;
+        }
+        Snapshot cached = snapshot;
+        if (event.action() == DomainWriteEvent.Action.CREATED && cached != null
+                && !cached.fallback() && cached.generation() == generation.get()) {
+            // Una consulta nueva sólo puede adelantar la fecha: se evita volver a consultar
+            LocalDate newest = event.affectedDates().stream()
+                    .filter(d -> d != null && d.isAfter(cached.date()))
+                    .max(LocalDate::compareTo)
+                    .orElse(null);
+            if (newest == null) {
+                return;
+            }
+            long next = generation.incrementAndGet();
+            snapshot = new Snapshot(next, newest, false);
+            log.debug("Fecha de referencia adelantada a {}", newest);
+            return;
+        }
+        invalidate();
+    }
+
+    private LocalDate load() {
+        Object result = entityManager.createNativeQuery("SELECT MAX(date) FROM consultation").getSingleResult();
+        if (result == null) {
+            return null;
+        }
+        if (result instanceof LocalDate date) {
+            return date;
+        }
+        return ((java.sql.Date) result).toLocalDate();
+    }
+}
@@ -0,0 +1,54 @@
+package cl.sicc.siccapi.stats.service;
+
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Vacía los cachés de estadísticas afectados por una escritura.
+ *
+ * Corre después de los listeners que actualizan agregados, registro de crónicos y fecha de
+ * referencia, para que la siguiente lectura no vuelva a cachear datos desactualizados.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StatsCacheInvalidator {
+
+    /** Orden de los listeners que mantienen datos derivados; este invalidador corre después. */
+    public static final int DERIVED_DATA_ORDER = 0;
+
+    private final CacheManager cacheManager;
+
+    @Order(DERIVED_DATA_ORDER + 100)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDomainWrite(DomainWriteEvent event) {
+        List<String> names = StatsCaches.affectedBy(event.source());
+        for (String name : names) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+        log.debug("Cachés de estadísticas invalidados por {} {}: {}", event.source(), event.action(), names);
+    }
+
+    /**
+     * Vacía todos los cachés de estadísticas (tras reconstrucciones completas de datos derivados).
+     */
+    public void clearAll() {
+        for (String name : StatsCaches.names()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+}
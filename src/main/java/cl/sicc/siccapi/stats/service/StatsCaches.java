@@ -0,0 +1,122 @@
+package cl.sicc.siccapi.stats.service;
+
+import cl.sicc.siccapi.common.event.DomainWriteEvent.Source;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static cl.sicc.siccapi.common.event.DomainWriteEvent.Source.CIE10;
+import static cl.sicc.siccapi.common.event.DomainWriteEvent.Source.CONSULTATION;
+import static cl.sicc.siccapi.common.event.DomainWriteEvent.Source.DIAGNOSIS;
+import static cl.sicc.siccapi.common.event.DomainWriteEvent.Source.PATIENT;
+import static cl.sicc.siccapi.common.event.DomainWriteEvent.Source.PRESCRIPTION;
+import static cl.sicc.siccapi.common.event.DomainWriteEvent.Source.PROFESSIONAL;
+
+/**
+ * Nombres de los cachés de {@link StatsService} y las fuentes de escritura que los invalidan.
+ *
+ * Todos dependen de las consultas: además de sus propios datos, cualquier cambio de consulta
+ * puede mover la fecha de referencia que ancla las ventanas de tiempo. Los que muestran nombres o
+ * capítulos de diagnósticos dependen además del catálogo CIE-10, y los que muestran nombres de
+ * medicamentos del catálogo de medicamentos.
+ */
+public final class StatsCaches {
+
+    public static final String DASHBOARD = "stats-dashboard";
+    public static final String WEEKLY_TREND = "stats-weekly-trend";
+    public static final String MEDICATION = "stats-medication";
+    public static final String PATIENT_STATS = "stats-patient";
+    public static final String DIAGNOSIS_STATS = "stats-diagnosis";
+    public static final String SPECIALTY = "stats-specialty";
+    public static final String TOTAL_CONSULTATIONS = "stats-total-consultations";
+    public static final String CONSULTATIONS_BY_MONTH = "stats-consultations-by-month";
+    public static final String TOP_MEDICATIONS = "stats-top-medications";
+    public static final String PATIENTS_BY_FONASA = "stats-patients-by-fonasa";
+    public static final String PATIENTS_BY_AGE_AND_SEX = "stats-patients-by-age-and-sex";
+    public static final String CHRONIC_SUMMARY = "stats-chronic-summary";
+    public static final String CHRONIC_PATIENTS = "stats-chronic-patients";
+    public static final String PRESCRIPTION_DETAILS = "stats-prescription-details";
+    public static final String EMERGING_DIAGNOSES = "stats-emerging-diagnoses";
+    public static final String DISEASES_BY_FONASA = "stats-diseases-by-fonasa";
+    public static final String MEDICATIONS_BY_AGE_GROUP = "stats-medications-by-age-group";
+    public static final String DIAGNOSES_BY_SEX = "stats-diagnoses-by-sex";
+    public static final String DIAGNOSES_BY_FONASA = "stats-diagnoses-by-fonasa";
+    public static final String DIAGNOSES_BY_SPECIALTY = "stats-diagnoses-by-specialty";
+    public static final String DISEASES_BY_AGE_GROUP = "stats-diseases-by-age-group";
+    public static final String MEDICATION_FORECAST = "stats-medication-forecast";
+    public static final String DAILY_CONSULTATIONS = "stats-daily-consultations";
+    public static final String PROFESSIONAL_WORKLOAD = "stats-professional-workload";
+    public static final String SPECIALTY_WORKLOAD = "stats-specialty-workload";
+    public static final String DEMAND_PREDICTION = "stats-demand-prediction";
+    public static final String AI_ANALYSIS = "stats-ai-analysis";
+    public static final String REFERRALS = "stats-referrals";
+    public static final String CONSULTATIONS_BY_TYPE = "stats-consultations-by-type";
+    public static final String RESPIRATORY_TREND = "stats-respiratory-trend";
+    public static final String PRESCRIPTIONS_BY_AGE_GROUP = "stats-prescriptions-by-age-group";
+    public static final String PRESCRIPTION_WEEKLY_TREND = "stats-prescription-weekly-trend";
+    /** Cubos de {@link StatsPivotService}; cualquier dimensión puede venir de cualquier fuente. */
+    public static final String PIVOT = "stats-pivot";
+
+    private static final Map<String, Set<Source>> DEPENDENCIES = new LinkedHashMap<>();
+
+    static {
+        register(DASHBOARD, PATIENT, PRESCRIPTION);
+        register(WEEKLY_TREND);
+        register(MEDICATION, PRESCRIPTION, Source.MEDICATION);
+        register(PATIENT_STATS, PATIENT);
+        register(DIAGNOSIS_STATS, DIAGNOSIS, PROFESSIONAL, CIE10);
+        register(SPECIALTY, PROFESSIONAL);
+        register(TOTAL_CONSULTATIONS);
+        register(CONSULTATIONS_BY_MONTH);
+        register(TOP_MEDICATIONS, PRESCRIPTION, Source.MEDICATION);
+        register(PATIENTS_BY_FONASA, PATIENT);
+        register(PATIENTS_BY_AGE_AND_SEX, PATIENT);
+        register(CHRONIC_SUMMARY, DIAGNOSIS, PRESCRIPTION, PATIENT);
+        register(CHRONIC_PATIENTS, DIAGNOSIS, PATIENT);
+        register(PRESCRIPTION_DETAILS, PRESCRIPTION, PATIENT, PROFESSIONAL, DIAGNOSIS, CIE10, Source.MEDICATION);
+        register(EMERGING_DIAGNOSES, DIAGNOSIS, CIE10);
+        register(DISEASES_BY_FONASA, DIAGNOSIS, PATIENT, CIE10);
+        register(MEDICATIONS_BY_AGE_GROUP, PRESCRIPTION, PATIENT, Source.MEDICATION);
+        register(DIAGNOSES_BY_SEX, DIAGNOSIS, PATIENT, CIE10);
+        register(DIAGNOSES_BY_FONASA, DIAGNOSIS, PATIENT, CIE10);
+        register(DIAGNOSES_BY_SPECIALTY, DIAGNOSIS, PROFESSIONAL, CIE10);
+        register(DISEASES_BY_AGE_GROUP, DIAGNOSIS, PATIENT, CIE10);
+        register(MEDICATION_FORECAST, PRESCRIPTION, Source.MEDICATION);
+        register(DAILY_CONSULTATIONS, PROFESSIONAL);
+        register(PROFESSIONAL_WORKLOAD, PROFESSIONAL);
+        register(SPECIALTY_WORKLOAD, PROFESSIONAL);
+        register(DEMAND_PREDICTION, Source.values());
+        register(AI_ANALYSIS, Source.values());
+        register(REFERRALS, Source.values());
+        register(CONSULTATIONS_BY_TYPE);
+        register(RESPIRATORY_TREND, DIAGNOSIS, CIE10);
+        register(PRESCRIPTIONS_BY_AGE_GROUP, PRESCRIPTION, PATIENT, Source.MEDICATION);
+        register(PRESCRIPTION_WEEKLY_TREND, PRESCRIPTION);
+        register(PIVOT, Source.values());
+    }
+
+    private StatsCaches() {
+    }
+
+    public static List<String> names() {
+        return List.copyOf(DEPENDENCIES.keySet());
+    }
+
+    /**
+     * Cachés que deben invalidarse cuando cambia la fuente indicada.
+     */
+    public static List<String> affectedBy(Source source) {
+        return DEPENDENCIES.entrySet().stream()
+                .filter(entry -> entry.getValue().contains(source))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static void register(String name, Source... sources) {
+        Set<Source> dependsOn = EnumSet.of(CONSULTATION, sources);
+        DEPENDENCIES.put(name, dependsOn);
+    }
+}
@@ -0,0 +1,54 @@
+package cl.sicc.siccapi.stats.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.IsoFields;
+import java.util.Locale;
+
+/**
+ * Agrupación temporal de las series de estadísticas.
+ */
+public enum StatsGranularity {
+
+    DAY("YYYY-MM-DD"),
+    /** Semana ISO, p. ej. {@code 2025-W07}. */
+    WEEK("IYYY-\"W\"IW"),
+    MONTH("YYYY-MM");
+
+    private final String pattern;
+
+    StatsGranularity(String pattern) {
+        this.pattern = pattern;
+    }
+
+    /**
+     * Expresión SQL con la etiqueta del periodo al que pertenece la fecha. Las etiquetas ordenan
+     * cronológicamente como texto. El patrón sale de esta enumeración, nunca de la petición.
+     */
+    public String label(String dateColumn) {
+        return "TO_CHAR(" + dateColumn + ", '" + pattern + "')";
+    }
+
+    /**
+     * La misma etiqueta que {@link #label(String)} calculada en Java, para el backend en memoria.
+     */
+    public String label(LocalDate date) {
+        return switch (this) {
+            case DAY -> date.toString();
+            case WEEK -> String.format(Locale.ROOT, "%04d-W%02d",
+                    date.get(IsoFields.WEEK_BASED_YEAR), date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            case MONTH -> YearMonth.from(date).toString();
+        };
+    }
+
+    /**
+     * Acepta el nombre sin distinguir mayúsculas ({@code day}, {@code week}, {@code month}).
+     */
+    public static StatsGranularity from(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Granularidad no válida: " + value + " (day, week o month)");
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package cl.sicc.siccapi.stats.service;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Periodo pedido por el cliente de un endpoint de estadísticas ({@code ?from=&to=&granularity=}).
+ *
+ * {@code from} y {@code to} son días inclusive; los que falten se toman de la ventana por defecto
+ * de cada estadística (normalmente relativa a la fecha de referencia). Al ser un record sirve
+ * directamente como clave de caché.
+ */
+public record StatsPeriod(
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        StatsGranularity granularity) {
+
+    /** Sin parámetros: ventanas y granularidad por defecto de cada estadística. */
+    public static final StatsPeriod DEFAULT = new StatsPeriod(null, null, null);
+
+    public boolean hasRange() {
+        return from != null || to != null;
+    }
+
+    /**
+     * Ventana semiabierta equivalente, completando los extremos ausentes con {@code defaultWindow}.
+     */
+    public StatsWindow window(StatsWindow defaultWindow) {
+        if (!hasRange()) {
+            return defaultWindow;
+        }
+        LocalDate start = from != null ? from : defaultWindow.from();
+        LocalDate end = to != null ? to.plusDays(1) : defaultWindow.to();
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("Rango de fechas inválido: from debe ser anterior o igual a to");
+        }
+        return new StatsWindow(start, end);
+    }
+
+    public StatsGranularity granularity(StatsGranularity defaultGranularity) {
+        return granularity != null ? granularity : defaultGranularity;
+    }
+}
@@ -0,0 +1,391 @@
+package cl.sicc.siccapi.stats.service;
+
+import cl.sicc.siccapi.stats.dto.PivotDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tablas dinámicas de estadísticas: una métrica ({@link PivotMeasure}) desglosada por hasta
+ * {@value #MAX_DIMENSIONS} dimensiones ({@link PivotDimension}) en filas y columnas, con filtros
+ * por valor y la ventana de {@link StatsPeriod}.
+ *
+ * Cada petición se resuelve con una única consulta agrupada. Si todas las dimensiones (incluidas
+ * las de los filtros) están en la tabla de agregados diarios de la métrica, se lee de ella; si no,
+ * de las tablas base con sólo los JOIN que las dimensiones necesitan.
+ *
+ * El resultado agrupado ("cubo") se guarda en el caché {@link StatsCaches#PIVOT} por métrica,
+ * conjunto de dimensiones, filtros y ventana: la misma combinación con filas y columnas
+ * intercambiadas, o pedida por los desgloses de {@link StatsService}, reutiliza la misma entrada.
+ * Los desgloses piden sólo sus celdas mayores ({@link #top}): el {@code ORDER BY ... LIMIT} va en
+ * la consulta, así que ni la transferencia ni el caché crecen con los valores distintos de la
+ * dimensión (p. ej. las descripciones libres de los diagnósticos).
+ */
+@Service
+public class StatsPivotService {
+
+    static final int MAX_DIMENSIONS = 4;
+
+    /**
+     * Clave del cubo. Las dimensiones van en orden de la enumeración y los valores de filtro
+     * ordenados, para que peticiones equivalentes compartan entrada; la granularidad y la fecha de
+     * referencia sólo forman parte de la clave si alguna dimensión las usa. {@code limit} nulo es
+     * el cubo completo.
+     */
+    record CubeKey(PivotMeasure measure, Set<PivotDimension> dimensions, Map<PivotDimension, Set<String>> filters,
+                   StatsWindow window, StatsGranularity granularity, LocalDate referenceDate, Integer limit) {
+    }
+
+    /**
+     * Resultado agrupado: una celda por combinación de valores con datos, con las claves en el
+     * orden de {@code dimensions}.
+     */
+    record Cube(List<PivotDimension> dimensions, List<Cell> cells, boolean fromRollups) {
+
+        record Cell(List<String> key, long value) {
+        }
+
+        int position(PivotDimension dimension) {
+            return dimensions.indexOf(dimension);
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ReferenceDateService referenceDateService;
+    private final CacheManager cacheManager;
+
+    public StatsPivotService(ReferenceDateService referenceDateService, CacheManager cacheManager) {
+        this.referenceDateService = referenceDateService;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * @param filters {@code dimension:valor1|valor2}, uno por dimensión
+     */
+    public PivotDto pivot(String measure, List<String> rows, List<String> cols, List<String> filters,
+                          StatsPeriod period) {
+        PivotMeasure pivotMeasure = PivotMeasure.from(measure);
+        List<PivotDimension> rowDimensions = parseDimensions(rows);
+        List<PivotDimension> colDimensions = parseDimensions(cols);
+        Set<PivotDimension> dimensions = EnumSet.noneOf(PivotDimension.class);
+        for (PivotDimension dimension : concat(rowDimensions, colDimensions)) {
+            if (!dimensions.add(dimension)) {
+                throw new IllegalArgumentException("Dimensión repetida: " + name(dimension));
+            }
+        }
+        if (dimensions.size() > MAX_DIMENSIONS) {
+            throw new IllegalArgumentException("A lo más " + MAX_DIMENSIONS + " dimensiones entre filas y columnas");
+        }
+
+        Cube cube = cube(pivotMeasure, dimensions, parseFilters(filters), period, null);
+        return layout(pivotMeasure, cube, rowDimensions, colDimensions);
+    }
+
+    /**
+     * Las {@code limit} celdas de mayor valor, de mayor a menor, sobre la ventana del periodo
+     * (histórico completo si no trae rango).
+     */
+    Cube top(PivotMeasure measure, Collection<PivotDimension> dimensions, int limit, StatsPeriod period) {
+        return top(measure, dimensions, Map.of(), limit, period);
+    }
+
+    /**
+     * Como {@link #top(PivotMeasure, Collection, int, StatsPeriod)}, sólo con las filas cuyos valores
+     * están en {@code filters}.
+     */
+    Cube top(PivotMeasure measure, Collection<PivotDimension> dimensions, Map<PivotDimension, Set<String>> filters,
+             int limit, StatsPeriod period) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("El límite debe ser positivo: " + limit);
+        }
+        return cube(measure, EnumSet.copyOf(dimensions), filters, period, limit);
+    }
+
+    private Cube cube(PivotMeasure measure, Set<PivotDimension> dimensions, Map<PivotDimension, Set<String>> filters,
+                      StatsPeriod period, Integer limit) {
+        Set<PivotDimension> used = EnumSet.noneOf(PivotDimension.class);
+        used.addAll(dimensions);
+        used.addAll(filters.keySet());
+        for (PivotDimension dimension : used) {
+            if (!measure.aliases.contains(dimension.alias)) {
+                throw new IllegalArgumentException("La dimensión " + name(dimension) + " no aplica a la métrica "
+                        + measure.name().toLowerCase(Locale.ROOT));
+            }
+        }
+        CubeKey key = new CubeKey(measure, Set.copyOf(dimensions), Map.copyOf(filters),
+                period.window(StatsWindow.unbounded()),
+                used.contains(PivotDimension.PERIOD) ? period.granularity(StatsGranularity.MONTH) : null,
+                used.contains(PivotDimension.AGE_GROUP) ? referenceDateService.getReferenceDate() : null,
+                limit);
+
+        Cache cache = cacheManager.getCache(StatsCaches.PIVOT);
+        // get(key, loader) carga una sola vez por clave aunque lleguen peticiones concurrentes
+        return cache != null ? cache.get(key, () -> load(key)) : load(key);
+    }
+
+    private Cube load(CubeKey key) {
+        List<PivotDimension> dimensions = new ArrayList<>(new TreeSet<>(key.dimensions()));
+        PivotMeasure measure = key.measure();
+        boolean fromRollups = used(key).stream()
+                .allMatch(d -> d.factColumn != null && measure.factColumns.contains(d.factColumn));
+
+        Query query = entityManager.createNativeQuery(compile(key, dimensions, fromRollups));
+        if (!key.window().isUnbounded()) {
+            query.setParameter("windowFrom", key.window().from());
+            query.setParameter("windowTo", key.window().to());
+        }
+        if (key.referenceDate() != null) {
+            query.setParameter("refDate", key.referenceDate());
+        }
+        int parameter = 0;
+        for (PivotDimension dimension : key.filters().keySet().stream().sorted().toList()) {
+            query.setParameter("f" + parameter++, List.copyOf(key.filters().get(dimension)));
+        }
+        if (key.limit() != null) {
+            query.setParameter("limit", key.limit());
+        }
+        @SuppressWarnings("unchecked")
+        List<Object> results = query.getResultList();
+
+        List<Cube.Cell> cells = new ArrayList<>(results.size());
+        for (Object result : results) {
+            if (dimensions.isEmpty()) {
+                cells.add(new Cube.Cell(List.of(), ((Number) result).longValue()));
+                continue;
+            }
+            Object[] row = (Object[]) result;
+            List<String> cellKey = new ArrayList<>(dimensions.size());
+            for (int i = 0; i < dimensions.size(); i++) {
+                cellKey.add(row[i] != null ? row[i].toString() : null);
+            }
+            Number value = (Number) row[dimensions.size()];
+            cells.add(new Cube.Cell(cellKey, value != null ? value.longValue() : 0));
+        }
+        return new Cube(List.copyOf(dimensions), cells, fromRollups);
+    }
+
+    /**
+     * SELECT agrupado. Los valores de filtro se enlazan como {@code :f0}, {@code :f1}, ... en el
+     * orden de la enumeración; la ventana siempre sobre la columna de fecha sin transformar. Con
+     * límite, las celdas se ordenan por la métrica y se cortan en {@code :limit}.
+     */
+    private static String compile(CubeKey key, List<PivotDimension> dimensions, boolean fromRollups) {
+        PivotMeasure measure = key.measure();
+        String dateColumn = fromRollups ? "f.date" : measure.dateColumn;
+
+        List<String> select = new ArrayList<>();
+        for (PivotDimension dimension : dimensions) {
+            select.add(expression(dimension, key, fromRollups, dateColumn));
+        }
+        select.add(fromRollups ? measure.factAggregate : measure.aggregate);
+
+        // Los JOIN en orden fijo y sin repetir, sólo los de las dimensiones usadas
+        Set<PivotDimension.Join> joins = EnumSet.noneOf(PivotDimension.Join.class);
+        for (PivotDimension dimension : used(key)) {
+            PivotDimension.Join join = fromRollups ? dimension.factJoin : dimension.join;
+            for (; join != null; join = join.requires) {
+                joins.add(join);
+            }
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", select)).append('\n');
+        sql.append(fromRollups ? "FROM " + measure.factTable + " f" : measure.from).append('\n');
+        for (PivotDimension.Join join : joins) {
+            sql.append(fromRollups ? join.factSql : join.sql).append('\n');
+        }
+        if (key.window().isUnbounded()) {
+            // Histórico completo: sin condición de fecha, para contar también los registros sin fecha
+            sql.append("WHERE TRUE");
+        } else {
+            sql.append("WHERE ").append(dateColumn).append(" >= :windowFrom AND ").append(dateColumn).append(" < :windowTo");
+        }
+        int parameter = 0;
+        for (PivotDimension dimension : key.filters().keySet().stream().sorted().toList()) {
+            sql.append("\n  AND ").append(expression(dimension, key, fromRollups, dateColumn))
+                    .append(" IN (:f").append(parameter++).append(')');
+        }
+        if (!dimensions.isEmpty()) {
+            // Por posición: repetir las expresiones duplicaría :refDate (ver StatsService)
+            sql.append("\nGROUP BY ").append(IntStream.rangeClosed(1, dimensions.size())
+                    .mapToObj(String::valueOf)
+                    .collect(Collectors.joining(", ")));
+        }
+        if (key.limit() != null) {
+            sql.append("\nORDER BY ").append(dimensions.size() + 1).append(" DESC\nLIMIT :limit");
+        }
+        return sql.toString();
+    }
+
+    private static Set<PivotDimension> used(CubeKey key) {
+        Set<PivotDimension> used = EnumSet.noneOf(PivotDimension.class);
+        used.addAll(key.dimensions());
+        used.addAll(key.filters().keySet());
+        return used;
+    }
+
+    private static String expression(PivotDimension dimension, CubeKey key, boolean fromRollups, String dateColumn) {
+        if (dimension == PivotDimension.PERIOD) {
+            return key.granularity().label(dateColumn);
+        }
+        return fromRollups ? dimension.factExpression : dimension.expression;
+    }
+
+    /**
+     * Reparte el cubo en filas y columnas. Las dimensiones ordinales (tramo etario, periodo) van en
+     * su orden; las demás de mayor a menor total.
+     */
+    private static PivotDto layout(PivotMeasure measure, Cube cube, List<PivotDimension> rowDimensions,
+                                   List<PivotDimension> colDimensions) {
+        Map<PivotDimension, Comparator<String>> order = new EnumMap<>(PivotDimension.class);
+        for (PivotDimension dimension : cube.dimensions()) {
+            order.put(dimension, valueOrder(cube, dimension));
+        }
+        int[] rowPositions = rowDimensions.stream().mapToInt(cube::position).toArray();
+        int[] colPositions = colDimensions.stream().mapToInt(cube::position).toArray();
+
+        Map<List<String>, Map<List<String>, Long>> matrix = new HashMap<>();
+        Set<List<String>> rowKeySet = new LinkedHashSet<>();
+        Set<List<String>> colKeySet = new LinkedHashSet<>();
+        for (Cube.Cell cell : cube.cells()) {
+            List<String> rowKey = project(cell.key(), rowPositions);
+            List<String> colKey = project(cell.key(), colPositions);
+            rowKeySet.add(rowKey);
+            colKeySet.add(colKey);
+            matrix.computeIfAbsent(rowKey, k -> new HashMap<>()).merge(colKey, cell.value(), Long::sum);
+        }
+        List<List<String>> rowKeys = sortKeys(rowKeySet, rowDimensions, order);
+        List<List<String>> colKeys = sortKeys(colKeySet, colDimensions, order);
+
+        List<List<Long>> values = new ArrayList<>(rowKeys.size());
+        long[] colTotals = new long[colKeys.size()];
+        List<Long> rowTotals = new ArrayList<>(rowKeys.size());
+        long total = 0;
+        for (List<String> rowKey : rowKeys) {
+            Map<List<String>, Long> row = matrix.getOrDefault(rowKey, Map.of());
+            List<Long> rowValues = new ArrayList<>(colKeys.size());
+            long rowTotal = 0;
+            for (int j = 0; j < colKeys.size(); j++) {
+                long value = row.getOrDefault(colKeys.get(j), 0L);
+                rowValues.add(value);
+                rowTotal += value;
+                colTotals[j] += value;
+            }
+            values.add(rowValues);
+            rowTotals.add(rowTotal);
+            total += rowTotal;
+        }
+
+        return new PivotDto(measure.name().toLowerCase(Locale.ROOT), names(rowDimensions), names(colDimensions),
+                rowKeys, colKeys, values, rowTotals, Arrays.stream(colTotals).boxed().toList(), total,
+                cube.fromRollups());
+    }
+
+    private static Comparator<String> valueOrder(Cube cube, PivotDimension dimension) {
+        if (dimension == PivotDimension.AGE_GROUP) {
+            return Comparator.comparingInt(value -> {
+                int rank = PivotDimension.AGE_GROUPS.indexOf(value);
+                return rank >= 0 ? rank : Integer.MAX_VALUE;
+            });
+        }
+        if (dimension == PivotDimension.PERIOD) {
+            // Las etiquetas de periodo ordenan cronológicamente como texto
+            return Comparator.nullsLast(Comparator.naturalOrder());
+        }
+        int position = cube.position(dimension);
+        Map<String, Long> totals = new HashMap<>();
+        for (Cube.Cell cell : cube.cells()) {
+            totals.merge(cell.key().get(position), cell.value(), Long::sum);
+        }
+        Comparator<String> byTotal = Comparator.comparing(value -> -totals.getOrDefault(value, 0L));
+        return byTotal.thenComparing(Comparator.nullsLast(Comparator.naturalOrder()));
+    }
+
+    private static List<List<String>> sortKeys(Collection<List<String>> keys, List<PivotDimension> dimensions,
+                                               Map<PivotDimension, Comparator<String>> order) {
+        Comparator<List<String>> comparator = (a, b) -> 0;
+        for (int i = 0; i < dimensions.size(); i++) {
+            int index = i;
+            Comparator<String> valueOrder = order.get(dimensions.get(i));
+            comparator = comparator.thenComparing(key -> key.get(index), valueOrder);
+        }
+        List<List<String>> sorted = new ArrayList<>(keys);
+        sorted.sort(comparator);
+        return sorted;
+    }
+
+    private static List<String> project(List<String> key, int[] positions) {
+        List<String> projected = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            projected.add(key.get(position));
+        }
+        return projected;
+    }
+
+    private static List<PivotDimension> parseDimensions(List<String> names) {
+        if (names == null) {
+            return List.of();
+        }
+        return names.stream()
+                .filter(name -> !name.isBlank())
+                .map(PivotDimension::from)
+                .toList();
+    }
+
+    private static Map<PivotDimension, Set<String>> parseFilters(List<String> filters) {
+        Map<PivotDimension, Set<String>> parsed = new EnumMap<>(PivotDimension.class);
+        if (filters == null) {
+            return parsed;
+        }
+        for (String filter : filters) {
+            if (filter.isBlank()) {
+                continue;
+            }
+            int separator = filter.indexOf(':');
+            if (separator <= 0 || separator == filter.length() - 1) {
+                throw new IllegalArgumentException("Filtro no válido: " + filter + " (dimension:valor1|valor2)");
+            }
+            PivotDimension dimension = PivotDimension.from(filter.substring(0, separator));
+            Set<String> values = new TreeSet<>(List.of(filter.substring(separator + 1).split("\\|")));
+            if (parsed.put(dimension, values) != null) {
+                throw new IllegalArgumentException("Filtro repetido: " + name(dimension));
+            }
+        }
+        return parsed;
+    }
+
+    private static List<String> names(List<PivotDimension> dimensions) {
+        return dimensions.stream().map(StatsPivotService::name).toList();
+    }
+
+    private static String name(PivotDimension dimension) {
+        return dimension.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static <T> List<T> concat(List<T> first, List<T> second) {
+        List<T> all = new ArrayList<>(first);
+        all.addAll(second);
+        return all;
+    }
+}
@@ -0,0 +1,169 @@
+package cl.sicc.siccapi.stats.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta en paralelo las sub-consultas independientes de los métodos compuestos de estadísticas
+ * (dashboard, pacientes, diagnósticos, datos para IA).
+ *
+ * Cada sub-consulta corre en su propia transacción de sólo lectura (y por lo tanto con su propia
+ * conexión), con timeout de consulta, y registra su duración en el timer {@code stats.subquery}
+ * etiquetado por nombre y resultado. Usa hilos virtuales cuando la JVM los ofrece; la
+ * concurrencia queda acotada por {@code stats.parallel.max-concurrency} para no agotar el pool
+ * de conexiones. Con {@code stats.parallel.enabled=false} las sub-consultas corren en el hilo
+ * llamador, una tras otra.
+ */
+@Slf4j
+@Component
+public class StatsQueryExecutor {
+
+    private static final ThreadLocal<Boolean> IN_WORKER = ThreadLocal.withInitial(() -> false);
+
+    private final int timeoutSeconds;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final TransactionTemplate readOnlyTemplate;
+    private final MeterRegistry meterRegistry;
+
+    public StatsQueryExecutor(PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${stats.parallel.enabled:true}") boolean enabled,
+                              @Value("${stats.parallel.max-concurrency:4}") int maxConcurrency,
+                              @Value("${stats.parallel.query-timeout-seconds:15}") int timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+        this.meterRegistry = meterRegistry;
+        this.permits = new Semaphore(maxConcurrency);
+        this.executor = enabled ? createExecutor(maxConcurrency) : null;
+
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+        this.readOnlyTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTemplate.setTimeout(timeoutSeconds);
+    }
+
+    /**
+     * Lanza una sub-consulta. El resultado se obtiene con {@link #join(CompletableFuture)}.
+     */
+    public <T> CompletableFuture<T> submit(String name, Supplier<T> query) {
+        // Sin paralelismo, o ya dentro de un worker (evita esperar permisos que uno mismo retiene)
+        if (executor == null || IN_WORKER.get()) {
+            try {
+                return CompletableFuture.completedFuture(timed(name, query));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> runInWorker(name, query), executor)
+                .orTimeout(timeoutSeconds + 1L, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Espera el resultado de una sub-consulta, traduciendo timeouts y errores.
+     */
+    public <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Consulta estadística interrumpida");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof TimeoutException
+                    || cause instanceof QueryTimeoutException
+                    || cause instanceof TransactionTimedOutException) {
+                throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Timeout en consulta estadística");
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private <T> T runInWorker(String name, Supplier<T> query) {
+        IN_WORKER.set(true);
+        try {
+            permits.acquire();
+            try {
+                return timed(name, query);
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } finally {
+            IN_WORKER.set(false);
+        }
+    }
+
+    private <T> T timed(String name, Supplier<T> query) {
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            return readOnlyTemplate.execute(status -> query.get());
+        } catch (RuntimeException e) {
+            outcome = "error";
+            log.warn("Sub-consulta {} falló: {}", name, e.getMessage());
+            throw e;
+        } finally {
+            Timer.builder("stats.subquery")
+                    .description("Duración de las sub-consultas de estadísticas")
+                    .tag("query", name)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Hilos virtuales si la JVM los soporta (Java 21+); si no, un pool fijo de hilos daemon.
+     */
+    private static ExecutorService createExecutor(int maxConcurrency) {
+        try {
+            ExecutorService virtual = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            log.info("Sub-consultas de estadísticas sobre hilos virtuales (máx. {} concurrentes)", maxConcurrency);
+            return virtual;
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            log.info("Sub-consultas de estadísticas sobre pool de {} hilos", maxConcurrency);
+            return Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+                Thread thread = new Thread(runnable, "stats-query-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
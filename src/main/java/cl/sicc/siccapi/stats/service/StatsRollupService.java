@@ -0,0 +1,358 @@
+package cl.sicc.siccapi.stats.service;
+
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import cl.sicc.siccapi.stats.dto.RollupConsistencyDto;
+import cl.sicc.siccapi.stats.dto.RollupMismatchDto;
+import cl.sicc.siccapi.stats.dto.RollupRebuildDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Mantiene las tablas de agregados diarios (*_daily_fact) que alimentan los dashboards.
+ *
+ * Cada escritura de consulta, diagnóstico, receta, paciente o profesional publica un
+ * {@link DomainWriteEvent}; tras el commit se recalculan sólo los días afectados
+ * (DELETE + INSERT ... SELECT agrupado por día y dimensiones). Una reconstrucción completa y
+ * un chequeo de consistencia contra las tablas base quedan disponibles para operación.
+ *
+ * Las tablas de agregados no tienen clave: dos recálculos concurrentes del mismo día podrían
+ * borrar ambos antes de que el otro inserte y dejar el día duplicado. En PostgreSQL cada
+ * recálculo toma un advisory lock de transacción por día (en orden, para no bloquearse entre sí)
+ * y uno compartido global, que la reconstrucción completa toma en exclusiva.
+ */
+@Slf4j
+@Service
+public class StatsRollupService {
+
+    /** Tamaño máximo de la lista de días enlazada en un único IN (...). */
+    private static final int DAY_CHUNK = 500;
+
+    /** Espacio de advisory locks de los agregados ("STAT"); el segundo entero es el día o una clave especial. */
+    private static final int LOCK_CLASS = 0x53544154;
+    private static final int LOCK_ALL_DAYS = Integer.MIN_VALUE;
+    private static final int LOCK_UNDATED = Integer.MIN_VALUE + 1;
+
+    private static final List<FactTable> FACT_TABLES = List.of(
+            new FactTable("consultation_daily_fact",
+                    "date, professional_id, specialty, type, sex, fonasa_tier, age_bucket, consultations",
+                    "c.date",
+                    """
+                    SELECT c.date, c.professional_id, hp.specialty, c.type, p.sex, p.fonasa_tier,
+                           %s, COUNT(*)
+                    FROM consultation c
+                    JOIN patient p ON c.patient_id = p.id
+                    LEFT JOIN healthcare_professional hp ON c.professional_id = hp.id
+                    WHERE %%s
+                    GROUP BY 1, 2, 3, 4, 5, 6, 7
+                    """.formatted(ageBucket("c.date"))),
+            new FactTable("diagnosis_daily_fact",
+                    "date, specialty, cie10_code, sex, fonasa_tier, age_bucket, diagnoses",
+                    "c.date",
+                    """
+                    SELECT c.date, hp.specialty, d.cie10_code, p.sex, p.fonasa_tier,
+                           %s, COUNT(*)
+                    FROM diagnosis d
+                    JOIN consultation c ON d.consultation_id = c.id
+                    JOIN patient p ON c.patient_id = p.id
+                    LEFT JOIN healthcare_professional hp ON c.professional_id = hp.id
+                    WHERE %%s
+                    GROUP BY 1, 2, 3, 4, 5, 6
+                    """.formatted(ageBucket("c.date"))),
+            new FactTable("prescription_daily_fact",
+                    "date, specialty, sex, fonasa_tier, age_bucket, prescriptions",
+                    "pr.date",
+                    """
+                    SELECT pr.date, hp.specialty, p.sex, p.fonasa_tier,
+                           %s, COUNT(*)
+                    FROM prescription pr
+                    JOIN consultation c ON pr.consultation_id = c.id
+                    JOIN patient p ON c.patient_id = p.id
+                    LEFT JOIN healthcare_professional hp ON c.professional_id = hp.id
+                    WHERE %%s
+                    GROUP BY 1, 2, 3, 4, 5
+                    """.formatted(ageBucket("pr.date"))),
+            new FactTable("medication_daily_fact",
+                    "date, medication_id, sex, fonasa_tier, age_bucket, prescription_lines, units",
+                    "pr.date",
+                    """
+                    SELECT pr.date, pm.medication_id, p.sex, p.fonasa_tier,
+                           %s, COUNT(*), COALESCE(SUM(pm.quantity), 0)
+                    FROM prescription_medication pm
+                    JOIN prescription pr ON pm.prescription_id = pr.id
+                    JOIN consultation c ON pr.consultation_id = c.id
+                    JOIN patient p ON c.patient_id = p.id
+                    WHERE %%s
+                    GROUP BY 1, 2, 3, 4, 5
+                    """.formatted(ageBucket("pr.date"))));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final StatsCacheInvalidator statsCacheInvalidator;
+    private final ColumnarFactStore columnarFactStore;
+
+    @Value("${stats.rollup.rebuild-if-empty:true}")
+    private boolean rebuildIfEmpty;
+
+    private volatile Boolean advisoryLocks;
+
+    public StatsRollupService(PlatformTransactionManager transactionManager,
+                              StatsCacheInvalidator statsCacheInvalidator,
+                              ColumnarFactStore columnarFactStore) {
+        this.statsCacheInvalidator = statsCacheInvalidator;
+        this.columnarFactStore = columnarFactStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Recalcula los días afectados por una escritura. Se ejecuta después del commit en su propia
+     * transacción; un fallo aquí no revierte la escritura original y se corrige con
+     * {@link #rebuildAll()}. Con los agregados ya confirmados se actualiza el backend en memoria.
+     */
+    @Order(StatsCacheInvalidator.DERIVED_DATA_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDomainWrite(DomainWriteEvent event) {
+        try {
+            Set<LocalDate> days = transactionTemplate.execute(status -> {
+                Set<LocalDate> resolved = resolveDays(event);
+                refreshDays(resolved);
+                return resolved;
+            });
+            columnarFactStore.refreshDays(days);
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron actualizar los agregados diarios para {} {} {}: {}",
+                    event.source(), event.action(), event.entityId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Al iniciar, reconstruye los agregados si las tablas están vacías pero ya existen consultas
+     * (por ejemplo, la primera vez que se despliega esta migración sobre una base con datos).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (!rebuildIfEmpty) {
+            return;
+        }
+        try {
+            long facts = count("SELECT COUNT(*) FROM consultation_daily_fact");
+            long consultations = count("SELECT COUNT(*) FROM consultation");
+            if (facts == 0 && consultations > 0) {
+                log.info("Agregados diarios vacíos con {} consultas existentes, reconstruyendo...", consultations);
+                rebuildAll();
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudo verificar el estado de los agregados diarios: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstruye todas las tablas de agregados desde las tablas base en una sola transacción.
+     */
+    public RollupRebuildDto rebuildAll() {
+        long start = System.currentTimeMillis();
+        List<Long> rows = transactionTemplate.execute(status -> {
+            List<Long> inserted = new ArrayList<>();
+            if (supportsAdvisoryLocks()) {
+                lock("pg_advisory_xact_lock", LOCK_ALL_DAYS);
+            }
+            for (FactTable table : FACT_TABLES) {
+                entityManager.createNativeQuery("DELETE FROM " + table.name()).executeUpdate();
+                inserted.add((long) entityManager.createNativeQuery(table.insertSql("1 = 1")).executeUpdate());
+            }
+            return inserted;
+        });
+        columnarFactStore.reload();
+        statsCacheInvalidator.clearAll();
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("Agregados diarios reconstruidos en {} ms: {}", elapsed, rows);
+        return new RollupRebuildDto(rows.get(0), rows.get(1), rows.get(2), rows.get(3), elapsed);
+    }
+
+    /**
+     * Compara cada tabla de agregados con el recálculo desde las tablas base y reporta, por día,
+     * cuántas filas difieren (en cualquiera de las dos direcciones).
+     */
+    public RollupConsistencyDto checkConsistency() {
+        List<RollupMismatchDto> mismatches = new ArrayList<>();
+        for (FactTable table : FACT_TABLES) {
+            String sql = """
+                    WITH expected AS (%s),
+                    actual AS (SELECT %s FROM %s),
+                    diff AS (
+                        (SELECT * FROM expected EXCEPT ALL SELECT * FROM actual)
+                        UNION ALL
+                        (SELECT * FROM actual EXCEPT ALL SELECT * FROM expected)
+                    )
+                    SELECT diff.date, COUNT(*)
+                    FROM diff
+                    GROUP BY diff.date
+                    ORDER BY diff.date
+                    """.formatted(table.selectSql("1 = 1"), table.columns(), table.name());
+            Query query = entityManager.createNativeQuery(sql);
+            @SuppressWarnings("unchecked")
+            List<Object[]> results = query.getResultList();
+            for (Object[] row : results) {
+                mismatches.add(new RollupMismatchDto(table.name(), toLocalDate(row[0]),
+                        ((Number) row[1]).longValue()));
+            }
+        }
+        return new RollupConsistencyDto(mismatches.isEmpty(), mismatches);
+    }
+
+    private Set<LocalDate> resolveDays(DomainWriteEvent event) {
+        Set<LocalDate> days = new HashSet<>(event.affectedDates());
+        switch (event.source()) {
+            case PATIENT -> {
+                if (!event.patientIds().isEmpty()) {
+                    days.addAll(findDays("c.patient_id IN (:ids)", event.patientIds()));
+                }
+            }
+            case PROFESSIONAL -> {
+                if (event.entityId() != null) {
+                    days.addAll(findDays("c.professional_id IN (:ids)", List.of(event.entityId())));
+                }
+            }
+            default -> {
+            }
+        }
+        return days;
+    }
+
+    private Set<LocalDate> findDays(String predicate, Collection<?> ids) {
+        String sql = """
+                SELECT c.date FROM consultation c WHERE %1$s
+                UNION
+                SELECT pr.date FROM prescription pr
+                JOIN consultation c ON pr.consultation_id = c.id
+                WHERE %1$s
+                """.formatted(predicate);
+        Query query = entityManager.createNativeQuery(sql);
+        query.setParameter("ids", ids);
+        Set<LocalDate> days = new HashSet<>();
+        for (Object value : query.getResultList()) {
+            days.add(toLocalDate(value));
+        }
+        return days;
+    }
+
+    private void refreshDays(Set<LocalDate> days) {
+        if (days.isEmpty()) {
+            return;
+        }
+        List<LocalDate> dated = days.stream().filter(Objects::nonNull).sorted().toList();
+        if (supportsAdvisoryLocks()) {
+            lock("pg_advisory_xact_lock_shared", LOCK_ALL_DAYS);
+            if (days.contains(null)) {
+                lock("pg_advisory_xact_lock", LOCK_UNDATED);
+            }
+            for (LocalDate day : dated) {
+                lock("pg_advisory_xact_lock", Math.toIntExact(day.toEpochDay()));
+            }
+        }
+        for (int from = 0; from < dated.size(); from += DAY_CHUNK) {
+            List<LocalDate> chunk = dated.subList(from, Math.min(from + DAY_CHUNK, dated.size()));
+            for (FactTable table : FACT_TABLES) {
+                entityManager.createNativeQuery("DELETE FROM " + table.name() + " WHERE date IN (:days)")
+                        .setParameter("days", chunk)
+                        .executeUpdate();
+                entityManager.createNativeQuery(table.insertSql(table.dateColumn() + " IN (:days)"))
+                        .setParameter("days", chunk)
+                        .executeUpdate();
+            }
+        }
+        if (days.contains(null)) {
+            for (FactTable table : FACT_TABLES) {
+                entityManager.createNativeQuery("DELETE FROM " + table.name() + " WHERE date IS NULL")
+                        .executeUpdate();
+                entityManager.createNativeQuery(table.insertSql(table.dateColumn() + " IS NULL"))
+                        .executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Advisory lock de la transacción actual; se libera en su commit o rollback.
+     */
+    private void lock(String function, int key) {
+        entityManager.createNativeQuery("SELECT " + function + "(:lockClass, :key)")
+                .setParameter("lockClass", LOCK_CLASS)
+                .setParameter("key", key)
+                .getSingleResult();
+    }
+
+    private boolean supportsAdvisoryLocks() {
+        if (advisoryLocks == null) {
+            advisoryLocks = entityManager.unwrap(Session.class)
+                    .doReturningWork(connection -> connection.isWrapperFor(PGConnection.class));
+        }
+        return advisoryLocks;
+    }
+
+    private long count(String sql) {
+        return ((Number) entityManager.createNativeQuery(sql).getSingleResult()).longValue();
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof LocalDate date) {
+            return date;
+        }
+        return ((java.sql.Date) value).toLocalDate();
+    }
+
+    /**
+     * Tramo etario a la fecha del evento, con los mismos cortes que getPatientsByAge.
+     */
+    private static String ageBucket(String dateColumn) {
+        return """
+                CASE
+                    WHEN p.birth_date IS NULL OR %1$s IS NULL THEN 'Desconocido'
+                    WHEN EXTRACT(YEAR FROM AGE(%1$s, p.birth_date)) < 18 THEN '0-17'
+                    WHEN EXTRACT(YEAR FROM AGE(%1$s, p.birth_date)) < 30 THEN '18-29'
+                    WHEN EXTRACT(YEAR FROM AGE(%1$s, p.birth_date)) < 50 THEN '30-49'
+                    WHEN EXTRACT(YEAR FROM AGE(%1$s, p.birth_date)) < 65 THEN '50-64'
+                    ELSE '65+'
+                END""".formatted(dateColumn);
+    }
+
+    /**
+     * Definición de una tabla de agregados: columnas destino, columna de fecha de la tabla base
+     * y SELECT agrupado con un marcador {@code %s} para el filtro de días.
+     */
+    private record FactTable(String name, String columns, String dateColumn, String select) {
+
+        String selectSql(String predicate) {
+            return select.formatted(predicate);
+        }
+
+        String insertSql(String predicate) {
+            return "INSERT INTO " + name + " (" + columns + ") " + selectSql(predicate);
+        }
+    }
+}
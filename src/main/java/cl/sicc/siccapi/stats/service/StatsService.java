@@ -1,41 +1,154 @@
 package cl.sicc.siccapi.stats.service;
 
+import cl.sicc.siccapi.common.util.RequestCoalescer;
+import cl.sicc.siccapi.diagnosis.domain.Cie10Chapter;
 import cl.sicc.siccapi.stats.dto.*;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class StatsService {
 
+    /**
+     * Agrupación de los diagnósticos del capítulo X (respiratorio) por categoría CIE-10
+     * (tres primeros caracteres del código).
+     */
+    private static final String RESPIRATORY_DISEASE = """
+            CASE
+                WHEN SUBSTRING(d.cie10_code, 1, 3) IN ('J20', 'J40', 'J41', 'J42') THEN 'Bronquitis aguda'
+                WHEN SUBSTRING(d.cie10_code, 1, 3) = 'J00' THEN 'Resfriado común'
+                WHEN SUBSTRING(d.cie10_code, 1, 3) BETWEEN 'J12' AND 'J18' THEN 'Neumonía'
+                WHEN SUBSTRING(d.cie10_code, 1, 3) IN ('J02', 'J03', 'J35') THEN 'Faringitis'
+                WHEN SUBSTRING(d.cie10_code, 1, 3) IN ('J01', 'J30', 'J31', 'J32') THEN 'Sinusitis'
+                WHEN SUBSTRING(d.cie10_code, 1, 3) IN ('J45', 'J46') THEN 'Asma'
+                ELSE 'Otra respiratoria'
+            END""";
+
     @PersistenceContext
     private EntityManager entityManager;
 
-    public DashboardStatsDto getDashboardStats() {
-        System.out.println("🔷 [STATS-SERVICE] getDashboardStats - Iniciando...");
+    private final StatsQueryExecutor queryExecutor;
+    private final ReferenceDateService referenceDateService;
+    private final RequestCoalescer requestCoalescer;
+    private final ColumnarFactStore columnarFactStore;
+    private final PatientCohortIndex patientCohortIndex;
+    private final StatsPivotService statsPivotService;
+
+    /**
+     * Crea una consulta nativa y enlaza la fecha de referencia ({@code :refDate}) cuando el SQL la usa.
+     */
+    private Query nativeQuery(String sql) {
+        Query query = entityManager.createNativeQuery(sql);
+        if (sql.contains(":refDate")) {
+            query.setParameter("refDate", referenceDateService.getReferenceDate());
+        }
+        return query;
+    }
 
-        long totalConsultations = getTotalConsultations();
+    /**
+     * Como {@link #nativeQuery(String)}, enlazando además la ventana como {@code :windowFrom}/{@code :windowTo}
+     * y {@code :windowUnbounded}. La condición se escribe
+     * {@code (:windowUnbounded OR col >= :windowFrom AND col < :windowTo)}: sin límites no filtra y cuenta
+     * también los registros sin fecha.
+     *
+     * @throws IllegalStateException si la ventana no tiene límites y la consulta no enlaza {@code :windowUnbounded}
+     */
+    private Query nativeQuery(String sql, StatsWindow window) {
+        if (window.isUnbounded() && sql.contains(":windowFrom") && !sql.contains(":windowUnbounded")) {
+            throw new IllegalStateException("Consulta por ventana sin :windowUnbounded: " + sql);
+        }
+        return bindWindow(nativeQuery(sql), sql, "window", window);
+    }
+
+    /**
+     * Variante para comparar dos periodos; el anterior se enlaza como {@code :previousFrom}/{@code :previousTo}.
+     */
+    private Query nativeQuery(String sql, StatsWindow window, StatsWindow previous) {
+        return bindWindow(nativeQuery(sql, window), sql, "previous", previous);
+    }
+
+    private static Query bindWindow(Query query, String sql, String name, StatsWindow window) {
+        if (sql.contains(":" + name + "From")) {
+            query.setParameter(name + "From", window.from());
+        }
+        if (sql.contains(":" + name + "To")) {
+            query.setParameter(name + "To", window.to());
+        }
+        if (sql.contains(":" + name + "Unbounded")) {
+            query.setParameter(name + "Unbounded", window.isUnbounded());
+        }
+        return query;
+    }
+
+    /**
+     * Tabla de agregados en memoria si el backend es {@code memory} y está cargado; si no, null y
+     * la estadística se calcula con SQL.
+     */
+    private ColumnarTable inMemory(String table) {
+        return columnarFactStore.isActive() ? columnarFactStore.table(table) : null;
+    }
+
+    private StatsWindow lastDays(int days) {
+        return StatsWindow.lastDays(referenceDateService.getReferenceDate(), days);
+    }
+
+    private StatsWindow lastMonths(int months) {
+        return StatsWindow.lastMonths(referenceDateService.getReferenceDate(), months);
+    }
+
+    /**
+     * Las peticiones concurrentes que no encuentran el resultado en caché comparten un mismo cálculo.
+     */
+    @Cacheable(StatsCaches.DASHBOARD)
+    public DashboardStatsDto getDashboardStats(StatsPeriod period) {
+        return requestCoalescer.execute("stats.dashboard", period, () -> computeDashboardStats(period));
+    }
+
+    private DashboardStatsDto computeDashboardStats(StatsPeriod period) {
+        System.out.println("🔷 [STATS-SERVICE] getDashboardStats - Iniciando...");
+        StatsWindow window = period.window(StatsWindow.unbounded());
+        StatsGranularity granularity = period.granularity(StatsGranularity.MONTH);
+
+        // Sub-consultas independientes: se lanzan en paralelo y se ensamblan al completar
+        CompletableFuture<Long> totalConsultationsFuture =
+                queryExecutor.submit("dashboard.totalConsultations", () -> countConsultations(window));
+        CompletableFuture<Long> totalPatientsFuture =
+                queryExecutor.submit("dashboard.totalPatients", this::getTotalPatients);
+        CompletableFuture<Long> totalPrescriptionsFuture =
+                queryExecutor.submit("dashboard.totalPrescriptions", () -> countPrescriptions(window));
+        CompletableFuture<Map<String, Long>> byTypeFuture =
+                queryExecutor.submit("dashboard.consultationsByType", () -> getConsultationsByType(window));
+        CompletableFuture<Map<String, Long>> byMonthFuture =
+                queryExecutor.submit("dashboard.consultationsByMonth", () -> consultationsByPeriod(window, granularity));
+
+        long totalConsultations = queryExecutor.join(totalConsultationsFuture);
         System.out.println("📊 [STATS-SERVICE] Total consultas: " + totalConsultations);
 
-        long totalPatients = getTotalPatients();
+        long totalPatients = queryExecutor.join(totalPatientsFuture);
         System.out.println("📊 [STATS-SERVICE] Total pacientes: " + totalPatients);
 
-        long totalPrescriptions = getTotalPrescriptions();
+        long totalPrescriptions = queryExecutor.join(totalPrescriptionsFuture);
         System.out.println("📊 [STATS-SERVICE] Total recetas: " + totalPrescriptions);
 
-        double averageConsultationsPerDay = totalConsultations > 0 ? (double) totalConsultations / 30 : 0; // Aproximado
+        // Con rango explícito se promedia sobre sus días; sin él, aproximado a 30
+        int days = period.hasRange() ? window.days() : 30;
+        double averageConsultationsPerDay = totalConsultations > 0 ? (double) totalConsultations / days : 0;
 
-        Map<String, Long> consultationsByType = getConsultationsByType();
+        Map<String, Long> consultationsByType = queryExecutor.join(byTypeFuture);
         System.out.println("📊 [STATS-SERVICE] Consultas por tipo: " + consultationsByType);
 
-        Map<String, Long> consultationsByMonth = getConsultationsByMonth();
+        Map<String, Long> consultationsByMonth = queryExecutor.join(byMonthFuture);
         System.out.println(
                 "📊 [STATS-SERVICE] Consultas por mes (últimos meses): " + consultationsByMonth.size() + " registros");
         consultationsByMonth
@@ -53,10 +166,11 @@ public class StatsService {
         return dto;
     }
 
-    public List<WeeklyTrendDto> getWeeklyTrend() {
+    @Cacheable(StatsCaches.WEEKLY_TREND)
+    public List<WeeklyTrendDto> getWeeklyTrend(StatsPeriod period) {
         String sql = """
                 SELECT
-                    CASE EXTRACT(DOW FROM c.date)
+                    CASE EXTRACT(DOW FROM f.date)
                         WHEN 0 THEN 'Dom'
                         WHEN 1 THEN 'Lun'
                         WHEN 2 THEN 'Mar'
@@ -65,17 +179,22 @@ public class StatsService {
                         WHEN 5 THEN 'Vie'
                         WHEN 6 THEN 'Sáb'
                     END as day,
-                    COUNT(*) as consultations,
-                    EXTRACT(DOW FROM c.date) as dayOfWeek,
-                    COUNT(CASE WHEN UPPER(c.type) IN ('URGENCIA', 'URGENT') THEN 1 END) as urgentCount,
-                    COUNT(CASE WHEN UPPER(c.type) NOT IN ('URGENCIA', 'URGENT') OR c.type IS NULL THEN 1 END) as generalCount
-                FROM consultation c
-                WHERE c.date >= (SELECT MAX(date) - INTERVAL '7 days' FROM consultation)
-                GROUP BY EXTRACT(DOW FROM c.date)
-                ORDER BY EXTRACT(DOW FROM c.date)
+                    SUM(f.consultations) as consultations,
+                    EXTRACT(DOW FROM f.date) as dayOfWeek,
+                    SUM(CASE WHEN UPPER(f.type) IN ('URGENCIA', 'URGENT') THEN f.consultations ELSE 0 END) as urgentCount,
+                    SUM(CASE WHEN UPPER(f.type) NOT IN ('URGENCIA', 'URGENT') OR f.type IS NULL THEN f.consultations ELSE 0 END) as generalCount
+                FROM consultation_daily_fact f
+                WHERE (:windowUnbounded OR f.date >= :windowFrom AND f.date < :windowTo)
+                GROUP BY EXTRACT(DOW FROM f.date)
+                ORDER BY EXTRACT(DOW FROM f.date)
                 """;
 
-        Query query = entityManager.createNativeQuery(sql);
+        StatsWindow window = period.window(lastDays(7));
+        ColumnarTable facts = inMemory(ColumnarFactStore.CONSULTATIONS);
+        if (facts != null) {
+            return weeklyTrendInMemory(facts, window);
+        }
+        Query query = nativeQuery(sql, window);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -89,37 +208,107 @@ public class StatsService {
                 .collect(Collectors.toList());
     }
 
-    public MedicationStatsDto getMedicationStats() {
-        List<MedicationCountDto> topMedications = getTopMedications();
-        List<MonthlyCountDto> monthlyPrescriptions = getMonthlyPrescriptions();
+    private static List<WeeklyTrendDto> weeklyTrendInMemory(ColumnarTable facts, StatsWindow window) {
+        String[] dayNames = { "Dom", "Lun", "Mar", "Mié", "Jue", "Vie", "Sáb" };
+        int type = facts.dimension("type");
+        int consultations = facts.measure("consultations");
+        long[] total = new long[7];
+        long[] urgent = new long[7];
+        boolean[] present = new boolean[7];
+        facts.scan(window, row -> {
+            // Día de la semana como EXTRACT(DOW ...): 0 = domingo; el epoch-day 0 fue jueves
+            int dow = Math.floorMod(facts.day(row) + 4, 7);
+            long count = facts.measure(consultations, row);
+            total[dow] += count;
+            present[dow] = true;
+            Object value = facts.value(type, row);
+            String upper = value != null ? value.toString().toUpperCase() : null;
+            if ("URGENCIA".equals(upper) || "URGENT".equals(upper)) {
+                urgent[dow] += count;
+            }
+        });
+        List<WeeklyTrendDto> trend = new ArrayList<>();
+        for (int dow = 0; dow < 7; dow++) {
+            if (present[dow]) {
+                trend.add(new WeeklyTrendDto(dayNames[dow], total[dow], dow, urgent[dow], total[dow] - urgent[dow]));
+            }
+        }
+        return trend;
+    }
+
+    @Cacheable(StatsCaches.MEDICATION)
+    public MedicationStatsDto getMedicationStats(StatsPeriod period) {
+        StatsWindow window = period.window(StatsWindow.unbounded());
+        List<MedicationCountDto> topMedications = topMedications(window);
+        List<MonthlyCountDto> monthlyPrescriptions =
+                getMonthlyPrescriptions(window, period.granularity(StatsGranularity.MONTH));
 
         return new MedicationStatsDto(topMedications, monthlyPrescriptions);
     }
 
+    @Cacheable(StatsCaches.PATIENT_STATS)
     public PatientStatsDto getPatientStats() {
-        List<AgeGroupCountDto> byAge = getPatientsByAge();
-        List<GenderCountDto> bySex = getPatientsBySex();
-        List<FonasaCountDto> byFonasa = getPatientsByFonasa();
-        List<SectorCountDto> bySector = getPatientsBySector();
+        return requestCoalescer.execute("stats.patient", "all", this::computePatientStats);
+    }
 
-        return new PatientStatsDto(byAge, bySex, byFonasa, bySector);
+    private PatientStatsDto computePatientStats() {
+        CompletableFuture<List<AgeGroupCountDto>> byAge =
+                queryExecutor.submit("patient.byAge", this::getPatientsByAge);
+        CompletableFuture<List<GenderCountDto>> bySex =
+                queryExecutor.submit("patient.bySex", this::getPatientsBySex);
+        CompletableFuture<List<FonasaCountDto>> byFonasa =
+                queryExecutor.submit("patient.byFonasa", this::getPatientsByFonasa);
+        CompletableFuture<List<SectorCountDto>> bySector =
+                queryExecutor.submit("patient.bySector", this::getPatientsBySector);
+
+        return new PatientStatsDto(
+                queryExecutor.join(byAge),
+                queryExecutor.join(bySex),
+                queryExecutor.join(byFonasa),
+                queryExecutor.join(bySector));
     }
 
-    public DiagnosisStatsDto getDiagnosisStats() {
-        List<DiagnosisCountDto> topDiagnoses = getTopDiagnoses();
-        List<SpecialtyDiagnosisDto> diagnosisBySpecialty = getDiagnosisBySpecialty();
-        List<MonthlyCountDto> respiratoryTrend = getRespiratoryTrend();
+    @Cacheable(StatsCaches.DIAGNOSIS_STATS)
+    public DiagnosisStatsDto getDiagnosisStats(StatsPeriod period) {
+        return requestCoalescer.execute("stats.diagnosis", period, () -> computeDiagnosisStats(period));
+    }
 
-        return new DiagnosisStatsDto(topDiagnoses, diagnosisBySpecialty, respiratoryTrend);
+    private DiagnosisStatsDto computeDiagnosisStats(StatsPeriod period) {
+        StatsWindow window = period.window(StatsWindow.unbounded());
+        StatsGranularity granularity = period.granularity(StatsGranularity.MONTH);
+        CompletableFuture<List<DiagnosisCountDto>> topDiagnoses =
+                queryExecutor.submit("diagnosis.top", () -> getTopDiagnoses(window));
+        CompletableFuture<List<SpecialtyDiagnosisDto>> diagnosisBySpecialty =
+                queryExecutor.submit("diagnosis.bySpecialty", () -> getDiagnosisBySpecialty(window));
+        CompletableFuture<List<MonthlyCountDto>> respiratoryTrend =
+                queryExecutor.submit("diagnosis.respiratoryTrend", () -> getRespiratoryTrend(window, granularity));
+
+        return new DiagnosisStatsDto(
+                queryExecutor.join(topDiagnoses),
+                queryExecutor.join(diagnosisBySpecialty),
+                queryExecutor.join(respiratoryTrend));
     }
 
-    public List<SpecialtyCountDto> getConsultationsBySpecialty() {
-        return getConsultationsBySpecialtyPrivate();
+    @Cacheable(StatsCaches.SPECIALTY)
+    public List<SpecialtyCountDto> getConsultationsBySpecialty(StatsPeriod period) {
+        return consultationsBySpecialty(period.window(StatsWindow.unbounded()));
     }
 
+    @Cacheable(StatsCaches.TOTAL_CONSULTATIONS)
     public long getTotalConsultations() {
-        Query query = entityManager.createQuery("SELECT COUNT(c) FROM Consultation c");
-        return (Long) query.getSingleResult();
+        return countConsultations(StatsWindow.unbounded());
+    }
+
+    private long countConsultations(StatsWindow window) {
+        ColumnarTable facts = inMemory(ColumnarFactStore.CONSULTATIONS);
+        if (facts != null) {
+            return facts.sum(window, "consultations");
+        }
+        Query query = nativeQuery("""
+                SELECT COALESCE(SUM(f.consultations), 0) FROM consultation_daily_fact f
+                WHERE (:windowUnbounded OR f.date >= :windowFrom AND f.date < :windowTo)
+                """, window);
+        return ((Number) query.getSingleResult()).longValue();
     }
 
     private long getTotalPatients() {
@@ -127,14 +316,31 @@ public class StatsService {
         return (Long) query.getSingleResult();
     }
 
-    private long getTotalPrescriptions() {
-        Query query = entityManager.createQuery("SELECT COUNT(p) FROM Prescription p");
-        return (Long) query.getSingleResult();
+    private long countPrescriptions(StatsWindow window) {
+        ColumnarTable facts = inMemory(ColumnarFactStore.PRESCRIPTIONS);
+        if (facts != null) {
+            return facts.sum(window, "prescriptions");
+        }
+        Query query = nativeQuery("""
+                SELECT COALESCE(SUM(f.prescriptions), 0) FROM prescription_daily_fact f
+                WHERE (:windowUnbounded OR f.date >= :windowFrom AND f.date < :windowTo)
+                """, window);
+        return ((Number) query.getSingleResult()).longValue();
     }
 
-    private Map<String, Long> getConsultationsByType() {
-        String sql = "SELECT c.type, COUNT(*) FROM consultation c GROUP BY c.type";
-        Query query = entityManager.createNativeQuery(sql);
+    private Map<String, Long> getConsultationsByType(StatsWindow window) {
+        ColumnarTable facts = inMemory(ColumnarFactStore.CONSULTATIONS);
+        if (facts != null) {
+            Map<String, Long> byType = new HashMap<>();
+            facts.sumBy(window, "type", "consultations").forEach((type, count) -> byType.put((String) type, count));
+            return byType;
+        }
+        String sql = """
+                SELECT f.type, SUM(f.consultations) FROM consultation_daily_fact f
+                WHERE (:windowUnbounded OR f.date >= :windowFrom AND f.date < :windowTo)
+                GROUP BY f.type
+                """;
+        Query query = nativeQuery(sql, window);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -144,35 +350,60 @@ public class StatsService {
                         row -> ((Number) row[1]).longValue()));
     }
 
+    @Cacheable(StatsCaches.CONSULTATIONS_BY_MONTH)
     public Map<String, Long> getConsultationsByMonth() {
+        return consultationsByPeriod(StatsWindow.unbounded(), StatsGranularity.MONTH);
+    }
+
+    private Map<String, Long> consultationsByPeriod(StatsWindow window, StatsGranularity granularity) {
+        ColumnarTable facts = inMemory(ColumnarFactStore.CONSULTATIONS);
+        if (facts != null) {
+            return facts.sumByPeriod(window, granularity, "consultations");
+        }
         String sql = """
                 SELECT
-                    TO_CHAR(c.date, 'YYYY-MM') as month,
-                    COUNT(*) as count
-                FROM consultation c
-                GROUP BY TO_CHAR(c.date, 'YYYY-MM')
-                ORDER BY TO_CHAR(c.date, 'YYYY-MM')
-                """;
-        Query query = entityManager.createNativeQuery(sql);
+                    %1$s as period,
+                    SUM(f.consultations) as count
+                FROM consultation_daily_fact f
+                WHERE (:windowUnbounded OR f.date >= :windowFrom AND f.date < :windowTo)
+                AND f.date IS NOT NULL
+                GROUP BY %1$s
+                ORDER BY %1$s
+                """.formatted(granularity.label("f.date"));
+        Query query = nativeQuery(sql, window);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
         return results.stream()
+                // LinkedHashMap: conserva el orden cronológico del ORDER BY
                 .collect(Collectors.toMap(
                         row -> (String) row[0],
-                        row -> ((Number) row[1]).longValue()));
+                        row -> ((Number) row[1]).longValue(),
+                        (a, b) -> a,
+                        LinkedHashMap::new));
     }
 
+    @Cacheable(StatsCaches.TOP_MEDICATIONS)
     public List<MedicationCountDto> getTopMedications() {
+        return topMedications(StatsWindow.unbounded());
+    }
+
+    private List<MedicationCountDto> topMedications(StatsWindow window) {
+        ColumnarTable facts = inMemory(ColumnarFactStore.MEDICATIONS);
+        if (facts != null) {
+            return topMedicationsInMemory(facts, window);
+        }
         String sql = """
                 SELECT m.name, COUNT(pm) as count
                 FROM medication m
                 JOIN prescription_medication pm ON m.id = pm.medication_id
+                JOIN prescription pr ON pm.prescription_id = pr.id
+                WHERE (:windowUnbounded OR pr.date >= :windowFrom AND pr.date < :windowTo)
                 GROUP BY m.id, m.name
                 ORDER BY COUNT(pm) DESC
                 LIMIT 10
                 """;
-        Query query = entityManager.createNativeQuery(sql);
+        Query query = nativeQuery(sql, window);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -183,16 +414,47 @@ public class StatsService {
                 .collect(Collectors.toList());
     }
 
-    private List<MonthlyCountDto> getMonthlyPrescriptions() {
+    private List<MedicationCountDto> topMedicationsInMemory(ColumnarTable facts, StatsWindow window) {
+        List<Map.Entry<Object, Long>> top = facts.sumBy(window, "medication_id", "prescription_lines").entrySet().stream()
+                .sorted(Map.Entry.<Object, Long>comparingByValue().reversed())
+                .limit(10)
+                .toList();
+        if (top.isEmpty()) {
+            return List.of();
+        }
+        // Sólo los nombres de los 10 medicamentos se leen de la base
+        Query query = nativeQuery("SELECT m.id, m.name FROM medication m WHERE m.id IN (:ids)");
+        query.setParameter("ids", top.stream().map(Map.Entry::getKey).toList());
+        @SuppressWarnings("unchecked")
+        List<Object[]> names = query.getResultList();
+        Map<Long, String> nameById = new HashMap<>();
+        for (Object[] row : names) {
+            nameById.put(((Number) row[0]).longValue(), (String) row[1]);
+        }
+        return top.stream()
+                .filter(entry -> nameById.containsKey((Long) entry.getKey()))
+                .map(entry -> new MedicationCountDto(nameById.get((Long) entry.getKey()), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    private List<MonthlyCountDto> getMonthlyPrescriptions(StatsWindow window, StatsGranularity granularity) {
+        ColumnarTable facts = inMemory(ColumnarFactStore.PRESCRIPTIONS);
+        if (facts != null) {
+            return facts.sumByPeriod(window, granularity, "prescriptions").entrySet().stream()
+                    .map(entry -> new MonthlyCountDto(entry.getKey(), entry.getValue()))
+                    .collect(Collectors.toList());
+        }
         String sql = """
                 SELECT
-                    TO_CHAR(p.date, 'YYYY-MM') as month,
-                    COUNT(*) as total
-                FROM prescription p
-                GROUP BY TO_CHAR(p.date, 'YYYY-MM')
-                ORDER BY TO_CHAR(p.date, 'YYYY-MM')
-                """;
-        Query query = entityManager.createNativeQuery(sql);
+                    %1$s as period,
+                    SUM(f.prescriptions) as total
+                FROM prescription_daily_fact f
+                WHERE (:windowUnbounded OR f.date >= :windowFrom AND f.date < :windowTo)
+                AND f.date IS NOT NULL
+                GROUP BY %1$s
+                ORDER BY %1$s
+                """.formatted(granularity.label("f.date"));
+        Query query = nativeQuery(sql, window);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -210,23 +472,15 @@ public class StatsService {
                     SELECT
                         CASE
                             WHEN p.birth_date IS NULL THEN 'Desconocido'
-                            WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 18 THEN '0-17'
-                            WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 30 THEN '18-29'
-                            WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 50 THEN '30-49'
-                            WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 65 THEN '50-64'
+                            WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 18 THEN '0-17'
+                            WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 30 THEN '18-29'
+                            WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 50 THEN '30-49'
+                            WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 65 THEN '50-64'
                             ELSE '65+'
                         END as age_group,
                         COUNT(*) as count
                     FROM patient p
-                    GROUP BY
-                        CASE
-                            WHEN p.birth_date IS NULL THEN 'Desconocido'
-                            WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 18 THEN '0-17'
-                            WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 30 THEN '18-29'
-                            WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 50 THEN '30-49'
-                            WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 65 THEN '50-64'
-                            ELSE '65+'
-                        END
+                    GROUP BY age_group
                 ) sub
                 ORDER BY
                     CASE
@@ -238,7 +492,7 @@ public class StatsService {
                         ELSE 6
                     END
                 """;
-        Query query = entityManager.createNativeQuery(sql);
+        Query query = nativeQuery(sql);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -251,7 +505,7 @@ public class StatsService {
 
     private List<GenderCountDto> getPatientsBySex() {
         String sql = "SELECT p.sex, COUNT(*) FROM patient p GROUP BY p.sex";
-        Query query = entityManager.createNativeQuery(sql);
+        Query query = nativeQuery(sql);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -263,9 +517,15 @@ public class StatsService {
                 .collect(Collectors.toList());
     }
 
+    @Cacheable(StatsCaches.PATIENTS_BY_FONASA)
     public List<FonasaCountDto> getPatientsByFonasa() {
+        if (patientCohortIndex.isReady()) {
+            return patientCohortIndex.countBy(CohortDimension.FONASA, null).entrySet().stream()
+                    .map(entry -> new FonasaCountDto(String.valueOf(entry.getKey()), entry.getValue()))
+                    .collect(Collectors.toList());
+        }
         String sql = "SELECT CAST(p.fonasa_tier AS VARCHAR) as fonasa_tier, COUNT(*) FROM patient p GROUP BY p.fonasa_tier";
-        Query query = entityManager.createNativeQuery(sql);
+        Query query = nativeQuery(sql);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -277,8 +537,13 @@ public class StatsService {
     }
 
     private List<SectorCountDto> getPatientsBySector() {
+        if (patientCohortIndex.isReady()) {
+            return patientCohortIndex.countBy(CohortDimension.SECTOR, null).entrySet().stream()
+                    .map(entry -> new SectorCountDto(String.valueOf(entry.getKey()), entry.getValue()))
+                    .collect(Collectors.toList());
+        }
         String sql = "SELECT CAST(p.residential_sector AS VARCHAR) as residential_sector, COUNT(*) FROM patient p GROUP BY p.residential_sector";
-        Query query = entityManager.createNativeQuery(sql);
+        Query query = nativeQuery(sql);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -293,7 +558,11 @@ public class StatsService {
      * Distribución de pacientes por grupo de edad y sexo
      * Resuelve el problema en pacientes-perfil.component.ts
      */
+    @Cacheable(StatsCaches.PATIENTS_BY_AGE_AND_SEX)
     public List<AgeGroupBySexDto> getPatientsByAgeAndSex() {
+        if (patientCohortIndex.isReady()) {
+            return patientsByAgeAndSexFromIndex();
+        }
         String sql = """
                 SELECT
                     age_group,
@@ -304,14 +573,14 @@ public class StatsService {
                     SELECT
                         CASE
                             WHEN p.birth_date IS NULL THEN 'Desconocido'
-                            WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 11 THEN '0-10'
-                            WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 21 THEN '11-20'
-                            WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 31 THEN '21-30'
-                            WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 41 THEN '31-40'
-                            WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 51 THEN '41-50'
-                            WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 61 THEN '51-60'
-                            WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 71 THEN '61-70'
-                            WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 81 THEN '71-80'
+                            WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 11 THEN '0-10'
+                            WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 21 THEN '11-20'
+                            WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 31 THEN '21-30'
+                            WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 41 THEN '31-40'
+                            WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 51 THEN '41-50'
+                            WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 61 THEN '51-60'
+                            WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 71 THEN '61-70'
+                            WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 81 THEN '71-80'
                             ELSE '81+'
                         END as age_group,
                         p.sex
@@ -332,7 +601,7 @@ public class StatsService {
                         ELSE 10
                     END
                 """;
-        Query query = entityManager.createNativeQuery(sql);
+        Query query = nativeQuery(sql);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -350,16 +619,38 @@ public class StatsService {
                 .collect(Collectors.toList());
     }
 
-    private List<DiagnosisCountDto> getTopDiagnoses() {
+    private List<AgeGroupBySexDto> patientsByAgeAndSexFromIndex() {
+        Map<String, Long> total = patientCohortIndex.countBy(CohortDimension.AGE, null);
+        Map<String, Long> men = patientCohortIndex.countBy(CohortDimension.AGE, sex("M"));
+        Map<String, Long> women = patientCohortIndex.countBy(CohortDimension.AGE, sex("F"));
+        long grandTotal = total.values().stream().mapToLong(Long::longValue).sum();
+
+        return total.entrySet().stream()
+                .map(entry -> new AgeGroupBySexDto(
+                        entry.getKey(),
+                        men.getOrDefault(entry.getKey(), 0L),
+                        women.getOrDefault(entry.getKey(), 0L),
+                        entry.getValue(),
+                        grandTotal > 0 ? (entry.getValue().doubleValue() / grandTotal) * 100 : 0.0))
+                .collect(Collectors.toList());
+    }
+
+    private static CohortFilterDto sex(String sex) {
+        return new CohortFilterDto(CohortDimension.SEX.name(), List.of(sex), null, null, null);
+    }
+
+    private List<DiagnosisCountDto> getTopDiagnoses(StatsWindow window) {
         String sql = """
                 SELECT COALESCE(d.description, c.name) as diagnosis_name, COUNT(*) as count
                 FROM diagnosis d
                 JOIN cie10 c ON d.cie10_code = c.code
+                JOIN consultation co ON d.consultation_id = co.id
+                WHERE (:windowUnbounded OR co.date >= :windowFrom AND co.date < :windowTo)
                 GROUP BY COALESCE(d.description, c.name)
                 ORDER BY COUNT(*) DESC
                 LIMIT 10
                 """;
-        Query query = entityManager.createNativeQuery(sql);
+        Query query = nativeQuery(sql, window);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -370,7 +661,7 @@ public class StatsService {
                 .collect(Collectors.toList());
     }
 
-    private List<SpecialtyDiagnosisDto> getDiagnosisBySpecialty() {
+    private List<SpecialtyDiagnosisDto> getDiagnosisBySpecialty(StatsWindow window) {
         String sql = """
                 SELECT
                     COALESCE(hp.specialty, 'Sin especialidad') as specialty,
@@ -380,11 +671,12 @@ public class StatsService {
                 JOIN cie10 cie ON d.cie10_code = cie.code
                 JOIN consultation c ON d.consultation_id = c.id
                 LEFT JOIN healthcare_professional hp ON c.professional_id = hp.id
+                WHERE (:windowUnbounded OR c.date >= :windowFrom AND c.date < :windowTo)
                 GROUP BY hp.specialty, COALESCE(d.description, cie.name)
                 ORDER BY COUNT(*) DESC
                 LIMIT 50
                 """;
-        Query query = entityManager.createNativeQuery(sql);
+        Query query = nativeQuery(sql, window);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -404,20 +696,22 @@ public class StatsService {
                 .collect(Collectors.toList());
     }
 
-    private List<MonthlyCountDto> getRespiratoryTrend() {
+    private List<MonthlyCountDto> getRespiratoryTrend(StatsWindow window, StatsGranularity granularity) {
         // Tendencia de diagnósticos respiratorios
         String sql = """
                 SELECT
-                    TO_CHAR(c.date, 'YYYY-MM') as month,
+                    %1$s as period,
                     COUNT(*) as count
                 FROM consultation c
                 JOIN diagnosis d ON c.id = d.consultation_id
                 JOIN cie10 cie ON d.cie10_code = cie.code
-                WHERE LOWER(COALESCE(d.description, cie.name)) LIKE '%respirat%'
-                GROUP BY TO_CHAR(c.date, 'YYYY-MM')
-                ORDER BY TO_CHAR(c.date, 'YYYY-MM')
-                """;
-        Query query = entityManager.createNativeQuery(sql);
+                WHERE cie.chapter_id = %2$d
+                AND (:windowUnbounded OR c.date >= :windowFrom AND c.date < :windowTo)
+                AND c.date IS NOT NULL
+                GROUP BY %1$s
+                ORDER BY %1$s
+                """.formatted(granularity.label("c.date"), Cie10Chapter.X.getId());
+        Query query = nativeQuery(sql, window);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -428,15 +722,16 @@ public class StatsService {
                 .collect(Collectors.toList());
     }
 
-    public List<SpecialtyCountDto> getConsultationsBySpecialtyPrivate() {
+    private List<SpecialtyCountDto> consultationsBySpecialty(StatsWindow window) {
         String sql = """
                 SELECT COALESCE(hp.specialty, 'Sin especialidad') as specialty, COUNT(*) as count
                 FROM consultation c
                 LEFT JOIN healthcare_professional hp ON c.professional_id = hp.id
+                WHERE (:windowUnbounded OR c.date >= :windowFrom AND c.date < :windowTo)
                 GROUP BY COALESCE(hp.specialty, 'Sin especialidad')
                 ORDER BY COUNT(*) DESC
                 """;
-        Query query = entityManager.createNativeQuery(sql);
+        Query query = nativeQuery(sql, window);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -449,72 +744,37 @@ public class StatsService {
 
     // ========== CHRONIC PATIENTS STATS ==========
 
-    public ChronicSummaryDto getChronicSummary() {
+    @Cacheable(StatsCaches.CHRONIC_SUMMARY)
+    public ChronicSummaryDto getChronicSummary(StatsPeriod period) {
         long totalPatients = getTotalPatients();
 
-        // Pacientes con enfermedades crónicas (basado en diagnósticos frecuentes)
-        String chronicCountSql = """
-                SELECT COUNT(DISTINCT p.id)
-                FROM patient p
-                JOIN consultation c ON p.id = c.patient_id
-                JOIN diagnosis d ON c.id = d.consultation_id
-                JOIN cie10 cie ON d.cie10_code = cie.code
-                WHERE LOWER(COALESCE(d.description, cie.name)) LIKE ANY (ARRAY[
-                    '%diabetes%', '%hipertens%', '%asma%', '%epoc%',
-                    '%artritis%', '%hipotiroidismo%', '%insuficiencia card%'
-                ])
-                """;
-        Query chronicQuery = entityManager.createNativeQuery(chronicCountSql);
+        // Pacientes con enfermedades crónicas (registro patient_chronic_condition)
+        String chronicCountSql = "SELECT COUNT(DISTINCT pcc.patient_id) FROM patient_chronic_condition pcc";
+        Query chronicQuery = nativeQuery(chronicCountSql);
         Long totalCronicos = ((Number) chronicQuery.getSingleResult()).longValue();
 
-        // Pacientes en tratamiento (con recetas en los últimos 3 meses)
+        // Pacientes en tratamiento (con recetas en el periodo; por defecto los últimos 3 meses)
         // prescription -> consultation -> patient
         String treatmentCountSql = """
                 SELECT COUNT(DISTINCT p.id)
                 FROM patient p
                 JOIN consultation c ON p.id = c.patient_id
                 JOIN prescription pr ON c.id = pr.consultation_id
-                WHERE pr.date >= (SELECT MAX(date) - INTERVAL '3 months' FROM consultation)
+                WHERE (:windowUnbounded OR pr.date >= :windowFrom AND pr.date < :windowTo)
                 """;
-        Query treatmentQuery = entityManager.createNativeQuery(treatmentCountSql);
+        Query treatmentQuery = nativeQuery(treatmentCountSql, period.window(lastMonths(3)));
         Long totalEnTratamiento = ((Number) treatmentQuery.getSingleResult()).longValue();
 
         Double porcentajeCronicos = totalPatients > 0 ? (totalCronicos.doubleValue() / totalPatients) * 100 : 0.0;
 
         // Distribución por patología
         String distributionSql = """
-                SELECT
-                    CASE
-                        WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%diabetes%' THEN 'Diabetes'
-                        WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%hipertens%' THEN 'Hipertensión'
-                        WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%asma%' THEN 'Asma'
-                        WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%epoc%' THEN 'EPOC'
-                        WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%artritis%' THEN 'Artritis'
-                        WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%hipotiroidismo%' THEN 'Hipotiroidismo'
-                        ELSE 'Otras crónicas'
-                    END as patologia,
-                    COUNT(DISTINCT p.id) as cantidad
-                FROM patient p
-                JOIN consultation c ON p.id = c.patient_id
-                JOIN diagnosis d ON c.id = d.consultation_id
-                JOIN cie10 cie ON d.cie10_code = cie.code
-                WHERE LOWER(COALESCE(d.description, cie.name)) LIKE ANY (ARRAY[
-                    '%diabetes%', '%hipertens%', '%asma%', '%epoc%',
-                    '%artritis%', '%hipotiroidismo%', '%insuficiencia card%'
-                ])
-                GROUP BY
-                    CASE
-                        WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%diabetes%' THEN 'Diabetes'
-                        WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%hipertens%' THEN 'Hipertensión'
-                        WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%asma%' THEN 'Asma'
-                        WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%epoc%' THEN 'EPOC'
-                        WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%artritis%' THEN 'Artritis'
-                        WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%hipotiroidismo%' THEN 'Hipotiroidismo'
-                        ELSE 'Otras crónicas'
-                    END
+                SELECT pcc.pathology as patologia, COUNT(*) as cantidad
+                FROM patient_chronic_condition pcc
+                GROUP BY pcc.pathology
                 ORDER BY cantidad DESC
                 """;
-        Query distributionQuery = entityManager.createNativeQuery(distributionSql);
+        Query distributionQuery = nativeQuery(distributionSql);
         @SuppressWarnings("unchecked")
         List<Object[]> distributionResults = distributionQuery.getResultList();
 
@@ -536,69 +796,58 @@ public class StatsService {
                 distribucion);
     }
 
+    @Cacheable(StatsCaches.CHRONIC_PATIENTS)
     public List<ChronicPatientDto> getChronicPatients(int limit) {
         String sql = """
-                SELECT DISTINCT
+                SELECT
                     p.name as patient_name,
                     p.id as patient_id,
-                    MAX(c.date) as last_consultation
-                FROM patient p
-                JOIN consultation c ON p.id = c.patient_id
-                JOIN diagnosis d ON c.id = d.consultation_id
-                JOIN cie10 cie ON d.cie10_code = cie.code
-                WHERE LOWER(COALESCE(d.description, cie.name)) LIKE ANY (ARRAY[
-                    '%diabetes%', '%hipertens%', '%asma%', '%epoc%',
-                    '%artritis%', '%hipotiroidismo%', '%insuficiencia card%'
-                ])
+                    MAX(pcc.last_diagnosed) as last_consultation
+                FROM patient_chronic_condition pcc
+                JOIN patient p ON p.id = pcc.patient_id
                 GROUP BY p.name, p.id
-                ORDER BY MAX(c.date) DESC
+                ORDER BY MAX(pcc.last_diagnosed) DESC
                 LIMIT :limit
                 """;
-        Query query = entityManager.createNativeQuery(sql);
+        Query query = nativeQuery(sql);
         query.setParameter("limit", limit);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
+        if (results.isEmpty()) {
+            return List.of();
+        }
+
+        // Patologías de todos los pacientes de la página en una sola consulta
+        List<Long> patientIds = results.stream()
+                .map(row -> ((Number) row[1]).longValue())
+                .toList();
+        String pathologiesSql = """
+                SELECT pcc.patient_id, pcc.pathology
+                FROM patient_chronic_condition pcc
+                WHERE pcc.patient_id IN (:patientIds)
+                ORDER BY 1, 2
+                """;
+        Query pathologiesQuery = nativeQuery(pathologiesSql);
+        pathologiesQuery.setParameter("patientIds", patientIds);
+        @SuppressWarnings("unchecked")
+        List<Object[]> pathologyRows = pathologiesQuery.getResultList();
+        Map<Long, List<String>> pathologiesByPatient = new HashMap<>();
+        for (Object[] row : pathologyRows) {
+            pathologiesByPatient
+                    .computeIfAbsent(((Number) row[0]).longValue(), id -> new ArrayList<>())
+                    .add((String) row[1]);
+        }
+
         return results.stream()
-                .map(row -> {
-                    String patientName = (String) row[0];
-                    Long patientId = ((Number) row[1]).longValue();
-                    java.sql.Date lastConsultationDate = (java.sql.Date) row[2];
-
-                    // Obtener patologías del paciente
-                    String pathologiesSql = """
-                            SELECT DISTINCT
-                                CASE
-                                    WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%diabetes%' THEN 'Diabetes'
-                                    WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%hipertens%' THEN 'Hipertensión'
-                                    WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%asma%' THEN 'Asma'
-                                    WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%epoc%' THEN 'EPOC'
-                                    WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%artritis%' THEN 'Artritis'
-                                    WHEN LOWER(COALESCE(d.description, cie.name)) LIKE '%hipotiroidismo%' THEN 'Hipotiroidismo'
-                                    ELSE 'Otra crónica'
-                                END as patologia
-                            FROM diagnosis d
-                            JOIN consultation c ON d.consultation_id = c.id
-                            JOIN cie10 cie ON d.cie10_code = cie.code
-                            WHERE c.patient_id = :patientId
-                            AND LOWER(COALESCE(d.description, cie.name)) LIKE ANY (ARRAY[
-                                '%diabetes%', '%hipertens%', '%asma%', '%epoc%',
-                                '%artritis%', '%hipotiroidismo%', '%insuficiencia card%'
-                            ])
-                            """;
-                    Query pathologiesQuery = entityManager.createNativeQuery(pathologiesSql);
-                    pathologiesQuery.setParameter("patientId", patientId);
-                    @SuppressWarnings("unchecked")
-                    List<String> patologias = pathologiesQuery.getResultList();
-
-                    return new ChronicPatientDto(
-                            patientName,
-                            patologias,
-                            lastConsultationDate.toLocalDate());
-                })
+                .map(row -> new ChronicPatientDto(
+                        (String) row[0],
+                        pathologiesByPatient.getOrDefault(((Number) row[1]).longValue(), List.of()),
+                        row[2] != null ? ((java.sql.Date) row[2]).toLocalDate() : null))
                 .collect(Collectors.toList());
     }
 
+    @Cacheable(StatsCaches.PRESCRIPTION_DETAILS)
     public List<PrescriptionDetailDto> getPrescriptionDetails(int limit) {
         String sql = """
                 SELECT
@@ -607,7 +856,7 @@ public class StatsService {
                     p.name as patient_name,
                     hp.name as professional_name,
                     p.rut,
-                    EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date))::INTEGER as age,
+                    EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date))::INTEGER as age,
                     p.fonasa_tier,
                     c.type,
                     (SELECT d.description FROM diagnosis d WHERE d.consultation_id = c.id LIMIT 1) as diagnosis
@@ -618,11 +867,37 @@ public class StatsService {
                 ORDER BY pr.date DESC
                 LIMIT :limit
                 """;
-        Query query = entityManager.createNativeQuery(sql);
+        Query query = nativeQuery(sql);
         query.setParameter("limit", limit);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
+        if (results.isEmpty()) {
+            return List.of();
+        }
+
+        // Medicamentos de todas las recetas de la página en una sola consulta
+        List<Long> prescriptionIds = results.stream()
+                .map(row -> ((Number) row[0]).longValue())
+                .toList();
+        String medicationsSql = """
+                SELECT pm.prescription_id, m.name
+                FROM prescription_medication pm
+                JOIN medication m ON pm.medication_id = m.id
+                WHERE pm.prescription_id IN (:prescriptionIds)
+                ORDER BY pm.prescription_id, m.name
+                """;
+        Query medicationsQuery = nativeQuery(medicationsSql);
+        medicationsQuery.setParameter("prescriptionIds", prescriptionIds);
+        @SuppressWarnings("unchecked")
+        List<Object[]> medicationRows = medicationsQuery.getResultList();
+        Map<Long, List<String>> medicationsByPrescription = new HashMap<>();
+        for (Object[] row : medicationRows) {
+            medicationsByPrescription
+                    .computeIfAbsent(((Number) row[0]).longValue(), id -> new ArrayList<>())
+                    .add((String) row[1]);
+        }
+
         return results.stream()
                 .map(row -> {
                     Long prescriptionId = ((Number) row[0]).longValue();
@@ -636,23 +911,11 @@ public class StatsService {
                     String type = row[7] != null ? row[7].toString() : null;
                     String diagnosis = row[8] != null ? (String) row[8] : null;
 
-                    // Obtener medicamentos de la receta
-                    String medicationsSql = """
-                            SELECT m.name
-                            FROM prescription_medication pm
-                            JOIN medication m ON pm.medication_id = m.id
-                            WHERE pm.prescription_id = :prescriptionId
-                            """;
-                    Query medicationsQuery = entityManager.createNativeQuery(medicationsSql);
-                    medicationsQuery.setParameter("prescriptionId", prescriptionId);
-                    @SuppressWarnings("unchecked")
-                    List<String> medications = medicationsQuery.getResultList();
-
                     return new PrescriptionDetailDto(
                             prescriptionId,
                             fecha,
                             patientName,
-                            medications,
+                            medicationsByPrescription.getOrDefault(prescriptionId, List.of()),
                             professionalName,
                             rut,
                             age,
@@ -663,7 +926,8 @@ public class StatsService {
                 .collect(Collectors.toList());
     }
 
-    public List<EmergingDiagnosisDto> getEmergingDiagnoses() {
+    @Cacheable(StatsCaches.EMERGING_DIAGNOSES)
+    public List<EmergingDiagnosisDto> getEmergingDiagnoses(StatsPeriod period) {
         System.out.println("🔷 [STATS-SERVICE] getEmergingDiagnoses - Iniciando...");
 
         String sql = """
@@ -674,7 +938,7 @@ public class StatsService {
                     FROM diagnosis d
                     JOIN cie10 cie ON d.cie10_code = cie.code
                     JOIN consultation c ON d.consultation_id = c.id
-                    WHERE TO_CHAR(c.date, 'YYYY-MM') = TO_CHAR((SELECT MAX(date) FROM consultation), 'YYYY-MM')
+                    WHERE (:windowUnbounded OR c.date >= :windowFrom AND c.date < :windowTo)
                     GROUP BY cie.name
                 ),
                 previous_month_stats AS (
@@ -684,7 +948,7 @@ public class StatsService {
                     FROM diagnosis d
                     JOIN cie10 cie ON d.cie10_code = cie.code
                     JOIN consultation c ON d.consultation_id = c.id
-                    WHERE TO_CHAR(c.date, 'YYYY-MM') = TO_CHAR((SELECT MAX(date) - INTERVAL '1 month' FROM consultation), 'YYYY-MM')
+                    WHERE c.date >= :previousFrom AND c.date < :previousTo
                     GROUP BY cie.name
                 )
                 SELECT
@@ -703,7 +967,16 @@ public class StatsService {
                 ORDER BY variation DESC
                 LIMIT 20
                 """;
-        Query query = entityManager.createNativeQuery(sql);
+        // Por defecto el mes calendario de la fecha de referencia contra el anterior; con rango
+        // explícito, el rango contra el periodo de igual duración que lo precede
+        YearMonth currentMonth = YearMonth.from(referenceDateService.getReferenceDate());
+        StatsWindow current = period.window(StatsWindow.month(currentMonth));
+        StatsWindow previous = period.hasRange() ? current.preceding() : StatsWindow.month(currentMonth.minusMonths(1));
+        ColumnarTable facts = inMemory(ColumnarFactStore.DIAGNOSES);
+        if (facts != null) {
+            return emergingDiagnosesInMemory(facts, current, previous);
+        }
+        Query query = nativeQuery(sql, current, previous);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -718,207 +991,162 @@ public class StatsService {
                 .collect(Collectors.toList());
     }
 
-    public List<DiseaseByFonasaDto> getDiseasesByFonasa() {
-        String sql = """
-                SELECT
-                    COALESCE(CAST(p.fonasa_tier AS VARCHAR), 'Sin información') as fonasa,
-                    COALESCE(d.description, cie.name) as disease,
-                    COUNT(*) as count
-                FROM diagnosis d
-                JOIN cie10 cie ON d.cie10_code = cie.code
-                JOIN consultation c ON d.consultation_id = c.id
-                JOIN patient p ON c.patient_id = p.id
-                GROUP BY p.fonasa_tier, COALESCE(d.description, cie.name)
-                ORDER BY COUNT(*) DESC
-                LIMIT 50
-                """;
-        Query query = entityManager.createNativeQuery(sql);
-        @SuppressWarnings("unchecked")
-        List<Object[]> results = query.getResultList();
+    private List<EmergingDiagnosisDto> emergingDiagnosesInMemory(ColumnarTable facts, StatsWindow current,
+                                                                 StatsWindow previous) {
+        Map<Object, Long> currentByCode = facts.sumBy(current, "cie10_code", "diagnoses");
+        Map<Object, Long> previousByCode = facts.sumBy(previous, "cie10_code", "diagnoses");
+        Set<Object> codes = new HashSet<>(currentByCode.keySet());
+        codes.addAll(previousByCode.keySet());
+        codes.remove(null);
+        if (codes.isEmpty()) {
+            return List.of();
+        }
 
-        return results.stream()
-                .map(row -> new DiseaseByFonasaDto(
-                        (String) row[0],
-                        (String) row[1],
-                        ((Number) row[2]).longValue()))
+        // Como en SQL, se agrupa por nombre CIE-10 (varios códigos pueden compartirlo)
+        Map<String, Long> currentByName = new HashMap<>();
+        Map<String, Long> previousByName = new HashMap<>();
+        List<Object> codeList = new ArrayList<>(codes);
+        for (int from = 0; from < codeList.size(); from += 1000) {
+            Query query = nativeQuery("SELECT cie.code, cie.name FROM cie10 cie WHERE cie.code IN (:codes)");
+            query.setParameter("codes", codeList.subList(from, Math.min(from + 1000, codeList.size())));
+            @SuppressWarnings("unchecked")
+            List<Object[]> names = query.getResultList();
+            for (Object[] row : names) {
+                currentByName.merge((String) row[1], currentByCode.getOrDefault(row[0], 0L), Long::sum);
+                previousByName.merge((String) row[1], previousByCode.getOrDefault(row[0], 0L), Long::sum);
+            }
+        }
+
+        return currentByName.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .map(entry -> {
+                    long currentCount = entry.getValue();
+                    long previousCount = previousByName.getOrDefault(entry.getKey(), 0L);
+                    double variation = previousCount == 0
+                            ? 100.0
+                            : ((currentCount - (double) previousCount) / previousCount) * 100;
+                    return new EmergingDiagnosisDto(entry.getKey(), currentCount, previousCount, variation);
+                })
+                .sorted(Comparator.comparing(EmergingDiagnosisDto::getVariation).reversed())
+                .limit(20)
                 .collect(Collectors.toList());
     }
 
-    public List<MedicationByAgeGroupDto> getMedicationsByAgeGroup() {
-        String sql = """
-                SELECT
-                    CASE
-                        WHEN p.birth_date IS NULL THEN 'Desconocido'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 18 THEN '0-17'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 30 THEN '18-29'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 50 THEN '30-49'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 65 THEN '50-64'
-                        ELSE '65+'
-                    END as age_group,
-                    m.name as medication,
-                    COUNT(*) as count
-                FROM prescription pr
-                JOIN consultation c ON pr.consultation_id = c.id
-                JOIN patient p ON c.patient_id = p.id
-                JOIN prescription_medication pm ON pr.id = pm.prescription_id
-                JOIN medication m ON pm.medication_id = m.id
-                GROUP BY
-                    CASE
-                        WHEN p.birth_date IS NULL THEN 'Desconocido'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 18 THEN '0-17'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 30 THEN '18-29'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 50 THEN '30-49'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 65 THEN '50-64'
-                        ELSE '65+'
-                    END,
-                    m.name
-                ORDER BY COUNT(*) DESC
-                LIMIT 100
-                """;
-        Query query = entityManager.createNativeQuery(sql);
-        @SuppressWarnings("unchecked")
-        List<Object[]> results = query.getResultList();
+    @Cacheable(StatsCaches.DISEASES_BY_FONASA)
+    public List<DiseaseByFonasaDto> getDiseasesByFonasa(StatsPeriod period) {
+        return diagnosesByFonasa(period);
+    }
 
-        return results.stream()
-                .map(row -> new MedicationByAgeGroupDto(
-                        (String) row[0],
-                        (String) row[1],
-                        ((Number) row[2]).longValue()))
+    @Cacheable(StatsCaches.MEDICATIONS_BY_AGE_GROUP)
+    public List<MedicationByAgeGroupDto> getMedicationsByAgeGroup(StatsPeriod period) {
+        StatsPivotService.Cube cube = statsPivotService.top(PivotMeasure.PRESCRIPTION_LINES,
+                List.of(PivotDimension.AGE_GROUP, PivotDimension.MEDICATION), 100, period);
+        int ageGroup = cube.position(PivotDimension.AGE_GROUP);
+        int medication = cube.position(PivotDimension.MEDICATION);
+
+        return cube.cells().stream()
+                .map(cell -> new MedicationByAgeGroupDto(
+                        cell.key().get(ageGroup),
+                        cell.key().get(medication),
+                        cell.value()))
                 .collect(Collectors.toList());
     }
 
-    public List<DiagnosisBySexDto> getDiagnosesBySex() {
-        String sql = """
-                SELECT
-                    COALESCE(d.description, cie.name) as diagnosis,
-                    COUNT(CASE WHEN p.sex = 'M' THEN 1 END) as male_count,
-                    COUNT(CASE WHEN p.sex = 'F' THEN 1 END) as female_count
-                FROM diagnosis d
-                JOIN cie10 cie ON d.cie10_code = cie.code
-                JOIN consultation c ON d.consultation_id = c.id
-                JOIN patient p ON c.patient_id = p.id
-                GROUP BY COALESCE(d.description, cie.name)
-                ORDER BY (COUNT(CASE WHEN p.sex = 'M' THEN 1 END) + COUNT(CASE WHEN p.sex = 'F' THEN 1 END)) DESC
-                LIMIT 20
-                """;
-        Query query = entityManager.createNativeQuery(sql);
-        @SuppressWarnings("unchecked")
-        List<Object[]> results = query.getResultList();
+    @Cacheable(StatsCaches.DIAGNOSES_BY_SEX)
+    public List<DiagnosisBySexDto> getDiagnosesBySex(StatsPeriod period) {
+        // Los 20 diagnósticos con más hombres y mujeres, y luego sólo sus celdas por sexo
+        Set<String> sexes = Set.of("M", "F");
+        Set<String> top = statsPivotService.top(PivotMeasure.DIAGNOSES, List.of(PivotDimension.DIAGNOSIS),
+                        Map.of(PivotDimension.SEX, sexes), 20, period).cells().stream()
+                .map(cell -> cell.key().get(0))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (top.isEmpty()) {
+            return List.of();
+        }
+        StatsPivotService.Cube cube = statsPivotService.top(PivotMeasure.DIAGNOSES,
+                List.of(PivotDimension.DIAGNOSIS, PivotDimension.SEX),
+                Map.of(PivotDimension.SEX, sexes, PivotDimension.DIAGNOSIS, top), 2 * top.size(), period);
+        int diagnosis = cube.position(PivotDimension.DIAGNOSIS);
+        int sex = cube.position(PivotDimension.SEX);
+
+        // diagnóstico -> {hombres, mujeres}
+        Map<String, long[]> bySex = new HashMap<>();
+        for (StatsPivotService.Cube.Cell cell : cube.cells()) {
+            long[] counts = bySex.computeIfAbsent(cell.key().get(diagnosis), k -> new long[2]);
+            String value = cell.key().get(sex);
+            if ("M".equals(value)) {
+                counts[0] += cell.value();
+            } else if ("F".equals(value)) {
+                counts[1] += cell.value();
+            }
+        }
 
-        return results.stream()
-                .map(row -> new DiagnosisBySexDto(
-                        (String) row[0],
-                        ((Number) row[1]).longValue(),
-                        ((Number) row[2]).longValue()))
+        return bySex.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, long[]> entry) -> entry.getValue()[0] + entry.getValue()[1])
+                        .reversed())
+                .map(entry -> new DiagnosisBySexDto(entry.getKey(), entry.getValue()[0], entry.getValue()[1]))
                 .collect(Collectors.toList());
     }
 
-    public List<DiseaseByFonasaDto> getDiagnosesByFonasa() {
-        String sql = """
-                SELECT
-                    COALESCE(CAST(p.fonasa_tier AS VARCHAR), 'Sin información') as fonasa,
-                    COALESCE(d.description, cie.name) as diagnosis,
-                    COUNT(*) as count
-                FROM diagnosis d
-                JOIN cie10 cie ON d.cie10_code = cie.code
-                JOIN consultation c ON d.consultation_id = c.id
-                JOIN patient p ON c.patient_id = p.id
-                GROUP BY p.fonasa_tier, COALESCE(d.description, cie.name)
-                ORDER BY COUNT(*) DESC
-                LIMIT 50
-                """;
-        Query query = entityManager.createNativeQuery(sql);
-        @SuppressWarnings("unchecked")
-        List<Object[]> results = query.getResultList();
+    @Cacheable(StatsCaches.DIAGNOSES_BY_FONASA)
+    public List<DiseaseByFonasaDto> getDiagnosesByFonasa(StatsPeriod period) {
+        return diagnosesByFonasa(period);
+    }
 
-        return results.stream()
-                .map(row -> new DiseaseByFonasaDto(
-                        (String) row[0],
-                        (String) row[1],
-                        ((Number) row[2]).longValue()))
+    private List<DiseaseByFonasaDto> diagnosesByFonasa(StatsPeriod period) {
+        StatsPivotService.Cube cube = statsPivotService.top(PivotMeasure.DIAGNOSES,
+                List.of(PivotDimension.FONASA, PivotDimension.DIAGNOSIS), 50, period);
+        int fonasa = cube.position(PivotDimension.FONASA);
+        int diagnosis = cube.position(PivotDimension.DIAGNOSIS);
+
+        return cube.cells().stream()
+                .map(cell -> new DiseaseByFonasaDto(
+                        Objects.requireNonNullElse(cell.key().get(fonasa), "Sin información"),
+                        cell.key().get(diagnosis),
+                        cell.value()))
                 .collect(Collectors.toList());
     }
 
-    public List<SpecialtyDiagnosisDto> getDiagnosesBySpecialty() {
-        String sql = """
-                SELECT
-                    COALESCE(hp.specialty, 'Sin especialidad') as specialty,
-                    COALESCE(d.description, cie.name) as diagnosis,
-                    COUNT(*) as count
-                FROM diagnosis d
-                JOIN cie10 cie ON d.cie10_code = cie.code
-                JOIN consultation c ON d.consultation_id = c.id
-                LEFT JOIN healthcare_professional hp ON c.professional_id = hp.id
-                GROUP BY hp.specialty, COALESCE(d.description, cie.name)
-                ORDER BY COUNT(*) DESC
-                LIMIT 50
-                """;
-        Query query = entityManager.createNativeQuery(sql);
-        @SuppressWarnings("unchecked")
-        List<Object[]> results = query.getResultList();
+    @Cacheable(StatsCaches.DIAGNOSES_BY_SPECIALTY)
+    public List<SpecialtyDiagnosisDto> getDiagnosesBySpecialty(StatsPeriod period) {
+        StatsPivotService.Cube cube = statsPivotService.top(PivotMeasure.DIAGNOSES,
+                List.of(PivotDimension.SPECIALTY, PivotDimension.DIAGNOSIS), 50, period);
+        int specialty = cube.position(PivotDimension.SPECIALTY);
+        int diagnosis = cube.position(PivotDimension.DIAGNOSIS);
 
         // Agrupar por especialidad
         Map<String, List<DiagnosisCountDto>> specialtyMap = new HashMap<>();
-        for (Object[] row : results) {
-            String specialty = (String) row[0];
-            String diagnosis = (String) row[1];
-            Long count = ((Number) row[2]).longValue();
-
-            specialtyMap.computeIfAbsent(specialty, k -> new ArrayList<>())
-                    .add(new DiagnosisCountDto(diagnosis, count));
-        }
+        cube.cells().forEach(cell -> specialtyMap
+                .computeIfAbsent(Objects.requireNonNullElse(cell.key().get(specialty), "Sin especialidad"),
+                        k -> new ArrayList<>())
+                .add(new DiagnosisCountDto(cell.key().get(diagnosis), cell.value())));
 
         return specialtyMap.entrySet().stream()
                 .map(entry -> new SpecialtyDiagnosisDto(entry.getKey(), entry.getValue()))
                 .collect(Collectors.toList());
     }
 
-    public List<DiseaseByAgeGroupDto> getDiseasesByAgeGroup() {
-        String sql = """
-                SELECT
-                    CASE
-                        WHEN p.birth_date IS NULL THEN 'Desconocido'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 18 THEN '0-17'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 30 THEN '18-29'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 50 THEN '30-49'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 65 THEN '50-64'
-                        ELSE '65+'
-                    END as age_group,
-                    COALESCE(d.description, cie.name) as disease,
-                    COUNT(*) as count
-                FROM diagnosis d
-                JOIN cie10 cie ON d.cie10_code = cie.code
-                JOIN consultation c ON d.consultation_id = c.id
-                JOIN patient p ON c.patient_id = p.id
-                GROUP BY
-                    CASE
-                        WHEN p.birth_date IS NULL THEN 'Desconocido'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 18 THEN '0-17'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 30 THEN '18-29'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 50 THEN '30-49'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 65 THEN '50-64'
-                        ELSE '65+'
-                    END,
-                    COALESCE(d.description, cie.name)
-                ORDER BY COUNT(*) DESC
-                LIMIT 100
-                """;
-        Query query = entityManager.createNativeQuery(sql);
-        @SuppressWarnings("unchecked")
-        List<Object[]> results = query.getResultList();
-
-        return results.stream()
-                .map(row -> new DiseaseByAgeGroupDto(
-                        (String) row[0],
-                        (String) row[1],
-                        ((Number) row[2]).longValue()))
+    @Cacheable(StatsCaches.DISEASES_BY_AGE_GROUP)
+    public List<DiseaseByAgeGroupDto> getDiseasesByAgeGroup(StatsPeriod period) {
+        StatsPivotService.Cube cube = statsPivotService.top(PivotMeasure.DIAGNOSES,
+                List.of(PivotDimension.AGE_GROUP, PivotDimension.DIAGNOSIS), 100, period);
+        int ageGroup = cube.position(PivotDimension.AGE_GROUP);
+        int diagnosis = cube.position(PivotDimension.DIAGNOSIS);
+
+        return cube.cells().stream()
+                .map(cell -> new DiseaseByAgeGroupDto(
+                        cell.key().get(ageGroup),
+                        cell.key().get(diagnosis),
+                        cell.value()))
                 .collect(Collectors.toList());
     }
 
-    public List<MedicationForecastDto> getMedicationForecast() {
+    @Cacheable(StatsCaches.MEDICATION_FORECAST)
+    public List<MedicationForecastDto> getMedicationForecast(StatsPeriod period) {
         System.out.println("🔷 [STATS-SERVICE] getMedicationForecast - Iniciando...");
 
-        // Obtener uso de medicamentos en los últimos 3 meses vs 3 meses anteriores
+        // Obtener uso de medicamentos en los últimos 3 meses (o el periodo pedido) vs el periodo anterior
         String sql = """
                 WITH recent_usage AS (
                     SELECT
@@ -928,7 +1156,7 @@ public class StatsService {
                     FROM medication m
                     JOIN prescription_medication pm ON m.id = pm.medication_id
                     JOIN prescription p ON pm.prescription_id = p.id
-                    WHERE p.date >= (SELECT MAX(date) - INTERVAL '3 months' FROM consultation)
+                    WHERE (:windowUnbounded OR p.date >= :windowFrom AND p.date < :windowTo)
                     GROUP BY m.id, m.name
                 ),
                 previous_usage AS (
@@ -939,8 +1167,7 @@ public class StatsService {
                     FROM medication m
                     JOIN prescription_medication pm ON m.id = pm.medication_id
                     JOIN prescription p ON pm.prescription_id = p.id
-                    WHERE p.date >= (SELECT MAX(date) - INTERVAL '6 months' FROM consultation)
-                      AND p.date < (SELECT MAX(date) - INTERVAL '3 months' FROM consultation)
+                    WHERE p.date >= :previousFrom AND p.date < :previousTo
                     GROUP BY m.id, m.name
                 )
                 SELECT
@@ -954,7 +1181,9 @@ public class StatsService {
                 ORDER BY COALESCE(r.recent_count, 0) DESC
                 LIMIT 20
                 """;
-        Query query = entityManager.createNativeQuery(sql);
+        StatsWindow recent = period.window(lastMonths(3));
+        StatsWindow previous = period.hasRange() ? recent.preceding() : recent.precedingMonths(3);
+        Query query = nativeQuery(sql, recent, previous);
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -996,11 +1225,12 @@ public class StatsService {
 
     // ========== DEMAND ANALYSIS METHODS ==========
 
-    public List<DailyConsultationDto> getDailyConsultations(int days) {
+    @Cacheable(StatsCaches.DAILY_CONSULTATIONS)
+    public List<DailyConsultationDto> getDailyConsultations(int days, StatsPeriod period) {
         // Calcular capacidad diaria base: Total Profesionales * 12 cupos/día
         int dailyCapacity = 60; // Default (5 * 12)
         try {
-            Query countQuery = entityManager.createNativeQuery("SELECT COUNT(*) FROM healthcare_professional");
+            Query countQuery = nativeQuery("SELECT COUNT(*) FROM healthcare_professional");
             long totalProfessionals = ((Number) countQuery.getSingleResult()).longValue();
             if (totalProfessionals > 0) {
                 dailyCapacity = (int) (totalProfessionals * 12);
@@ -1009,19 +1239,20 @@ public class StatsService {
             // Fallback silencioso
         }
 
+        // consultation.date es DATE (sin hora): EXTRACT(HOUR ...) exige TIMESTAMP en PostgreSQL 14+
         String sql = """
                 SELECT
                     c.date,
                     COUNT(*) as total_consultations,
-                    COUNT(CASE WHEN EXTRACT(HOUR FROM c.date) < 13 THEN 1 END) as morning_consultations,
-                    COUNT(CASE WHEN EXTRACT(HOUR FROM c.date) >= 13 THEN 1 END) as afternoon_consultations,
+                    COUNT(CASE WHEN EXTRACT(HOUR FROM CAST(c.date AS TIMESTAMP)) < 13 THEN 1 END) as morning_consultations,
+                    COUNT(CASE WHEN EXTRACT(HOUR FROM CAST(c.date AS TIMESTAMP)) >= 13 THEN 1 END) as afternoon_consultations,
                     COUNT(CASE WHEN c.type = 'Urgencia' THEN 1 END) as emergency_consultations
                 FROM consultation c
-                WHERE c.date >= (SELECT MAX(date) FROM consultation) - INTERVAL '%d days'
+                WHERE (:windowUnbounded OR c.date >= :windowFrom AND c.date < :windowTo)
                 GROUP BY c.date
                 ORDER BY c.date DESC
-                """.formatted(days);
-        Query query = entityManager.createNativeQuery(sql);
+                """;
+        Query query = nativeQuery(sql, period.window(lastDays(days)));
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -1038,25 +1269,28 @@ public class StatsService {
                 .collect(Collectors.toList());
     }
 
-    public List<ProfessionalWorkloadDto> getProfessionalWorkload() {
+    @Cacheable(StatsCaches.PROFESSIONAL_WORKLOAD)
+    public List<ProfessionalWorkloadDto> getProfessionalWorkload(StatsPeriod period) {
         System.out.println("🔷 [STATS-SERVICE] getProfessionalWorkload - Iniciando consulta...");
 
         String sql = """
                 SELECT
                     COALESCE(hp.name, 'Sin nombre') as professional_name,
                     COALESCE(hp.specialty, 'Sin especialidad') as specialty,
-                    COUNT(c.id) as total_consultations,
-                    ROUND(COUNT(c.id)::numeric / 30, 1) as average_per_day,
-                    COUNT(CASE WHEN c.date = (SELECT MAX(date) FROM consultation) THEN 1 END) as patients_today,
+                    COALESCE(SUM(f.consultations), 0) as total_consultations,
+                    ROUND(COALESCE(SUM(f.consultations), 0)::numeric / :windowDays, 1) as average_per_day,
+                    COALESCE(SUM(CASE WHEN f.date = CAST(:refDate AS DATE) THEN f.consultations END), 0) as patients_today,
                     0 as pending_appointments -- TODO: implementar cuando haya tabla de citas
                 FROM healthcare_professional hp
-                LEFT JOIN consultation c ON hp.id = c.professional_id
-                    AND c.date >= (SELECT MAX(date) - INTERVAL '30 days' FROM consultation)
+                LEFT JOIN consultation_daily_fact f ON hp.id = f.professional_id
+                    AND (:windowUnbounded OR f.date >= :windowFrom AND f.date < :windowTo)
                 GROUP BY hp.id, hp.name, hp.specialty
-                HAVING COUNT(c.id) > 0
+                HAVING COALESCE(SUM(f.consultations), 0) > 0
                 ORDER BY total_consultations DESC
                 """;
-        Query query = entityManager.createNativeQuery(sql);
+        StatsWindow window = period.window(lastDays(30));
+        Query query = nativeQuery(sql, window);
+        query.setParameter("windowDays", averagingDays(period, window));
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -1082,33 +1316,50 @@ public class StatsService {
         return dtos;
     }
 
-    public List<SpecialtyWorkloadDto> getSpecialtyWorkload() {
+    @Cacheable(StatsCaches.SPECIALTY_WORKLOAD)
+    public List<SpecialtyWorkloadDto> getSpecialtyWorkload(StatsPeriod period) {
         System.out.println("🔷 [STATS-SERVICE] getSpecialtyWorkload - Iniciando consulta...");
 
         String sql = """
+                WITH workload AS (
+                    SELECT f.professional_id, SUM(f.consultations) as consultations
+                    FROM consultation_daily_fact f
+                    WHERE (:windowUnbounded OR f.date >= :windowFrom AND f.date < :windowTo)
+                    GROUP BY f.professional_id
+                ),
+                by_specialty AS (
+                    SELECT
+                        COALESCE(hp.specialty, 'Sin especialidad') as specialty,
+                        COUNT(hp.id) as professionals,
+                        COALESCE(SUM(w.consultations), 0) as consultations,
+                        -- Umbrales de carga definidos para 30 días: se normaliza la ventana pedida
+                        COALESCE(SUM(w.consultations), 0)::numeric * 30 / :windowDays as consultations_30_days
+                    FROM healthcare_professional hp
+                    LEFT JOIN workload w ON w.professional_id = hp.id
+                    GROUP BY hp.specialty
+                )
                 SELECT
-                    COALESCE(hp.specialty, 'Sin especialidad') as specialty,
-                    COUNT(DISTINCT hp.id) as total_professionals,
-                    COUNT(c.id) as total_consultations,
-                    ROUND(COUNT(c.id)::numeric / NULLIF(COUNT(DISTINCT hp.id), 0), 1) as average_per_professional,
+                    specialty,
+                    professionals as total_professionals,
+                    consultations as total_consultations,
+                    ROUND(consultations::numeric / NULLIF(professionals, 0), 1) as average_per_professional,
                     CASE
-                        WHEN COUNT(c.id)::numeric / NULLIF(COUNT(DISTINCT hp.id), 0) > 25 THEN 95
-                        WHEN COUNT(c.id)::numeric / NULLIF(COUNT(DISTINCT hp.id), 0) > 20 THEN 85
-                        WHEN COUNT(c.id)::numeric / COUNT(DISTINCT hp.id) > 15 THEN 75
+                        WHEN consultations_30_days / NULLIF(professionals, 0) > 25 THEN 95
+                        WHEN consultations_30_days / NULLIF(professionals, 0) > 20 THEN 85
+                        WHEN consultations_30_days / professionals > 15 THEN 75
                         ELSE 60
                     END as capacity_utilization,
                     CASE
-                        WHEN COUNT(c.id)::numeric / COUNT(DISTINCT hp.id) > 25 THEN 'Sobrecargado'
-                        WHEN COUNT(c.id)::numeric / COUNT(DISTINCT hp.id) > 20 THEN 'Alta demanda'
+                        WHEN consultations_30_days / professionals > 25 THEN 'Sobrecargado'
+                        WHEN consultations_30_days / professionals > 20 THEN 'Alta demanda'
                         ELSE 'Normal'
                     END as status
-                FROM healthcare_professional hp
-                LEFT JOIN consultation c ON hp.id = c.professional_id
-                    AND c.date >= (SELECT MAX(date) - INTERVAL '30 days' FROM consultation)
-                GROUP BY hp.specialty
+                FROM by_specialty
                 ORDER BY total_consultations DESC
                 """;
-        Query query = entityManager.createNativeQuery(sql);
+        StatsWindow window = period.window(lastDays(30));
+        Query query = nativeQuery(sql, window);
+        query.setParameter("windowDays", averagingDays(period, window));
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -1135,6 +1386,13 @@ public class StatsService {
         return dtos;
     }
 
+    /**
+     * Días sobre los que se promedia la carga: los del rango pedido, o 30 para la ventana por defecto.
+     */
+    private static int averagingDays(StatsPeriod period, StatsWindow window) {
+        return period.hasRange() ? window.days() : 30;
+    }
+
     /**
      * Calcula la confianza de predicción basada en la varianza de los datos.
      * Menor varianza = mayor confianza
@@ -1178,7 +1436,7 @@ public class StatsService {
                     END as estacion,
                     COUNT(*) as consultas
                 FROM consultation
-                WHERE date >= (SELECT MAX(date) - INTERVAL '1 year' FROM consultation)
+                WHERE (:windowUnbounded OR date >= :windowFrom AND date < :windowTo)
                 GROUP BY
                     CASE
                         WHEN EXTRACT(MONTH FROM date) IN (6, 7, 8) THEN 'Invierno'
@@ -1189,7 +1447,7 @@ public class StatsService {
                 """;
 
         try {
-            Query query = entityManager.createNativeQuery(sql);
+            Query query = nativeQuery(sql, lastMonths(12));
             @SuppressWarnings("unchecked")
             List<Object[]> results = query.getResultList();
 
@@ -1252,7 +1510,7 @@ public class StatsService {
 
         // Insight basado en especialidades más consultadas
         try {
-            List<SpecialtyCountDto> especialidades = getConsultationsBySpecialtyPrivate();
+            List<SpecialtyCountDto> especialidades = consultationsBySpecialty(StatsWindow.unbounded());
             if (!especialidades.isEmpty()) {
                 String topEspecialidad = especialidades.get(0).specialty();
                 insights.add("Mayor demanda en: " + topEspecialidad);
@@ -1272,15 +1530,18 @@ public class StatsService {
     /**
      * Obtiene predicciones de demanda basadas en datos históricos
      */
+    @Cacheable(StatsCaches.DEMAND_PREDICTION)
     public DemandPredictionDto getDemandPrediction() {
         // Calcular tasa de crecimiento (últimos 30 días vs 30 días anteriores)
         String growthSql = """
                 SELECT
-                    COUNT(CASE WHEN date >= (SELECT MAX(date) - INTERVAL '30 days' FROM consultation) THEN 1 END) as current_period,
-                    COUNT(CASE WHEN date >= (SELECT MAX(date) - INTERVAL '60 days' FROM consultation) AND date < (SELECT MAX(date) - INTERVAL '30 days' FROM consultation) THEN 1 END) as previous_period
+                    COUNT(CASE WHEN date >= :windowFrom THEN 1 END) as current_period,
+                    COUNT(CASE WHEN date < :previousTo THEN 1 END) as previous_period
                 FROM consultation
+                WHERE date >= :previousFrom AND date < :windowTo
                 """;
-        Query growthQuery = entityManager.createNativeQuery(growthSql);
+        StatsWindow currentPeriod = lastDays(30);
+        Query growthQuery = nativeQuery(growthSql, currentPeriod, currentPeriod.precedingDays(30));
         Object[] growthResult = (Object[]) growthQuery.getSingleResult();
         long currentCount = ((Number) growthResult[0]).longValue();
         long prevCount = ((Number) growthResult[1]).longValue();
@@ -1298,11 +1559,11 @@ public class StatsService {
                     EXTRACT(DOW FROM date) as day_of_week,
                     COUNT(*) as consultations
                 FROM consultation
-                WHERE date >= (SELECT MAX(date) - INTERVAL '30 days' FROM consultation)
+                WHERE (:windowUnbounded OR date >= :windowFrom AND date < :windowTo)
                 GROUP BY EXTRACT(DOW FROM date)
                 ORDER BY day_of_week
                 """;
-        Query historicalQuery = entityManager.createNativeQuery(historicalSql);
+        Query historicalQuery = nativeQuery(historicalSql, currentPeriod);
         @SuppressWarnings("unchecked")
         List<Object[]> historicalResults = historicalQuery.getResultList();
 
@@ -1351,6 +1612,7 @@ public class StatsService {
                 confianza);
     }
 
+    @Cacheable(StatsCaches.AI_ANALYSIS)
     public AIAnalysisDto getAIAnalysis() {
         // Análisis de tendencias usando datos históricos
         String trendSql = """
@@ -1358,11 +1620,11 @@ public class StatsService {
                     TO_CHAR(date, 'YYYY-MM') as month,
                     COUNT(*) as consultations
                 FROM consultation
-                WHERE date >= (SELECT MAX(date) - INTERVAL '6 months' FROM consultation)
+                WHERE (:windowUnbounded OR date >= :windowFrom AND date < :windowTo)
                 GROUP BY TO_CHAR(date, 'YYYY-MM')
                 ORDER BY TO_CHAR(date, 'YYYY-MM')
                 """;
-        Query trendQuery = entityManager.createNativeQuery(trendSql);
+        Query trendQuery = nativeQuery(trendSql, lastMonths(6));
         @SuppressWarnings("unchecked")
         List<Object[]> trendResults = trendQuery.getResultList();
 
@@ -1411,23 +1673,29 @@ public class StatsService {
     /**
      * E13: Gráfico anual de derivaciones a especialistas
      */
-    public ReferralStatsDto getReferralStats() {
+    @Cacheable(StatsCaches.REFERRALS)
+    public ReferralStatsDto getReferralStats(StatsPeriod period) {
+        StatsWindow window = period.window(StatsWindow.unbounded());
         // Consultas que son derivaciones (tipo REFERRAL o derivadas a otra
         // especialidad)
         String totalSql = """
                 SELECT COUNT(*) as total
                 FROM consultation c
-                WHERE c.type = 'REFERRAL'
-                OR c.referral_specialist IS NOT NULL
+                WHERE (c.type = 'REFERRAL' OR c.referral_specialist IS NOT NULL)
+                AND (:windowUnbounded OR c.date >= :windowFrom AND c.date < :windowTo)
                 """;
-        Query totalQuery = entityManager.createNativeQuery(totalSql);
+        Query totalQuery = nativeQuery(totalSql, window);
         Long totalReferrals = 0L;
         try {
             totalReferrals = ((Number) totalQuery.getSingleResult()).longValue();
         } catch (Exception e) {
             // Si la columna no existe, usamos consultas por tipo
-            String altSql = "SELECT COUNT(*) FROM consultation WHERE type LIKE '%derivaci%' OR type LIKE '%referral%'";
-            Query altQuery = entityManager.createNativeQuery(altSql);
+            String altSql = """
+                    SELECT COUNT(*) FROM consultation
+                    WHERE (type LIKE '%derivaci%' OR type LIKE '%referral%')
+                    AND (:windowUnbounded OR date >= :windowFrom AND date < :windowTo)
+                    """;
+            Query altQuery = nativeQuery(altSql, window);
             try {
                 totalReferrals = ((Number) altQuery.getSingleResult()).longValue();
             } catch (Exception ex) {
@@ -1438,15 +1706,17 @@ public class StatsService {
         // Tendencia mensual de derivaciones
         String monthlySql = """
                 SELECT
-                    TO_CHAR(c.date, 'YYYY-MM') as month,
+                    %1$s as period,
                     COUNT(*) as count
                 FROM consultation c
                 LEFT JOIN healthcare_professional hp ON c.professional_id = hp.id
                 WHERE hp.specialty IS NOT NULL
-                GROUP BY TO_CHAR(c.date, 'YYYY-MM')
-                ORDER BY TO_CHAR(c.date, 'YYYY-MM')
-                """;
-        Query monthlyQuery = entityManager.createNativeQuery(monthlySql);
+                AND (:windowUnbounded OR c.date >= :windowFrom AND c.date < :windowTo)
+                AND c.date IS NOT NULL
+                GROUP BY %1$s
+                ORDER BY %1$s
+                """.formatted(period.granularity(StatsGranularity.MONTH).label("c.date"));
+        Query monthlyQuery = nativeQuery(monthlySql, window);
         @SuppressWarnings("unchecked")
         List<Object[]> monthlyResults = monthlyQuery.getResultList();
 
@@ -1464,11 +1734,12 @@ public class StatsService {
                 FROM consultation c
                 LEFT JOIN healthcare_professional hp ON c.professional_id = hp.id
                 WHERE hp.specialty IS NOT NULL AND hp.specialty != 'Medicina General'
+                AND (:windowUnbounded OR c.date >= :windowFrom AND c.date < :windowTo)
                 GROUP BY hp.specialty
                 ORDER BY COUNT(*) DESC
                 LIMIT 10
                 """;
-        Query specialtyQuery = entityManager.createNativeQuery(specialtySql);
+        Query specialtyQuery = nativeQuery(specialtySql, window);
         @SuppressWarnings("unchecked")
         List<Object[]> specialtyResults = specialtyQuery.getResultList();
 
@@ -1489,16 +1760,18 @@ public class StatsService {
     /**
      * T7/O8: Consultas por tipo (urgentes vs generales) con detalle
      */
-    public List<ConsultationTypeStatsDto> getConsultationsByTypeDetailed() {
+    @Cacheable(StatsCaches.CONSULTATIONS_BY_TYPE)
+    public List<ConsultationTypeStatsDto> getConsultationsByTypeDetailed(StatsPeriod period) {
         String sql = """
                 SELECT
                     COALESCE(c.type, 'General') as type,
                     COUNT(*) as count
                 FROM consultation c
+                WHERE (:windowUnbounded OR c.date >= :windowFrom AND c.date < :windowTo)
                 GROUP BY c.type
                 ORDER BY COUNT(*) DESC
                 """;
-        Query query = entityManager.createNativeQuery(sql);
+        Query query = nativeQuery(sql, period.window(StatsWindow.unbounded()));
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -1529,22 +1802,25 @@ public class StatsService {
     /**
      * E6: Tendencia detallada de enfermedades respiratorias
      */
-    public RespiratoryTrendDto getRespiratoryTrendDetailed() {
+    @Cacheable(StatsCaches.RESPIRATORY_TREND)
+    public RespiratoryTrendDto getRespiratoryTrendDetailed(StatsPeriod period) {
         System.out.println("🔷 [STATS-SERVICE] getRespiratoryTrendDetailed - Iniciando...");
 
         // Total de casos respiratorios actual y anterior
         String totalSql = """
                 SELECT
-                    COUNT(CASE WHEN c.date >= (SELECT MAX(date) - INTERVAL '1 month' FROM consultation) THEN 1 END) as current_month,
-                    COUNT(CASE WHEN c.date >= (SELECT MAX(date) - INTERVAL '2 months' FROM consultation)
-                               AND c.date < (SELECT MAX(date) - INTERVAL '1 month' FROM consultation) THEN 1 END) as previous_month
+                    COUNT(CASE WHEN c.date >= :windowFrom THEN 1 END) as current_month,
+                    COUNT(CASE WHEN c.date < :previousTo THEN 1 END) as previous_month
                 FROM consultation c
                 JOIN diagnosis d ON c.id = d.consultation_id
                 JOIN cie10 cie ON d.cie10_code = cie.code
-                WHERE LOWER(cie.name) SIMILAR TO
-                    '%(bronquitis|resfri|neumon|faringitis|sinusitis|respiratori|gripe|influenza|asma|tos|rinof)%'
-                """;
-        Query totalQuery = entityManager.createNativeQuery(totalSql);
+                WHERE c.date >= :previousFrom AND c.date < :windowTo
+                AND cie.chapter_id = %d
+                """.formatted(Cie10Chapter.X.getId());
+        // Con rango explícito se compara contra el periodo de igual duración que lo precede
+        StatsWindow currentMonth = period.window(lastMonths(1));
+        StatsWindow previousMonth = period.hasRange() ? currentMonth.preceding() : currentMonth.precedingMonths(1);
+        Query totalQuery = nativeQuery(totalSql, currentMonth, previousMonth);
         Object[] totalResult = (Object[]) totalQuery.getSingleResult();
         Long currentTotal = ((Number) totalResult[0]).longValue();
         Long previousTotal = ((Number) totalResult[1]).longValue();
@@ -1557,23 +1833,23 @@ public class StatsService {
         // Tendencia mensual por enfermedad
         String trendSql = """
                 SELECT
-                    TO_CHAR(c.date, 'YYYY-MM') as month,
-                    COUNT(CASE WHEN LOWER(cie.name) LIKE '%bronquitis%' THEN 1 END) as bronquitis,
-                    COUNT(CASE WHEN LOWER(cie.name) LIKE '%resfri%' OR LOWER(cie.name) LIKE '%rinof%' THEN 1 END) as resfriado,
-                    COUNT(CASE WHEN LOWER(cie.name) LIKE '%neumon%' THEN 1 END) as neumonia,
-                    COUNT(CASE WHEN LOWER(cie.name) LIKE '%faringitis%' OR LOWER(cie.name) LIKE '%amigdalitis%' THEN 1 END) as faringitis,
-                    COUNT(CASE WHEN LOWER(cie.name) LIKE '%sinusitis%' OR LOWER(cie.name) LIKE '%rinitis%' THEN 1 END) as sinusitis,
+                    %1$s as period,
+                    COUNT(CASE WHEN %3$s = 'Bronquitis aguda' THEN 1 END) as bronquitis,
+                    COUNT(CASE WHEN %3$s = 'Resfriado común' THEN 1 END) as resfriado,
+                    COUNT(CASE WHEN %3$s = 'Neumonía' THEN 1 END) as neumonia,
+                    COUNT(CASE WHEN %3$s = 'Faringitis' THEN 1 END) as faringitis,
+                    COUNT(CASE WHEN %3$s = 'Sinusitis' THEN 1 END) as sinusitis,
                     COUNT(*) as total
                 FROM consultation c
                 JOIN diagnosis d ON c.id = d.consultation_id
                 JOIN cie10 cie ON d.cie10_code = cie.code
-                WHERE LOWER(cie.name) SIMILAR TO
-                    '%(bronquitis|resfri|neumon|faringitis|sinusitis|respiratori|gripe|influenza|asma|tos|rinof|amigdal|rinitis)%'
-                AND c.date >= (SELECT MAX(date) - INTERVAL '12 months' FROM consultation)
-                GROUP BY TO_CHAR(c.date, 'YYYY-MM')
-                ORDER BY month
-                """;
-        Query trendQuery = entityManager.createNativeQuery(trendSql);
+                WHERE cie.chapter_id = %2$d
+                AND (:windowUnbounded OR c.date >= :windowFrom AND c.date < :windowTo)
+                GROUP BY %1$s
+                ORDER BY period
+                """.formatted(period.granularity(StatsGranularity.MONTH).label("c.date"), Cie10Chapter.X.getId(),
+                RESPIRATORY_DISEASE);
+        Query trendQuery = nativeQuery(trendSql, period.window(lastMonths(12)));
         @SuppressWarnings("unchecked")
         List<Object[]> trendResults = trendQuery.getResultList();
 
@@ -1593,44 +1869,21 @@ public class StatsService {
         // Detalle por enfermedad con variación
         String diseaseSql = """
                 WITH current_month AS (
-                    SELECT
-                        CASE
-                            WHEN LOWER(cie.name) LIKE '%bronquitis%' THEN 'Bronquitis aguda'
-                            WHEN LOWER(cie.name) LIKE '%resfri%' OR LOWER(cie.name) LIKE '%rinof%' THEN 'Resfriado común'
-                            WHEN LOWER(cie.name) LIKE '%neumon%' THEN 'Neumonía'
-                            WHEN LOWER(cie.name) LIKE '%faringitis%' OR LOWER(cie.name) LIKE '%amigdalitis%' THEN 'Faringitis'
-                            WHEN LOWER(cie.name) LIKE '%sinusitis%' OR LOWER(cie.name) LIKE '%rinitis%' THEN 'Sinusitis'
-                            WHEN LOWER(cie.name) LIKE '%asma%' THEN 'Asma'
-                            ELSE 'Otra respiratoria'
-                        END as disease,
-                        COUNT(*) as current_count
+                    SELECT %2$s as disease, COUNT(*) as current_count
                     FROM diagnosis d
                     JOIN cie10 cie ON d.cie10_code = cie.code
                     JOIN consultation c ON d.consultation_id = c.id
-                    WHERE c.date >= (SELECT MAX(date) - INTERVAL '1 month' FROM consultation)
-                    AND LOWER(cie.name) SIMILAR TO
-                        '%(bronquitis|resfri|neumon|faringitis|sinusitis|respiratori|gripe|influenza|asma|tos|rinof|amigdal|rinitis)%'
+                    WHERE (:windowUnbounded OR c.date >= :windowFrom AND c.date < :windowTo)
+                    AND cie.chapter_id = %1$d
                     GROUP BY 1
                 ),
                 previous_month AS (
-                    SELECT
-                        CASE
-                            WHEN LOWER(cie.name) LIKE '%bronquitis%' THEN 'Bronquitis aguda'
-                            WHEN LOWER(cie.name) LIKE '%resfri%' OR LOWER(cie.name) LIKE '%rinof%' THEN 'Resfriado común'
-                            WHEN LOWER(cie.name) LIKE '%neumon%' THEN 'Neumonía'
-                            WHEN LOWER(cie.name) LIKE '%faringitis%' OR LOWER(cie.name) LIKE '%amigdalitis%' THEN 'Faringitis'
-                            WHEN LOWER(cie.name) LIKE '%sinusitis%' OR LOWER(cie.name) LIKE '%rinitis%' THEN 'Sinusitis'
-                            WHEN LOWER(cie.name) LIKE '%asma%' THEN 'Asma'
-                            ELSE 'Otra respiratoria'
-                        END as disease,
-                        COUNT(*) as previous_count
+                    SELECT %2$s as disease, COUNT(*) as previous_count
                     FROM diagnosis d
                     JOIN cie10 cie ON d.cie10_code = cie.code
                     JOIN consultation c ON d.consultation_id = c.id
-                    WHERE c.date >= (SELECT MAX(date) - INTERVAL '2 months' FROM consultation)
-                    AND c.date < (SELECT MAX(date) - INTERVAL '1 month' FROM consultation)
-                    AND LOWER(cie.name) SIMILAR TO
-                        '%(bronquitis|resfri|neumon|faringitis|sinusitis|respiratori|gripe|influenza|asma|tos|rinof|amigdal|rinitis)%'
+                    WHERE c.date >= :previousFrom AND c.date < :previousTo
+                    AND cie.chapter_id = %1$d
                     GROUP BY 1
                 )
                 SELECT
@@ -1640,8 +1893,8 @@ public class StatsService {
                 FROM current_month c
                 FULL OUTER JOIN previous_month p ON c.disease = p.disease
                 ORDER BY COALESCE(c.current_count, 0) DESC
-                """;
-        Query diseaseQuery = entityManager.createNativeQuery(diseaseSql);
+                """.formatted(Cie10Chapter.X.getId(), RESPIRATORY_DISEASE);
+        Query diseaseQuery = nativeQuery(diseaseSql, currentMonth, previousMonth);
         @SuppressWarnings("unchecked")
         List<Object[]> diseaseResults = diseaseQuery.getResultList();
 
@@ -1668,16 +1921,17 @@ public class StatsService {
     /**
      * T14: Recetas frecuentes por grupo etario
      */
-    public List<PrescriptionsByAgeGroupDto> getPrescriptionsByAgeGroupDetailed() {
+    @Cacheable(StatsCaches.PRESCRIPTIONS_BY_AGE_GROUP)
+    public List<PrescriptionsByAgeGroupDto> getPrescriptionsByAgeGroupDetailed(StatsPeriod period) {
         String sql = """
                 SELECT
                     m.name as medication,
                     CASE
                         WHEN p.birth_date IS NULL THEN 'UNKNOWN'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 18 THEN 'KIDS'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 30 THEN 'YOUNG'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 50 THEN 'ADULTS'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 65 THEN 'SENIORS'
+                        WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 18 THEN 'KIDS'
+                        WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 30 THEN 'YOUNG'
+                        WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 50 THEN 'ADULTS'
+                        WHEN EXTRACT(YEAR FROM AGE(CAST(:refDate AS DATE), p.birth_date)) < 65 THEN 'SENIORS'
                         ELSE 'ELDERLY'
                     END as age_group,
                     COUNT(*) as count
@@ -1686,18 +1940,11 @@ public class StatsService {
                 JOIN patient p ON c.patient_id = p.id
                 JOIN prescription_medication pm ON pr.id = pm.prescription_id
                 JOIN medication m ON pm.medication_id = m.id
-                GROUP BY m.name,
-                    CASE
-                        WHEN p.birth_date IS NULL THEN 'UNKNOWN'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 18 THEN 'KIDS'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 30 THEN 'YOUNG'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 50 THEN 'ADULTS'
-                        WHEN EXTRACT(YEAR FROM AGE((SELECT MAX(date) FROM consultation), p.birth_date)) < 65 THEN 'SENIORS'
-                        ELSE 'ELDERLY'
-                    END
+                WHERE (:windowUnbounded OR pr.date >= :windowFrom AND pr.date < :windowTo)
+                GROUP BY m.name, age_group
                 ORDER BY m.name, COUNT(*) DESC
                 """;
-        Query query = entityManager.createNativeQuery(sql);
+        Query query = nativeQuery(sql, period.window(StatsWindow.unbounded()));
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -1726,18 +1973,19 @@ public class StatsService {
                 .collect(Collectors.toList());
     }
 
-    public List<WeeklyTrendDto> getPrescriptionWeeklyTrend() {
+    @Cacheable(StatsCaches.PRESCRIPTION_WEEKLY_TREND)
+    public List<WeeklyTrendDto> getPrescriptionWeeklyTrend(StatsPeriod period) {
         String sql = """
                 SELECT
                     TO_CHAR(date, 'Day') as day_name,
                     COUNT(*) as count,
                     EXTRACT(DOW FROM date) as day_of_week
                 FROM prescription
-                WHERE date >= (SELECT MAX(date) - INTERVAL '7 days' FROM consultation)
+                WHERE (:windowUnbounded OR date >= :windowFrom AND date < :windowTo)
                 GROUP BY TO_CHAR(date, 'Day'), EXTRACT(DOW FROM date)
                 ORDER BY day_of_week
                 """;
-        Query query = entityManager.createNativeQuery(sql);
+        Query query = nativeQuery(sql, period.window(lastDays(7)));
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
@@ -1765,13 +2013,13 @@ public class StatsService {
                     SELECT hp.specialty, COUNT(*) as count
                     FROM consultation c
                     JOIN healthcare_professional hp ON c.professional_id = hp.id
-                    WHERE c.date >= (SELECT MAX(date) - INTERVAL '7 days' FROM consultation)
+                    WHERE (:windowUnbounded OR c.date >= :windowFrom AND c.date < :windowTo)
                     AND hp.specialty IS NOT NULL
                     GROUP BY hp.specialty
                     ORDER BY count DESC
                     LIMIT 3
                     """;
-            Query query = entityManager.createNativeQuery(sql);
+            Query query = nativeQuery(sql, lastDays(7));
             @SuppressWarnings("unchecked")
             List<Object[]> results = query.getResultList();
 
@@ -1788,6 +2036,25 @@ public class StatsService {
             // Ignorar errores
         }
 
+        // Pacientes crónicos sin control reciente (registro de condiciones crónicas)
+        try {
+            String sql = """
+                    SELECT COUNT(*)
+                    FROM (
+                        SELECT pcc.patient_id
+                        FROM patient_chronic_condition pcc
+                        GROUP BY pcc.patient_id
+                        HAVING MAX(pcc.last_diagnosed) < :windowFrom
+                    ) sin_control
+                    """;
+            long withoutFollowUp = ((Number) nativeQuery(sql, lastMonths(6)).getSingleResult()).longValue();
+            if (withoutFollowUp > 0) {
+                riskFactors.add(withoutFollowUp + " pacientes crónicos sin control en los últimos 6 meses");
+            }
+        } catch (Exception e) {
+            // Ignorar errores
+        }
+
         // Verificar estacionalidad actual
         int month = java.time.LocalDate.now().getMonthValue();
         if (month >= 5 && month <= 8) { // Invierno en Chile
@@ -1820,12 +2087,12 @@ public class StatsService {
                         EXTRACT(DOW FROM date) as day_of_week,
                         COUNT(*) as count
                     FROM consultation
-                    WHERE date >= (SELECT MAX(date) - INTERVAL '30 days' FROM consultation)
+                    WHERE (:windowUnbounded OR date >= :windowFrom AND date < :windowTo)
                     GROUP BY EXTRACT(DOW FROM date)
                     ORDER BY count DESC
                     LIMIT 2
                     """;
-            Query query = entityManager.createNativeQuery(sql);
+            Query query = nativeQuery(sql, lastDays(30));
             @SuppressWarnings("unchecked")
             List<Object[]> results = query.getResultList();
 
@@ -0,0 +1,93 @@
+package cl.sicc.siccapi.stats.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+
+/**
+ * Ventana de tiempo semiabierta {@code [from, to)} para filtrar estadísticas por fecha.
+ *
+ * En SQL se expresa siempre como {@code col >= :xFrom AND col < :xTo} sobre la columna sin
+ * transformar, de modo que el planificador puede usar los índices por fecha (a diferencia de
+ * {@code TO_CHAR(col, ...) = ...} o {@code EXTRACT(...)}, que obligan a recorrer la tabla).
+ *
+ * La ventana sin límites ({@link #unbounded()}) no filtra y cuenta también los registros sin
+ * fecha; se distingue por {@code unlimited}, no por sus fechas, así que un rango explícito que
+ * coincida con las centinela sigue siendo un rango.
+ */
+public record StatsWindow(LocalDate from, LocalDate to, boolean unlimited) {
+
+    private static final LocalDate MIN = LocalDate.of(1900, 1, 1);
+    private static final LocalDate MAX = LocalDate.of(3000, 1, 1);
+
+    public StatsWindow {
+        Objects.requireNonNull(from, "from");
+        Objects.requireNonNull(to, "to");
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Ventana vacía: " + from + " - " + to);
+        }
+    }
+
+    public StatsWindow(LocalDate from, LocalDate to) {
+        this(from, to, false);
+    }
+
+    /**
+     * Sin límite: para estadísticas históricas cuando no se pide un rango. {@code from}/{@code to}
+     * son fechas centinela, sólo para completar un rango con un extremo.
+     */
+    public static StatsWindow unbounded() {
+        return new StatsWindow(MIN, MAX, true);
+    }
+
+    public boolean isUnbounded() {
+        return unlimited;
+    }
+
+    /**
+     * Los últimos {@code days} días hasta la fecha de referencia, ambos extremos incluidos.
+     */
+    public static StatsWindow lastDays(LocalDate reference, int days) {
+        return new StatsWindow(reference.minusDays(days), reference.plusDays(1));
+    }
+
+    /**
+     * Los últimos {@code months} meses hasta la fecha de referencia, ambos extremos incluidos.
+     */
+    public static StatsWindow lastMonths(LocalDate reference, int months) {
+        return new StatsWindow(reference.minusMonths(months), reference.plusDays(1));
+    }
+
+    /**
+     * El mes calendario completo.
+     */
+    public static StatsWindow month(YearMonth month) {
+        return new StatsWindow(month.atDay(1), month.plusMonths(1).atDay(1));
+    }
+
+    /**
+     * Los {@code days} días inmediatamente anteriores a esta ventana.
+     */
+    public StatsWindow precedingDays(int days) {
+        return new StatsWindow(from.minusDays(days), from);
+    }
+
+    /**
+     * Los {@code months} meses inmediatamente anteriores a esta ventana.
+     */
+    public StatsWindow precedingMonths(int months) {
+        return new StatsWindow(from.minusMonths(months), from);
+    }
+
+    /**
+     * Ventana de igual duración inmediatamente anterior a esta.
+     */
+    public StatsWindow preceding() {
+        return precedingDays(days());
+    }
+
+    public int days() {
+        return (int) ChronoUnit.DAYS.between(from, to);
+    }
+}
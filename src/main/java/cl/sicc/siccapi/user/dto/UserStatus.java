@@ -0,0 +1,9 @@
+package cl.sicc.siccapi.user.dto;
+
+import cl.sicc.siccapi.user.domain.Role;
+
+/**
+ * Rol y estado de un usuario: lo único que el filtro JWT necesita confirmar en cada request.
+ */
+public record UserStatus(Role role, boolean enabled) {
+}
@@ -1,7 +1,10 @@
 package cl.sicc.siccapi.user.repository;
 
 import cl.sicc.siccapi.user.domain.User;
+import cl.sicc.siccapi.user.dto.UserStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -10,5 +13,8 @@ import java.util.Optional;
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    @Query("SELECT new cl.sicc.siccapi.user.dto.UserStatus(u.role, u.enabled) FROM User u WHERE u.email = :email")
+    Optional<UserStatus> findStatusByEmail(@Param("email") String email);
 }
 
@@ -2,10 +2,14 @@ package cl.sicc.siccapi.user.service;
 
 import cl.sicc.siccapi.user.domain.User;
 import cl.sicc.siccapi.user.dto.UserDTO;
+import cl.sicc.siccapi.user.dto.UserStatus;
 import cl.sicc.siccapi.user.mapper.UserMapper;
 import cl.sicc.siccapi.user.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -14,7 +18,9 @@ import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
+
+    public static final String STATUS_CACHE = "userStatus";
 
     private final UserRepository userRepository;
     private final UserMapper userMapper;
@@ -29,6 +35,29 @@ public class UserService implements UserDetailsService {
         return userRepository.findByEmail(email);
     }
 
+    /**
+     * Guarda el nuevo hash cuando el proveedor de autenticación lo regenera en un login (factor de
+     * trabajo de BCrypt subido en la configuración).
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User entity = userRepository.findByEmail(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado: " + user.getUsername()));
+        entity.setPassword(newPassword);
+        return userRepository.save(entity);
+    }
+
+    /**
+     * Rol y estado del usuario para autenticar cada request sin ir a la base. El caché
+     * ({@code cache.specs.userStatus}) es de vida corta: desactivar a un usuario o cambiar su rol
+     * alcanza a los tokens ya emitidos en a lo más ese tiempo.
+     */
+    @Cacheable(STATUS_CACHE)
+    public Optional<UserStatus> findStatus(String email) {
+        return userRepository.findStatusByEmail(email);
+    }
+
+    @CacheEvict(value = STATUS_CACHE, key = "#user.email")
     public User save(User user) {
         return userRepository.save(user);
     }
@@ -0,0 +1,12 @@
+-- Tokens revocados en el logout, por jti (o id de sesión). Cada nodo los mantiene en memoria
+-- (TokenRevocationService) y trae los nuevos por revoked_at; las filas se borran al pasar expires_at.
+CREATE TABLE revoked_token
+(
+    jti        VARCHAR(64)              NOT NULL,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    revoked_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_revoked_token PRIMARY KEY (jti)
+);
+
+CREATE INDEX idx_revoked_token_revoked_at ON revoked_token (revoked_at);
+CREATE INDEX idx_revoked_token_expires_at ON revoked_token (expires_at);
@@ -0,0 +1,17 @@
+-- Generación asíncrona del resumen IA (POST /api/ai/resumen). Cada trabajo guarda el resumen
+-- terminado (IAResumenDto en JSON) para consultarlo después y reutilizarlo en el mismo periodo.
+CREATE TABLE ia_resumen_job
+(
+    id           VARCHAR(36)              NOT NULL,
+    periodo      VARCHAR(100)             NOT NULL,
+    estado       VARCHAR(20)              NOT NULL,
+    resultado    TEXT,
+    error        VARCHAR(1000),
+    creado_en    TIMESTAMP WITH TIME ZONE NOT NULL,
+    terminado_en TIMESTAMP WITH TIME ZONE,
+    CONSTRAINT pk_ia_resumen_job PRIMARY KEY (id)
+);
+
+-- Búsqueda del último trabajo de un periodo (deduplicación) y purga por antigüedad
+CREATE INDEX idx_ia_resumen_job_periodo_creado ON ia_resumen_job (periodo, creado_en);
+CREATE INDEX idx_ia_resumen_job_creado ON ia_resumen_job (creado_en);
@@ -0,0 +1,8 @@
+-- RUT de pacientes en forma canónica (12345678-5: sin puntos ni espacios, sin ceros a la izquierda
+-- y con K mayúscula), la misma que usan el alta y la carga masiva (Rut.normalize). Así
+-- uc_patient_rut y el ON CONFLICT (rut) de la carga reconocen a un paciente guardado con puntos.
+-- Si dos pacientes quedan con el mismo RUT la restricción única hace fallar la migración: esos
+-- duplicados deben fusionarse a mano antes de reintentarla.
+UPDATE patient
+SET rut = LTRIM(UPPER(REPLACE(REPLACE(rut, '.', ''), ' ', '')), '0')
+WHERE rut <> LTRIM(UPPER(REPLACE(REPLACE(rut, '.', ''), ' ', '')), '0');
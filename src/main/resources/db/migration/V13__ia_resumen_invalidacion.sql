@@ -0,0 +1,10 @@
+-- Última invalidación del caché de resúmenes IA (POST /api/ai/cache/invalidate). Los trabajos
+-- creados antes no se reutilizan; al estar en la base vale para todos los nodos y tras un reinicio.
+CREATE TABLE ia_resumen_invalidacion
+(
+    id            SMALLINT                 NOT NULL,
+    invalidado_en TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_ia_resumen_invalidacion PRIMARY KEY (id)
+);
+
+INSERT INTO ia_resumen_invalidacion (id, invalidado_en) VALUES (1, TIMESTAMP WITH TIME ZONE '1970-01-01 00:00:00+00');
@@ -0,0 +1,54 @@
+-- Agregados diarios para los dashboards de estadísticas.
+-- Se mantienen incrementalmente desde los servicios de escritura (StatsRollupService)
+-- y pueden reconstruirse completos con POST /api/stats/rollup/rebuild.
+-- date puede ser NULL para registros sin fecha; las dimensiones NULL se conservan tal cual.
+
+CREATE TABLE consultation_daily_fact
+(
+    date            DATE,
+    professional_id BIGINT,
+    specialty       VARCHAR(255),
+    type            VARCHAR(255),
+    sex             VARCHAR(1),
+    fonasa_tier     VARCHAR(255),
+    age_bucket      VARCHAR(16) NOT NULL,
+    consultations   BIGINT      NOT NULL
+);
+
+CREATE TABLE diagnosis_daily_fact
+(
+    date        DATE,
+    specialty   VARCHAR(255),
+    cie10_code  VARCHAR(10),
+    sex         VARCHAR(1),
+    fonasa_tier VARCHAR(255),
+    age_bucket  VARCHAR(16) NOT NULL,
+    diagnoses   BIGINT      NOT NULL
+);
+
+CREATE TABLE prescription_daily_fact
+(
+    date          DATE,
+    specialty     VARCHAR(255),
+    sex           VARCHAR(1),
+    fonasa_tier   VARCHAR(255),
+    age_bucket    VARCHAR(16) NOT NULL,
+    prescriptions BIGINT      NOT NULL
+);
+
+CREATE TABLE medication_daily_fact
+(
+    date               DATE,
+    medication_id      BIGINT,
+    sex                VARCHAR(1),
+    fonasa_tier        VARCHAR(255),
+    age_bucket         VARCHAR(16) NOT NULL,
+    prescription_lines BIGINT      NOT NULL,
+    units              BIGINT      NOT NULL
+);
+
+CREATE INDEX idx_consultation_daily_fact_date ON consultation_daily_fact (date);
+CREATE INDEX idx_consultation_daily_fact_professional_date ON consultation_daily_fact (professional_id, date);
+CREATE INDEX idx_diagnosis_daily_fact_date ON diagnosis_daily_fact (date);
+CREATE INDEX idx_prescription_daily_fact_date ON prescription_daily_fact (date);
+CREATE INDEX idx_medication_daily_fact_date ON medication_daily_fact (date);
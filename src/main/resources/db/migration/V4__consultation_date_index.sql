@@ -0,0 +1,3 @@
+-- Índice sobre la fecha de consulta: MAX(date) (fecha de referencia de las estadísticas)
+-- se resuelve con un index-only scan en lugar de recorrer la tabla.
+CREATE INDEX idx_consultation_date ON consultation (date);
@@ -0,0 +1,48 @@
+-- Registro de condiciones crónicas por paciente.
+-- chronic_pathology_mapping asigna prefijos de código CIE-10 a una patología crónica;
+-- patient_chronic_condition se mantiene desde las escrituras de diagnósticos y consultas
+-- (ChronicConditionService) y se puede recalcular completo con POST /api/stats/chronic/backfill.
+
+CREATE TABLE chronic_pathology_mapping
+(
+    code_prefix VARCHAR(10) NOT NULL,
+    pathology   VARCHAR(64) NOT NULL,
+    CONSTRAINT pk_chronic_pathology_mapping PRIMARY KEY (code_prefix)
+);
+
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('E10', 'Diabetes');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('E11', 'Diabetes');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('E12', 'Diabetes');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('E13', 'Diabetes');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('E14', 'Diabetes');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('I10', 'Hipertensión');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('I11', 'Hipertensión');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('I12', 'Hipertensión');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('I13', 'Hipertensión');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('I15', 'Hipertensión');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('J45', 'Asma');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('J46', 'Asma');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('J44', 'EPOC');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('M05', 'Artritis');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('M06', 'Artritis');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('M08', 'Artritis');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('M13', 'Artritis');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('E02', 'Hipotiroidismo');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('E03', 'Hipotiroidismo');
+INSERT INTO chronic_pathology_mapping (code_prefix, pathology) VALUES ('I50', 'Insuficiencia cardíaca');
+
+CREATE TABLE patient_chronic_condition
+(
+    patient_id      BIGINT      NOT NULL,
+    pathology       VARCHAR(64) NOT NULL,
+    first_diagnosed DATE,
+    last_diagnosed  DATE,
+    diagnoses       BIGINT      NOT NULL,
+    CONSTRAINT pk_patient_chronic_condition PRIMARY KEY (patient_id, pathology)
+);
+
+CREATE INDEX idx_patient_chronic_condition_pathology ON patient_chronic_condition (pathology);
+CREATE INDEX idx_patient_chronic_condition_last_diagnosed ON patient_chronic_condition (last_diagnosed);
+
+ALTER TABLE patient_chronic_condition
+    ADD CONSTRAINT FK_PATIENT_CHRONIC_CONDITION_ON_PATIENT FOREIGN KEY (patient_id) REFERENCES patient (id) ON DELETE CASCADE;
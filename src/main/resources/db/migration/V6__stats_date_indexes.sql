@@ -0,0 +1,12 @@
+-- Índices que soportan los filtros por ventana de fecha de las estadísticas
+-- (predicados semiabiertos "date >= :from AND date < :to", ver StatsWindow).
+
+-- (date, professional_id) cubre también los accesos sólo por fecha, incluido MAX(date),
+-- por lo que reemplaza al índice simple de V4.
+CREATE INDEX idx_consultation_date_professional ON consultation (date, professional_id);
+DROP INDEX IF EXISTS idx_consultation_date;
+
+CREATE INDEX idx_prescription_date ON prescription (date);
+
+-- Los diagnósticos se alcanzan desde las consultas de la ventana
+CREATE INDEX idx_diagnosis_consultation ON diagnosis (consultation_id);
@@ -0,0 +1,297 @@
+-- Jerarquía CIE-10 (OMS): capítulo > bloque > categoría (tres primeros caracteres del código).
+-- cie10.chapter_id y cie10.block_id se asignan por rango de categoría al crear el código
+-- (Cie10Service) y aquí para los existentes; las estadísticas agrupan y filtran por estas claves
+-- en vez de comparar textos. Los id de capítulo siguen el orden de Cie10Chapter.
+
+CREATE TABLE cie10_chapter
+(
+    id             SMALLINT     NOT NULL,
+    code           VARCHAR(5)   NOT NULL,
+    first_category VARCHAR(3)   NOT NULL,
+    last_category  VARCHAR(3)   NOT NULL,
+    title          VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_cie10_chapter PRIMARY KEY (id)
+);
+
+CREATE TABLE cie10_block
+(
+    id             SMALLINT     NOT NULL,
+    chapter_id     SMALLINT     NOT NULL,
+    first_category VARCHAR(3)   NOT NULL,
+    last_category  VARCHAR(3)   NOT NULL,
+    title          VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_cie10_block PRIMARY KEY (id)
+);
+
+ALTER TABLE cie10_block
+    ADD CONSTRAINT FK_CIE10_BLOCK_ON_CHAPTER FOREIGN KEY (chapter_id) REFERENCES cie10_chapter (id);
+
+INSERT INTO cie10_chapter (id, code, first_category, last_category, title) VALUES
+(1, 'I', 'A00', 'B99', 'Ciertas enfermedades infecciosas y parasitarias'),
+(2, 'II', 'C00', 'D48', 'Tumores [neoplasias]'),
+(3, 'III', 'D50', 'D89', 'Enfermedades de la sangre y de los órganos hematopoyéticos'),
+(4, 'IV', 'E00', 'E90', 'Enfermedades endocrinas, nutricionales y metabólicas'),
+(5, 'V', 'F00', 'F99', 'Trastornos mentales y del comportamiento'),
+(6, 'VI', 'G00', 'G99', 'Enfermedades del sistema nervioso'),
+(7, 'VII', 'H00', 'H59', 'Enfermedades del ojo y sus anexos'),
+(8, 'VIII', 'H60', 'H95', 'Enfermedades del oído y de la apófisis mastoides'),
+(9, 'IX', 'I00', 'I99', 'Enfermedades del sistema circulatorio'),
+(10, 'X', 'J00', 'J99', 'Enfermedades del sistema respiratorio'),
+(11, 'XI', 'K00', 'K93', 'Enfermedades del sistema digestivo'),
+(12, 'XII', 'L00', 'L99', 'Enfermedades de la piel y del tejido subcutáneo'),
+(13, 'XIII', 'M00', 'M99', 'Enfermedades del sistema osteomuscular y del tejido conjuntivo'),
+(14, 'XIV', 'N00', 'N99', 'Enfermedades del sistema genitourinario'),
+(15, 'XV', 'O00', 'O99', 'Embarazo, parto y puerperio'),
+(16, 'XVI', 'P00', 'P96', 'Ciertas afecciones originadas en el periodo perinatal'),
+(17, 'XVII', 'Q00', 'Q99', 'Malformaciones congénitas, deformidades y anomalías cromosómicas'),
+(18, 'XVIII', 'R00', 'R99', 'Síntomas, signos y hallazgos anormales clínicos y de laboratorio'),
+(19, 'XIX', 'S00', 'T98', 'Traumatismos, envenenamientos y otras consecuencias de causas externas'),
+(20, 'XX', 'V01', 'Y98', 'Causas externas de morbilidad y de mortalidad'),
+(21, 'XXI', 'Z00', 'Z99', 'Factores que influyen en el estado de salud y contacto con los servicios de salud'),
+(22, 'XXII', 'U00', 'U85', 'Códigos para propósitos especiales');
+
+INSERT INTO cie10_block (id, chapter_id, first_category, last_category, title) VALUES
+(1, 1, 'A00', 'A09', 'Enfermedades infecciosas intestinales'),
+(2, 1, 'A15', 'A19', 'Tuberculosis'),
+(3, 1, 'A20', 'A28', 'Ciertas zoonosis bacterianas'),
+(4, 1, 'A30', 'A49', 'Otras enfermedades bacterianas'),
+(5, 1, 'A50', 'A64', 'Infecciones de transmisión predominantemente sexual'),
+(6, 1, 'A65', 'A69', 'Otras enfermedades debidas a espiroquetas'),
+(7, 1, 'A70', 'A74', 'Otras enfermedades causadas por clamidias'),
+(8, 1, 'A75', 'A79', 'Rickettsiosis'),
+(9, 1, 'A80', 'A89', 'Infecciones virales del sistema nervioso central'),
+(10, 1, 'A90', 'A99', 'Fiebres virales transmitidas por artrópodos y fiebres virales hemorrágicas'),
+(11, 1, 'B00', 'B09', 'Infecciones virales caracterizadas por lesiones de la piel y de las membranas mucosas'),
+(12, 1, 'B15', 'B19', 'Hepatitis viral'),
+(13, 1, 'B20', 'B24', 'Enfermedad por virus de la inmunodeficiencia humana [VIH]'),
+(14, 1, 'B25', 'B34', 'Otras enfermedades virales'),
+(15, 1, 'B35', 'B49', 'Micosis'),
+(16, 1, 'B50', 'B64', 'Enfermedades debidas a protozoarios'),
+(17, 1, 'B65', 'B83', 'Helmintiasis'),
+(18, 1, 'B85', 'B89', 'Pediculosis, acariasis y otras infestaciones'),
+(19, 1, 'B90', 'B94', 'Secuelas de enfermedades infecciosas y parasitarias'),
+(20, 1, 'B95', 'B98', 'Agentes infecciosos bacterianos, virales y otros'),
+(21, 1, 'B99', 'B99', 'Otras enfermedades infecciosas'),
+(22, 2, 'C00', 'C14', 'Tumores malignos del labio, de la cavidad bucal y de la faringe'),
+(23, 2, 'C15', 'C26', 'Tumores malignos de los órganos digestivos'),
+(24, 2, 'C30', 'C39', 'Tumores malignos de los órganos respiratorios e intratorácicos'),
+(25, 2, 'C40', 'C41', 'Tumores malignos de los huesos y de los cartílagos articulares'),
+(26, 2, 'C43', 'C44', 'Melanoma y otros tumores malignos de la piel'),
+(27, 2, 'C45', 'C49', 'Tumores malignos de los tejidos mesoteliales y de los tejidos blandos'),
+(28, 2, 'C50', 'C50', 'Tumor maligno de la mama'),
+(29, 2, 'C51', 'C58', 'Tumores malignos de los órganos genitales femeninos'),
+(30, 2, 'C60', 'C63', 'Tumores malignos de los órganos genitales masculinos'),
+(31, 2, 'C64', 'C68', 'Tumores malignos de las vías urinarias'),
+(32, 2, 'C69', 'C72', 'Tumores malignos del ojo, del encéfalo y de otras partes del sistema nervioso central'),
+(33, 2, 'C73', 'C75', 'Tumores malignos de la glándula tiroides y de otras glándulas endocrinas'),
+(34, 2, 'C76', 'C80', 'Tumores malignos de sitios mal definidos, secundarios y de sitios no especificados'),
+(35, 2, 'C81', 'C96', 'Tumores malignos del tejido linfático, de los órganos hematopoyéticos y de tejidos afines'),
+(36, 2, 'C97', 'C97', 'Tumores malignos de sitios múltiples independientes'),
+(37, 2, 'D00', 'D09', 'Tumores in situ'),
+(38, 2, 'D10', 'D36', 'Tumores benignos'),
+(39, 2, 'D37', 'D48', 'Tumores de comportamiento incierto o desconocido'),
+(40, 3, 'D50', 'D53', 'Anemias nutricionales'),
+(41, 3, 'D55', 'D59', 'Anemias hemolíticas'),
+(42, 3, 'D60', 'D64', 'Anemias aplásticas y otras anemias'),
+(43, 3, 'D65', 'D69', 'Defectos de la coagulación, púrpura y otras afecciones hemorrágicas'),
+(44, 3, 'D70', 'D77', 'Otras enfermedades de la sangre y de los órganos hematopoyéticos'),
+(45, 3, 'D80', 'D89', 'Ciertos trastornos que afectan el mecanismo de la inmunidad'),
+(46, 4, 'E00', 'E07', 'Trastornos de la glándula tiroides'),
+(47, 4, 'E10', 'E14', 'Diabetes mellitus'),
+(48, 4, 'E15', 'E16', 'Otros trastornos de la regulación de la glucosa y de la secreción interna del páncreas'),
+(49, 4, 'E20', 'E35', 'Trastornos de otras glándulas endocrinas'),
+(50, 4, 'E40', 'E46', 'Desnutrición'),
+(51, 4, 'E50', 'E64', 'Otras deficiencias nutricionales'),
+(52, 4, 'E65', 'E68', 'Obesidad y otros de hiperalimentación'),
+(53, 4, 'E70', 'E90', 'Trastornos metabólicos'),
+(54, 5, 'F00', 'F09', 'Trastornos mentales orgánicos, incluidos los sintomáticos'),
+(55, 5, 'F10', 'F19', 'Trastornos mentales y del comportamiento debidos al uso de sustancias psicoactivas'),
+(56, 5, 'F20', 'F29', 'Esquizofrenia, trastornos esquizotípicos y trastornos delirantes'),
+(57, 5, 'F30', 'F39', 'Trastornos del humor [afectivos]'),
+(58, 5, 'F40', 'F48', 'Trastornos neuróticos, trastornos relacionados con el estrés y trastornos somatomorfos'),
+(59, 5, 'F50', 'F59', 'Síndromes del comportamiento asociados con alteraciones fisiológicas y factores físicos'),
+(60, 5, 'F60', 'F69', 'Trastornos de la personalidad y del comportamiento en adultos'),
+(61, 5, 'F70', 'F79', 'Retraso mental'),
+(62, 5, 'F80', 'F89', 'Trastornos del desarrollo psicológico'),
+(63, 5, 'F90', 'F98', 'Trastornos emocionales y del comportamiento que aparecen en la niñez y la adolescencia'),
+(64, 5, 'F99', 'F99', 'Trastorno mental no especificado'),
+(65, 6, 'G00', 'G09', 'Enfermedades inflamatorias del sistema nervioso central'),
+(66, 6, 'G10', 'G14', 'Atrofias sistémicas que afectan principalmente el sistema nervioso central'),
+(67, 6, 'G20', 'G26', 'Trastornos extrapiramidales y del movimiento'),
+(68, 6, 'G30', 'G32', 'Otras enfermedades degenerativas del sistema nervioso'),
+(69, 6, 'G35', 'G37', 'Enfermedades desmielinizantes del sistema nervioso central'),
+(70, 6, 'G40', 'G47', 'Trastornos episódicos y paroxísticos'),
+(71, 6, 'G50', 'G59', 'Trastornos de los nervios, de las raíces y de los plexos nerviosos'),
+(72, 6, 'G60', 'G64', 'Polineuropatías y otros trastornos del sistema nervioso periférico'),
+(73, 6, 'G70', 'G73', 'Enfermedades musculares y de la unión neuromuscular'),
+(74, 6, 'G80', 'G83', 'Parálisis cerebral y otros síndromes paralíticos'),
+(75, 6, 'G90', 'G99', 'Otros trastornos del sistema nervioso'),
+(76, 7, 'H00', 'H06', 'Trastornos del párpado, aparato lagrimal y órbita'),
+(77, 7, 'H10', 'H13', 'Trastornos de la conjuntiva'),
+(78, 7, 'H15', 'H22', 'Trastornos de la esclerótica, córnea, iris y cuerpo ciliar'),
+(79, 7, 'H25', 'H28', 'Trastornos del cristalino'),
+(80, 7, 'H30', 'H36', 'Trastornos de la coroides y de la retina'),
+(81, 7, 'H40', 'H42', 'Glaucoma'),
+(82, 7, 'H43', 'H45', 'Trastornos del cuerpo vítreo y del globo ocular'),
+(83, 7, 'H46', 'H48', 'Trastornos del nervio óptico y de las vías ópticas'),
+(84, 7, 'H49', 'H52', 'Trastornos de los músculos oculares, del movimiento binocular, de la acomodación y de la refracción'),
+(85, 7, 'H53', 'H54', 'Alteraciones de la visión y ceguera'),
+(86, 7, 'H55', 'H59', 'Otros trastornos del ojo y sus anexos'),
+(87, 8, 'H60', 'H62', 'Enfermedades del oído externo'),
+(88, 8, 'H65', 'H75', 'Enfermedades del oído medio y de la mastoides'),
+(89, 8, 'H80', 'H83', 'Enfermedades del oído interno'),
+(90, 8, 'H90', 'H95', 'Otros trastornos del oído'),
+(91, 9, 'I00', 'I02', 'Fiebre reumática aguda'),
+(92, 9, 'I05', 'I09', 'Enfermedades cardíacas reumáticas crónicas'),
+(93, 9, 'I10', 'I15', 'Enfermedades hipertensivas'),
+(94, 9, 'I20', 'I25', 'Enfermedades isquémicas del corazón'),
+(95, 9, 'I26', 'I28', 'Enfermedad cardiopulmonar y enfermedades de la circulación pulmonar'),
+(96, 9, 'I30', 'I52', 'Otras formas de enfermedad del corazón'),
+(97, 9, 'I60', 'I69', 'Enfermedades cerebrovasculares'),
+(98, 9, 'I70', 'I79', 'Enfermedades de las arterias, de las arteriolas y de los vasos capilares'),
+(99, 9, 'I80', 'I89', 'Enfermedades de las venas y de los vasos y ganglios linfáticos'),
+(100, 9, 'I95', 'I99', 'Otros trastornos y los no especificados del sistema circulatorio'),
+(101, 10, 'J00', 'J06', 'Infecciones agudas de las vías respiratorias superiores'),
+(102, 10, 'J09', 'J18', 'Influenza [gripe] y neumonía'),
+(103, 10, 'J20', 'J22', 'Otras infecciones agudas de las vías respiratorias inferiores'),
+(104, 10, 'J30', 'J39', 'Otras enfermedades de las vías respiratorias superiores'),
+(105, 10, 'J40', 'J47', 'Enfermedades crónicas de las vías respiratorias inferiores'),
+(106, 10, 'J60', 'J70', 'Enfermedades del pulmón debidas a agentes externos'),
+(107, 10, 'J80', 'J84', 'Otras enfermedades respiratorias que afectan principalmente al intersticio'),
+(108, 10, 'J85', 'J86', 'Afecciones supurativas y necróticas de las vías respiratorias inferiores'),
+(109, 10, 'J90', 'J94', 'Otras enfermedades de la pleura'),
+(110, 10, 'J95', 'J99', 'Otras enfermedades del sistema respiratorio'),
+(111, 11, 'K00', 'K14', 'Enfermedades de la cavidad bucal, de las glándulas salivales y de los maxilares'),
+(112, 11, 'K20', 'K31', 'Enfermedades del esófago, del estómago y del duodeno'),
+(113, 11, 'K35', 'K38', 'Enfermedades del apéndice'),
+(114, 11, 'K40', 'K46', 'Hernia'),
+(115, 11, 'K50', 'K52', 'Enteritis y colitis no infecciosas'),
+(116, 11, 'K55', 'K64', 'Otras enfermedades de los intestinos'),
+(117, 11, 'K65', 'K67', 'Enfermedades del peritoneo'),
+(118, 11, 'K70', 'K77', 'Enfermedades del hígado'),
+(119, 11, 'K80', 'K87', 'Trastornos de la vesícula biliar, de las vías biliares y del páncreas'),
+(120, 11, 'K90', 'K93', 'Otras enfermedades del sistema digestivo'),
+(121, 12, 'L00', 'L08', 'Infecciones de la piel y del tejido subcutáneo'),
+(122, 12, 'L10', 'L14', 'Trastornos flictenulares'),
+(123, 12, 'L20', 'L30', 'Dermatitis y eczema'),
+(124, 12, 'L40', 'L45', 'Trastornos papuloescamosos'),
+(125, 12, 'L50', 'L54', 'Urticaria y eritema'),
+(126, 12, 'L55', 'L59', 'Trastornos de la piel y del tejido subcutáneo relacionados con radiación'),
+(127, 12, 'L60', 'L75', 'Trastornos de las faneras'),
+(128, 12, 'L80', 'L99', 'Otros trastornos de la piel y del tejido subcutáneo'),
+(129, 13, 'M00', 'M25', 'Artropatías'),
+(130, 13, 'M30', 'M36', 'Trastornos sistémicos del tejido conjuntivo'),
+(131, 13, 'M40', 'M54', 'Dorsopatías'),
+(132, 13, 'M60', 'M79', 'Trastornos de los tejidos blandos'),
+(133, 13, 'M80', 'M94', 'Osteopatías y condropatías'),
+(134, 13, 'M95', 'M99', 'Otros trastornos del sistema osteomuscular y del tejido conjuntivo'),
+(135, 14, 'N00', 'N08', 'Enfermedades glomerulares'),
+(136, 14, 'N10', 'N16', 'Enfermedad renal tubulointersticial'),
+(137, 14, 'N17', 'N19', 'Insuficiencia renal'),
+(138, 14, 'N20', 'N23', 'Litiasis urinaria'),
+(139, 14, 'N25', 'N29', 'Otros trastornos del riñón y del uréter'),
+(140, 14, 'N30', 'N39', 'Otras enfermedades del sistema urinario'),
+(141, 14, 'N40', 'N51', 'Enfermedades de los órganos genitales masculinos'),
+(142, 14, 'N60', 'N64', 'Trastornos de la mama'),
+(143, 14, 'N70', 'N77', 'Enfermedades inflamatorias de los órganos pélvicos femeninos'),
+(144, 14, 'N80', 'N98', 'Trastornos no inflamatorios de los órganos genitales femeninos'),
+(145, 14, 'N99', 'N99', 'Otros trastornos del sistema genitourinario'),
+(146, 15, 'O00', 'O08', 'Embarazo terminado en aborto'),
+(147, 15, 'O10', 'O16', 'Edema, proteinuria y trastornos hipertensivos en el embarazo, el parto y el puerperio'),
+(148, 15, 'O20', 'O29', 'Otros trastornos maternos relacionados principalmente con el embarazo'),
+(149, 15, 'O30', 'O48', 'Atención materna relacionada con el feto y la cavidad amniótica y con posibles problemas del parto'),
+(150, 15, 'O60', 'O75', 'Complicaciones del trabajo de parto y del parto'),
+(151, 15, 'O80', 'O84', 'Parto'),
+(152, 15, 'O85', 'O92', 'Complicaciones principalmente relacionadas con el puerperio'),
+(153, 15, 'O94', 'O99', 'Otras afecciones obstétricas no clasificadas en otra parte'),
+(154, 16, 'P00', 'P04', 'Feto y recién nacido afectados por factores maternos y por complicaciones del embarazo, del trabajo de parto y del parto'),
+(155, 16, 'P05', 'P08', 'Trastornos relacionados con la duración de la gestación y con el crecimiento fetal'),
+(156, 16, 'P10', 'P15', 'Traumatismo del nacimiento'),
+(157, 16, 'P20', 'P29', 'Trastornos respiratorios y cardiovasculares específicos del periodo perinatal'),
+(158, 16, 'P35', 'P39', 'Infecciones específicas del periodo perinatal'),
+(159, 16, 'P50', 'P61', 'Trastornos hemorrágicos y hematológicos del feto y del recién nacido'),
+(160, 16, 'P70', 'P74', 'Trastornos endocrinos y metabólicos transitorios específicos del feto y del recién nacido'),
+(161, 16, 'P75', 'P78', 'Trastornos del sistema digestivo del feto y del recién nacido'),
+(162, 16, 'P80', 'P83', 'Afecciones asociadas con la regulación tegumentaria y la temperatura del feto y del recién nacido'),
+(163, 16, 'P90', 'P96', 'Otros trastornos originados en el periodo perinatal'),
+(164, 17, 'Q00', 'Q07', 'Malformaciones congénitas del sistema nervioso'),
+(165, 17, 'Q10', 'Q18', 'Malformaciones congénitas del ojo, del oído, de la cara y del cuello'),
+(166, 17, 'Q20', 'Q28', 'Malformaciones congénitas del sistema circulatorio'),
+(167, 17, 'Q30', 'Q34', 'Malformaciones congénitas del sistema respiratorio'),
+(168, 17, 'Q35', 'Q37', 'Fisura del paladar y labio leporino'),
+(169, 17, 'Q38', 'Q45', 'Otras malformaciones congénitas del sistema digestivo'),
+(170, 17, 'Q50', 'Q56', 'Malformaciones congénitas de los órganos genitales'),
+(171, 17, 'Q60', 'Q64', 'Malformaciones congénitas del sistema urinario'),
+(172, 17, 'Q65', 'Q79', 'Malformaciones y deformidades congénitas del sistema osteomuscular'),
+(173, 17, 'Q80', 'Q89', 'Otras malformaciones congénitas'),
+(174, 17, 'Q90', 'Q99', 'Anomalías cromosómicas no clasificadas en otra parte'),
+(175, 18, 'R00', 'R09', 'Síntomas y signos que involucran los sistemas circulatorio y respiratorio'),
+(176, 18, 'R10', 'R19', 'Síntomas y signos que involucran el sistema digestivo y el abdomen'),
+(177, 18, 'R20', 'R23', 'Síntomas y signos que involucran la piel y el tejido subcutáneo'),
+(178, 18, 'R25', 'R29', 'Síntomas y signos que involucran los sistemas nervioso y osteomuscular'),
+(179, 18, 'R30', 'R39', 'Síntomas y signos que involucran el sistema urinario'),
+(180, 18, 'R40', 'R46', 'Síntomas y signos que involucran el conocimiento, la percepción, el estado emocional y la conducta'),
+(181, 18, 'R47', 'R49', 'Síntomas y signos que involucran el habla y la voz'),
+(182, 18, 'R50', 'R69', 'Síntomas y signos generales'),
+(183, 18, 'R70', 'R79', 'Hallazgos anormales en el examen de sangre, sin diagnóstico'),
+(184, 18, 'R80', 'R82', 'Hallazgos anormales en el examen de orina, sin diagnóstico'),
+(185, 18, 'R83', 'R89', 'Hallazgos anormales en el examen de otros líquidos, sustancias y tejidos corporales, sin diagnóstico'),
+(186, 18, 'R90', 'R94', 'Hallazgos anormales en diagnóstico por imagen y en estudios funcionales, sin diagnóstico'),
+(187, 18, 'R95', 'R99', 'Causas de mortalidad mal definidas y desconocidas'),
+(188, 19, 'S00', 'S09', 'Traumatismos de la cabeza'),
+(189, 19, 'S10', 'S19', 'Traumatismos del cuello'),
+(190, 19, 'S20', 'S29', 'Traumatismos del tórax'),
+(191, 19, 'S30', 'S39', 'Traumatismos del abdomen, de la región lumbosacra, de la columna lumbar y de la pelvis'),
+(192, 19, 'S40', 'S49', 'Traumatismos del hombro y del brazo'),
+(193, 19, 'S50', 'S59', 'Traumatismos del antebrazo y del codo'),
+(194, 19, 'S60', 'S69', 'Traumatismos de la muñeca y de la mano'),
+(195, 19, 'S70', 'S79', 'Traumatismos de la cadera y del muslo'),
+(196, 19, 'S80', 'S89', 'Traumatismos de la rodilla y de la pierna'),
+(197, 19, 'S90', 'S99', 'Traumatismos del tobillo y del pie'),
+(198, 19, 'T00', 'T07', 'Traumatismos que afectan múltiples regiones del cuerpo'),
+(199, 19, 'T08', 'T14', 'Traumatismos de parte no especificada del tronco, miembro o región del cuerpo'),
+(200, 19, 'T15', 'T19', 'Efectos de cuerpos extraños que penetran por orificios naturales'),
+(201, 19, 'T20', 'T32', 'Quemaduras y corrosiones'),
+(202, 19, 'T33', 'T35', 'Congelamiento'),
+(203, 19, 'T36', 'T50', 'Envenenamiento por drogas, medicamentos y sustancias biológicas'),
+(204, 19, 'T51', 'T65', 'Efectos tóxicos de sustancias de procedencia principalmente no medicinal'),
+(205, 19, 'T66', 'T78', 'Otros efectos y los no especificados de causas externas'),
+(206, 19, 'T79', 'T79', 'Algunas complicaciones precoces de traumatismos'),
+(207, 19, 'T80', 'T88', 'Complicaciones de la atención médica y quirúrgica, no clasificadas en otra parte'),
+(208, 19, 'T90', 'T98', 'Secuelas de traumatismos, de envenenamientos y de otras consecuencias de causas externas'),
+(209, 20, 'V01', 'X59', 'Accidentes'),
+(210, 20, 'X60', 'X84', 'Lesiones autoinfligidas intencionalmente'),
+(211, 20, 'X85', 'Y09', 'Agresiones'),
+(212, 20, 'Y10', 'Y34', 'Eventos de intención no determinada'),
+(213, 20, 'Y35', 'Y36', 'Intervención legal y operaciones de guerra'),
+(214, 20, 'Y40', 'Y84', 'Complicaciones de la atención médica y quirúrgica'),
+(215, 20, 'Y85', 'Y89', 'Secuelas de causas externas de morbilidad y de mortalidad'),
+(216, 20, 'Y90', 'Y98', 'Factores suplementarios relacionados con causas de morbilidad y de mortalidad'),
+(217, 21, 'Z00', 'Z13', 'Personas en contacto con los servicios de salud para investigación y exámenes'),
+(218, 21, 'Z20', 'Z29', 'Personas con riesgos potenciales para su salud relacionados con enfermedades transmisibles'),
+(219, 21, 'Z30', 'Z39', 'Personas en contacto con los servicios de salud en circunstancias relacionadas con la reproducción'),
+(220, 21, 'Z40', 'Z54', 'Personas en contacto con los servicios de salud para procedimientos específicos y cuidados de salud'),
+(221, 21, 'Z55', 'Z65', 'Personas con riesgos potenciales para su salud relacionados con circunstancias socioeconómicas y psicosociales'),
+(222, 21, 'Z70', 'Z76', 'Personas en contacto con los servicios de salud por otras circunstancias'),
+(223, 21, 'Z80', 'Z99', 'Personas con riesgos potenciales para su salud relacionados con su historia familiar y personal'),
+(224, 22, 'U00', 'U49', 'Asignación provisoria de nuevas afecciones de etiología incierta o de uso emergente'),
+(225, 22, 'U82', 'U85', 'Resistencia a agentes antimicrobianos y antineoplásicos');
+
+ALTER TABLE cie10 ADD COLUMN chapter_id SMALLINT;
+ALTER TABLE cie10 ADD COLUMN block_id SMALLINT;
+
+ALTER TABLE cie10
+    ADD CONSTRAINT FK_CIE10_ON_CHAPTER FOREIGN KEY (chapter_id) REFERENCES cie10_chapter (id);
+ALTER TABLE cie10
+    ADD CONSTRAINT FK_CIE10_ON_BLOCK FOREIGN KEY (block_id) REFERENCES cie10_block (id);
+
+UPDATE cie10
+SET chapter_id = (SELECT ch.id
+                  FROM cie10_chapter ch
+                  WHERE UPPER(SUBSTRING(cie10.code, 1, 3)) BETWEEN ch.first_category AND ch.last_category),
+    block_id   = (SELECT b.id
+                  FROM cie10_block b
+                  WHERE UPPER(SUBSTRING(cie10.code, 1, 3)) BETWEEN b.first_category AND b.last_category);
+
+CREATE INDEX idx_cie10_chapter ON cie10 (chapter_id);
+CREATE INDEX idx_cie10_block ON cie10 (block_id);
@@ -0,0 +1,16 @@
+-- Índices para la paginación por cursor (keyset) de los listados: cada orden por defecto
+-- (clave, id) se recorre en el índice desde la posición del cursor, sin OFFSET ni ordenamiento.
+
+CREATE INDEX idx_patient_name_id ON patient (name, id);
+
+-- Orden (date DESC, id DESC): el índice se recorre hacia atrás. Se mantiene
+-- idx_consultation_date_professional para los filtros por profesional de las estadísticas.
+CREATE INDEX idx_consultation_date_id ON consultation (date, id);
+
+-- (date, id) cubre también los accesos sólo por fecha, por lo que reemplaza al índice simple de V6
+CREATE INDEX idx_prescription_date_id ON prescription (date, id);
+DROP INDEX IF EXISTS idx_prescription_date;
+
+-- Ídem para los diagnósticos por consulta (incluida la carga de diagnósticos de una página)
+CREATE INDEX idx_diagnosis_consultation_id ON diagnosis (consultation_id, id);
+DROP INDEX IF EXISTS idx_diagnosis_consultation;
@@ -3,16 +3,22 @@ package cl.sicc.siccapi.auth.service;
 import cl.sicc.siccapi.auth.dto.AuthenticationResponse;
 import cl.sicc.siccapi.auth.dto.LoginRequest;
 import cl.sicc.siccapi.auth.dto.RegisterRequest;
+import cl.sicc.siccapi.security.service.JwtService;
+import cl.sicc.siccapi.security.service.TokenClaims;
+import cl.sicc.siccapi.security.service.TokenRevocationService;
 import cl.sicc.siccapi.user.domain.Role;
 import cl.sicc.siccapi.user.domain.User;
 import cl.sicc.siccapi.user.repository.UserRepository;
+import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.mock.web.MockHttpServletResponse;
 
@@ -32,6 +38,12 @@ class AuthenticationServiceTest {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private TokenRevocationService revocations;
+
     private HttpServletResponse response;
 
     @BeforeEach
@@ -123,5 +135,100 @@ class AuthenticationServiceTest {
 
         assertThrows(Exception.class, () -> authenticationService.login(request, response));
     }
-}
 
+    @Test
+    void testLogoutRevokesTheSession() {
+        userRepository.save(User.builder()
+                .firstname("Juan")
+                .lastname("Pérez")
+                .email("juan@example.com")
+                .password(passwordEncoder.encode("password123"))
+                .role(Role.USER)
+                .enabled(true)
+                .build());
+        MockHttpServletResponse loginResponse = new MockHttpServletResponse();
+        authenticationService.login(LoginRequest.builder().email("juan@example.com").password("password123").build(),
+                loginResponse);
+        String accessToken = loginResponse.getCookie("access_token").getValue();
+        String refreshToken = loginResponse.getCookie("refresh_token").getValue();
+        TokenClaims access = jwtService.verify(accessToken);
+        assertEquals(jwtService.verify(refreshToken).id(), access.sessionId());
+
+        authenticationService.refresh(refreshToken, new MockHttpServletResponse());
+        authenticationService.logout(accessToken, null, new MockHttpServletResponse());
+
+        assertTrue(revocations.isRevoked(access.sessionId()));
+        assertThrows(RuntimeException.class, () -> authenticationService.refresh(refreshToken, new MockHttpServletResponse()));
+    }
+
+    @Test
+    void testLogoutWithExpiredAccessTokenRevokesTheSession() {
+        saveUser();
+        MockHttpServletResponse loginResponse = new MockHttpServletResponse();
+        authenticationService.login(LoginRequest.builder().email("juan@example.com").password("password123").build(),
+                loginResponse);
+        String refreshToken = loginResponse.getCookie("refresh_token").getValue();
+        String sessionId = jwtService.verify(refreshToken).id();
+
+        // Access token de la misma sesión, ya expirado
+        long accessExpiration = jwtService.getAccessTokenExpiration();
+        ReflectionTestUtils.setField(jwtService, "accessTokenExpiration", -1_000L);
+        String expiredAccess;
+        try {
+            expiredAccess = jwtService.generateAccessToken(userRepository.findByEmail("juan@example.com").orElseThrow(),
+                    sessionId);
+        } finally {
+            ReflectionTestUtils.setField(jwtService, "accessTokenExpiration", accessExpiration);
+        }
+        assertThrows(ExpiredJwtException.class, () -> jwtService.verify(expiredAccess));
+
+        authenticationService.logout(expiredAccess, null, new MockHttpServletResponse());
+
+        assertTrue(revocations.isRevoked(sessionId));
+        assertThrows(RuntimeException.class, () -> authenticationService.refresh(refreshToken, new MockHttpServletResponse()));
+    }
+
+    @Test
+    void testLogoutRevokesTheRefreshTokenCookie() {
+        saveUser();
+        MockHttpServletResponse loginResponse = new MockHttpServletResponse();
+        authenticationService.login(LoginRequest.builder().email("juan@example.com").password("password123").build(),
+                loginResponse);
+        assertEquals("/api/auth", loginResponse.getCookie("refresh_token").getPath());
+        String refreshToken = loginResponse.getCookie("refresh_token").getValue();
+
+        authenticationService.logout(null, refreshToken, new MockHttpServletResponse());
+
+        assertThrows(RuntimeException.class, () -> authenticationService.refresh(refreshToken, new MockHttpServletResponse()));
+    }
+
+    @Test
+    void testLoginRehashesPasswordBelowConfiguredStrength() {
+        userRepository.save(User.builder()
+                .firstname("Juan")
+                .lastname("Pérez")
+                .email("juan@example.com")
+                .password(new BCryptPasswordEncoder(4).encode("password123"))
+                .role(Role.USER)
+                .enabled(true)
+                .build());
+
+        authenticationService.login(LoginRequest.builder().email("juan@example.com").password("password123").build(),
+                response);
+
+        String rehashed = userRepository.findByEmail("juan@example.com").orElseThrow().getPassword();
+        assertTrue(rehashed.startsWith("$2a$10$"), rehashed);
+        assertTrue(passwordEncoder.matches("password123", rehashed));
+    }
+
+    private void saveUser() {
+        userRepository.save(User.builder()
+                .firstname("Juan")
+                .lastname("Pérez")
+                .email("juan@example.com")
+                .password(passwordEncoder.encode("password123"))
+                .role(Role.USER)
+                .enabled(true)
+                .build());
+    }
+}
@@ -0,0 +1,148 @@
+package cl.sicc.siccapi.catalog.service;
+
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import cl.sicc.siccapi.diagnosis.domain.Cie10;
+import cl.sicc.siccapi.diagnosis.repository.Cie10Repository;
+import cl.sicc.siccapi.healthcareprofessional.domain.HealthcareProfessional;
+import cl.sicc.siccapi.healthcareprofessional.repository.HealthcareProfessionalRepository;
+import cl.sicc.siccapi.prescription.domain.Medication;
+import cl.sicc.siccapi.prescription.domain.PharmaceuticalForm;
+import cl.sicc.siccapi.prescription.repository.MedicationRepository;
+import cl.sicc.siccapi.prescription.repository.PharmaceuticalFormRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReferenceCatalogServiceTest {
+
+    private Cie10Repository cie10Repository;
+    private MedicationRepository medicationRepository;
+    private HealthcareProfessionalRepository professionalRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private ReferenceCatalogService catalog;
+
+    @BeforeEach
+    void setUp() {
+        cie10Repository = mock(Cie10Repository.class);
+        medicationRepository = mock(MedicationRepository.class);
+        PharmaceuticalFormRepository formRepository = mock(PharmaceuticalFormRepository.class);
+        professionalRepository = mock(HealthcareProfessionalRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        when(cie10Repository.findAll()).thenReturn(List.of(cie10("J06.9", "Infección respiratoria aguda"), cie10("E11", "Diabetes")));
+        when(medicationRepository.findAll()).thenReturn(List.of(medication(1L, "Paracetamol", 10L)));
+        when(formRepository.findAll()).thenReturn(List.of(new PharmaceuticalForm(10L, "Comprimido")));
+        when(professionalRepository.findAll()).thenReturn(List.of(new HealthcareProfessional(5L, "11111111-1", "Ana Pérez", "Pediatría")));
+
+        catalog = new ReferenceCatalogService(cie10Repository, medicationRepository, formRepository,
+                professionalRepository, meterRegistry);
+        catalog.loadOnStartup();
+    }
+
+    @Test
+    void lookupsComeFromMemory() {
+        assertEquals("Diabetes", catalog.cie10("E11").orElseThrow().name());
+        assertTrue(catalog.cie10(null).isEmpty());
+        assertEquals(10L, catalog.medication(1L).orElseThrow().pharmaceuticalFormId());
+        assertEquals("Comprimido", catalog.pharmaceuticalForm(10L).orElseThrow().name());
+        assertEquals("Pediatría", catalog.professional(5L).orElseThrow().specialty());
+
+        verify(cie10Repository, never()).findById(any());
+        verify(medicationRepository, never()).findById(any());
+    }
+
+    @Test
+    void missesFallBackToOneDatabaseLookup() {
+        // Creado en otro nodo: el evento no llegó a este catálogo
+        when(medicationRepository.findById(2L)).thenReturn(Optional.of(medication(2L, "Ibuprofeno", 10L)));
+        when(cie10Repository.findById("Z99")).thenReturn(Optional.empty());
+
+        assertEquals("Ibuprofeno", catalog.medication(2L).orElseThrow().name());
+        assertEquals("Ibuprofeno", catalog.medication(2L).orElseThrow().name());
+        assertEquals(2, catalog.medications().version());
+        verify(medicationRepository, times(1)).findById(2L);
+
+        assertTrue(catalog.cie10("Z99").isEmpty());
+        assertEquals(1, catalog.cie10().version());
+        verify(cie10Repository, times(1)).findById("Z99");
+    }
+
+    @Test
+    void writeReplacesSnapshotWithNewVersion() {
+        ReferenceCatalogService.Snapshot<String, ReferenceCatalogService.Cie10Entry> before = catalog.cie10();
+        when(cie10Repository.findById("J45.9")).thenReturn(Optional.of(cie10("J45.9", "Asma")));
+
+        catalog.onDomainWrite(DomainWriteEvent.of(DomainWriteEvent.Source.CIE10, DomainWriteEvent.Action.CREATED, "J45.9"));
+
+        ReferenceCatalogService.Snapshot<String, ReferenceCatalogService.Cie10Entry> after = catalog.cie10();
+        assertEquals(before.version() + 1, after.version());
+        assertEquals(3, after.size());
+        // La versión anterior no cambia: quien la esté leyendo sigue viendo un catálogo consistente
+        assertEquals(2, before.size());
+        assertTrue(before.find("J45.9").isEmpty());
+        verify(cie10Repository, times(1)).findAll();
+    }
+
+    @Test
+    void deletedRowsLeaveTheCatalog() {
+        when(medicationRepository.findById(1L)).thenReturn(Optional.empty());
+
+        catalog.onDomainWrite(DomainWriteEvent.of(DomainWriteEvent.Source.MEDICATION, DomainWriteEvent.Action.DELETED, 1L));
+
+        assertTrue(catalog.medication(1L).isEmpty());
+        assertEquals(0.0, meterRegistry.get("catalog.size").tag("catalog", "medication").gauge().value());
+        assertEquals(2.0, meterRegistry.get("catalog.version").tag("catalog", "medication").gauge().value());
+    }
+
+    @Test
+    void ignoresClinicalWrites() {
+        catalog.onDomainWrite(DomainWriteEvent.of(DomainWriteEvent.Source.CONSULTATION, DomainWriteEvent.Action.CREATED, 7L));
+
+        assertEquals(1, catalog.cie10().version());
+        assertEquals(1, catalog.professionals().version());
+    }
+
+    @Test
+    void failedRefreshReloadsOnNextAccess() {
+        when(professionalRepository.findById(6L)).thenThrow(new IllegalStateException("sin conexión"));
+
+        catalog.onDomainWrite(DomainWriteEvent.of(DomainWriteEvent.Source.PROFESSIONAL, DomainWriteEvent.Action.CREATED, 6L));
+
+        assertEquals(0.0, meterRegistry.get("catalog.version").tag("catalog", "professional").gauge().value());
+        when(professionalRepository.findAll()).thenReturn(List.of(
+                new HealthcareProfessional(5L, "11111111-1", "Ana Pérez", "Pediatría"),
+                new HealthcareProfessional(6L, "22222222-2", "Luis Soto", "Medicina General")));
+        assertEquals("Luis Soto", catalog.professional(6L).orElseThrow().name());
+        assertEquals(2, catalog.professionals().version());
+    }
+
+    @Test
+    void namesPreferLoadedEntities() {
+        assertEquals("Diabetes tipo 2", catalog.cie10Name(cie10("E11", "Diabetes tipo 2")));
+        assertNull(catalog.cie10Name(null));
+        assertEquals("Paracetamol 500", catalog.medicationName(medication(1L, "Paracetamol 500", null)));
+    }
+
+    private static Cie10 cie10(String code, String name) {
+        Cie10 cie10 = new Cie10();
+        cie10.setCode(code);
+        cie10.setName(name);
+        return cie10;
+    }
+
+    private static Medication medication(Long id, String name, Long formId) {
+        Medication medication = new Medication();
+        medication.setId(id);
+        medication.setName(name);
+        if (formId != null) {
+            medication.setPharmaceuticalForm(new PharmaceuticalForm(formId, null));
+        }
+        return medication;
+    }
+}
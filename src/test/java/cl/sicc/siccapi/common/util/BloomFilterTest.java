@@ -0,0 +1,37 @@
+package cl.sicc.siccapi.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void neverMissesAddedValues() {
+        BloomFilter filter = BloomFilter.create(1_000, 0.01);
+        var added = IntStream.range(0, 1_000).mapToObj(i -> UUID.randomUUID().toString()).toList();
+        added.forEach(filter::put);
+
+        assertTrue(added.stream().allMatch(filter::mightContain));
+    }
+
+    @Test
+    void keepsFalsePositivesNearTheRequestedRate() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("revocado-" + i));
+
+        long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("vigente-" + i)).count();
+
+        assertTrue(falsePositives < 2_000, "Falsos positivos: " + falsePositives);
+        assertEquals(7, filter.hashCount());
+    }
+
+    @Test
+    void rejectsInvalidRates() {
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(10, 0));
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(10, 1));
+    }
+}
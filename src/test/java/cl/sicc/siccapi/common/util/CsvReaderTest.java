@@ -0,0 +1,36 @@
+package cl.sicc.siccapi.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    @Test
+    void readsQuotedFieldsAcrossLines() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(
+                "a,b,c\r\n\r\n1,\"dos, \"\"tres\"\"\",\"línea\nsiguiente\"\n,,\nfinal"));
+
+        assertEquals(List.of("a", "b", "c"), reader.next());
+        assertEquals(1, reader.recordLine());
+        assertEquals(List.of("1", "dos, \"tres\"", "línea\nsiguiente"), reader.next());
+        assertEquals(3, reader.recordLine());
+        assertEquals(List.of("", "", ""), reader.next());
+        assertEquals(5, reader.recordLine());
+        assertEquals(List.of("final"), reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void rejectsUnclosedQuotes() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a;b\n\"sin cerrar;x\n"), ';');
+
+        assertEquals(List.of("a", "b"), reader.next());
+        IOException error = assertThrows(IOException.class, reader::next);
+        assertTrue(error.getMessage().contains("línea 2"));
+    }
+}
@@ -0,0 +1,41 @@
+package cl.sicc.siccapi.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void roundTripsKeysWithSeparators() {
+        KeysetCursor cursor = KeysetCursor.of("Pérez: Ana", 42);
+        String token = cursor.encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+        assertEquals(cursor, KeysetCursor.decode(token));
+    }
+
+    @Test
+    void decodesTypedAndMissingKeys() {
+        assertEquals(LocalDate.of(2025, 3, 10), KeysetCursor.decode(KeysetCursor.of(LocalDate.of(2025, 3, 10), 7).encode()).dateKey());
+        assertEquals(15L, KeysetCursor.decode(KeysetCursor.of(15L, 7).encode()).longKey());
+
+        KeysetCursor undated = KeysetCursor.decode(KeysetCursor.of(null, 9).encode());
+        assertNull(undated.key());
+        assertEquals(9, undated.id());
+        assertNull(undated.dateKey());
+
+        assertNull(KeysetCursor.decode(""));
+        assertNull(KeysetCursor.decode(null));
+    }
+
+    @Test
+    void rejectsTamperedCursors() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("no es base64!"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(KeysetCursor.of("x", 1).encode().substring(1)));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.of("ayer", 1).dateKey());
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.of("J00", 1).longKey());
+    }
+}
@@ -0,0 +1,24 @@
+package cl.sicc.siccapi.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RutTest {
+
+    @Test
+    void normalizesValidRuts() {
+        assertEquals("12345678-5", Rut.normalize("12.345.678-5"));
+        assertEquals("10000013-K", Rut.normalize(" 10.000.013-k "));
+        assertEquals("7654321-6", Rut.normalize("07654321-6"));
+        assertEquals('0', Rut.checkDigit("1000013"));
+    }
+
+    @Test
+    void rejectsInvalidRuts() {
+        assertThrows(IllegalArgumentException.class, () -> Rut.normalize("12345678-9"));
+        assertThrows(IllegalArgumentException.class, () -> Rut.normalize("12345678"));
+        assertThrows(IllegalArgumentException.class, () -> Rut.normalize("R-2"));
+        assertThrows(IllegalArgumentException.class, () -> Rut.normalize(null));
+    }
+}
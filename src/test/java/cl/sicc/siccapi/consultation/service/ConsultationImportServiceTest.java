@@ -0,0 +1,223 @@
+package cl.sicc.siccapi.consultation.service;
+
+import cl.sicc.siccapi.catalog.service.ReferenceCatalogService;
+import cl.sicc.siccapi.common.dto.ImportEventDto;
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import cl.sicc.siccapi.common.util.ImportFormat;
+import cl.sicc.siccapi.consultation.domain.Consultation;
+import cl.sicc.siccapi.consultation.repository.ConsultationRepository;
+import cl.sicc.siccapi.diagnosis.domain.Cie10;
+import cl.sicc.siccapi.diagnosis.repository.Cie10Repository;
+import cl.sicc.siccapi.healthcareprofessional.domain.HealthcareProfessional;
+import cl.sicc.siccapi.healthcareprofessional.repository.HealthcareProfessionalRepository;
+import cl.sicc.siccapi.patient.domain.Patient;
+import cl.sicc.siccapi.patient.repository.PatientRepository;
+import cl.sicc.siccapi.prescription.domain.Medication;
+import cl.sicc.siccapi.prescription.repository.MedicationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Carga masiva en lotes de dos filas: las filas inválidas se informan sin detener la carga.
+ * Sin @Transactional: cada lote confirma su propia transacción.
+ */
+@SpringBootTest(properties = {"consultation.import.chunk-size=2", "patient.import.chunk-size=2"})
+@RecordApplicationEvents
+class ConsultationImportServiceTest {
+
+    @Autowired
+    private ConsultationImportService importService;
+
+    @Autowired
+    private ConsultationRepository consultationRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private HealthcareProfessionalRepository professionalRepository;
+
+    @Autowired
+    private Cie10Repository cie10Repository;
+
+    @Autowired
+    private MedicationRepository medicationRepository;
+
+    @Autowired
+    private ReferenceCatalogService catalog;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    private Patient patient;
+    private HealthcareProfessional professional;
+    private Medication medication;
+
+    @BeforeEach
+    void setUp() {
+        patient = patientRepository.save(Patient.builder().rut("3-5").name("Paciente").sex("M")
+                .birthDate(LocalDate.of(1975, 6, 1)).fonasaTier(Patient.FonasaTier.A).build());
+        professional = professionalRepository.save(HealthcareProfessional.builder().rut("4-3").name("Profesional")
+                .specialty("Medicina General").build());
+        cie10Repository.save(Cie10.builder().code("A09").name("Diarrea").build());
+        cie10Repository.save(Cie10.builder().code("R51").name("Cefalea").build());
+        medication = medicationRepository.save(Medication.builder().name("Paracetamol").dosage("500 mg").build());
+        catalog.loadOnStartup();
+    }
+
+    @AfterEach
+    void tearDown() {
+        consultationRepository.deleteAll();
+        medicationRepository.delete(medication);
+        cie10Repository.deleteAllById(List.of("A09", "R51"));
+        professionalRepository.delete(professional);
+        patientRepository.delete(patient);
+        catalog.loadOnStartup();
+    }
+
+    @Test
+    void importsNdjsonAndReportsInvalidRows() throws IOException {
+        String input = String.join("\n",
+                "{\"ref\":\"c1\",\"date\":\"2025-01-10\",\"type\":\"morbilidad\",\"patientId\":" + patient.getId()
+                        + ",\"professionalId\":" + professional.getId()
+                        + ",\"diagnoses\":[{\"cie10Code\":\"A09\"},{\"cie10Code\":\"R51\",\"description\":\"leve\"}]"
+                        + ",\"prescriptions\":[{\"medications\":[{\"medicationId\":" + medication.getId() + ",\"quantity\":2}]}]}",
+                "",
+                "{\"ref\":\"c2\",\"date\":\"2025-01-11\",\"patientRut\":\"3-5\",\"professionalRut\":\"4-3\"}",
+                "{\"ref\":\"c3\",\"date\":\"2025-01-12\",\"patientId\":" + patient.getId()
+                        + ",\"professionalId\":" + professional.getId() + ",\"diagnoses\":[{\"cie10Code\":\"Z99\"}]}",
+                "{no es json",
+                "{\"ref\":\"c5\",\"date\":\"2025-01-13\",\"patientRut\":\"9-9\",\"professionalId\":" + professional.getId() + "}");
+        List<ImportEventDto> events = new ArrayList<>();
+
+        ImportEventDto summary = importService.importConsultations(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), ImportFormat.NDJSON,
+                events::add);
+
+        assertEquals(5, summary.rows());
+        assertEquals(2, summary.imported());
+        assertEquals(3, summary.failed());
+        List<ImportEventDto> errors = events.stream()
+                .filter(e -> e.type() == ImportEventDto.Type.ERROR).toList();
+        assertEquals(List.of(4L, 5L, 6L), errors.stream().map(ImportEventDto::line).toList());
+        assertEquals("c3", errors.get(0).ref());
+        assertTrue(errors.get(0).message().contains("Z99"));
+        assertTrue(errors.get(2).message().contains("9-9"));
+        assertEquals(summary, events.get(events.size() - 1));
+        assertTrue(events.stream().anyMatch(e -> e.type() == ImportEventDto.Type.PROGRESS));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Consultation> imported = consultationRepository.findAll();
+            assertEquals(2, imported.size());
+            Consultation first = imported.stream().filter(c -> c.getDate().equals(LocalDate.of(2025, 1, 10)))
+                    .findFirst().orElseThrow();
+            assertEquals(Consultation.Type.MORBILIDAD, first.getType());
+            assertEquals(2, first.getDiagnoses().size());
+            assertEquals(first.getDate(), first.getPrescriptions().get(0).getDate());
+            assertEquals(2, first.getPrescriptions().get(0).getPrescriptionMedications().get(0).getQuantity());
+        });
+    }
+
+    @Test
+    void importsCsv() throws IOException {
+        String input = "﻿ref,date,type,patient_rut,professional_id,diagnoses,medications\n"
+                + "a,2025-02-01,CONTROL,3-5," + professional.getId() + ",\"A09:con fiebre, vómitos|R51\","
+                + medication.getId() + ":1:cada 8 horas\n"
+                + "b,2025-02-02,CONTROL,3-5," + professional.getId() + ",A09," + medication.getId() + ":0\n"
+                + "c,fecha,CONTROL,3-5," + professional.getId() + ",,\n"
+                + "d,2099-01-01,CONTROL,3-5," + professional.getId() + ",,\n";
+        List<ImportEventDto> events = new ArrayList<>();
+
+        ImportEventDto summary = importService.importConsultations(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), ImportFormat.CSV,
+                events::add);
+
+        assertEquals(4, summary.rows());
+        assertEquals(1, summary.imported());
+        assertEquals(List.of("b", "c", "d"), events.stream()
+                .filter(e -> e.type() == ImportEventDto.Type.ERROR)
+                .map(ImportEventDto::ref).toList());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Consultation imported = consultationRepository.findAll().get(0);
+            assertEquals("con fiebre, vómitos", imported.getDiagnoses().stream()
+                    .filter(d -> d.getCie10().getCode().equals("A09")).findFirst().orElseThrow().getDescription());
+            assertEquals("cada 8 horas", imported.getPrescriptions().get(0).getPrescriptionMedications().get(0).getInstructions());
+        });
+    }
+
+    @Test
+    void matchesPatientRutInCanonicalForm() throws IOException {
+        String input = String.join("\n",
+                "{\"ref\":\"puntos\",\"date\":\"2025-04-01\",\"patientRut\":\"00.000.003-5\",\"professionalId\":"
+                        + professional.getId() + "}",
+                "{\"ref\":\"dv\",\"date\":\"2025-04-02\",\"patientRut\":\"3-4\",\"professionalId\":"
+                        + professional.getId() + "}");
+        List<ImportEventDto> events = new ArrayList<>();
+
+        ImportEventDto summary = importService.importConsultations(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), ImportFormat.NDJSON,
+                events::add);
+
+        assertEquals(1, summary.imported());
+        List<ImportEventDto> errors = events.stream()
+                .filter(e -> e.type() == ImportEventDto.Type.ERROR).toList();
+        assertEquals(List.of("dv"), errors.stream().map(ImportEventDto::ref).toList());
+        assertTrue(errors.get(0).message().contains("Dígito verificador"), errors.get(0).message());
+        assertEquals(patient.getId(), consultationRepository.findAll().get(0).getPatient().getId());
+    }
+
+    @Test
+    void publishesOneEventPerChunkAfterRowRetry() throws IOException {
+        // La descripción excede la columna: la base rechaza el lote y luego sólo esa fila
+        String input = String.join("\n",
+                "{\"ref\":\"ok\",\"date\":\"2025-03-01\",\"patientId\":" + patient.getId()
+                        + ",\"professionalId\":" + professional.getId()
+                        + ",\"prescriptions\":[{\"date\":\"2025-03-02\",\"medications\":[{\"medicationId\":"
+                        + medication.getId() + ",\"quantity\":1}]}]}",
+                "{\"ref\":\"larga\",\"date\":\"2025-03-05\",\"patientId\":" + patient.getId()
+                        + ",\"professionalId\":" + professional.getId()
+                        + ",\"diagnoses\":[{\"cie10Code\":\"A09\",\"description\":\"" + "x".repeat(300) + "\"}]}");
+        List<ImportEventDto> events = new ArrayList<>();
+
+        ImportEventDto summary = importService.importConsultations(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), ImportFormat.NDJSON,
+                events::add);
+
+        assertEquals(1, summary.imported());
+        assertEquals(List.of("larga"), events.stream()
+                .filter(e -> e.type() == ImportEventDto.Type.ERROR)
+                .map(ImportEventDto::ref).toList());
+        List<DomainWriteEvent> writes = applicationEvents.stream(DomainWriteEvent.class)
+                .filter(e -> e.source() == DomainWriteEvent.Source.CONSULTATION).toList();
+        assertEquals(1, writes.size());
+        assertEquals(Set.of(patient.getId()), writes.get(0).patientIds());
+        assertEquals(Set.of(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 2)), writes.get(0).affectedDates());
+    }
+
+    @Test
+    void rejectsCsvWithoutHeader() {
+        assertThrows(IllegalArgumentException.class, () -> importService.importConsultations(
+                new ByteArrayInputStream("1,2,3\n".getBytes(StandardCharsets.UTF_8)),
+                ImportFormat.CSV, e -> { }));
+    }
+}
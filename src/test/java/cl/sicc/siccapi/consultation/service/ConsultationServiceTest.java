@@ -0,0 +1,222 @@
+package cl.sicc.siccapi.consultation.service;
+
+import cl.sicc.siccapi.catalog.service.ReferenceCatalogService;
+import cl.sicc.siccapi.common.dto.CursorSlice;
+import cl.sicc.siccapi.consultation.dto.ConsultationDto;
+import cl.sicc.siccapi.consultation.dto.DiagnosisDto;
+import cl.sicc.siccapi.diagnosis.domain.Cie10;
+import cl.sicc.siccapi.diagnosis.repository.Cie10Repository;
+import cl.sicc.siccapi.diagnosis.service.DiagnosisService;
+import cl.sicc.siccapi.healthcareprofessional.domain.HealthcareProfessional;
+import cl.sicc.siccapi.healthcareprofessional.repository.HealthcareProfessionalRepository;
+import cl.sicc.siccapi.patient.domain.Patient;
+import cl.sicc.siccapi.patient.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sentencias SQL de la creación y de la lectura de consultas: no deben crecer con el número de
+ * diagnósticos ni con el tamaño de la página.
+ */
+@SpringBootTest
+@Transactional
+class ConsultationServiceTest {
+
+    private static final List<String> CODES = List.of("J00", "J02.9", "J06.9", "J18.9", "J45.9");
+
+    @Autowired
+    private ConsultationService consultationService;
+
+    @Autowired
+    private DiagnosisService diagnosisService;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private HealthcareProfessionalRepository professionalRepository;
+
+    @Autowired
+    private Cie10Repository cie10Repository;
+
+    @Autowired
+    private ReferenceCatalogService catalog;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private Long patientId;
+    private Long professionalId;
+
+    @BeforeEach
+    void setUp() {
+        patientId = patientRepository.save(Patient.builder().rut("1-9").name("Paciente").sex("F")
+                .birthDate(LocalDate.of(1980, 1, 1)).fonasaTier(Patient.FonasaTier.B).build()).getId();
+        professionalId = professionalRepository.save(HealthcareProfessional.builder().rut("2-7").name("Profesional")
+                .specialty("Medicina General").build()).getId();
+        for (String code : CODES) {
+            cie10Repository.save(Cie10.builder().code(code).name("Código " + code).build());
+        }
+        entityManager.flush();
+        // Los datos de referencia no pasan por los servicios: el catálogo se recarga a mano
+        catalog.loadOnStartup();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+        catalog.loadOnStartup();
+    }
+
+    @Test
+    void statementsDoNotGrowWithDiagnoses() {
+        // Reserva los bloques de ids: en H2 la secuencia parte en 1 y el primer bloque trae un solo id
+        statementsFor(() -> create(1));
+        statementsFor(() -> create(1));
+
+        long withOne = statementsFor(() -> create(1));
+        long withFive = statementsFor(() -> create(5));
+
+        assertEquals(withOne, withFive);
+        // SELECT del paciente, INSERT de la consulta y un lote de INSERT de diagnósticos
+        assertEquals(3, withFive);
+    }
+
+    @Test
+    void rejectsUnknownReferencesAfterOneLookup() {
+        long statements = statementsFor(() -> {
+            ResponseStatusException unknownCode = assertThrows(ResponseStatusException.class,
+                    () -> consultationService.create(consultation(professionalId, List.of("Z99"))));
+            assertTrue(unknownCode.getReason().contains("Z99"));
+            assertThrows(ResponseStatusException.class,
+                    () -> consultationService.create(consultation(-1L, CODES)));
+        });
+
+        // El SELECT del paciente (el segundo intento lo encuentra en el contexto de persistencia) y
+        // una búsqueda en la base por cada clave ausente del catálogo
+        assertEquals(3, statements);
+    }
+
+    @Test
+    void listAndDetailUseFixedStatements() {
+        List<Long> ids = IntStream.range(0, 8).mapToObj(i -> {
+            Long patient = patientRepository.save(Patient.builder().rut("9" + i + "-0").name("Paciente " + i).sex("M")
+                    .birthDate(LocalDate.of(1990, 1, 1)).fonasaTier(Patient.FonasaTier.C).build()).getId();
+            ConsultationDto dto = consultation(professionalId, CODES.subList(0, 1 + i % 3));
+            dto.setPatientId(patient);
+            return consultationService.create(dto).getId();
+        }).toList();
+
+        // Página, COUNT y diagnósticos de la página, sin importar cuántos pacientes o diagnósticos traiga
+        long[] page = new long[1];
+        long listStatements = statementsFor(() -> page[0] = consultationService
+                .findAll(PageRequest.of(0, 5, Sort.by("id"))).getContent().stream()
+                .peek(c -> assertNotNull(c.getPatientName()))
+                .mapToLong(c -> c.getDiagnoses().size()).sum());
+        assertEquals(3, listStatements);
+        assertEquals(1 + 2 + 3 + 1 + 2, page[0]);
+
+        long detailStatements = statementsFor(() -> {
+            ConsultationDto detail = consultationService.findById(ids.get(2));
+            assertEquals(3, detail.getDiagnoses().size());
+            assertEquals("Profesional", detail.getDoctorName());
+            assertEquals("Paciente 2", detail.getPatientName());
+        });
+        assertEquals(2, detailStatements);
+
+        long diagnosisStatements = statementsFor(() -> assertEquals(3,
+                diagnosisService.findAll(PageRequest.of(0, 3)).getContent().stream()
+                        .filter(d -> d.getCie10Description() != null).count()));
+        assertEquals(2, diagnosisStatements);
+    }
+
+    @Test
+    void cursorPagesVisitEveryConsultationOnceInOrder() {
+        // Fechas repetidas y dos consultas sin fecha, que van al final
+        List<LocalDate> dates = Arrays.asList(LocalDate.of(2025, 1, 5), LocalDate.of(2025, 2, 1), null,
+                LocalDate.of(2025, 1, 5), LocalDate.of(2024, 12, 31), null, LocalDate.of(2025, 2, 1));
+        List<ConsultationDto> created = dates.stream().map(date -> {
+            ConsultationDto dto = consultation(professionalId, CODES.subList(0, 1));
+            dto.setDate(date);
+            return consultationService.create(dto);
+        }).toList();
+        List<Long> expected = created.stream()
+                .sorted(Comparator.comparing(ConsultationDto::getDate, Comparator.nullsLast(Comparator.reverseOrder()))
+                        .thenComparing(ConsultationDto::getId, Comparator.reverseOrder()))
+                .map(ConsultationDto::getId).toList();
+
+        List<CursorSlice<ConsultationDto>> pages = new ArrayList<>();
+        List<Long> statements = new ArrayList<>();
+        String cursor = "";
+        while (cursor != null) {
+            String current = cursor;
+            statements.add(statementsFor(() -> pages.add(consultationService.findSlice(current, 3))));
+            cursor = pages.get(pages.size() - 1).nextCursor();
+        }
+        List<Long> visited = pages.stream().flatMap(page -> page.content().stream())
+                .peek(c -> assertEquals(1, c.getDiagnoses().size()))
+                .map(ConsultationDto::getId).toList();
+
+        assertEquals(expected, visited.stream().filter(expected::contains).toList());
+        assertEquals(visited.size(), visited.stream().distinct().count());
+        // Filas y diagnósticos, sin COUNT; sólo la página del paso a las consultas sin fecha suma una
+        assertEquals(2, statements.get(0));
+        assertTrue(statements.stream().allMatch(n -> n <= 3), statements::toString);
+
+        assertThrows(IllegalArgumentException.class, () -> consultationService.findSlice("%%%", 3));
+    }
+
+    private void create(int diagnoses) {
+        ConsultationDto created = consultationService.create(consultation(professionalId, CODES.subList(0, diagnoses)));
+        assertEquals(diagnoses, created.getDiagnoses().size());
+        assertEquals("Profesional", created.getDoctorName());
+        assertNotNull(created.getDiagnoses().get(0).getId());
+    }
+
+    private long statementsFor(Runnable write) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        write.run();
+        entityManager.flush();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private ConsultationDto consultation(Long professional, List<String> codes) {
+        ConsultationDto dto = new ConsultationDto();
+        dto.setDate(LocalDate.of(2025, 3, 10));
+        dto.setPatientId(patientId);
+        dto.setProfessionalId(professional);
+        dto.setDiagnoses(IntStream.range(0, codes.size()).mapToObj(i -> {
+            DiagnosisDto diagnosis = new DiagnosisDto();
+            diagnosis.setCie10Code(codes.get(i));
+            diagnosis.setDescription("Diagnóstico " + i);
+            return diagnosis;
+        }).toList());
+        return dto;
+    }
+}
@@ -0,0 +1,92 @@
+package cl.sicc.siccapi.diagnosis.service;
+
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import cl.sicc.siccapi.diagnosis.domain.Cie10;
+import cl.sicc.siccapi.diagnosis.dto.Cie10Dto;
+import cl.sicc.siccapi.diagnosis.repository.Cie10Repository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class Cie10SearchIndexTest {
+
+    private final List<Cie10> catalog = new ArrayList<>(List.of(
+            cie10("J06.9", "Infección aguda de las vías respiratorias superiores, no especificada"),
+            cie10("J06", "Infecciones agudas de sitios múltiples de las vías respiratorias superiores"),
+            cie10("J06.0", "Laringofaringitis aguda"),
+            cie10("J18.9", "Neumonía, no especificada"),
+            cie10("J15.9", "Neumonía bacteriana, no especificada"),
+            cie10("J00", "Rinofaringitis aguda [resfriado común]"),
+            cie10("P23.6", "Neumonía congénita debida a otros agentes bacterianos"),
+            cie10("E11", "Diabetes mellitus tipo 2")));
+
+    private Cie10Repository repository;
+    private Cie10SearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(Cie10Repository.class);
+        when(repository.findAll()).thenAnswer(invocation -> List.copyOf(catalog));
+        index = new Cie10SearchIndex(repository);
+        index.reload();
+    }
+
+    @Test
+    void codePrefixListsExactCodeFirst() {
+        assertEquals(List.of("J06", "J06.0", "J06.9"), codes(index.search("j06", 10)));
+        assertEquals(List.of("J06.9"), codes(index.search("J069", 10)));
+        assertEquals(List.of("J06", "J06.0"), codes(index.search("J06", 2)));
+    }
+
+    @Test
+    void namePrefixesIgnoreAccentsAndCase() {
+        // Todas las palabras deben coincidir; las que empiezan con la consulta van primero
+        assertEquals(List.of("J15.9", "P23.6"), codes(index.search("NEUMONIA bacter", 10)));
+        assertEquals(List.of("J18.9", "J15.9", "P23.6"), codes(index.search("neumo", 10)));
+        assertEquals(List.of("J00"), codes(index.search("resfriado comun", 10)));
+        assertTrue(index.search("neumonía viral", 10).isEmpty());
+    }
+
+    @Test
+    void codeMatchesComeBeforeNameMatches() {
+        catalog.add(cie10("E10", "Diabetes mellitus tipo 1 (E11 excluida)"));
+        index.reload();
+
+        assertEquals(List.of("E11", "E10"), codes(index.search("e11", 10)));
+    }
+
+    @Test
+    void rebuildsOnCatalogWritesOnly() {
+        index.onDomainWrite(DomainWriteEvent.of(DomainWriteEvent.Source.DIAGNOSIS, DomainWriteEvent.Action.CREATED, 1L));
+        verify(repository, times(1)).findAll();
+
+        catalog.add(cie10("J45.9", "Asma, no especificada"));
+        index.onDomainWrite(DomainWriteEvent.of(DomainWriteEvent.Source.CIE10, DomainWriteEvent.Action.CREATED, "J45.9"));
+
+        assertEquals(List.of("J45.9"), codes(index.search("asma", 10)));
+        verify(repository, times(2)).findAll();
+    }
+
+    @Test
+    void blankQueryReturnsNothing() {
+        assertTrue(index.search(" ", 10).isEmpty());
+        assertTrue(index.search(null, 10).isEmpty());
+        assertEquals(1, index.search("j", 0).size());
+    }
+
+    private static Cie10 cie10(String code, String name) {
+        Cie10 cie10 = new Cie10();
+        cie10.setCode(code);
+        cie10.setName(name);
+        return cie10;
+    }
+
+    private static List<String> codes(List<Cie10Dto> results) {
+        return results.stream().map(Cie10Dto::getCode).toList();
+    }
+}
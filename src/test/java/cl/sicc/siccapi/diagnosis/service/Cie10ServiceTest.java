@@ -0,0 +1,65 @@
+package cl.sicc.siccapi.diagnosis.service;
+
+import cl.sicc.siccapi.diagnosis.domain.Cie10Chapter;
+import cl.sicc.siccapi.diagnosis.dto.Cie10Dto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class Cie10ServiceTest {
+
+    @Autowired
+    private Cie10Service cie10Service;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void createAssignsChapterAndBlockFromCodeRange() {
+        cie10Service.create(dto("j06.9", "Infección aguda de las vías respiratorias superiores"));
+        cie10Service.create(dto("Z99.8", "Dependencia de otras máquinas y dispositivos capacitantes"));
+        cie10Service.create(dto("ZZ1", "Código fuera de la clasificación"));
+
+        assertEquals(Map.of("CHAPTER", "X", "BLOCK", "J00-J06"), hierarchy("j06.9"));
+        assertEquals(Map.of("CHAPTER", "XXI", "BLOCK", "Z80-Z99"), hierarchy("Z99.8"));
+        assertNull(jdbc.queryForObject("SELECT chapter_id FROM cie10 WHERE code = 'ZZ1'", Integer.class));
+    }
+
+    @Test
+    void chapterTableMatchesEnum() {
+        for (Cie10Chapter chapter : Cie10Chapter.values()) {
+            assertEquals(chapter.name(), jdbc.queryForObject(
+                    "SELECT code FROM cie10_chapter WHERE id = ?", String.class, chapter.getId()));
+        }
+        // Todos los bloques quedan dentro del rango de su capítulo
+        assertEquals(0, jdbc.queryForObject("""
+                SELECT COUNT(*) FROM cie10_block b JOIN cie10_chapter ch ON b.chapter_id = ch.id
+                WHERE b.first_category < ch.first_category OR b.last_category > ch.last_category
+                """, Integer.class));
+    }
+
+    private Map<String, Object> hierarchy(String code) {
+        return jdbc.queryForMap("""
+                SELECT ch.code AS chapter, bl.first_category || '-' || bl.last_category AS block
+                FROM cie10 cie
+                JOIN cie10_chapter ch ON cie.chapter_id = ch.id
+                JOIN cie10_block bl ON cie.block_id = bl.id
+                WHERE cie.code = ?
+                """, code);
+    }
+
+    private static Cie10Dto dto(String code, String name) {
+        Cie10Dto dto = new Cie10Dto();
+        dto.setCode(code);
+        dto.setName(name);
+        return dto;
+    }
+}
@@ -0,0 +1,132 @@
+package cl.sicc.siccapi.integration.ai.service;
+
+import cl.sicc.siccapi.integration.ai.domain.IAResumenJob.Estado;
+import cl.sicc.siccapi.integration.ai.dto.IAResumenDto;
+import cl.sicc.siccapi.integration.ai.dto.IAResumenJobDto;
+import cl.sicc.siccapi.integration.ai.repository.IAResumenInvalidacionRepository;
+import cl.sicc.siccapi.integration.ai.repository.IAResumenJobRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Trabajos de resumen IA sobre H2, con el proveedor simulado: un solo trabajo por periodo, el
+ * resultado se guarda y el pool saturado responde 429.
+ */
+@SpringBootTest
+class IAResumenJobServiceTest {
+
+    @Autowired
+    private IAResumenJobRepository repository;
+
+    @Autowired
+    private IAResumenInvalidacionRepository invalidaciones;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AIService aiService = mock(AIService.class);
+    private final CountDownLatch proveedor = new CountDownLatch(1);
+    private IAResumenJobService jobs;
+
+    @BeforeEach
+    void setUp() {
+        jobs = new IAResumenJobService(aiService, repository, invalidaciones, objectMapper, new SimpleMeterRegistry(),
+                1, 1, 3_600_000, 300_000, 604_800_000);
+        when(aiService.generarResumenIA(anyString())).thenAnswer(invocation -> {
+            assertTrue(proveedor.await(10, TimeUnit.SECONDS));
+            return resumen(invocation.getArgument(0));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        proveedor.countDown();
+        jobs.shutdown();
+        repository.deleteAll();
+    }
+
+    @Test
+    void deduplicatesByPeriodAndPersistsTheResult() throws InterruptedException {
+        IAResumenJobDto primero = jobs.solicitar("marzo 2026");
+        IAResumenJobDto repetido = jobs.solicitar("marzo 2026");
+
+        assertEquals(primero.getId(), repetido.getId());
+        assertTrue(repetido.getEstado().enCurso());
+        assertConflict(() -> jobs.resultado(primero.getId()));
+
+        proveedor.countDown();
+        awaitEstado(primero.getId(), Estado.COMPLETADO);
+
+        assertEquals("Resumen marzo 2026", jobs.resultado(primero.getId()).getTitulo());
+        assertEquals(primero.getId(), jobs.solicitar("marzo 2026").getId());
+        verify(aiService, times(1)).generarResumenIA("marzo 2026");
+
+        // Tras invalidar el caché, aunque sea en otro nodo, se genera de nuevo
+        IAResumenJobService otroNodo = new IAResumenJobService(aiService, repository, invalidaciones, objectMapper,
+                new SimpleMeterRegistry(), 1, 1, 3_600_000, 300_000, 604_800_000);
+        try {
+            otroNodo.invalidar();
+        } finally {
+            otroNodo.shutdown();
+        }
+        assertNotEquals(primero.getId(), jobs.solicitar("marzo 2026").getId());
+    }
+
+    @Test
+    void rejectsWhenThePoolIsSaturated() {
+        jobs.solicitar("enero 2026");
+        jobs.solicitar("febrero 2026");
+
+        ResponseStatusException saturado = assertThrows(ResponseStatusException.class,
+                () -> jobs.solicitar("marzo 2026"));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, saturado.getStatusCode());
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    void reportsFailuresAndRetriesOnTheNextRequest() throws InterruptedException {
+        doThrow(new RuntimeException("Groq API key no configurada")).when(aiService).generarResumenIA(anyString());
+
+        IAResumenJobDto fallido = jobs.solicitar("abril 2026");
+        awaitEstado(fallido.getId(), Estado.FALLIDO);
+
+        assertEquals("Groq API key no configurada", jobs.consultar(fallido.getId()).getError());
+        assertConflict(() -> jobs.resultado(fallido.getId()));
+        assertNotEquals(fallido.getId(), jobs.solicitar("abril 2026").getId());
+        assertThrows(ResponseStatusException.class, () -> jobs.consultar("no-existe"));
+    }
+
+    private void awaitEstado(String id, Estado estado) throws InterruptedException {
+        for (int i = 0; i < 100 && jobs.consultar(id).getEstado() != estado; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(estado, jobs.consultar(id).getEstado());
+    }
+
+    private static void assertConflict(Runnable call) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, call::run);
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+    }
+
+    private static IAResumenDto resumen(String periodo) {
+        return new IAResumenDto("Resumen " + periodo, "Texto", List.of(), List.of(), List.of(),
+                LocalDateTime.now(), null, List.of(), null);
+    }
+}
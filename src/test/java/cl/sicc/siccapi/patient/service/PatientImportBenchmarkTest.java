@@ -0,0 +1,149 @@
+package cl.sicc.siccapi.patient.service;
+
+import cl.sicc.siccapi.common.dto.ImportEventDto;
+import cl.sicc.siccapi.common.util.ImportFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara contra un PostgreSQL local el rendimiento de la carga masiva de pacientes (COPY a una
+ * tabla temporal + {@code INSERT ... ON CONFLICT}) con el camino fila a fila de
+ * {@link PatientService#create}: una búsqueda por RUT y un INSERT en su propia transacción. El
+ * camino fila a fila se reproduce con JDBC directo, sin el costo de JPA, así que la comparación
+ * le es favorable.
+ *
+ * Requiere una base desechable; el esquema {@code patient_import_bench} se borra y se recrea:
+ * <pre>
+ * PATIENT_IMPORT_BENCH_DB_URL=jdbc:postgresql://localhost:5432/sicc PATIENT_IMPORT_BENCH_DB_USER=... \
+ * PATIENT_IMPORT_BENCH_DB_PASSWORD=... mvn test -Dtest=PatientImportBenchmarkTest
+ * </pre>
+ */
+@EnabledIfEnvironmentVariable(named = "PATIENT_IMPORT_BENCH_DB_URL", matches = ".+")
+class PatientImportBenchmarkTest {
+
+    private static final String SCHEMA = "patient_import_bench";
+    private static final int BULK_ROWS = 100_000;
+    private static final int PER_ROW_ROWS = 5_000;
+
+    private static DriverManagerDataSource dataSource;
+
+    @BeforeAll
+    static void migrate() {
+        String url = System.getenv("PATIENT_IMPORT_BENCH_DB_URL");
+        String user = System.getenv("PATIENT_IMPORT_BENCH_DB_USER");
+        String password = System.getenv("PATIENT_IMPORT_BENCH_DB_PASSWORD");
+
+        Flyway flyway = Flyway.configure()
+                .dataSource(url, user, password)
+                .schemas(SCHEMA)
+                .locations("classpath:db/migration", "classpath:db/vendor/postgresql")
+                .cleanDisabled(false)
+                .load();
+        flyway.clean();
+        flyway.migrate();
+
+        dataSource = new DriverManagerDataSource(url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA,
+                user, password);
+    }
+
+    @Test
+    void bulkImportOutperformsPerRowCreate() throws Exception {
+        PatientImportService importService = new PatientImportService(dataSource,
+                new ObjectMapper().findAndRegisterModules(), event -> { }, 5000);
+
+        double perRow = perRowThroughput();
+
+        byte[] roster = roster(BULK_ROWS, "Centro");
+        long start = System.nanoTime();
+        ImportEventDto inserted = importService.importPatients(new ByteArrayInputStream(roster), ImportFormat.CSV, e -> { });
+        double bulkInsert = throughput(BULK_ROWS, start);
+        assertEquals(BULK_ROWS, inserted.inserted());
+
+        start = System.nanoTime();
+        ImportEventDto unchanged = importService.importPatients(new ByteArrayInputStream(roster), ImportFormat.CSV, e -> { });
+        double bulkUnchanged = throughput(BULK_ROWS, start);
+        assertEquals(0, unchanged.inserted() + unchanged.updated());
+
+        start = System.nanoTime();
+        ImportEventDto updated = importService.importPatients(new ByteArrayInputStream(roster(BULK_ROWS, "Norte")),
+                ImportFormat.CSV, e -> { });
+        double bulkUpdate = throughput(BULK_ROWS, start);
+        assertEquals(BULK_ROWS, updated.updated());
+
+        System.out.println("Pacientes por segundo:");
+        System.out.printf("  %-34s %,10.0f%n", "fila a fila (" + PER_ROW_ROWS + " filas)", perRow);
+        System.out.printf("  %-34s %,10.0f%n", "masiva, altas (" + BULK_ROWS + " filas)", bulkInsert);
+        System.out.printf("  %-34s %,10.0f%n", "masiva, sin cambios", bulkUnchanged);
+        System.out.printf("  %-34s %,10.0f%n", "masiva, actualizaciones", bulkUpdate);
+        assertTrue(bulkInsert > 3 * perRow, "La carga masiva debería superar al menos 3 veces al camino fila a fila");
+    }
+
+    private static double perRowThroughput() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement find = connection.prepareStatement("SELECT id FROM patient WHERE rut = ?");
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO patient (rut, name, birth_date, sex, residential_sector, fonasa_tier) VALUES (?, ?, ?, ?, ?, ?)")) {
+            long start = System.nanoTime();
+            for (int i = 0; i < PER_ROW_ROWS; i++) {
+                // Número fuera del rango del padrón de la carga masiva
+                String rut = rut(90_000_000 + i);
+                find.setString(1, rut);
+                try (ResultSet rs = find.executeQuery()) {
+                    assertFalse(rs.next());
+                }
+                insert.setString(1, rut);
+                insert.setString(2, "Paciente " + i);
+                insert.setDate(3, Date.valueOf(birthDate(i)));
+                insert.setString(4, i % 2 == 0 ? "F" : "M");
+                insert.setString(5, "Centro");
+                insert.setString(6, "ABCD".substring(i % 4, i % 4 + 1));
+                insert.executeUpdate();
+            }
+            return throughput(PER_ROW_ROWS, start);
+        }
+    }
+
+    private static byte[] roster(int rows, String sector) {
+        StringBuilder csv = new StringBuilder("rut,name,birth_date,sex,residential_sector,fonasa_tier\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(rut(10_000_000 + i)).append(",\"Paciente ").append(i).append("\",")
+                    .append(birthDate(i)).append(',').append(i % 2 == 0 ? 'F' : 'M').append(',')
+                    .append(sector).append(',').append("ABCD".charAt(i % 4)).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String rut(int number) {
+        int sum = 0;
+        int factor = 2;
+        for (int n = number; n > 0; n /= 10) {
+            sum += n % 10 * factor;
+            factor = factor == 7 ? 2 : factor + 1;
+        }
+        int digit = 11 - sum % 11;
+        return number + "-" + (digit == 11 ? "0" : digit == 10 ? "K" : String.valueOf(digit));
+    }
+
+    private static LocalDate birthDate(int i) {
+        return LocalDate.of(1940, 1, 1).plusDays(i % 29_000);
+    }
+
+    private static double throughput(int rows, long startNanos) {
+        return rows / ((System.nanoTime() - startNanos) / 1e9);
+    }
+}
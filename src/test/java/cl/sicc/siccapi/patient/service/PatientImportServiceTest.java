@@ -0,0 +1,153 @@
+package cl.sicc.siccapi.patient.service;
+
+import cl.sicc.siccapi.common.dto.ImportEventDto;
+import cl.sicc.siccapi.common.util.ImportFormat;
+import cl.sicc.siccapi.patient.domain.Patient;
+import cl.sicc.siccapi.patient.dto.PatientCreateDto;
+import cl.sicc.siccapi.patient.repository.PatientRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Alta y actualización masiva por RUT en lotes de dos filas (camino JDBC genérico: H2).
+ */
+@SpringBootTest(properties = {"consultation.import.chunk-size=2", "patient.import.chunk-size=2"})
+class PatientImportServiceTest {
+
+    private static final List<String> RUTS = List.of("11111111-1", "22222222-2", "12345678-5");
+
+    @Autowired
+    private PatientImportService importService;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        RUTS.forEach(rut -> patientRepository.findByRut(rut).ifPresent(patientRepository::delete));
+    }
+
+    @Test
+    void insertsValidatesAndUpdatesByRut() throws IOException {
+        List<ImportEventDto> events = new ArrayList<>();
+        ImportEventDto first = importCsv(events, """
+                rut,name,birth_date,sex,residential_sector,fonasa_tier
+                11.111.111-1,Ana Pérez,1980-05-01,f,Centro,b
+                22222222-2,Luis Soto,1975-01-20,M,,
+                12345678-9,RUT inválido,1990-01-01,F,,
+                12345678-5,Fecha futura,2999-01-01,F,,
+                12345678-5,Sexo inválido,1990-01-01,X,,
+                22222222-2,"Soto, Luis",1975-01-20,M,Norte,A
+                """);
+
+        assertEquals(6, first.rows());
+        assertEquals(3, first.imported());
+        assertEquals(3, first.failed());
+        assertEquals(2, first.inserted());
+        assertEquals(1, first.updated());
+        assertEquals(List.of(4L, 5L, 6L), events.stream()
+                .filter(e -> e.type() == ImportEventDto.Type.ERROR).map(ImportEventDto::line).toList());
+
+        Patient ana = patientRepository.findByRut("11111111-1").orElseThrow();
+        assertEquals("F", ana.getSex());
+        assertEquals(Patient.FonasaTier.B, ana.getFonasaTier());
+        // Un RUT repetido queda con su última fila, aunque caiga en otro lote
+        Patient luis = patientRepository.findByRut("22222222-2").orElseThrow();
+        assertEquals("Soto, Luis", luis.getName());
+        assertEquals("Norte", luis.getResidentialSector());
+
+        ImportEventDto second = importCsv(new ArrayList<>(), """
+                rut,name,birth_date,sex,residential_sector,fonasa_tier
+                11111111-1,Ana Pérez,1980-05-01,F,Centro,B
+                22222222-2,"Soto, Luis",1975-01-20,M,Sur,A
+                12345678-5,Nueva Paciente,2001-09-11,F,,C
+                """);
+
+        // La fila de Ana no cambia nada: se acepta pero no se reescribe
+        assertEquals(3, second.imported());
+        assertEquals(1, second.inserted());
+        assertEquals(1, second.updated());
+        Patient updated = patientRepository.findByRut("22222222-2").orElseThrow();
+        assertEquals("Sur", updated.getResidentialSector());
+        assertEquals(luis.getId(), updated.getId());
+        assertEquals(LocalDate.of(2001, 9, 11), patientRepository.findByRut("12345678-5").orElseThrow().getBirthDate());
+    }
+
+    @Test
+    void matchesPatientsSavedWithDottedRuts() throws IOException, SQLException {
+        // Paciente guardado antes de normalizar el RUT: V12 lo lleva a la forma canónica
+        Patient legacy = new Patient();
+        legacy.setRut("11.111.111-1");
+        legacy.setName("Ana Pérez");
+        legacy.setBirthDate(LocalDate.of(1980, 5, 1));
+        patientRepository.save(legacy);
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/V12__patient_rut_canonical.sql"));
+        }
+        // El alta también guarda la forma canónica
+        PatientCreateDto created = new PatientCreateDto();
+        created.setRut("22.222.222-2");
+        created.setName("Luis Soto");
+        created.setBirthDate(LocalDate.of(1975, 1, 20));
+        patientService.create(created);
+
+        ImportEventDto summary = importCsv(new ArrayList<>(), """
+                rut,name,birth_date,sex,residential_sector,fonasa_tier
+                11111111-1,Ana Pérez,1980-05-01,F,Centro,B
+                22.222.222-2,Luis Soto,1975-01-20,M,Norte,A
+                """);
+
+        assertEquals(0, summary.inserted());
+        assertEquals(2, summary.updated());
+        assertEquals(legacy.getId(), patientService.findByRut("11.111.111-1").orElseThrow().getId());
+        assertEquals("Norte", patientRepository.findByRut("22222222-2").orElseThrow().getResidentialSector());
+        assertThrows(ResponseStatusException.class, () -> patientService.create(created));
+    }
+
+    @Test
+    void importsNdjson() throws IOException {
+        List<ImportEventDto> events = new ArrayList<>();
+        String input = """
+                {"rut":"11111111-1","name":"Ana Pérez","birthDate":"1980-05-01","fonasaTier":"Z"}
+                {"rut":"11111111-1","name":"Ana Pérez","birthDate":"1980-05-01","fonasaTier":"A"}
+                {"rut":
+                """;
+
+        ImportEventDto summary = importService.importPatients(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), ImportFormat.NDJSON, events::add);
+
+        assertEquals(1, summary.inserted());
+        assertEquals(2, summary.failed());
+        assertTrue(events.get(0).message().contains("FONASA"));
+        assertEquals(Patient.FonasaTier.A, patientRepository.findByRut("11111111-1").orElseThrow().getFonasaTier());
+    }
+
+    private ImportEventDto importCsv(List<ImportEventDto> events, String csv) throws IOException {
+        return importService.importPatients(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                ImportFormat.CSV, events::add);
+    }
+}
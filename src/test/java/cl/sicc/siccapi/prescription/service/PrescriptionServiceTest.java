@@ -0,0 +1,144 @@
+package cl.sicc.siccapi.prescription.service;
+
+import cl.sicc.siccapi.catalog.service.ReferenceCatalogService;
+import cl.sicc.siccapi.consultation.domain.Consultation;
+import cl.sicc.siccapi.consultation.repository.ConsultationRepository;
+import cl.sicc.siccapi.healthcareprofessional.domain.HealthcareProfessional;
+import cl.sicc.siccapi.healthcareprofessional.repository.HealthcareProfessionalRepository;
+import cl.sicc.siccapi.patient.domain.Patient;
+import cl.sicc.siccapi.patient.repository.PatientRepository;
+import cl.sicc.siccapi.prescription.domain.Medication;
+import cl.sicc.siccapi.prescription.dto.PrescriptionDto;
+import cl.sicc.siccapi.prescription.dto.PrescriptionMedicationDto;
+import cl.sicc.siccapi.prescription.repository.MedicationRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sentencias SQL del listado y del detalle de recetas: no deben crecer con el tamaño de la página
+ * ni con el número de medicamentos.
+ */
+@SpringBootTest
+@Transactional
+class PrescriptionServiceTest {
+
+    @Autowired
+    private PrescriptionService prescriptionService;
+
+    @Autowired
+    private ConsultationRepository consultationRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private HealthcareProfessionalRepository professionalRepository;
+
+    @Autowired
+    private MedicationRepository medicationRepository;
+
+    @Autowired
+    private ReferenceCatalogService catalog;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @AfterEach
+    void tearDown() {
+        if (statistics != null) statistics.setStatisticsEnabled(false);
+        catalog.loadOnStartup();
+    }
+
+    @Test
+    void listAndDetailUseFixedStatements() {
+        HealthcareProfessional professional = professionalRepository.save(HealthcareProfessional.builder().rut("5-1")
+                .name("Profesional").specialty("Medicina General").build());
+        List<Long> medications = IntStream.range(0, 3).mapToObj(i -> medicationRepository.save(
+                Medication.builder().name("Medicamento " + i).dosage("10 mg").build()).getId()).toList();
+        catalog.loadOnStartup();
+
+        List<Long> ids = IntStream.range(0, 6).mapToObj(i -> {
+            Patient patient = patientRepository.save(Patient.builder().rut("8" + i + "-0").name("Paciente " + i)
+                    .sex("F").birthDate(LocalDate.of(1985, 1, 1)).build());
+            Consultation consultation = consultationRepository.save(Consultation.builder().date(LocalDate.of(2025, 4, 1))
+                    .patient(patient).professional(professional).build());
+            PrescriptionDto dto = new PrescriptionDto();
+            dto.setDate(LocalDate.of(2025, 4, 1));
+            dto.setConsultationId(consultation.getId());
+            dto.setMedications(medications.subList(0, 1 + i % 3).stream().map(id -> {
+                PrescriptionMedicationDto line = new PrescriptionMedicationDto();
+                line.setMedicationId(id);
+                line.setQuantity(1);
+                return line;
+            }).toList());
+            return prescriptionService.create(dto).getId();
+        }).toList();
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        List<PrescriptionDto> page = prescriptionService.findAll(PageRequest.of(0, 4, Sort.by("id"))).getContent();
+        // Página, COUNT y líneas de la página
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(List.of(1, 2, 3, 1), page.stream().map(p -> p.getMedications().size()).toList());
+        assertEquals("Medicamento 0", page.get(0).getMedications().get(0).getMedicationName());
+
+        statistics.clear();
+        PrescriptionDto detail = prescriptionService.findById(ids.get(2));
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(3, detail.getMedications().size());
+    }
+
+    @Test
+    void rejectsRepeatedMedications() {
+        HealthcareProfessional professional = professionalRepository.save(HealthcareProfessional.builder().rut("5-2")
+                .name("Profesional").specialty("Medicina General").build());
+        Patient patient = patientRepository.save(Patient.builder().rut("79-0").name("Paciente")
+                .sex("M").birthDate(LocalDate.of(1985, 1, 1)).build());
+        Consultation consultation = consultationRepository.save(Consultation.builder().date(LocalDate.of(2025, 4, 1))
+                .patient(patient).professional(professional).build());
+        Long medication = medicationRepository.save(Medication.builder().name("Medicamento").dosage("10 mg").build()).getId();
+        catalog.loadOnStartup();
+
+        PrescriptionDto dto = new PrescriptionDto();
+        dto.setDate(LocalDate.of(2025, 4, 1));
+        dto.setConsultationId(consultation.getId());
+        dto.setMedications(List.of(line(medication)));
+        Long id = prescriptionService.create(dto).getId();
+
+        dto.setMedications(List.of(line(medication), line(medication)));
+        ResponseStatusException onCreate = assertThrows(ResponseStatusException.class, () -> prescriptionService.create(dto));
+        assertEquals(HttpStatus.BAD_REQUEST, onCreate.getStatusCode());
+        ResponseStatusException onUpdate = assertThrows(ResponseStatusException.class, () -> prescriptionService.update(id, dto));
+        assertEquals(HttpStatus.BAD_REQUEST, onUpdate.getStatusCode());
+    }
+
+    private static PrescriptionMedicationDto line(Long medicationId) {
+        PrescriptionMedicationDto line = new PrescriptionMedicationDto();
+        line.setMedicationId(medicationId);
+        line.setQuantity(1);
+        return line;
+    }
+}
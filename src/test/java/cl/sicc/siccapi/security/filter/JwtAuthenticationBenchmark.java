@@ -0,0 +1,124 @@
+package cl.sicc.siccapi.security.filter;
+
+import cl.sicc.siccapi.security.service.JwtService;
+import cl.sicc.siccapi.security.service.TokenClaims;
+import cl.sicc.siccapi.security.service.VerifiedTokenCache;
+import cl.sicc.siccapi.user.domain.Role;
+import cl.sicc.siccapi.user.domain.User;
+import cl.sicc.siccapi.user.dto.UserStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Costo por request de la autenticación JWT, en microsegundos (JMH).
+ *
+ * {@code legacyPath} reproduce el camino anterior del filtro: tres parseos verificados del token
+ * (usuario, y usuario y expiración en {@code isTokenValid}), cada uno derivando de nuevo la clave
+ * HMAC. No incluye el SELECT de {@code users} que además hacía en cada request, así que la
+ * comparación le es favorable. {@code fastPath} es un parseo con la clave y el parser ya
+ * construidos, y el rol y estado desde el caché; {@code cachedPath} es el camino actual del filtro,
+ * que además evita ese parseo para un token ya verificado ({@link VerifiedTokenCache}).
+ * <pre>
+ * JWT_BENCH=true mvn test -Dtest=JwtAuthenticationBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtAuthenticationBenchmark {
+
+    private static final String SECRET = "c3lzdGVtLWNsL3NpY2Mvc2ljYS1hcGktand0LWtleS0yMDI1LWp3dC1zZWNyZXQta2V5LWZvcm1hdGVkLWluLWJhc2U2NA==";
+
+    private JwtService jwtService;
+    private VerifiedTokenCache verifiedTokens;
+    private Cache<String, Optional<UserStatus>> statuses;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "accessTokenExpiration", 3_600_000L);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        User user = User.builder().id(1L).firstname("Ana").lastname("Soto").email("ana@example.com")
+                .password("x").role(Role.ADMIN).enabled(true).build();
+        token = jwtService.generateAccessToken(user);
+        verifiedTokens = new VerifiedTokenCache(jwtService, 10_000, new SimpleMeterRegistry());
+        statuses = Caffeine.newBuilder().maximumSize(10_000).expireAfterWrite(Duration.ofSeconds(30)).build();
+        statuses.put(user.getEmail(), Optional.of(new UserStatus(Role.ADMIN, true)));
+    }
+
+    @Benchmark
+    public boolean legacyPath() {
+        String username = parse(token).getSubject();
+        boolean sameUser = parse(token).getSubject().equals(username);
+        return sameUser && !parse(token).getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public boolean fastPath() {
+        return authorize(jwtService.verify(token));
+    }
+
+    @Benchmark
+    public boolean cachedPath() {
+        return authorize(verifiedTokens.verify(token));
+    }
+
+    private boolean authorize(TokenClaims claims) {
+        Optional<UserStatus> status = statuses.getIfPresent(claims.subject());
+        return claims.isAccessToken() && status != null && status.isPresent()
+                && status.get().role().name().equals(claims.role());
+    }
+
+    private static Claims parse(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+    }
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "JWT_BENCH", matches = "true")
+    void fastPathIsCheaperPerRequest() throws Exception {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(JwtAuthenticationBenchmark.class.getName())
+                .forks(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .build()).run();
+        Map<String, Double> score = results.stream().collect(Collectors.toMap(
+                r -> r.getParams().getBenchmark().replaceAll(".*\\.", ""), r -> r.getPrimaryResult().getScore()));
+
+        System.out.printf("Autenticación JWT, µs por request: anterior %.2f, un parseo %.2f, con caché %.2f%n",
+                score.get("legacyPath"), score.get("fastPath"), score.get("cachedPath"));
+        assertTrue(score.get("fastPath") * 2 < score.get("legacyPath"),
+                "Un solo parseo debería costar menos de la mitad que el camino anterior");
+        assertTrue(score.get("cachedPath") * 2 < score.get("fastPath"),
+                "Un token ya verificado debería costar menos de la mitad que verificarlo de nuevo");
+    }
+}
@@ -0,0 +1,105 @@
+package cl.sicc.siccapi.security.filter;
+
+import cl.sicc.siccapi.security.service.JwtService;
+import cl.sicc.siccapi.security.service.TokenRevocationService;
+import cl.sicc.siccapi.security.service.VerifiedTokenCache;
+import cl.sicc.siccapi.user.domain.Role;
+import cl.sicc.siccapi.user.domain.User;
+import cl.sicc.siccapi.user.dto.UserStatus;
+import cl.sicc.siccapi.user.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * El filtro autentica con los claims del token y el estado cacheado del usuario, sin cargarlo.
+ */
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "c3lzdGVtLWNsL3NpY2Mvc2ljYS1hcGktand0LWtleS0yMDI1LWp3dC1zZWNyZXQta2V5LWZvcm1hdGVkLWluLWJhc2U2NA==";
+
+    private final JwtService jwtService = new JwtService();
+    private final UserService userService = mock(UserService.class);
+    private final TokenRevocationService revocations = mock(TokenRevocationService.class);
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter(
+            new VerifiedTokenCache(jwtService, 100, new SimpleMeterRegistry()), revocations, userService);
+
+    private final User admin = User.builder().id(1L).firstname("Ana").lastname("Soto").email("ana@example.com")
+            .password("x").role(Role.ADMIN).enabled(true).build();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "accessTokenExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshTokenExpiration", 120_000L);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void authenticatesFromClaimsWithoutLoadingTheUser() throws Exception {
+        when(userService.findStatus("ana@example.com")).thenReturn(Optional.of(new UserStatus(Role.ADMIN, true)));
+
+        Authentication authentication = filter(jwtService.generateAccessToken(admin));
+
+        assertNotNull(authentication);
+        assertEquals("ana@example.com", authentication.getName());
+        assertEquals(List.of("ADMIN"), authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        verify(userService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void rejectsDisabledUsersChangedRolesAndRefreshTokens() throws Exception {
+        String access = jwtService.generateAccessToken(admin);
+
+        when(userService.findStatus("ana@example.com")).thenReturn(Optional.of(new UserStatus(Role.ADMIN, false)));
+        assertNull(filter(access));
+
+        when(userService.findStatus("ana@example.com")).thenReturn(Optional.of(new UserStatus(Role.USER, true)));
+        assertNull(filter(access));
+
+        when(userService.findStatus("ana@example.com")).thenReturn(Optional.empty());
+        assertNull(filter(access));
+
+        when(userService.findStatus("ana@example.com")).thenReturn(Optional.of(new UserStatus(Role.ADMIN, true)));
+        assertNull(filter(jwtService.generateRefreshToken(admin)));
+        assertNull(filter(access.substring(0, access.length() - 2) + "xx"));
+    }
+
+    @Test
+    void rejectsTokensOfRevokedSessions() throws Exception {
+        when(userService.findStatus("ana@example.com")).thenReturn(Optional.of(new UserStatus(Role.ADMIN, true)));
+        String access = jwtService.generateAccessToken(admin, "sesion-1");
+        assertNotNull(filter(access));
+
+        when(revocations.isRevoked("sesion-1")).thenReturn(true);
+        assertNull(filter(access));
+    }
+
+    private Authentication filter(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/stats/dashboard");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
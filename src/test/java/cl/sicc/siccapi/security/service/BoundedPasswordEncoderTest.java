@@ -0,0 +1,62 @@
+package cl.sicc.siccapi.security.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void hashesOnThePoolAndRecordsLatency() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(4, 2, 4, registry);
+
+        String hash = encoder.encode("secreto");
+
+        assertTrue(encoder.matches("secreto", hash));
+        assertFalse(encoder.matches("otro", hash));
+        assertEquals(1, registry.get("security.password.hash").tag("operation", "encode").timer().count());
+        assertEquals(2, registry.get("security.password.hash").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    void rejectsWith429WhenSaturated() throws Exception {
+        // Un hilo y un lugar en cola; BCrypt 14 tarda lo suficiente para llenar ambos
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(14, 1, 1, registry);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+        waitFor("security.password.active", 1);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+        waitFor("security.password.queue.size", 1);
+
+        ResponseStatusException rejected = assertThrows(ResponseStatusException.class, () -> encoder.encode("c"));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getStatusCode());
+        assertEquals("1", rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, registry.get("security.password.rejected").counter().count());
+        assertNotNull(running.get());
+        assertNotNull(queued.get());
+    }
+
+    @Test
+    void flagsHashesBelowTheConfiguredStrength() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(5, 1, 1, registry);
+
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secreto")));
+        assertFalse(encoder.upgradeEncoding(encoder.encode("secreto")));
+    }
+
+    private void waitFor(String gauge, double value) throws InterruptedException {
+        for (int i = 0; i < 500 && registry.get(gauge).gauge().value() != value; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(value, registry.get(gauge).gauge().value());
+    }
+}
@@ -135,6 +135,29 @@ class JwtServiceTest {
         assertTrue(expiration.getTime() > System.currentTimeMillis());
     }
 
+    @Test
+    void testAccessTokenCarriesRoleAndEnabledClaims() {
+        User user = User.builder()
+                .id(1L)
+                .firstname("Juan")
+                .lastname("Pérez")
+                .email("juan@example.com")
+                .password("password123")
+                .role(Role.ADMIN)
+                .enabled(true)
+                .build();
+
+        TokenClaims access = jwtService.verify(jwtService.generateAccessToken(user));
+        TokenClaims refresh = jwtService.verify(jwtService.generateRefreshToken(user));
+
+        assertTrue(access.isAccessToken());
+        assertEquals("juan@example.com", access.subject());
+        assertEquals("ADMIN", access.role());
+        assertEquals(Boolean.TRUE, access.enabled());
+        assertTrue(refresh.isRefreshToken());
+        assertNull(refresh.role());
+    }
+
     @Test
     void testAccessTokenExpiresBeforeRefreshToken() {
         User user = User.builder()
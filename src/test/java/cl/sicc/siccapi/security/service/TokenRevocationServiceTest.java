@@ -0,0 +1,87 @@
+package cl.sicc.siccapi.security.service;
+
+import cl.sicc.siccapi.security.domain.RevokedToken;
+import cl.sicc.siccapi.security.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Las consultas de revocación se resuelven en memoria; la base sólo se usa al revocar y al
+ * sincronizar.
+ */
+class TokenRevocationServiceTest {
+
+    private final RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TokenRevocationService revocations =
+            new TokenRevocationService(repository, 1_000, 0.001, 30_000, 600_000, registry);
+
+    @Test
+    void revokesLocallyWithoutQueryingOnEachCheck() {
+        revocations.revoke("sesion-1", Instant.now().plusSeconds(60));
+        // Ya vencido: no hace falta recordarlo
+        revocations.revoke("sesion-2", Instant.now().minusSeconds(1));
+
+        assertTrue(revocations.isRevoked("sesion-1"));
+        assertFalse(revocations.isRevoked("sesion-2"));
+        assertFalse(revocations.isRevoked("otra"));
+        assertFalse(revocations.isRevoked(null));
+
+        verify(repository, times(1)).save(any(RevokedToken.class));
+        verify(repository, never()).findByExpiresAtAfter(any());
+        assertEquals(1, registry.get("security.revocation.size").gauge().value());
+    }
+
+    @Test
+    void loadsEverythingOnceThenPollsOnlyNewRevocations() {
+        Instant expiresAt = Instant.now().plusSeconds(60);
+        when(repository.findByExpiresAtAfter(any())).thenReturn(List.of(row("inicial", expiresAt)));
+        when(repository.findByRevokedAtAfterAndExpiresAtAfter(any(), any()))
+                .thenReturn(List.of(row("de-otro-nodo", expiresAt)));
+
+        revocations.sync();
+        assertTrue(revocations.isRevoked("inicial"));
+        assertFalse(revocations.isRevoked("de-otro-nodo"));
+
+        revocations.sync();
+        assertTrue(revocations.isRevoked("de-otro-nodo"));
+        verify(repository, times(1)).findByExpiresAtAfter(any());
+        verify(repository, times(1)).findByRevokedAtAfterAndExpiresAtAfter(any(), any());
+    }
+
+    @Test
+    void purgesExpiredEntries() throws InterruptedException {
+        when(repository.findByExpiresAtAfter(any())).thenReturn(List.of());
+        revocations.revoke("corto", Instant.now().plusMillis(50));
+        revocations.revoke("largo", Instant.now().plusSeconds(60));
+        Thread.sleep(100);
+
+        revocations.sync();
+
+        assertFalse(revocations.isRevoked("corto"));
+        assertTrue(revocations.isRevoked("largo"));
+        assertEquals(1, revocations.size());
+        verify(repository).deleteExpired(any());
+    }
+
+    @Test
+    void keepsStateWhenTheDatabaseFails() {
+        revocations.revoke("sesion", Instant.now().plusSeconds(60));
+        when(repository.findByExpiresAtAfter(any())).thenThrow(new IllegalStateException("sin conexión"));
+
+        revocations.sync();
+
+        assertTrue(revocations.isRevoked("sesion"));
+    }
+
+    private static RevokedToken row(String jti, Instant expiresAt) {
+        return RevokedToken.builder().jti(jti).expiresAt(expiresAt).revokedAt(Instant.now()).build();
+    }
+}
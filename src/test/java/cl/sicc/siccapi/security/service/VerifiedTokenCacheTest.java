@@ -0,0 +1,82 @@
+package cl.sicc.siccapi.security.service;
+
+import cl.sicc.siccapi.user.domain.Role;
+import cl.sicc.siccapi.user.domain.User;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VerifiedTokenCacheTest {
+
+    private static final String SECRET = "c3lzdGVtLWNsL3NpY2Mvc2ljYS1hcGktand0LWtleS0yMDI1LWp3dC1zZWNyZXQta2V5LWZvcm1hdGVkLWluLWJhc2U2NA==";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = spy(new JwtService());
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "accessTokenExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshTokenExpiration", 120_000L);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+    }
+
+    @Test
+    void verifiesEachAccessTokenOnce() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtService, 100, registry);
+        String access = jwtService.generateAccessToken(user("ana@example.com"));
+        String refresh = jwtService.generateRefreshToken(user("ana@example.com"));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("ana@example.com", cache.verify(access).subject());
+            assertTrue(cache.verify(refresh).isRefreshToken());
+        }
+
+        verify(jwtService, times(1)).verify(access);
+        // Los refresh tokens no se cachean
+        verify(jwtService, times(5)).verify(refresh);
+        assertEquals(4, registry.get("cache.gets").tag("cache", "jwtVerified").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(0.4, registry.get("security.jwt.verified.hit.ratio").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void entriesExpireWithTheirToken() throws InterruptedException {
+        ReflectionTestUtils.setField(jwtService, "accessTokenExpiration", 1_000L);
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtService, 100, registry);
+        String access = jwtService.generateAccessToken(user("ana@example.com"));
+        cache.verify(access);
+
+        // exp se guarda en segundos: a lo más un segundo después ya venció
+        Thread.sleep(2_100);
+
+        assertThrows(ExpiredJwtException.class, () -> cache.verify(access));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void rejectsTamperedTokensWithoutCachingThemAndStaysBounded() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtService, 5, registry);
+        String access = jwtService.generateAccessToken(user("ana@example.com"));
+
+        assertThrows(JwtException.class, () -> cache.verify(access + "x"));
+        assertEquals(0, cache.size());
+
+        IntStream.range(0, 50).forEach(i -> cache.verify(jwtService.generateAccessToken(user("u" + i + "@example.com"))));
+        assertTrue(cache.size() <= 5, "size " + cache.size());
+    }
+
+    private static User user(String email) {
+        return User.builder().id(1L).firstname("Ana").lastname("Soto").email(email)
+                .password("x").role(Role.USER).enabled(true).build();
+    }
+}
@@ -0,0 +1,112 @@
+package cl.sicc.siccapi.stats.service;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dos recálculos del registro de crónicos del mismo paciente a la vez, contra un PostgreSQL local.
+ * Sin el advisory lock por paciente, el segundo borra antes de que el primero confirme, no ve sus
+ * filas e inserta las mismas: falla por la clave {@code (patient_id, pathology)}.
+ *
+ * Usa la misma base desechable que {@link StatsRollupConcurrencyTest}; el esquema
+ * {@code chronic_concurrency} se borra y se recrea:
+ * <pre>
+ * STATS_ROLLUP_DB_URL=jdbc:postgresql://localhost:5432/sicc STATS_ROLLUP_DB_USER=... \
+ * STATS_ROLLUP_DB_PASSWORD=... mvn test -Dtest=ChronicConditionConcurrencyTest
+ * </pre>
+ */
+@EnabledIfEnvironmentVariable(named = "STATS_ROLLUP_DB_URL", matches = ".+")
+@SpringBootTest(properties = {
+        "spring.datasource.url=${STATS_ROLLUP_DB_URL}",
+        "spring.datasource.username=${STATS_ROLLUP_DB_USER:}",
+        "spring.datasource.password=${STATS_ROLLUP_DB_PASSWORD:}",
+        "spring.datasource.driver-class-name=org.postgresql.Driver",
+        "spring.datasource.hikari.schema=" + ChronicConditionConcurrencyTest.SCHEMA,
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.flyway.schemas=" + ChronicConditionConcurrencyTest.SCHEMA,
+        "spring.flyway.locations=classpath:db/migration,classpath:db/vendor/postgresql",
+        "stats.rollup.rebuild-if-empty=false",
+        "stats.chronic.backfill-if-empty=false"
+})
+class ChronicConditionConcurrencyTest {
+
+    static final String SCHEMA = "chronic_concurrency";
+    private static final int DIAGNOSES = 30;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private ChronicConditionService chronicConditionService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void cleanSchema() {
+        Flyway.configure()
+                .dataSource(System.getenv("STATS_ROLLUP_DB_URL"), System.getenv("STATS_ROLLUP_DB_USER"),
+                        System.getenv("STATS_ROLLUP_DB_PASSWORD"))
+                .schemas(SCHEMA)
+                .cleanDisabled(false)
+                .load()
+                .clean();
+    }
+
+    @Test
+    void concurrentRefreshesOfTheSamePatientDoNotCollide() throws Exception {
+        jdbc.update("INSERT INTO healthcare_professional (rut, name, specialty) VALUES ('P-1', 'Profesional', 'Medicina general')");
+        jdbc.update("INSERT INTO patient (rut, name, birth_date, sex) VALUES ('R-1', 'Paciente', DATE '1960-01-01', 'F')");
+        jdbc.update("INSERT INTO cie10 (code, name) VALUES ('E11', 'Diabetes mellitus tipo 2'), ('I10', 'Hipertensión esencial') ON CONFLICT DO NOTHING");
+        jdbc.update("""
+                INSERT INTO consultation (date, type, patient_id, professional_id)
+                SELECT DATE '2024-01-01' + g, 'Control', (SELECT id FROM patient), (SELECT id FROM healthcare_professional)
+                FROM generate_series(1, ?) g
+                """, DIAGNOSES);
+        jdbc.update("""
+                INSERT INTO diagnosis (consultation_id, cie10_code)
+                SELECT id, CASE WHEN EXTRACT(DAY FROM date) < 16 THEN 'E11' ELSE 'I10' END FROM consultation
+                """);
+        long patientId = jdbc.queryForObject("SELECT id FROM patient", Long.class);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                CyclicBarrier barrier = new CyclicBarrier(2);
+                List<Future<?>> refreshes = List.of(
+                        executor.submit(() -> refreshAfter(barrier, patientId)),
+                        executor.submit(() -> refreshAfter(barrier, patientId)));
+                for (Future<?> refresh : refreshes) {
+                    refresh.get(30, TimeUnit.SECONDS);
+                }
+                assertEquals(2, jdbc.queryForObject(
+                        "SELECT COUNT(*) FROM patient_chronic_condition WHERE patient_id = ?", Integer.class, patientId),
+                        "ronda " + round);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(DIAGNOSES, jdbc.queryForObject(
+                "SELECT SUM(diagnoses) FROM patient_chronic_condition WHERE patient_id = ?", Integer.class, patientId));
+    }
+
+    private Void refreshAfter(CyclicBarrier barrier, long patientId) throws Exception {
+        barrier.await(10, TimeUnit.SECONDS);
+        chronicConditionService.refresh(Set.of(patientId));
+        return null;
+    }
+}
@@ -0,0 +1,145 @@
+package cl.sicc.siccapi.stats.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifica que las agregaciones del backend en memoria coinciden con las de SQL sobre las mismas
+ * filas y que la sustitución de días conserva el resto de la tabla.
+ */
+class ColumnarTableTest {
+
+    private final ColumnarTable.Schema schema = new ColumnarTable.Schema("consultation_daily_fact",
+            List.of("type", "sex"), List.of("consultations"));
+
+    @Test
+    void windowIsHalfOpenOverSortedDays() {
+        ColumnarTable table = table(
+                row("2024-12-30", "Control", "F", 2),
+                row("2024-12-31", "Urgencia", "M", 3),
+                row("2025-01-01", "Control", "M", 5),
+                row("2025-01-06", "Control", null, 7));
+
+        assertEquals(17, table.sum(StatsWindow.unbounded(), "consultations"));
+        assertEquals(8, table.sum(new StatsWindow(LocalDate.of(2024, 12, 31), LocalDate.of(2025, 1, 6)), "consultations"));
+        assertEquals(0, table.sum(new StatsWindow(LocalDate.of(2025, 2, 1), LocalDate.of(2025, 3, 1)), "consultations"));
+    }
+
+    @Test
+    void sumByIncludesNullAndOnlyValuesInWindow() {
+        ColumnarTable table = table(
+                row("2025-01-01", "Control", "F", 2),
+                row("2025-01-02", "Urgencia", null, 3),
+                row("2025-01-03", "Control", "M", 5));
+
+        assertEquals(Map.of("Control", 7L, "Urgencia", 3L),
+                table.sumBy(StatsWindow.unbounded(), "type", "consultations"));
+
+        Map<Object, Long> bySex = table.sumBy(new StatsWindow(LocalDate.of(2025, 1, 2), LocalDate.of(2025, 1, 4)),
+                "sex", "consultations");
+        assertEquals(2, bySex.size());
+        assertEquals(3L, bySex.get(null));
+        assertEquals(5L, bySex.get("M"));
+    }
+
+    @Test
+    void periodLabelsMatchPostgresFormats() {
+        ColumnarTable table = table(
+                row("2024-12-30", "Control", "F", 2),
+                row("2025-01-01", "Control", "F", 3),
+                row("2025-01-06", "Control", "F", 4));
+
+        // 2024-12-30 pertenece a la semana ISO 1 de 2025 (TO_CHAR 'IYYY-"W"IW')
+        assertEquals(Map.of("2025-W01", 5L, "2025-W02", 4L),
+                table.sumByPeriod(StatsWindow.unbounded(), StatsGranularity.WEEK, "consultations"));
+        assertEquals(List.of("2024-12", "2025-01"),
+                List.copyOf(table.sumByPeriod(StatsWindow.unbounded(), StatsGranularity.MONTH, "consultations").keySet()));
+        assertEquals(List.of("2024-12-30", "2025-01-01", "2025-01-06"),
+                List.copyOf(table.sumByPeriod(StatsWindow.unbounded(), StatsGranularity.DAY, "consultations").keySet()));
+    }
+
+    @Test
+    void replaceDaysSwapsOnlyThoseDays() {
+        ColumnarTable table = table(
+                row("2025-01-01", "Control", "F", 2),
+                row("2025-01-02", "Control", "F", 3),
+                row("2025-01-02", "Urgencia", "M", 4),
+                row("2025-01-03", "Control", "M", 5));
+        ColumnarTable fresh = table(
+                row("2025-01-02", "Urgencia", "M", 10),
+                row("2025-01-05", "Control", "F", 1));
+        int[] replaced = { (int) LocalDate.of(2025, 1, 5).toEpochDay(), (int) LocalDate.of(2025, 1, 2).toEpochDay() };
+
+        ColumnarTable updated = table.replaceDays(replaced, fresh);
+
+        assertEquals(4, updated.size());
+        assertEquals(18, updated.sum(StatsWindow.unbounded(), "consultations"));
+        assertEquals(Map.of("Urgencia", 10L),
+                updated.sumBy(new StatsWindow(LocalDate.of(2025, 1, 2), LocalDate.of(2025, 1, 3)), "type", "consultations"));
+        // La versión anterior no cambia
+        assertEquals(14, table.sum(StatsWindow.unbounded(), "consultations"));
+    }
+
+    @Test
+    void undatedRowsCountOnlyWithoutBounds() {
+        ColumnarTable table = table(
+                row(null, "Control", "F", 4),
+                row("2025-01-01", "Control", "F", 2),
+                row("2025-01-02", "Urgencia", "M", 3));
+
+        assertEquals(9, table.sum(StatsWindow.unbounded(), "consultations"));
+        assertEquals(Map.of("Control", 6L, "Urgencia", 3L), table.sumBy(StatsWindow.unbounded(), "type", "consultations"));
+        assertEquals(5, table.sum(new StatsWindow(LocalDate.of(1900, 1, 2), LocalDate.of(2025, 2, 1)), "consultations"));
+        // Sin fecha no hay periodo
+        assertEquals(Map.of("2025-01", 5L), table.sumByPeriod(StatsWindow.unbounded(), StatsGranularity.MONTH, "consultations"));
+        List<Integer> scanned = new ArrayList<>();
+        table.scan(StatsWindow.unbounded(), scanned::add);
+        assertEquals(List.of(1, 2), scanned);
+
+        ColumnarTable updated = table.replaceDays(new int[] { ColumnarTable.UNDATED }, table(row(null, "Urgencia", null, 1)));
+        assertEquals(6, updated.sum(StatsWindow.unbounded(), "consultations"));
+        assertEquals(3, updated.size());
+    }
+
+    @Test
+    void wideDictionariesDecodeCorrectly() {
+        ColumnarTable.Builder builder = new ColumnarTable.Builder(schema);
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        for (int i = 0; i < 1000; i++) {
+            builder.add(start.plusDays(i), new Object[] { "Tipo " + i, "F" }, new long[] { 1 });
+        }
+        ColumnarTable table = builder.build();
+
+        int type = table.dimension("type");
+        assertEquals("Tipo 999", table.value(type, 999));
+        assertEquals("Tipo 300", table.value(type, 300));
+        assertEquals(1000, table.sumBy(StatsWindow.unbounded(), "type", "consultations").size());
+    }
+
+    @Test
+    void rowsMustArriveInDayOrder() {
+        ColumnarTable.Builder builder = new ColumnarTable.Builder(schema);
+        builder.add(LocalDate.of(2025, 1, 2), new Object[] { "Control", "F" }, new long[] { 1 });
+        assertThrows(IllegalStateException.class,
+                () -> builder.add(LocalDate.of(2025, 1, 1), new Object[] { "Control", "F" }, new long[] { 1 }));
+    }
+
+    private ColumnarTable table(Object[]... rows) {
+        ColumnarTable.Builder builder = new ColumnarTable.Builder(schema);
+        for (Object[] row : rows) {
+            builder.add(row[0] != null ? LocalDate.parse((String) row[0]) : null, new Object[] { row[1], row[2] },
+                    new long[] { ((Number) row[3]).longValue() });
+        }
+        return builder.build();
+    }
+
+    private static Object[] row(String date, String type, String sex, long consultations) {
+        return new Object[] { date, type, sex, consultations };
+    }
+}
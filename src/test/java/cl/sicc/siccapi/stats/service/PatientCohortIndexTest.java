@@ -0,0 +1,169 @@
+package cl.sicc.siccapi.stats.service;
+
+import cl.sicc.siccapi.stats.dto.CohortCountDto;
+import cl.sicc.siccapi.stats.dto.CohortFilterDto;
+import cl.sicc.siccapi.stats.dto.CohortGroupDto;
+import cl.sicc.siccapi.stats.dto.CohortQueryDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Índice de cohortes contra H2: las filas se insertan confirmadas porque el índice lee en su propia
+ * transacción. Todos los filtros se acotan al sector de prueba para no depender de otros datos.
+ */
+@SpringBootTest(properties = "stats.cohort.enabled=true")
+class PatientCohortIndexTest {
+
+    private static final String SECTOR = "Sector prueba cohortes";
+
+    @Autowired
+    private PatientCohortIndex index;
+
+    @Autowired
+    private ReferenceDateService referenceDateService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("MERGE INTO cie10 (code, name, chapter_id) KEY (code) VALUES ('E11', 'Diabetes mellitus tipo 2', 4)");
+        jdbc.update("MERGE INTO cie10 (code, name, chapter_id) KEY (code) VALUES ('J45', 'Asma', 10)");
+        jdbc.update("INSERT INTO healthcare_professional (id, rut, name, specialty) VALUES (9901, '99.901-1', 'Dra. Prueba', 'Medicina General')");
+        // Fecha de referencia = última consulta = 2099-06-01
+        patient(9901, "F", "A", "2089-01-01");  // 10 años
+        patient(9902, "F", "B", "2088-06-01");  // 11 años justos
+        patient(9903, "M", "A", "2065-06-02");  // 33 años
+        patient(9904, "M", "C", "2018-06-01");  // 81 años
+        jdbc.update("INSERT INTO consultation (id, date, type, patient_id, professional_id) VALUES (9901, DATE '2099-06-01', 'CONTROL', 9903, 9901)");
+        jdbc.update("INSERT INTO consultation (id, date, type, patient_id, professional_id) VALUES (9902, DATE '2099-05-01', 'CONTROL', 9902, 9901)");
+        jdbc.update("INSERT INTO diagnosis (id, consultation_id, cie10_code) VALUES (9901, 9901, 'E11')");
+        jdbc.update("INSERT INTO diagnosis (id, consultation_id, cie10_code) VALUES (9902, 9902, 'J45')");
+        jdbc.update("INSERT INTO patient_chronic_condition (patient_id, pathology, diagnoses) VALUES (9903, 'Diabetes', 1)");
+        jdbc.update("INSERT INTO patient_chronic_condition (patient_id, pathology, diagnoses) VALUES (9902, 'Asma', 1)");
+        referenceDateService.invalidate();
+        index.reload();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbc.update("DELETE FROM diagnosis WHERE id IN (9901, 9902)");
+        jdbc.update("DELETE FROM consultation WHERE id IN (9901, 9902)");
+        jdbc.update("DELETE FROM patient_chronic_condition WHERE patient_id BETWEEN 9901 AND 9904");
+        jdbc.update("DELETE FROM patient WHERE id BETWEEN 9901 AND 9904");
+        jdbc.update("DELETE FROM healthcare_professional WHERE id = 9901");
+        referenceDateService.invalidate();
+    }
+
+    @Test
+    void ageBucketsFollowReferenceDate() {
+        CohortCountDto result = index.count(new CohortQueryDto(inSector(), "age"));
+
+        assertEquals(4, result.patients());
+        assertEquals(Map.of("0-10", 1L, "11-20", 1L, "31-40", 1L, "81+", 1L), counts(result));
+        assertEquals(List.of("0-10", "11-20", "31-40", "81+"), result.groups().stream().map(CohortGroupDto::value).toList());
+    }
+
+    @Test
+    void combinesAndOrNot() {
+        // Sector de prueba Y (FONASA A o crónicos) Y NO hombres
+        CohortFilterDto filter = and(inSector(),
+                or(leaf("fonasa", "A"), leaf("chronic", "Asma", "Diabetes")),
+                new CohortFilterDto(null, null, null, null, leaf("sex", "M")));
+
+        CohortCountDto result = index.count(new CohortQueryDto(filter, "fonasa"));
+
+        assertEquals(2, result.patients());
+        assertEquals(Map.of("A", 1L, "B", 1L), counts(result));
+        assertEquals(50.0, result.groups().get(0).percentage());
+    }
+
+    @Test
+    void groupsByChapterOfDiagnoses() {
+        CohortCountDto result = index.count(new CohortQueryDto(inSector(), "CHAPTER"));
+
+        assertEquals(List.of("IV", "X"), result.groups().stream().map(CohortGroupDto::value).toList());
+        assertEquals(1, index.count(new CohortQueryDto(and(inSector(), leaf("chapter", "X")), null)).patients());
+    }
+
+    @Test
+    void refreshesOnlyAffectedPatients() {
+        jdbc.update("UPDATE patient SET fonasa_tier = 'D' WHERE id = 9901");
+        jdbc.update("DELETE FROM patient_chronic_condition WHERE patient_id = 9904");
+        jdbc.update("DELETE FROM patient WHERE id = 9904");
+        index.refreshPatients(List.of(9901L, 9904L));
+
+        CohortCountDto byFonasa = index.count(new CohortQueryDto(inSector(), "fonasa"));
+        assertEquals(3, byFonasa.patients());
+        assertEquals(Map.of("A", 1L, "B", 1L, "D", 1L), counts(byFonasa));
+
+        jdbc.update("DELETE FROM diagnosis WHERE id = 9902");
+        jdbc.update("DELETE FROM patient_chronic_condition WHERE patient_id = 9902");
+        index.refreshDiagnoses(List.of(9902L));
+
+        assertEquals(Map.of("Diabetes", 1L), counts(index.count(new CohortQueryDto(inSector(), "chronic"))));
+        assertEquals(Map.of("IV", 1L), counts(index.count(new CohortQueryDto(inSector(), "chapter"))));
+    }
+
+    @Test
+    void rejectsAmbiguousFilters() {
+        CohortFilterDto ambiguous = new CohortFilterDto("sex", List.of("F"), List.of(inSector()), null, null);
+        assertThrows(IllegalArgumentException.class, () -> index.count(new CohortQueryDto(ambiguous, null)));
+        assertThrows(IllegalArgumentException.class, () -> index.count(new CohortQueryDto(leaf("comuna", "X"), null)));
+        assertThrows(IllegalArgumentException.class, () -> index.count(new CohortQueryDto(inSector(), "comuna")));
+    }
+
+    @Test
+    void disabledIndexLoadsNothingAndRejectsQueries() {
+        PatientCohortIndex disabled = new PatientCohortIndex(mock(PlatformTransactionManager.class),
+                referenceDateService, new SimpleMeterRegistry(), false);
+        disabled.loadOnStartup();
+        disabled.reload();
+
+        assertFalse(disabled.isReady());
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> disabled.count(new CohortQueryDto(inSector(), null)));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+    }
+
+    private void patient(long id, String sex, String fonasa, String birthDate) {
+        jdbc.update("INSERT INTO patient (id, rut, name, birth_date, sex, residential_sector, fonasa_tier) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                id, "99.99" + id, "Paciente " + id, Date.valueOf(birthDate), sex, SECTOR, fonasa);
+    }
+
+    private static Map<String, Long> counts(CohortCountDto result) {
+        return result.groups().stream().collect(Collectors.toMap(CohortGroupDto::value, CohortGroupDto::patients));
+    }
+
+    private static CohortFilterDto inSector() {
+        return leaf("sector", SECTOR);
+    }
+
+    private static CohortFilterDto leaf(String dimension, String... values) {
+        return new CohortFilterDto(dimension, List.of(values), null, null, null);
+    }
+
+    private static CohortFilterDto and(CohortFilterDto... filters) {
+        return new CohortFilterDto(null, null, List.of(filters), null, null);
+    }
+
+    private static CohortFilterDto or(CohortFilterDto... filters) {
+        return new CohortFilterDto(null, null, null, List.of(filters), null);
+    }
+}
@@ -0,0 +1,161 @@
+package cl.sicc.siccapi.stats.service;
+
+import cl.sicc.siccapi.stats.dto.PivotDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Compilación de las consultas de la tabla dinámica (JOIN necesarios, agregados diarios, filtros)
+ * y armado de filas y columnas, con un EntityManager simulado.
+ */
+class StatsPivotServiceTest {
+
+    private static final StatsPeriod PERIOD = new StatsPeriod(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 6, 30), null);
+
+    private final List<String> statements = new ArrayList<>();
+    private final Map<String, Object> parameters = new HashMap<>();
+    private List<?> rows = List.of();
+    private StatsPivotService pivotService;
+
+    @BeforeEach
+    void setUp() {
+        EntityManager entityManager = mock(EntityManager.class);
+        when(entityManager.createNativeQuery(anyString())).thenAnswer(invocation -> {
+            statements.add(invocation.getArgument(0));
+            Query query = mock(Query.class);
+            when(query.setParameter(anyString(), any())).thenAnswer(set -> {
+                parameters.put(set.getArgument(0), set.getArgument(1));
+                return query;
+            });
+            when(query.getResultList()).thenAnswer(result -> rows);
+            return query;
+        });
+        ReferenceDateService referenceDateService = mock(ReferenceDateService.class);
+        when(referenceDateService.getReferenceDate()).thenReturn(LocalDate.of(2025, 6, 30));
+
+        pivotService = new StatsPivotService(referenceDateService, new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(pivotService, "entityManager", entityManager);
+    }
+
+    @Test
+    void readsDailyFactsWhenAllDimensionsAreThere() {
+        rows = List.<Object[]>of(new Object[] { "F", "Medicina General", 7L });
+
+        PivotDto pivot = pivotService.pivot("consultations", List.of("specialty"), List.of("sex"), List.of(), PERIOD);
+
+        assertTrue(pivot.fromRollups());
+        String sql = statements.get(0);
+        assertTrue(sql.contains("FROM consultation_daily_fact f"), sql);
+        assertTrue(sql.contains("f.date >= :windowFrom AND f.date < :windowTo"), sql);
+        assertFalse(sql.contains("JOIN"), sql);
+        assertEquals(LocalDate.of(2025, 7, 1), parameters.get("windowTo"));
+    }
+
+    @Test
+    void joinsOnlyTablesTheDimensionsNeed() {
+        pivotService.pivot("diagnoses", List.of("diagnosis"), List.of("sex"), List.of(), PERIOD);
+
+        String sql = statements.get(0);
+        assertTrue(sql.contains("FROM diagnosis d"), sql);
+        assertTrue(sql.contains("JOIN patient p"), sql);
+        assertTrue(sql.contains("JOIN cie10 cie"), sql);
+        assertFalse(sql.contains("healthcare_professional"), sql);
+        assertTrue(sql.contains("GROUP BY 1, 2"), sql);
+        assertFalse(parameters.containsKey("refDate"));
+    }
+
+    @Test
+    void groupsDiagnosisFactsByChapterThroughCie10() {
+        PivotDto pivot = pivotService.pivot("diagnoses", List.of("chapter"), List.of("block"), List.of("chapter:X"), PERIOD);
+
+        assertTrue(pivot.fromRollups());
+        String sql = statements.get(0);
+        assertTrue(sql.indexOf("JOIN cie10 cie ON f.cie10_code") < sql.indexOf("JOIN cie10_chapter ch"), sql);
+        assertEquals(1, sql.split("JOIN cie10 cie", -1).length - 1, "cie10 se une una sola vez");
+        assertTrue(sql.contains("JOIN cie10_block bl"), sql);
+        assertEquals(List.of("X"), parameters.get("f0"));
+    }
+
+    @Test
+    void bindsFiltersAsParameters() {
+        pivotService.pivot("prescription_lines", List.of("medication"), null, List.of("fonasa:B|A", "age_group:65+"), PERIOD);
+
+        String sql = statements.get(0);
+        assertTrue(sql.contains("IN (:f0)") && sql.contains("IN (:f1)"), sql);
+        assertFalse(sql.contains("'B'"), "Los valores de filtro no deben ir en el SQL");
+        assertEquals(List.of("A", "B"), parameters.get("f0"));
+        assertEquals(List.of("65+"), parameters.get("f1"));
+        assertEquals(LocalDate.of(2025, 6, 30), parameters.get("refDate"));
+    }
+
+    @Test
+    void topCellsAreCutInTheQuery() {
+        pivotService.top(PivotMeasure.DIAGNOSES, List.of(PivotDimension.FONASA, PivotDimension.DIAGNOSIS), 50, PERIOD);
+        pivotService.top(PivotMeasure.DIAGNOSES, List.of(PivotDimension.FONASA, PivotDimension.DIAGNOSIS), 50, PERIOD);
+        pivotService.pivot("diagnoses", List.of("fonasa"), List.of("diagnosis"), null, PERIOD);
+
+        assertEquals(2, statements.size(), "El cubo limitado y el completo no comparten entrada");
+        assertTrue(statements.get(0).endsWith("GROUP BY 1, 2\nORDER BY 3 DESC\nLIMIT :limit"), statements.get(0));
+        assertEquals(50, parameters.get("limit"));
+        assertFalse(statements.get(1).contains("LIMIT"), statements.get(1));
+    }
+
+    @Test
+    void sharesCubeBetweenTransposedRequests() {
+        rows = List.<Object[]>of(new Object[] { "F", "A", 3L }, new Object[] { "M", "A", 5L }, new Object[] { "F", "B", 1L });
+
+        PivotDto bySex = pivotService.pivot("consultations", List.of("sex"), List.of("fonasa"), null, PERIOD);
+        PivotDto byFonasa = pivotService.pivot("consultations", List.of("fonasa"), List.of("sex"), null, PERIOD);
+
+        assertEquals(1, statements.size());
+        // Mayor total primero
+        assertEquals(List.of(List.of("M"), List.of("F")), bySex.rowKeys());
+        assertEquals(List.of(List.of("A"), List.of("B")), bySex.colKeys());
+        assertEquals(List.of(List.of(5L, 0L), List.of(3L, 1L)), bySex.values());
+        assertEquals(List.of(5L, 4L), bySex.rowTotals());
+        assertEquals(List.of(8L, 1L), bySex.colTotals());
+        assertEquals(List.of(8L, 1L), byFonasa.rowTotals());
+        assertEquals(9, byFonasa.total());
+    }
+
+    @Test
+    void ordersAgeGroupsByRangeInsteadOfTotal() {
+        rows = List.<Object[]>of(new Object[] { "65+", 10L }, new Object[] { "Desconocido", 1L }, new Object[] { "0-17", 2L });
+
+        PivotDto pivot = pivotService.pivot("diagnoses", List.of("age_group"), null, null, PERIOD);
+
+        assertEquals(List.of(List.of("0-17"), List.of("65+"), List.of("Desconocido")), pivot.rowKeys());
+        assertEquals(List.of(List.of()), pivot.colKeys());
+        assertEquals(13, pivot.total());
+    }
+
+    @Test
+    void rejectsInvalidRequests() {
+        assertThrows(IllegalArgumentException.class,
+                () -> pivotService.pivot("consultations", List.of("medication"), null, null, PERIOD));
+        assertThrows(IllegalArgumentException.class,
+                () -> pivotService.pivot("consultations", List.of("sex"), List.of("sex"), null, PERIOD));
+        assertThrows(IllegalArgumentException.class,
+                () -> pivotService.pivot("consultations", List.of("sex", "fonasa", "type", "specialty", "period"), null, null, PERIOD));
+        assertThrows(IllegalArgumentException.class,
+                () -> pivotService.pivot("consultations", null, null, List.of("sex"), PERIOD));
+        assertThrows(IllegalArgumentException.class,
+                () -> pivotService.pivot("ventas", null, null, null, PERIOD));
+        assertTrue(statements.isEmpty());
+    }
+}
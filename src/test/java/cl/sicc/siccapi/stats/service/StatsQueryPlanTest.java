@@ -0,0 +1,298 @@
+package cl.sicc.siccapi.stats.service;
+
+import cl.sicc.siccapi.common.util.RequestCoalescer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Ejecuta todas las consultas de {@link StatsService} contra un PostgreSQL local con datos
+ * sembrados y verifica con EXPLAIN que el rango de las filtradas por ventana de fecha se resuelve
+ * como condición de un índice.
+ *
+ * Se corre con {@code enable_seqscan = off}: así el resultado no depende del volumen sembrado y
+ * la prueba falla sólo si el predicado no puede resolverse con un índice (p. ej. {@code TO_CHAR}).
+ *
+ * Requiere una base desechable; el esquema {@code stats_explain} se borra y se recrea:
+ * <pre>
+ * STATS_EXPLAIN_DB_URL=jdbc:postgresql://localhost:5432/sicc STATS_EXPLAIN_DB_USER=... \
+ * STATS_EXPLAIN_DB_PASSWORD=... mvn test -Dtest=StatsQueryPlanTest
+ * </pre>
+ */
+@EnabledIfEnvironmentVariable(named = "STATS_EXPLAIN_DB_URL", matches = ".+")
+class StatsQueryPlanTest {
+
+    private static final String SCHEMA = "stats_explain";
+    private static final Pattern NAMED_PARAMETER = Pattern.compile("(?<!:):([A-Za-z]\\w*)");
+    private static final Pattern WINDOW_PREDICATE = Pattern.compile(">=\\s*:(window|previous)From");
+    private static final Pattern DATE_RANGE_CONDITION = Pattern.compile("\\bdate >=");
+
+    /** Rango explícito para que también las estadísticas históricas filtren por ventana. */
+    private static final StatsPeriod EXPLICIT_PERIOD =
+            new StatsPeriod(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 30), StatsGranularity.WEEK);
+
+    private static Connection connection;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, List<String>> indexConditionsBySql = new LinkedHashMap<>();
+
+    @BeforeAll
+    static void seed() throws SQLException {
+        String url = System.getenv("STATS_EXPLAIN_DB_URL");
+        String user = System.getenv("STATS_EXPLAIN_DB_USER");
+        String password = System.getenv("STATS_EXPLAIN_DB_PASSWORD");
+
+        Flyway flyway = Flyway.configure()
+                .dataSource(url, user, password)
+                .schemas(SCHEMA)
+                .locations("classpath:db/migration", "classpath:db/vendor/postgresql")
+                .cleanDisabled(false)
+                .load();
+        flyway.clean();
+        flyway.migrate();
+
+        connection = DriverManager.getConnection(url, user, password);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET search_path TO " + SCHEMA);
+            statement.execute("""
+                    INSERT INTO healthcare_professional (rut, name, specialty)
+                    SELECT 'P-' || g, 'Profesional ' || g,
+                           (ARRAY['Medicina general', 'Pediatría', 'Kinesiología', 'Odontología'])[1 + g % 4]
+                    FROM generate_series(1, 20) g
+                    """);
+            statement.execute("""
+                    INSERT INTO patient (rut, name, birth_date, sex, residential_sector, fonasa_tier)
+                    SELECT 'R-' || g, 'Paciente ' || g, DATE '1940-01-01' + (g * 7) % 29000,
+                           CASE WHEN g % 2 = 0 THEN 'F' ELSE 'M' END, 'Sector ' || (g % 5),
+                           (ARRAY['A', 'B', 'C', 'D'])[1 + g % 4]
+                    FROM generate_series(1, 2000) g
+                    """);
+            statement.execute("""
+                    INSERT INTO cie10 (code, name) VALUES
+                        ('J20', 'Bronquitis aguda'),
+                        ('J00', 'Rinofaringitis aguda (resfriado común)'),
+                        ('J18', 'Neumonía'),
+                        ('I10', 'Hipertensión esencial'),
+                        ('E11', 'Diabetes mellitus tipo 2'),
+                        ('J06', 'Infección aguda de las vías respiratorias superiores')
+                    """);
+            statement.execute("""
+                    INSERT INTO consultation (date, type, patient_id, professional_id)
+                    SELECT DATE '2022-01-01' + g / 30,
+                           CASE WHEN g % 10 = 0 THEN 'Urgencia' ELSE 'Control' END,
+                           1 + g % 2000, 1 + g % 20
+                    FROM generate_series(0, 3 * 365 * 30 - 1) g
+                    """);
+            statement.execute("""
+                    INSERT INTO diagnosis (consultation_id, cie10_code)
+                    SELECT id, (ARRAY['J20', 'J00', 'J18', 'I10', 'E11', 'J06'])[1 + id % 6] FROM consultation
+                    """);
+            statement.execute("INSERT INTO pharmaceutical_form (name) VALUES ('Comprimido')");
+            statement.execute("""
+                    INSERT INTO medication (name, pharmaceutical_form_id, dosage)
+                    SELECT 'Medicamento ' || g, 1, '10 mg' FROM generate_series(1, 10) g
+                    """);
+            statement.execute("INSERT INTO prescription (date, consultation_id) SELECT date, id FROM consultation WHERE id % 2 = 0");
+            statement.execute("""
+                    INSERT INTO prescription_medication (quantity, prescription_id, medication_id)
+                    SELECT 1, id, 1 + id % 10 FROM prescription
+                    """);
+            statement.execute("ANALYZE");
+            statement.execute("SET enable_seqscan = off");
+        }
+    }
+
+    @AfterAll
+    static void close() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @Test
+    void windowedQueriesUseDateIndexes() throws Exception {
+        StatsService statsService = statsServiceOnPostgres();
+
+        for (Method method : StatsService.class.getDeclaredMethods()) {
+            if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            Class<?>[] types = method.getParameterTypes();
+            Object[] args = new Object[types.length];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = types[i] == StatsPeriod.class ? EXPLICIT_PERIOD : 30;
+            }
+            try {
+                method.invoke(statsService, args);
+            } catch (InvocationTargetException e) {
+                fail(method.getName() + " falló contra PostgreSQL", e.getCause());
+            }
+        }
+
+        assertFalse(indexConditionsBySql.isEmpty(), "No se ejecutó ninguna consulta con ventana de fecha");
+        indexConditionsBySql.forEach((sql, conditions) -> assertTrue(
+                conditions.stream().anyMatch(condition -> DATE_RANGE_CONDITION.matcher(condition).find()),
+                "La ventana no se resuelve con un índice (condiciones de índice: " + conditions + ") en:\n" + sql));
+    }
+
+    private StatsService statsServiceOnPostgres() throws SQLException {
+        StatsQueryExecutor queryExecutor = mock(StatsQueryExecutor.class);
+        when(queryExecutor.submit(anyString(), any())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(((Supplier<?>) invocation.getArgument(1)).get()));
+        when(queryExecutor.join(any())).thenAnswer(invocation ->
+                ((CompletableFuture<?>) invocation.getArgument(0)).join());
+
+        ReferenceDateService referenceDateService = mock(ReferenceDateService.class);
+        when(referenceDateService.getReferenceDate()).thenReturn(maxConsultationDate());
+
+        EntityManager entityManager = mock(EntityManager.class);
+        doAnswer(invocation -> postgresQuery(invocation.getArgument(0)))
+                .when(entityManager).createNativeQuery(anyString());
+        // Única consulta JPQL del servicio
+        doAnswer(invocation -> postgresQuery("SELECT COUNT(*) FROM patient"))
+                .when(entityManager).createQuery("SELECT COUNT(p) FROM Patient p");
+
+        StatsPivotService statsPivotService = new StatsPivotService(referenceDateService, new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(statsPivotService, "entityManager", entityManager);
+        StatsService statsService = new StatsService(queryExecutor, referenceDateService,
+                new RequestCoalescer(new SimpleMeterRegistry()), mock(ColumnarFactStore.class), mock(PatientCohortIndex.class),
+                statsPivotService);
+        ReflectionTestUtils.setField(statsService, "entityManager", entityManager);
+        return statsService;
+    }
+
+    /**
+     * Query simulada que al ejecutarse pasa el SQL nativo a JDBC (con EXPLAIN previo si filtra
+     * por ventana) y devuelve los resultados con la misma forma que Hibernate.
+     */
+    private Query postgresQuery(String sql) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        Query query = mock(Query.class);
+        when(query.setParameter(anyString(), any())).thenAnswer(invocation -> {
+            parameters.put(invocation.getArgument(0), invocation.getArgument(1));
+            return query;
+        });
+        when(query.getResultList()).thenAnswer(invocation -> execute(sql, parameters));
+        when(query.getSingleResult()).thenAnswer(invocation -> execute(sql, parameters).get(0));
+        return query;
+    }
+
+    private List<Object> execute(String sql, Map<String, Object> parameters) throws Exception {
+        List<Object> values = new ArrayList<>();
+        String jdbcSql = toJdbc(sql, parameters, values);
+
+        // La ventana sin límites (histórico completo) no filtra por fecha
+        if (WINDOW_PREDICATE.matcher(sql).find() && !Boolean.TRUE.equals(parameters.get("windowUnbounded"))) {
+            try (PreparedStatement explain = prepare("EXPLAIN (FORMAT JSON) " + jdbcSql, values);
+                 ResultSet plan = explain.executeQuery()) {
+                plan.next();
+                List<String> conditions = new ArrayList<>();
+                collectIndexConditions(objectMapper.readTree(plan.getString(1)), conditions);
+                indexConditionsBySql.put(sql, conditions);
+            }
+        }
+
+        List<Object> rows = new ArrayList<>();
+        try (PreparedStatement statement = prepare(jdbcSql, values);
+             ResultSet resultSet = statement.executeQuery()) {
+            int columns = resultSet.getMetaData().getColumnCount();
+            while (resultSet.next()) {
+                if (columns == 1) {
+                    rows.add(resultSet.getObject(1));
+                } else {
+                    Object[] row = new Object[columns];
+                    for (int i = 0; i < columns; i++) {
+                        row[i] = resultSet.getObject(i + 1);
+                    }
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static String toJdbc(String sql, Map<String, Object> parameters, List<Object> values) {
+        Matcher matcher = NAMED_PARAMETER.matcher(sql);
+        StringBuilder jdbcSql = new StringBuilder();
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            assertTrue(parameters.containsKey(name), "Parámetro sin enlazar :" + name);
+            Object value = parameters.get(name);
+            if (value instanceof Collection<?> collection) {
+                values.addAll(collection);
+                matcher.appendReplacement(jdbcSql, String.join(", ", Collections.nCopies(collection.size(), "?")));
+            } else {
+                values.add(value);
+                matcher.appendReplacement(jdbcSql, "?");
+            }
+        }
+        matcher.appendTail(jdbcSql);
+        return jdbcSql.toString();
+    }
+
+    private static PreparedStatement prepare(String sql, List<Object> values) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        for (int i = 0; i < values.size(); i++) {
+            statement.setObject(i + 1, values.get(i));
+        }
+        return statement;
+    }
+
+    /**
+     * Condiciones resueltas con un índice. Un filtro sobre un nodo que ya accede por índice
+     * (p. ej. un nested loop que llega por clave desde otra tabla más selectiva) también cuenta:
+     * el predicado es aplicable sobre la columna, sólo que el planificador eligió otro acceso.
+     */
+    private static void collectIndexConditions(JsonNode node, List<String> conditions) {
+        if (node.has("Index Cond")) {
+            conditions.add(node.get("Index Cond").asText());
+            if (node.has("Filter")) {
+                conditions.add(node.get("Filter").asText());
+            }
+        }
+        node.forEach(child -> collectIndexConditions(child, conditions));
+    }
+
+    private static LocalDate maxConsultationDate() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT MAX(date) FROM consultation")) {
+            resultSet.next();
+            return resultSet.getDate(1).toLocalDate();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package cl.sicc.siccapi.stats.service;
+
+import cl.sicc.siccapi.common.event.DomainWriteEvent;
+import cl.sicc.siccapi.common.event.DomainWriteEvent.Action;
+import cl.sicc.siccapi.common.event.DomainWriteEvent.Source;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dos escrituras que recalculan el mismo día a la vez contra un PostgreSQL local (H2 no tiene
+ * {@code AGE}, que usan los agregados). Sin el advisory lock por día, ambas borran antes de que la
+ * otra inserte y el día queda contado dos veces.
+ *
+ * Requiere una base desechable; el esquema {@code stats_rollup_concurrency} se borra y se recrea:
+ * <pre>
+ * STATS_ROLLUP_DB_URL=jdbc:postgresql://localhost:5432/sicc STATS_ROLLUP_DB_USER=... \
+ * STATS_ROLLUP_DB_PASSWORD=... mvn test -Dtest=StatsRollupConcurrencyTest
+ * </pre>
+ */
+@EnabledIfEnvironmentVariable(named = "STATS_ROLLUP_DB_URL", matches = ".+")
+@SpringBootTest(properties = {
+        "spring.datasource.url=${STATS_ROLLUP_DB_URL}",
+        "spring.datasource.username=${STATS_ROLLUP_DB_USER:}",
+        "spring.datasource.password=${STATS_ROLLUP_DB_PASSWORD:}",
+        "spring.datasource.driver-class-name=org.postgresql.Driver",
+        "spring.datasource.hikari.schema=" + StatsRollupConcurrencyTest.SCHEMA,
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.flyway.schemas=" + StatsRollupConcurrencyTest.SCHEMA,
+        "spring.flyway.locations=classpath:db/migration,classpath:db/vendor/postgresql",
+        "stats.rollup.rebuild-if-empty=false"
+})
+class StatsRollupConcurrencyTest {
+
+    static final String SCHEMA = "stats_rollup_concurrency";
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 15);
+    private static final int CONSULTATIONS = 50;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private StatsRollupService rollupService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void cleanSchema() {
+        Flyway.configure()
+                .dataSource(System.getenv("STATS_ROLLUP_DB_URL"), System.getenv("STATS_ROLLUP_DB_USER"),
+                        System.getenv("STATS_ROLLUP_DB_PASSWORD"))
+                .schemas(SCHEMA)
+                .cleanDisabled(false)
+                .load()
+                .clean();
+    }
+
+    @Test
+    void concurrentRefreshesOfTheSameDayDoNotDuplicateFacts() throws Exception {
+        jdbc.update("INSERT INTO healthcare_professional (rut, name, specialty) VALUES ('P-1', 'Profesional', 'Pediatría')");
+        jdbc.update("""
+                INSERT INTO patient (rut, name, birth_date, sex, residential_sector, fonasa_tier)
+                SELECT 'R-' || g, 'Paciente ' || g, DATE '1980-01-01' + g * 400,
+                       CASE WHEN g % 2 = 0 THEN 'F' ELSE 'M' END, 'Sector', 'A'
+                FROM generate_series(1, 10) g
+                """);
+        jdbc.update("""
+                INSERT INTO consultation (date, type, patient_id, professional_id)
+                SELECT ?, 'Control', (SELECT MIN(id) FROM patient) + g % 10, (SELECT id FROM healthcare_professional)
+                FROM generate_series(1, ?) g
+                """, DAY, CONSULTATIONS);
+        rollupService.rebuildAll();
+
+        DomainWriteEvent event = DomainWriteEvent.of(Source.CONSULTATION, Action.CREATED, 1L, Set.of(), Set.of(DAY));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                CyclicBarrier barrier = new CyclicBarrier(2);
+                List<Future<?>> writers = List.of(
+                        executor.submit(() -> refreshAfter(barrier, event)),
+                        executor.submit(() -> refreshAfter(barrier, event)));
+                for (Future<?> writer : writers) {
+                    writer.get(30, TimeUnit.SECONDS);
+                }
+                assertEquals(CONSULTATIONS, jdbc.queryForObject(
+                        "SELECT SUM(consultations) FROM consultation_daily_fact WHERE date = ?", Long.class, DAY),
+                        "ronda " + round);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(rollupService.checkConsistency().consistent());
+    }
+
+    private Void refreshAfter(CyclicBarrier barrier, DomainWriteEvent event) throws Exception {
+        barrier.await(10, TimeUnit.SECONDS);
+        rollupService.onDomainWrite(event);
+        return null;
+    }
+}
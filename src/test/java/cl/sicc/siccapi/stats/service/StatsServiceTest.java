@@ -0,0 +1,145 @@
+package cl.sicc.siccapi.stats.service;
+
+import cl.sicc.siccapi.common.util.RequestCoalescer;
+import cl.sicc.siccapi.stats.dto.ChronicPatientDto;
+import cl.sicc.siccapi.stats.dto.PrescriptionDetailDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Verifica que los listados de estadísticas emiten un número constante de sentencias,
+ * independiente del límite solicitado (sin N+1).
+ */
+class StatsServiceTest {
+
+    private EntityManager entityManager;
+    private StatsService statsService;
+    private AtomicInteger statements;
+
+    @BeforeEach
+    void setUp() {
+        entityManager = mock(EntityManager.class);
+        ReferenceDateService referenceDateService = mock(ReferenceDateService.class);
+        when(referenceDateService.getReferenceDate()).thenReturn(LocalDate.of(2025, 6, 30));
+
+        StatsPivotService statsPivotService = new StatsPivotService(referenceDateService, new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(statsPivotService, "entityManager", entityManager);
+        statsService = new StatsService(mock(StatsQueryExecutor.class), referenceDateService,
+                new RequestCoalescer(new SimpleMeterRegistry()), mock(ColumnarFactStore.class), mock(PatientCohortIndex.class),
+                statsPivotService);
+        ReflectionTestUtils.setField(statsService, "entityManager", entityManager);
+        statements = new AtomicInteger();
+    }
+
+    @Test
+    void chronicPatientsIssueConstantStatements() {
+        int small = countChronicPatientStatements(5);
+        int large = countChronicPatientStatements(500);
+
+        assertEquals(small, large, "El número de sentencias no debe crecer con el límite");
+        assertTrue(large <= 2, "Se esperaban a lo más 2 sentencias, hubo " + large);
+    }
+
+    @Test
+    void chronicPatientsAttachPathologiesToEachPatient() {
+        stubQueries(sql -> sql.contains(":patientIds")
+                ? List.of(new Object[] { 1L, "Diabetes" }, new Object[] { 1L, "Hipertensión" },
+                        new Object[] { 2L, "Asma" })
+                : List.of(new Object[] { "Ana", 1L, Date.valueOf("2025-06-01") },
+                        new Object[] { "Luis", 2L, Date.valueOf("2025-05-01") },
+                        new Object[] { "Eva", 3L, Date.valueOf("2025-04-01") }));
+
+        List<ChronicPatientDto> patients = statsService.getChronicPatients(3);
+
+        assertEquals(List.of("Diabetes", "Hipertensión"), patients.get(0).patologias());
+        assertEquals(List.of("Asma"), patients.get(1).patologias());
+        assertTrue(patients.get(2).patologias().isEmpty());
+    }
+
+    @Test
+    void prescriptionDetailsIssueConstantStatements() {
+        int small = countPrescriptionDetailStatements(5);
+        int large = countPrescriptionDetailStatements(500);
+
+        assertEquals(small, large, "El número de sentencias no debe crecer con el límite");
+        assertTrue(large <= 2, "Se esperaban a lo más 2 sentencias, hubo " + large);
+    }
+
+    @Test
+    void prescriptionDetailsAttachMedicationsToEachPrescription() {
+        stubQueries(sql -> sql.contains(":prescriptionIds")
+                ? List.of(new Object[] { 10L, "Losartán" }, new Object[] { 10L, "Metformina" })
+                : List.of(prescriptionRow(10L), prescriptionRow(11L)));
+
+        List<PrescriptionDetailDto> details = statsService.getPrescriptionDetails(2);
+
+        assertEquals(List.of("Losartán", "Metformina"), details.get(0).getMedications());
+        assertTrue(details.get(1).getMedications().isEmpty());
+    }
+
+    private int countChronicPatientStatements(int limit) {
+        statements.set(0);
+        stubQueries(sql -> {
+            if (sql.contains(":patientIds")) {
+                List<Object[]> rows = new ArrayList<>();
+                for (long id = 1; id <= limit; id++) {
+                    rows.add(new Object[] { id, "Diabetes" });
+                }
+                return rows;
+            }
+            List<Object[]> rows = new ArrayList<>();
+            for (long id = 1; id <= limit; id++) {
+                rows.add(new Object[] { "Paciente " + id, id, Date.valueOf("2025-06-01") });
+            }
+            return rows;
+        });
+        assertEquals(limit, statsService.getChronicPatients(limit).size());
+        return statements.get();
+    }
+
+    private int countPrescriptionDetailStatements(int limit) {
+        statements.set(0);
+        stubQueries(sql -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (long id = 1; id <= limit; id++) {
+                rows.add(sql.contains(":prescriptionIds")
+                        ? new Object[] { id, "Paracetamol" }
+                        : prescriptionRow(id));
+            }
+            return rows;
+        });
+        assertEquals(limit, statsService.getPrescriptionDetails(limit).size());
+        return statements.get();
+    }
+
+    private static Object[] prescriptionRow(long id) {
+        return new Object[] { id, Date.valueOf("2025-06-01"), "Paciente " + id, "Dra. Soto",
+                "11.111.111-1", 40, "B", "CONTROL", "Control" };
+    }
+
+    private void stubQueries(java.util.function.Function<String, List<Object[]>> rowsForSql) {
+        doAnswer(invocation -> {
+            statements.incrementAndGet();
+            String sql = invocation.getArgument(0);
+            Query query = mock(Query.class);
+            when(query.setParameter(anyString(), any())).thenReturn(query);
+            when(query.getResultList()).thenReturn(rowsForSql.apply(sql));
+            return query;
+        }).when(entityManager).createNativeQuery(anyString());
+    }
+}
@@ -0,0 +1,97 @@
+package cl.sicc.siccapi.stats.service;
+
+import cl.sicc.siccapi.stats.dto.ConsultationTypeStatsDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Las estadísticas históricas (sin rango) cuentan también las consultas sin fecha, que no caen en
+ * ninguna ventana acotada. Los agregados se insertan a mano porque H2 no puede recalcularlos.
+ */
+@SpringBootTest
+class StatsUndatedRecordsTest {
+
+    private static final String TYPE = "OTRAS";
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("INSERT INTO healthcare_professional (id, rut, name, specialty) VALUES (9911, '99.911-1', 'Dr. Prueba', 'Pediatría')");
+        jdbc.update("INSERT INTO patient (id, rut, name, birth_date, sex) VALUES (9911, '99911K', 'Paciente sin fecha', DATE '1990-01-01', 'F')");
+        clearCaches();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbc.update("DELETE FROM consultation_daily_fact WHERE professional_id = 9911");
+        jdbc.update("DELETE FROM consultation WHERE id IN (9911, 9912)");
+        jdbc.update("DELETE FROM patient WHERE id = 9911");
+        jdbc.update("DELETE FROM healthcare_professional WHERE id = 9911");
+        clearCaches();
+    }
+
+    @Test
+    void historicalStatsCountUndatedConsultations() {
+        StatsPeriod range = new StatsPeriod(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31), null);
+        long historical = countOfType(StatsPeriod.DEFAULT);
+        long inRange = countOfType(range);
+        // Rango explícito que coincide con las fechas centinela de la ventana sin límites
+        StatsPeriod sentinels = new StatsPeriod(LocalDate.of(1900, 1, 1), LocalDate.of(2999, 12, 31), null);
+        long inSentinels = countOfType(sentinels);
+        jdbc.update("INSERT INTO consultation (id, date, type, patient_id, professional_id) VALUES (9911, NULL, ?, 9911, 9911)", TYPE);
+        jdbc.update("INSERT INTO consultation (id, date, type, patient_id, professional_id) VALUES (9912, DATE '2025-03-10', ?, 9911, 9911)", TYPE);
+        clearCaches();
+
+        assertEquals(historical + 2, countOfType(StatsPeriod.DEFAULT));
+        // Con rango explícito la consulta sin fecha queda fuera
+        assertEquals(inRange + 1, countOfType(range));
+        assertEquals(inSentinels + 1, countOfType(sentinels));
+    }
+
+    @Test
+    void historicalTotalsFromRollupsCountUndatedDays() {
+        long before = statsService.getTotalConsultations();
+        fact(null, 3);
+        fact(LocalDate.of(2025, 3, 10), 2);
+        clearCaches();
+
+        assertEquals(before + 5, statsService.getTotalConsultations());
+        // Las series por periodo no tienen dónde ubicar los días sin fecha
+        assertFalse(statsService.getConsultationsByMonth().containsKey(null));
+    }
+
+    private long countOfType(StatsPeriod period) {
+        return statsService.getConsultationsByTypeDetailed(period).stream()
+                .filter(dto -> TYPE.equals(dto.type()))
+                .mapToLong(ConsultationTypeStatsDto::count)
+                .sum();
+    }
+
+    private void fact(LocalDate date, long consultations) {
+        jdbc.update("""
+                INSERT INTO consultation_daily_fact (date, professional_id, specialty, type, sex, fonasa_tier, age_bucket, consultations)
+                VALUES (?, 9911, 'Pediatría', ?, 'F', 'A', '31-40', ?)
+                """, date, TYPE, consultations);
+    }
+
+    private void clearCaches() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+}